@@ -22,6 +22,7 @@ setupAnnoyingAPI(
 
 repository(Repository.PLACEHOLDER_API)
 repositories.mavenCentral()
+repositories.maven("https://repo.papermc.io/repository/maven-public/") // MockBukkit's Paper API
 
 dependencies {
     // PlaceholderAPI integration
@@ -30,4 +31,79 @@ dependencies {
     // Adventure API (MiniMessage support)
     implementation("net.kyori:adventure-text-minimessage:4.26.1")
     implementation("net.kyori:adventure-platform-bukkit:4.4.1")
+
+    // Tests, MockBukkit runs the plugin without a server or network
+    testImplementation("org.mockbukkit.mockbukkit:mockbukkit-v1.21:4.45.0")
+    testImplementation("me.clip", "placeholderapi", "2.11.7")
+    testImplementation(platform("org.junit:junit-bom:5.12.2"))
+    testImplementation("org.junit.jupiter:junit-jupiter")
+    testRuntimeOnly("org.junit.platform:junit-platform-launcher")
+}
+
+// MockBukkit needs Java 21, the plugin itself still targets older versions
+tasks.compileTestJava {
+    javaCompiler.set(javaToolchains.compilerFor { languageVersion.set(JavaLanguageVersion.of(21)) })
+}
+tasks.withType<Test>().configureEach {
+    javaLauncher.set(javaToolchains.launcherFor { languageVersion.set(JavaLanguageVersion.of(21)) })
+}
+
+tasks.test {
+    useJUnitPlatform()
+}
+
+// Load harness: the whole plugin under MockBukkit with many players, failing when a subsystem goes over its tick budget
+// Sizes and budgets are system properties, e.g. ./gradlew loadTest -Dharness.players=500 -Dharness.budget.listener=2
+val loadTest: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output + sourceSets.test.get().output
+    runtimeClasspath += sourceSets.main.get().output + sourceSets.test.get().output
+}
+configurations["loadTestImplementation"].extendsFrom(configurations.testImplementation.get())
+configurations["loadTestCompileOnly"].extendsFrom(configurations.testCompileOnly.get())
+configurations["loadTestRuntimeOnly"].extendsFrom(configurations.testRuntimeOnly.get())
+tasks.named<JavaCompile>("compileLoadTestJava") {
+    javaCompiler.set(javaToolchains.compilerFor { languageVersion.set(JavaLanguageVersion.of(21)) })
+}
+tasks.register<Test>("loadTest") {
+    description = "Runs the load harness"
+    group = "verification"
+    testClassesDirs = loadTest.output.classesDirs
+    classpath = loadTest.runtimeClasspath
+    useJUnitPlatform()
+    systemProperties(System.getProperties().filterKeys { (it as String).startsWith("harness.") }.mapKeys { it.key as String })
+    shouldRunAfter(tasks.test)
+}
+
+// Concurrency stress tests (jcstress) for the lock-free and shared caches, e.g. ./gradlew jcstress -PjcstressArgs="-m quick"
+val jcstress: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output + sourceSets.main.get().compileClasspath
+    runtimeClasspath += sourceSets.main.get().output + sourceSets.main.get().compileClasspath
+}
+dependencies {
+    "jcstressImplementation"("org.openjdk.jcstress:jcstress-core:0.16")
+    "jcstressAnnotationProcessor"("org.openjdk.jcstress:jcstress-core:0.16")
+}
+tasks.register<JavaExec>("jcstress") {
+    description = "Runs the jcstress concurrency tests"
+    group = "verification"
+    classpath = jcstress.runtimeClasspath
+    mainClass.set("org.openjdk.jcstress.Main")
+    args(providers.gradleProperty("jcstressArgs").getOrElse("-m sanity").split(" "))
+}
+
+// Microbenchmarks (JMH), e.g. ./gradlew jmh -PjmhArgs="TimeFormatter -prof gc"
+val jmh: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output + sourceSets.main.get().compileClasspath
+    runtimeClasspath += sourceSets.main.get().output + sourceSets.main.get().compileClasspath
+}
+dependencies {
+    "jmhImplementation"("org.openjdk.jmh:jmh-core:1.37")
+    "jmhAnnotationProcessor"("org.openjdk.jmh:jmh-generator-annprocess:1.37")
+}
+tasks.register<JavaExec>("jmh") {
+    description = "Runs the JMH benchmarks"
+    group = "verification"
+    classpath = jmh.runtimeClasspath
+    mainClass.set("org.openjdk.jmh.Main")
+    args(providers.gradleProperty("jmhArgs").getOrElse("").split(" ").filter { it.isNotEmpty() })
 }
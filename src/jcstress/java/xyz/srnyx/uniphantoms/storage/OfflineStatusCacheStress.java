@@ -0,0 +1,74 @@
+package xyz.srnyx.uniphantoms.storage;
+
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.Expect;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.I_Result;
+import org.openjdk.jcstress.infra.results.Z_Result;
+
+import java.util.UUID;
+
+
+/**
+ * Races on {@link OfflineStatusCache}
+ */
+public class OfflineStatusCacheStress {
+    private static final UUID FIRST = new UUID(1, 1);
+    private static final UUID SECOND = new UUID(2, 2);
+
+    /**
+     * A storage load (read before a toggle's save) racing the toggle's removal, the stale result must never end up cached
+     */
+    @JCStressTest
+    @Outcome(id = "false", expect = Expect.ACCEPTABLE, desc = "Stale result not cached")
+    @Outcome(expect = Expect.FORBIDDEN, desc = "Stale result cached after the removal")
+    @State
+    public static class StaleLoad {
+        private final OfflineStatusCache cache = new OfflineStatusCache(16, Long.MAX_VALUE);
+        private final long removals = cache.getRemovals();
+
+        @Actor
+        public void load() {
+            cache.putIfUnchanged(FIRST, true, WorldOverrides.EMPTY, removals);
+        }
+
+        @Actor
+        public void toggle() {
+            cache.remove(FIRST);
+        }
+
+        @Arbiter
+        public void arbiter(Z_Result result) {
+            result.r1 = cache.get(FIRST) != null;
+        }
+    }
+
+    /**
+     * Two loads at once into a full cache, the bound must hold
+     */
+    @JCStressTest
+    @Outcome(id = "1", expect = Expect.ACCEPTABLE, desc = "Eldest evicted")
+    @Outcome(expect = Expect.FORBIDDEN, desc = "Bound exceeded or both lost")
+    @State
+    public static class Bound {
+        private final OfflineStatusCache cache = new OfflineStatusCache(1, Long.MAX_VALUE);
+
+        @Actor
+        public void first() {
+            cache.put(FIRST, null, WorldOverrides.EMPTY);
+        }
+
+        @Actor
+        public void second() {
+            cache.put(SECOND, false, WorldOverrides.EMPTY);
+        }
+
+        @Arbiter
+        public void arbiter(I_Result result) {
+            result.r1 = cache.size();
+        }
+    }
+}
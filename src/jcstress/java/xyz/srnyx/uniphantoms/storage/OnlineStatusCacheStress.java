@@ -0,0 +1,130 @@
+package xyz.srnyx.uniphantoms.storage;
+
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.Expect;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.ZZ_Result;
+import org.openjdk.jcstress.infra.results.Z_Result;
+
+import java.util.UUID;
+
+
+/**
+ * Races on {@link OnlineStatusCache}: writers rebuild the table under a lock, readers must always see a complete table
+ */
+public class OnlineStatusCacheStress {
+    private static final UUID FIRST = new UUID(1, 1);
+    private static final UUID SECOND = new UUID(2, 2);
+
+    /**
+     * Two joins at once, neither rebuilt table may drop the other's player
+     */
+    @JCStressTest
+    @Outcome(id = "true, true", expect = Expect.ACCEPTABLE, desc = "Both players cached")
+    @Outcome(expect = Expect.FORBIDDEN, desc = "A concurrent put was lost")
+    @State
+    public static class PutPut {
+        private final OnlineStatusCache cache = new OnlineStatusCache();
+
+        @Actor
+        public void first() {
+            cache.put(FIRST, PhantomStatus.DISABLED);
+        }
+
+        @Actor
+        public void second() {
+            cache.put(SECOND, PhantomStatus.ENABLED);
+        }
+
+        @Arbiter
+        public void arbiter(ZZ_Result result) {
+            result.r1 = cache.get(FIRST) == PhantomStatus.DISABLED;
+            result.r2 = cache.get(SECOND) == PhantomStatus.ENABLED;
+        }
+    }
+
+    /**
+     * A storage load (putIfAbsent) racing a toggle (put), the toggle's status must win either way
+     */
+    @JCStressTest
+    @Outcome(id = "true, false", expect = Expect.ACCEPTABLE, desc = "Load first, then the toggle replaced it")
+    @Outcome(id = "false, false", expect = Expect.ACCEPTABLE, desc = "Toggle first, the load kept it")
+    @Outcome(expect = Expect.FORBIDDEN, desc = "The load overwrote the toggle")
+    @State
+    public static class LoadToggle {
+        private final OnlineStatusCache cache = new OnlineStatusCache();
+
+        @Actor
+        public void load(ZZ_Result result) {
+            result.r1 = cache.putIfAbsent(FIRST, PhantomStatus.ENABLED).isEnabled();
+        }
+
+        @Actor
+        public void toggle() {
+            cache.put(FIRST, PhantomStatus.DISABLED);
+        }
+
+        @Arbiter
+        public void arbiter(ZZ_Result result) {
+            result.r2 = cache.get(FIRST).isEnabled();
+        }
+    }
+
+    /**
+     * A region thread reading a cached player while another player joins
+     */
+    @JCStressTest
+    @Outcome(id = "true", expect = Expect.ACCEPTABLE, desc = "Cached status seen")
+    @Outcome(expect = Expect.FORBIDDEN, desc = "Read a partly built table")
+    @State
+    public static class ReadDuringPut {
+        private final OnlineStatusCache cache = new OnlineStatusCache();
+
+        public ReadDuringPut() {
+            cache.put(FIRST, PhantomStatus.DISABLED);
+        }
+
+        @Actor
+        public void join() {
+            cache.put(SECOND, PhantomStatus.ENABLED);
+        }
+
+        @Actor
+        public void read(Z_Result result) {
+            result.r1 = cache.get(FIRST) == PhantomStatus.DISABLED;
+        }
+    }
+
+    /**
+     * A quit (remove) racing a toggle (replace), the player must not come back
+     */
+    @JCStressTest
+    @Outcome(id = "false", expect = Expect.ACCEPTABLE, desc = "Player removed")
+    @Outcome(expect = Expect.FORBIDDEN, desc = "The replace re-added a removed player")
+    @State
+    public static class RemoveReplace {
+        private final OnlineStatusCache cache = new OnlineStatusCache();
+
+        public RemoveReplace() {
+            cache.put(FIRST, PhantomStatus.ENABLED);
+        }
+
+        @Actor
+        public void quit() {
+            cache.remove(FIRST);
+        }
+
+        @Actor
+        public void toggle() {
+            cache.replace(FIRST, PhantomStatus.DISABLED);
+        }
+
+        @Arbiter
+        public void arbiter(Z_Result result) {
+            result.r1 = cache.get(FIRST) != null;
+        }
+    }
+}
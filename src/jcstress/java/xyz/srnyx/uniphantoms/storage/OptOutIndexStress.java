@@ -0,0 +1,77 @@
+package xyz.srnyx.uniphantoms.storage;
+
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.Expect;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.III_Result;
+import org.openjdk.jcstress.infra.results.ZI_Result;
+
+import java.util.UUID;
+
+
+/**
+ * Races on {@link OptOutIndex}: a player must be indexed under one world at most, and the per-world sets must match the player's entry
+ */
+public class OptOutIndexStress {
+    private static final UUID PLAYER = new UUID(1, 1);
+
+    /**
+     * A world change racing a toggle in the new world
+     */
+    @JCStressTest
+    @Outcome(id = "1, 0, 1", expect = Expect.ACCEPTABLE, desc = "Ended up in the first world")
+    @Outcome(id = "0, 1, 1", expect = Expect.ACCEPTABLE, desc = "Ended up in the second world")
+    @Outcome(expect = Expect.FORBIDDEN, desc = "Indexed twice or lost")
+    @State
+    public static class WorldChange {
+        private final OptOutIndex index = new OptOutIndex();
+
+        @Actor
+        public void first() {
+            index.set(PLAYER, 1, true);
+        }
+
+        @Actor
+        public void second() {
+            index.set(PLAYER, 2, true);
+        }
+
+        @Arbiter
+        public void arbiter(III_Result result) {
+            result.r1 = index.get(1).size();
+            result.r2 = index.get(2).size();
+            result.r3 = index.size();
+        }
+    }
+
+    /**
+     * A toggle racing a quit
+     */
+    @JCStressTest
+    @Outcome(id = "true, 1", expect = Expect.ACCEPTABLE, desc = "Quit first, then indexed")
+    @Outcome(id = "false, 0", expect = Expect.ACCEPTABLE, desc = "Indexed, then removed")
+    @Outcome(expect = Expect.FORBIDDEN, desc = "World set and player entry disagree")
+    @State
+    public static class SetRemove {
+        private final OptOutIndex index = new OptOutIndex();
+
+        @Actor
+        public void toggle() {
+            index.set(PLAYER, 1, true);
+        }
+
+        @Actor
+        public void quit() {
+            index.remove(PLAYER);
+        }
+
+        @Arbiter
+        public void arbiter(ZI_Result result) {
+            result.r1 = index.get(1).contains(PLAYER);
+            result.r2 = index.size();
+        }
+    }
+}
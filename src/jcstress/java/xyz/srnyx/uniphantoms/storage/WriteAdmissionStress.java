@@ -0,0 +1,82 @@
+package xyz.srnyx.uniphantoms.storage;
+
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.Expect;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.II_Result;
+import org.openjdk.jcstress.infra.results.ZI_Result;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Races on {@link WriteAdmission}, with 1 write per second so the bucket doesn't refill during a test, and writes running on the calling thread
+ */
+public class WriteAdmissionStress {
+    /**
+     * A write submitted while the queue is flushed (reload or disable), it must either run or stay queued
+     */
+    @JCStressTest
+    @Outcome(id = "true, 0", expect = Expect.ACCEPTABLE, desc = "Flushed, or admitted after a refill")
+    @Outcome(id = "false, 1", expect = Expect.ACCEPTABLE, desc = "Queued after the flush")
+    @Outcome(expect = Expect.FORBIDDEN, desc = "Write lost or ran twice")
+    @State
+    public static class SubmitFlush {
+        private final WriteAdmission admission = new WriteAdmission(1, 1, 4, Runnable::run);
+        private final AtomicInteger ran = new AtomicInteger();
+        private WriteAdmission.Ticket<Integer> write;
+
+        public SubmitFlush() {
+            // Use up the only token
+            admission.submit(() -> 0);
+        }
+
+        @Actor
+        public void submit() {
+            write = admission.submit(ran::incrementAndGet);
+        }
+
+        @Actor
+        public void flush() {
+            admission.flush();
+        }
+
+        @Arbiter
+        public void arbiter(ZI_Result result) {
+            result.r1 = write.result.isDone() && ran.get() == 1;
+            result.r2 = admission.getQueued();
+        }
+    }
+
+    /**
+     * Two writes racing for the last token and queue slot
+     */
+    @JCStressTest
+    @Outcome(id = "1, 1", expect = Expect.ACCEPTABLE, desc = "One admitted, one queued")
+    @Outcome(id = "2, 0", expect = Expect.ACCEPTABLE_INTERESTING, desc = "Bucket refilled in between")
+    @Outcome(expect = Expect.FORBIDDEN, desc = "Token or queue slot used twice")
+    @State
+    public static class SubmitSubmit {
+        private final WriteAdmission admission = new WriteAdmission(1, 1, 1, Runnable::run);
+        private final AtomicInteger ran = new AtomicInteger();
+
+        @Actor
+        public void first() {
+            admission.submit(ran::incrementAndGet);
+        }
+
+        @Actor
+        public void second() {
+            admission.submit(ran::incrementAndGet);
+        }
+
+        @Arbiter
+        public void arbiter(II_Result result) {
+            result.r1 = ran.get();
+            result.r2 = admission.getQueued();
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package xyz.srnyx.uniphantoms.utility;
+
+import org.jetbrains.annotations.NotNull;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * {@link TimeFormatter} against the string-building implementation it replaced, for a cooldown message sent every tick and for one-off values
+ * <br>Run with {@code ./gradlew jmh}, add {@code -prof gc} to the arguments to see the allocation rates
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimeFormatterBenchmark {
+    /**
+     * A ticking cooldown: the same second for 20 calls in a row
+     */
+    private long ticking;
+    /**
+     * A different value every call, so the cache never hits
+     */
+    private long varying;
+    @NotNull private final StringBuilder buffer = new StringBuilder(32);
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        ticking = TimeUnit.MINUTES.toMillis(5);
+        varying = TimeUnit.DAYS.toMillis(3);
+    }
+
+    @Benchmark
+    public String tickingCached() {
+        ticking += 50;
+        return TimeFormatter.format(ticking, TimeFormatter.TimeFormat.LONG);
+    }
+
+    @Benchmark
+    public String tickingLegacy() {
+        ticking += 50;
+        return LegacyTimeFormatter.format(ticking, TimeFormatter.TimeFormat.LONG);
+    }
+
+    @Benchmark
+    public String varyingCached() {
+        varying += 1_001;
+        return TimeFormatter.format(varying, TimeFormatter.TimeFormat.LONG);
+    }
+
+    @Benchmark
+    public String varyingLegacy() {
+        varying += 1_001;
+        return LegacyTimeFormatter.format(varying, TimeFormatter.TimeFormat.LONG);
+    }
+
+    @Benchmark
+    public int varyingIntoBuffer() {
+        varying += 1_001;
+        buffer.setLength(0);
+        TimeFormatter.format(varying, TimeFormatter.TimeFormat.SHORT, buffer);
+        return buffer.length();
+    }
+
+    @Benchmark
+    public long parse() {
+        return TimeFormatter.parse("1d2h30m45s");
+    }
+
+    /**
+     * The implementation before the per-second cache and the allocation-free appends, kept as the baseline
+     */
+    private static class LegacyTimeFormatter {
+        @NotNull
+        private static String format(long milliseconds, @NotNull TimeFormatter.TimeFormat format) {
+            if (milliseconds < 0) return "0s";
+
+            final long days = TimeUnit.MILLISECONDS.toDays(milliseconds);
+            milliseconds -= TimeUnit.DAYS.toMillis(days);
+
+            final long hours = TimeUnit.MILLISECONDS.toHours(milliseconds);
+            milliseconds -= TimeUnit.HOURS.toMillis(hours);
+
+            final long minutes = TimeUnit.MILLISECONDS.toMinutes(milliseconds);
+            milliseconds -= TimeUnit.MINUTES.toMillis(minutes);
+
+            final long seconds = TimeUnit.MILLISECONDS.toSeconds(milliseconds);
+
+            final StringBuilder result = new StringBuilder();
+            final String separator = format == TimeFormatter.TimeFormat.COMPACT ? "" : " ";
+
+            if (days > 0) appendUnit(result, days, "day", format, separator);
+            if (hours > 0) appendUnit(result, hours, "hour", format, separator);
+            if (minutes > 0) appendUnit(result, minutes, "minute", format, separator);
+            if (seconds > 0 || result.length() == 0) appendUnit(result, seconds, "second", format, separator);
+
+            return result.toString().trim();
+        }
+
+        private static void appendUnit(@NotNull StringBuilder sb, long value, @NotNull String unit, @NotNull TimeFormatter.TimeFormat format, @NotNull String separator) {
+            if (sb.length() > 0) sb.append(separator);
+            sb.append(value);
+            switch (format) {
+                case LONG:
+                    sb.append(" ").append(unit);
+                    if (value != 1) sb.append("s");
+                    break;
+                case SHORT:
+                case COMPACT:
+                    sb.append(unit.charAt(0));
+                    break;
+            }
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package xyz.srnyx.uniphantoms;
+
+import org.bukkit.Location;
+import org.bukkit.entity.Phantom;
+import org.bukkit.event.entity.EntityTargetEvent;
+import org.bukkit.event.entity.EntityTargetLivingEntityEvent;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+
+import org.mockbukkit.mockbukkit.entity.PlayerMock;
+import org.mockbukkit.mockbukkit.world.WorldMock;
+
+import xyz.srnyx.uniphantoms.utility.TickProfiler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+/**
+ * Runs the plugin under load and fails if a subsystem goes over its per-tick budget, run with {@code ./gradlew loadTest}
+ * <br>Each subsystem's timings are published as report entries, shown in the test report.
+ * <br>Every tick fires target and damage events, polls placeholders, and regularly mass toggles through {@code /nophantoms} and reloads.
+ * Sizes and budgets (milliseconds per tick) are system properties: {@code harness.players}, {@code harness.worlds}, {@code harness.phantoms} (per world),
+ * {@code harness.events} (per tick), {@code harness.ticks} and {@code harness.budget.<subsystem>}.
+ */
+class LoadHarnessTest extends MockServerTest {
+    private static final int PLAYERS = Integer.getInteger("harness.players", 500);
+    private static final int WORLDS = Integer.getInteger("harness.worlds", 3);
+    private static final int PHANTOMS = Integer.getInteger("harness.phantoms", 50);
+    private static final int EVENTS = Integer.getInteger("harness.events", 200);
+    private static final int TICKS = Integer.getInteger("harness.ticks", 400);
+    /**
+     * Ticks run before measuring, so the JIT and the caches warm up
+     */
+    private static final int WARMUP_TICKS = 100;
+    private static final int RELOAD_INTERVAL = 100;
+    private static final int TOGGLE_INTERVAL = 20;
+    /**
+     * Players toggled from the console every {@link #TOGGLE_INTERVAL}
+     */
+    private static final int TOGGLES = 50;
+    /**
+     * Players whose placeholders are requested every tick
+     */
+    private static final int PLACEHOLDER_POLLS = 100;
+
+    private final Random random = new Random(1);
+    private final List<WorldMock> worlds = new ArrayList<>();
+    private final List<List<PlayerMock>> players = new ArrayList<>();
+    private final List<List<Phantom>> phantoms = new ArrayList<>();
+    private PersonalPlaceholders placeholders;
+
+    @Test
+    void staysWithinBudgets(TestReporter reporter) {
+        populate();
+        placeholders = new PersonalPlaceholders(plugin);
+
+        // Warm up, then measure with the configured budgets (no degradation, the harness measures the normal modes)
+        for (int tick = 0; tick < WARMUP_TICKS; tick++) runTick(tick);
+        final TickProfiler profiler = plugin.getProfiler();
+        profiler.configure(true, budgets(), false, 1, Long.MAX_VALUE);
+        for (int tick = 0; tick < TICKS; tick++) {
+            runTick(tick);
+            profiler.tick(null);
+        }
+
+        final StringBuilder failures = new StringBuilder();
+        for (final TickProfiler.Subsystem subsystem : TickProfiler.Subsystem.VALUES) {
+            final TickProfiler.Stats stats = profiler.getStats(subsystem);
+            reporter.publishEntry(subsystem.key, String.format(Locale.ROOT, "average %s, peak %s, budget %s, over budget %d/%d ticks",
+                    TickProfiler.formatMillis(stats.average), TickProfiler.formatMillis(stats.peak), TickProfiler.formatMillis(stats.budget), stats.overBudget, TICKS));
+            if (stats.overBudget > 0) failures.append(subsystem.key).append(" peaked at ").append(TickProfiler.formatMillis(stats.peak)).append(", ");
+        }
+        assertTrue(failures.length() == 0, "Over budget with " + PLAYERS + " players: " + failures);
+    }
+
+    private void populate() {
+        worlds.add(world);
+        for (int i = 1; i < WORLDS; i++) worlds.add(server.addSimpleWorld("world_" + i));
+        for (final WorldMock current : worlds) {
+            players.add(new ArrayList<>());
+            final List<Phantom> worldPhantoms = new ArrayList<>();
+            for (int i = 0; i < PHANTOMS; i++) worldPhantoms.add(current.spawn(randomLocation(current, 80), Phantom.class));
+            phantoms.add(worldPhantoms);
+        }
+        for (int i = 0; i < PLAYERS; i++) {
+            final int index = i % worlds.size();
+            final PlayerMock player = server.addPlayer();
+            player.teleport(randomLocation(worlds.get(index), 64));
+            plugin.setPhantomsEnabled(player, random.nextBoolean());
+            players.get(index).add(player);
+        }
+    }
+
+    private void runTick(int tick) {
+        // Target & damage events
+        for (int i = 0; i < EVENTS; i++) {
+            final int index = random.nextInt(worlds.size());
+            final List<PlayerMock> worldPlayers = players.get(index);
+            if (worldPlayers.isEmpty()) continue;
+            final PlayerMock player = worldPlayers.get(random.nextInt(worldPlayers.size()));
+            final Phantom phantom = phantoms.get(index).get(random.nextInt(PHANTOMS));
+            if (random.nextBoolean()) {
+                server.getPluginManager().callEvent(new EntityTargetLivingEntityEvent(phantom, player, EntityTargetEvent.TargetReason.CLOSEST_PLAYER));
+            } else {
+                player.damage(0.5, phantom);
+                player.setHealth(player.getMaxHealth());
+            }
+        }
+
+        // Placeholder polling
+        for (int i = 0; i < PLACEHOLDER_POLLS; i++) {
+            final List<PlayerMock> worldPlayers = players.get(random.nextInt(worlds.size()));
+            if (worldPlayers.isEmpty()) continue;
+            final PlayerMock player = worldPlayers.get(random.nextInt(worldPlayers.size()));
+            placeholders.onPlaceholderRequest(player, "status");
+            placeholders.onPlaceholderRequest(player, "status_in_" + player.getWorld().getName());
+        }
+        placeholders.onPlaceholderRequest(null, "total_disabled");
+
+        // Mass toggles & reloads
+        if (tick % TOGGLE_INTERVAL == 0) for (int i = 0; i < TOGGLES; i++) {
+            final List<PlayerMock> worldPlayers = players.get(random.nextInt(worlds.size()));
+            if (worldPlayers.isEmpty()) continue;
+            server.dispatchCommand(server.getConsoleSender(), "nophantoms toggle " + worldPlayers.get(random.nextInt(worldPlayers.size())).getName() + " -s");
+        }
+        if (tick % RELOAD_INTERVAL == RELOAD_INTERVAL - 1) plugin.reload();
+
+        server.getScheduler().performOneTick();
+    }
+
+    private Location randomLocation(WorldMock current, double y) {
+        return new Location(current, random.nextInt(2000) - 1000, y, random.nextInt(2000) - 1000);
+    }
+
+    private static long[] budgets() {
+        final long[] budgets = new long[TickProfiler.Subsystem.VALUES.length];
+        for (final TickProfiler.Subsystem subsystem : TickProfiler.Subsystem.VALUES) {
+            final double defaultBudget = subsystem == TickProfiler.Subsystem.RELOAD ? 50 : 5;
+            final double millis = Double.parseDouble(System.getProperty("harness.budget." + subsystem.key, String.valueOf(defaultBudget)));
+            budgets[subsystem.ordinal()] = (long) (millis * 1_000_000);
+        }
+        return budgets;
+    }
+}
@@ -1,16 +1,34 @@
 package xyz.srnyx.uniphantoms;
 
+import org.bukkit.configuration.ConfigurationSection;
+
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import xyz.srnyx.annoyingapi.AnnoyingPlugin;
 import xyz.srnyx.annoyingapi.file.AnnoyingResource;
 
+import xyz.srnyx.uniphantoms.storage.StatusStore;
+import xyz.srnyx.uniphantoms.utility.TickProfiler;
+import xyz.srnyx.uniphantoms.zone.Zone;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.logging.Logger;
 
 
+/**
+ * Immutable snapshot of {@code config.yml}
+ * <br>Sections implement {@code equals} so reloads can tell which parts changed
+ */
 public class ConfigYml {
     /**
      * {@code default}
@@ -20,7 +38,19 @@ public class ConfigYml {
     @NotNull public final StatisticTask statisticTask;
     @NotNull public final WorldsBlacklist worldsBlacklist;
     @NotNull public final ErrorReporting errorReporting;
+    @NotNull public final Timings timings;
+    @NotNull public final Storage storage;
+    @NotNull public final Sync sync;
+    @NotNull public final OptOutCleanup optOutCleanup;
+    @NotNull public final Targeting targeting;
+    @NotNull public final OfflineCache offlineCache;
+    @NotNull public final Audit audit;
+    @NotNull public final Transfer transfer;
+    @NotNull public final Trace trace;
+    @NotNull public final WriteLimit writeLimit;
+    @NotNull public final Zones zones;
     public final boolean debugMode;
+    public final boolean autoReload;
 
     public ConfigYml(@NotNull AnnoyingPlugin plugin) {
         final AnnoyingResource config = new AnnoyingResource(plugin, "config.yml");
@@ -30,7 +60,19 @@ public class ConfigYml {
         statisticTask = new StatisticTask(config);
         worldsBlacklist = new WorldsBlacklist(config);
         errorReporting = new ErrorReporting(config);
+        timings = new Timings(config);
+        storage = new Storage(config);
+        sync = new Sync(config);
+        optOutCleanup = new OptOutCleanup(config);
+        targeting = new Targeting(config);
+        offlineCache = new OfflineCache(config);
+        audit = new Audit(config);
+        transfer = new Transfer(config);
+        trace = new Trace(config);
+        writeLimit = new WriteLimit(config);
+        zones = new Zones(config, plugin.getLogger());
         debugMode = config.getBoolean("debug-mode", false);
+        autoReload = config.getBoolean("auto-reload", true);
     }
 
     public static class StatisticTask {
@@ -43,6 +85,19 @@ public class ConfigYml {
                     : config.getLong("statistic-task.delay");
             this.period = config.getLong("statistic-task.period", 24000); // default: 20 minutes (1 in-game day)
         }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof StatisticTask)) return false;
+            final StatisticTask other = (StatisticTask) o;
+            return Objects.equals(delay, other.delay) && period == other.period;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(delay, period);
+        }
     }
 
     public static class WorldsBlacklist {
@@ -52,7 +107,20 @@ public class ConfigYml {
         public WorldsBlacklist(@NotNull AnnoyingResource config) {
             this.treatAsWhitelist = config.getBoolean("worlds-blacklist.treat-as-whitelist", false);
             final List<String> stringList = config.getStringList("worlds-blacklist.list");
-            this.list = stringList.isEmpty() && !treatAsWhitelist ? null : new HashSet<>(stringList);
+            this.list = stringList.isEmpty() && !treatAsWhitelist ? null : Collections.unmodifiableSet(new HashSet<>(stringList));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof WorldsBlacklist)) return false;
+            final WorldsBlacklist other = (WorldsBlacklist) o;
+            return treatAsWhitelist == other.treatAsWhitelist && Objects.equals(list, other.list);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(list, treatAsWhitelist);
         }
     }
 
@@ -64,6 +132,451 @@ public class ConfigYml {
             this.saveToFile = config.getBoolean("error-reporting.save-to-file", true);
             this.verbose = config.getBoolean("error-reporting.verbose", false);
         }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof ErrorReporting)) return false;
+            final ErrorReporting other = (ErrorReporting) o;
+            return saveToFile == other.saveToFile && verbose == other.verbose;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(saveToFile, verbose);
+        }
+    }
+
+    public static class Timings {
+        public final boolean enabled;
+        /**
+         * Budget in nanoseconds per tick for each {@link TickProfiler.Subsystem}, indexed by ordinal ({@code 0} = no budget)
+         */
+        @NotNull private final long[] budgets = new long[TickProfiler.Subsystem.VALUES.length];
+        /**
+         * Whether subsystems over their budget switch to cheaper modes, only used while {@link #enabled} (nothing is measured otherwise)
+         */
+        public final boolean degrade;
+        public final long recoveryTicks;
+        /**
+         * Nanoseconds
+         */
+        public final long recoveryTickTime;
+
+        public Timings(@NotNull AnnoyingResource config) {
+            this.enabled = config.getBoolean("timings.enabled", false);
+            for (final TickProfiler.Subsystem subsystem : TickProfiler.Subsystem.VALUES) {
+                budgets[subsystem.ordinal()] = (long) (config.getDouble("timings.budgets." + subsystem.key, 0) * 1_000_000); // milliseconds -> nanoseconds
+            }
+            this.degrade = config.getBoolean("timings.degradation.enabled", true);
+            this.recoveryTicks = Math.max(1, config.getLong("timings.degradation.recovery-ticks", 600)); // default: 30 seconds
+            this.recoveryTickTime = (long) (Math.max(50, config.getDouble("timings.degradation.recovery-tick-time", 55)) * 1_000_000); // milliseconds -> nanoseconds
+        }
+
+        /**
+         * Get the budget in nanoseconds per tick for each {@link TickProfiler.Subsystem}, indexed by ordinal ({@code 0} = no budget)
+         *
+         * @return a copy, the config can't be changed through it
+         */
+        @NotNull
+        public long[] getBudgets() {
+            return budgets.clone();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Timings)) return false;
+            final Timings other = (Timings) o;
+            return enabled == other.enabled && Arrays.equals(budgets, other.budgets) && degrade == other.degrade && recoveryTicks == other.recoveryTicks && recoveryTickTime == other.recoveryTickTime;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Objects.hash(enabled, degrade, recoveryTicks, recoveryTickTime) + Arrays.hashCode(budgets);
+        }
+    }
+
+    public static class Storage {
+        @NotNull public final StatusStore.Backend backend;
+
+        public Storage(@NotNull AnnoyingResource config) {
+            StatusStore.Backend parsed;
+            try {
+                parsed = StatusStore.Backend.valueOf(config.getString("storage.backend", "annoying").toUpperCase(Locale.ROOT));
+            } catch (final IllegalArgumentException e) {
+                parsed = StatusStore.Backend.ANNOYING;
+            }
+            this.backend = parsed;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Storage)) return false;
+            final Storage other = (Storage) o;
+            return backend == other.backend;
+        }
+
+        @Override
+        public int hashCode() {
+            return backend.hashCode();
+        }
+    }
+
+    public static class Sync {
+        public final boolean enabled;
+        @NotNull public final String subchannel;
+
+        public Sync(@NotNull AnnoyingResource config) {
+            this.enabled = config.getBoolean("sync.enabled", false);
+            this.subchannel = config.getString("sync.subchannel", "UniPhantoms");
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Sync)) return false;
+            final Sync other = (Sync) o;
+            return enabled == other.enabled && subchannel.equals(other.subchannel);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(enabled, subchannel);
+        }
+    }
+
+    public static class OptOutCleanup {
+        /**
+         * Phantom target ranges are around 64 blocks, larger radiuses would mostly query entities that can't be targeting the player
+         */
+        private static final double MAX_RADIUS = 128;
+
+        @NotNull public final Mode mode;
+        public final double radius;
+
+        public OptOutCleanup(@NotNull AnnoyingResource config) {
+            Mode parsed;
+            try {
+                parsed = Mode.valueOf(config.getString("opt-out-cleanup.mode", "remove").toUpperCase(Locale.ROOT));
+            } catch (final IllegalArgumentException e) {
+                parsed = Mode.REMOVE;
+            }
+            this.mode = parsed;
+            this.radius = Math.max(1, Math.min(MAX_RADIUS, config.getDouble("opt-out-cleanup.radius", 64)));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof OptOutCleanup)) return false;
+            final OptOutCleanup other = (OptOutCleanup) o;
+            return mode == other.mode && radius == other.radius;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(mode, radius);
+        }
+
+        public enum Mode {
+            /**
+             * Remove the phantoms targeting the player
+             */
+            REMOVE,
+            /**
+             * Make the phantoms targeting the player look for another target
+             */
+            RETARGET,
+            /**
+             * Leave the phantoms alone, {@link xyz.srnyx.uniphantoms.listeners.MobListener} keeps them from attacking
+             */
+            NONE
+        }
+    }
+
+    public static class Targeting {
+        @NotNull public final Mode mode;
+        /**
+         * Radius to look for another target in, in blocks
+         */
+        public final double radius;
+        /**
+         * How long a phantom that found no other target is ignored for, in nanoseconds
+         */
+        public final long coolOff;
+
+        public Targeting(@NotNull AnnoyingResource config) {
+            Mode parsed;
+            try {
+                parsed = Mode.valueOf(config.getString("phantom-targeting.mode", "retarget").toUpperCase(Locale.ROOT).replace('-', '_'));
+            } catch (final IllegalArgumentException e) {
+                parsed = Mode.RETARGET;
+            }
+            this.mode = parsed;
+            this.radius = Math.max(1, Math.min(OptOutCleanup.MAX_RADIUS, config.getDouble("phantom-targeting.radius", 64)));
+            this.coolOff = (long) (Math.max(0, config.getDouble("phantom-targeting.cool-off", 10)) * 1_000_000_000L); // seconds -> nanoseconds
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Targeting)) return false;
+            final Targeting other = (Targeting) o;
+            return mode == other.mode && radius == other.radius && coolOff == other.coolOff;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(mode, radius, coolOff);
+        }
+
+        public enum Mode {
+            /**
+             * Only cancel the target event, the phantom will try the same player again
+             */
+            CANCEL,
+            /**
+             * Redirect the phantom to the nearest player with phantoms enabled, or cool it off if there's none
+             */
+            RETARGET,
+            /**
+             * Cool the phantom off, it won't target anyone for a while
+             */
+            COOL_OFF
+        }
+    }
+
+    public static class OfflineCache {
+        public final int size;
+        /**
+         * Nanoseconds
+         */
+        public final long ttl;
+
+        public OfflineCache(@NotNull AnnoyingResource config) {
+            this.size = Math.max(0, config.getInt("offline-cache.size", 1000));
+            this.ttl = Math.max(0, config.getLong("offline-cache.ttl", 300)) * 1_000_000_000L; // seconds -> nanoseconds
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof OfflineCache)) return false;
+            final OfflineCache other = (OfflineCache) o;
+            return size == other.size && ttl == other.ttl;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(size, ttl);
+        }
+    }
+
+    public static class Audit {
+        public final boolean enabled;
+        public final int retentionDays;
+        /**
+         * Records kept in memory per player for {@code /nophantoms history}
+         */
+        public final int historySize;
+
+        public Audit(@NotNull AnnoyingResource config) {
+            this.enabled = config.getBoolean("audit.enabled", true);
+            this.retentionDays = Math.max(1, config.getInt("audit.retention-days", 30));
+            this.historySize = Math.max(0, config.getInt("audit.history-size", 50));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Audit)) return false;
+            final Audit other = (Audit) o;
+            return enabled == other.enabled && retentionDays == other.retentionDays && historySize == other.historySize;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(enabled, retentionDays, historySize);
+        }
+    }
+
+    public static class Transfer {
+        /**
+         * Workers applying imported statuses
+         */
+        public final int importThreads;
+        /**
+         * Maximum imported players per second, {@code 0} for no limit
+         */
+        public final int importRate;
+
+        public Transfer(@NotNull AnnoyingResource config) {
+            this.importThreads = Math.max(1, Math.min(16, config.getInt("transfer.import-threads", 2)));
+            this.importRate = Math.max(0, config.getInt("transfer.import-rate", 2000));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Transfer)) return false;
+            final Transfer other = (Transfer) o;
+            return importThreads == other.importThreads && importRate == other.importRate;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(importThreads, importRate);
+        }
+    }
+
+    public static class Trace {
+        public final boolean enabled;
+        /**
+         * Fraction of the matching decisions that are recorded (0-1)
+         */
+        public final double sampleRate;
+        public final int bufferSize;
+        /**
+         * Lowercase names and UUIDs of the traced players, empty for everyone
+         */
+        @NotNull public final Set<String> players;
+        /**
+         * Names of the traced worlds, empty for every world
+         */
+        @NotNull public final Set<String> worlds;
+
+        public Trace(@NotNull AnnoyingResource config) {
+            this.enabled = config.getBoolean("trace.enabled", false);
+            this.sampleRate = Math.max(0, Math.min(1, config.getDouble("trace.sample-rate", 1)));
+            this.bufferSize = Math.max(16, Math.min(100000, config.getInt("trace.buffer-size", 1000)));
+            final Set<String> playerSet = new HashSet<>();
+            for (final String player : config.getStringList("trace.players")) playerSet.add(player.toLowerCase(Locale.ROOT));
+            this.players = Collections.unmodifiableSet(playerSet);
+            this.worlds = Collections.unmodifiableSet(new HashSet<>(config.getStringList("trace.worlds")));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Trace)) return false;
+            final Trace other = (Trace) o;
+            return enabled == other.enabled && sampleRate == other.sampleRate && bufferSize == other.bufferSize && players.equals(other.players) && worlds.equals(other.worlds);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(enabled, sampleRate, bufferSize, players, worlds);
+        }
+    }
+
+    public static class WriteLimit {
+        /**
+         * Status writes per second, {@code 0} for no limit
+         */
+        public final int rate;
+        public final int burst;
+        /**
+         * Writes waiting for their turn, more are rejected
+         */
+        public final int queueSize;
+
+        public WriteLimit(@NotNull AnnoyingResource config) {
+            this.rate = Math.max(0, config.getInt("write-limit.rate", 50));
+            this.burst = Math.max(1, config.getInt("write-limit.burst", 100));
+            this.queueSize = Math.max(0, config.getInt("write-limit.queue-size", 1000));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof WriteLimit)) return false;
+            final WriteLimit other = (WriteLimit) o;
+            return rate == other.rate && burst == other.burst && queueSize == other.queueSize;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(rate, burst, queueSize);
+        }
+    }
+
+    public static class Zones {
+        /**
+         * The valid zones by world name
+         */
+        @NotNull public final Map<String, List<Zone>> byWorld;
+
+        public Zones(@NotNull AnnoyingResource config, @NotNull Logger logger) {
+            final Map<String, List<Zone>> zones = new HashMap<>();
+            final ConfigurationSection section = config.getConfigurationSection("zones");
+            if (section != null) for (final String name : section.getKeys(false)) {
+                final ConfigurationSection zone = section.getConfigurationSection(name);
+                final String world = zone != null ? zone.getString("world") : null;
+                if (world == null) {
+                    logger.warning("Ignoring phantom-free zone " + name + ": no world");
+                    continue;
+                }
+                try {
+                    zones.computeIfAbsent(world, key -> new ArrayList<>()).add(parse(name, zone));
+                } catch (final IllegalArgumentException e) {
+                    logger.warning("Ignoring phantom-free zone " + name + ": " + e.getMessage());
+                }
+            }
+            for (final Map.Entry<String, List<Zone>> entry : zones.entrySet()) entry.setValue(Collections.unmodifiableList(entry.getValue()));
+            this.byWorld = Collections.unmodifiableMap(zones);
+        }
+
+        @NotNull
+        private static Zone parse(@NotNull String name, @NotNull ConfigurationSection zone) {
+            final List<String> corners = zone.getStringList("corners");
+            if (!corners.isEmpty()) {
+                final double[] xs = new double[corners.size()];
+                final double[] zs = new double[corners.size()];
+                for (int i = 0; i < corners.size(); i++) {
+                    final int[] corner = coordinates(corners.get(i), 2);
+                    xs[i] = corner[0];
+                    zs[i] = corner[1];
+                }
+                return new Zone.Polygon(name, xs, zs, zone.getInt("min-y", -64), zone.getInt("max-y", 320));
+            }
+            final int[] from = coordinates(zone.getString("from"), 3);
+            final int[] to = coordinates(zone.getString("to"), 3);
+            return new Zone.Cuboid(name, from[0], from[1], from[2], to[0], to[1], to[2]);
+        }
+
+        /**
+         * Parse {@code "x, y, z"} (or {@code "x, z"})
+         */
+        @NotNull
+        private static int[] coordinates(@Nullable String value, int count) {
+            if (value == null) throw new IllegalArgumentException("missing coordinates (from/to or corners)");
+            final String[] parts = value.split(",");
+            if (parts.length != count) throw new IllegalArgumentException("expected " + count + " coordinates in '" + value + "'");
+            final int[] result = new int[count];
+            for (int i = 0; i < count; i++) {
+                try {
+                    result[i] = Integer.parseInt(parts[i].trim());
+                } catch (final NumberFormatException e) {
+                    throw new IllegalArgumentException("invalid coordinate in '" + value + "'");
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Zones)) return false;
+            final Zones other = (Zones) o;
+            return byWorld.equals(other.byWorld);
+        }
+
+        @Override
+        public int hashCode() {
+            return byWorld.hashCode();
+        }
     }
 
 }
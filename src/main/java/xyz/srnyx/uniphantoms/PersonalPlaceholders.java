@@ -1,6 +1,7 @@
 package xyz.srnyx.uniphantoms;
 
 import org.bukkit.Bukkit;
+import org.bukkit.World;
 import org.bukkit.entity.Player;
 
 import org.jetbrains.annotations.NotNull;
@@ -8,9 +9,19 @@ import org.jetbrains.annotations.Nullable;
 
 import xyz.srnyx.annoyingapi.AnnoyingPAPIExpansion;
 
+import xyz.srnyx.uniphantoms.utility.StatusTrend;
+import xyz.srnyx.uniphantoms.utility.TickProfiler;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 
 public class PersonalPlaceholders extends AnnoyingPAPIExpansion {
     @NotNull private final UniPhantoms plugin;
+    /**
+     * Last values of the placeholders that go through every online player, served instead of recomputing them while placeholders are degraded
+     */
+    @NotNull private final Map<String, String> snapshots = new ConcurrentHashMap<>();
 
     public PersonalPlaceholders(@NotNull UniPhantoms plugin) {
         this.plugin = plugin;
@@ -28,42 +39,78 @@ public class PersonalPlaceholders extends AnnoyingPAPIExpansion {
 
     @Override @Nullable
     public String onPlaceholderRequest(@Nullable Player player, @NotNull String identifier) {
+        final TickProfiler profiler = plugin.getProfiler();
+        final long start = profiler.start();
+        try {
+            if (!isAggregate(identifier)) return request(player, identifier);
+            if (profiler.isDegraded(TickProfiler.Subsystem.PLACEHOLDERS)) {
+                final String snapshot = snapshots.get(identifier);
+                if (snapshot != null) return snapshot;
+            }
+            final String value = request(player, identifier);
+            if (value != null) snapshots.put(identifier, value);
+            return value;
+        } finally {
+            profiler.stop(TickProfiler.Subsystem.PLACEHOLDERS, start);
+        }
+    }
+
+    @Nullable
+    private String request(@Nullable Player player, @NotNull String identifier) {
         // %phantoms_enabled% - Returns "true" if phantoms are enabled for the player
         if (player != null && identifier.equals("enabled")) {
-            return String.valueOf(plugin.hasPhantomsEnabled(player));
+            return String.valueOf(plugin.hasPhantomsEnabledNow(player));
         }
 
         // %phantoms_disabled% - Returns "true" if phantoms are disabled for the player
         if (player != null && identifier.equals("disabled")) {
-            return String.valueOf(!plugin.hasPhantomsEnabled(player));
+            return String.valueOf(!plugin.hasPhantomsEnabledNow(player));
         }
 
         // %phantoms_status% - Returns "enabled" or "disabled"
         if (player != null && identifier.equals("status")) {
-            return plugin.hasPhantomsEnabled(player) ? "enabled" : "disabled";
+            return plugin.hasPhantomsEnabledNow(player) ? "enabled" : "disabled";
         }
 
         // %phantoms_status_word% - Returns "enabled" or "disabled" as words (alias for status)
         if (player != null && identifier.equals("status_word")) {
-            return plugin.hasPhantomsEnabled(player) ? "enabled" : "disabled";
+            return plugin.hasPhantomsEnabledNow(player) ? "enabled" : "disabled";
+        }
+
+        // %phantoms_status_in_<world>% - Returns "enabled" or "disabled" for the player in a world
+        if (player != null && identifier.startsWith("status_in_")) {
+            final World world = Bukkit.getWorld(identifier.substring(10));
+            return world == null ? "N/A" : (plugin.hasPhantomsEnabledNow(player, world) ? "enabled" : "disabled");
+        }
+
+        // %phantoms_enabled_in_<world>% - Returns "true" if phantoms are enabled for the player in a world
+        if (player != null && identifier.startsWith("enabled_in_")) {
+            final World world = Bukkit.getWorld(identifier.substring(11));
+            return world == null ? "false" : String.valueOf(plugin.hasPhantomsEnabledNow(player, world));
+        }
+
+        // %phantoms_disabled_in_<world>% - Returns "true" if phantoms are disabled for the player in a world
+        if (player != null && identifier.startsWith("disabled_in_")) {
+            final World world = Bukkit.getWorld(identifier.substring(12));
+            return world == null ? "false" : String.valueOf(!plugin.hasPhantomsEnabledNow(player, world));
         }
 
         // %phantoms_status_<player>% - Check another player's status
         if (identifier.startsWith("status_")) {
             final Player target = Bukkit.getPlayer(identifier.substring(7));
-            return target == null ? "N/A" : (plugin.hasPhantomsEnabled(target) ? "enabled" : "disabled");
+            return target == null ? "N/A" : (plugin.hasPhantomsEnabledNow(target) ? "enabled" : "disabled");
         }
 
         // %phantoms_enabled_<player>% - Check if specific player has phantoms enabled
         if (identifier.startsWith("enabled_")) {
             final Player target = Bukkit.getPlayer(identifier.substring(8));
-            return target == null ? "false" : String.valueOf(plugin.hasPhantomsEnabled(target));
+            return target == null ? "false" : String.valueOf(plugin.hasPhantomsEnabledNow(target));
         }
 
         // %phantoms_disabled_<player>% - Check if specific player has phantoms disabled
         if (identifier.startsWith("disabled_")) {
             final Player target = Bukkit.getPlayer(identifier.substring(9));
-            return target == null ? "false" : String.valueOf(!plugin.hasPhantomsEnabled(target));
+            return target == null ? "false" : String.valueOf(!plugin.hasPhantomsEnabledNow(target));
         }
 
         // %phantoms_world_enabled% - Check if phantoms are enabled in current world
@@ -74,7 +121,7 @@ public class PersonalPlaceholders extends AnnoyingPAPIExpansion {
         // %phantoms_total_enabled% - Count players with phantoms enabled
         if (identifier.equals("total_enabled")) {
             long count = Bukkit.getOnlinePlayers().stream()
-                    .filter(plugin::hasPhantomsEnabled)
+                    .filter(plugin::hasPhantomsEnabledNow)
                     .count();
             return String.valueOf(count);
         }
@@ -82,18 +129,34 @@ public class PersonalPlaceholders extends AnnoyingPAPIExpansion {
         // %phantoms_total_disabled% - Count players with phantoms disabled
         if (identifier.equals("total_disabled")) {
             long count = Bukkit.getOnlinePlayers().stream()
-                    .filter(p -> !plugin.hasPhantomsEnabled(p))
+                    .filter(p -> !plugin.hasPhantomsEnabledNow(p))
                     .count();
             return String.valueOf(count);
         }
 
+        // %phantoms_percentage_enabled_avg_<1h|1d|30d>% - Average percentage of online players with phantoms enabled over a window
+        if (identifier.startsWith("percentage_enabled_avg_")) {
+            final StatusTrend.Window window = getWindow(identifier.substring(23));
+            if (window == null) return null;
+            final int percentage = plugin.getTrend().getEnabledPercentage(window);
+            return percentage == -1 ? "N/A" : String.valueOf(percentage);
+        }
+
+        // %phantoms_percentage_disabled_avg_<1h|1d|30d>% - Average percentage of online players with phantoms disabled over a window
+        if (identifier.startsWith("percentage_disabled_avg_")) {
+            final StatusTrend.Window window = getWindow(identifier.substring(24));
+            if (window == null) return null;
+            final int percentage = plugin.getTrend().getDisabledPercentage(window);
+            return percentage == -1 ? "N/A" : String.valueOf(percentage);
+        }
+
         // %phantoms_percentage_enabled% - Percentage of online players with phantoms enabled
         if (identifier.equals("percentage_enabled")) {
             final long total = Bukkit.getOnlinePlayers().size();
             if (total == 0) return "0";
 
             final long enabled = Bukkit.getOnlinePlayers().stream()
-                    .filter(plugin::hasPhantomsEnabled)
+                    .filter(plugin::hasPhantomsEnabledNow)
                     .count();
 
             return String.valueOf((enabled * 100) / total);
@@ -105,7 +168,7 @@ public class PersonalPlaceholders extends AnnoyingPAPIExpansion {
             if (total == 0) return "0";
 
             final long disabled = Bukkit.getOnlinePlayers().stream()
-                    .filter(p -> !plugin.hasPhantomsEnabled(p))
+                    .filter(p -> !plugin.hasPhantomsEnabledNow(p))
                     .count();
 
             return String.valueOf((disabled * 100) / total);
@@ -113,4 +176,17 @@ public class PersonalPlaceholders extends AnnoyingPAPIExpansion {
 
         return null;
     }
+
+    /**
+     * Whether a placeholder doesn't depend on the requesting player and goes through every online player
+     */
+    private static boolean isAggregate(@NotNull String identifier) {
+        return identifier.equals("total_enabled") || identifier.equals("total_disabled") || identifier.equals("percentage_enabled") || identifier.equals("percentage_disabled");
+    }
+
+    @Nullable
+    private static StatusTrend.Window getWindow(@NotNull String key) {
+        for (final StatusTrend.Window window : StatusTrend.Window.VALUES) if (window.key.equals(key)) return window;
+        return null;
+    }
 }
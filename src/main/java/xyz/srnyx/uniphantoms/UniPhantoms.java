@@ -1,11 +1,13 @@
 package xyz.srnyx.uniphantoms;
 
-import net.kyori.adventure.platform.bukkit.BukkitAudiences;
-
 import org.bukkit.Bukkit;
+import org.bukkit.Location;
 import org.bukkit.OfflinePlayer;
 import org.bukkit.Statistic;
 import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.Mob;
 import org.bukkit.entity.Player;
 
 import org.jetbrains.annotations.NotNull;
@@ -16,27 +18,181 @@ import xyz.srnyx.annoyingapi.PluginPlatform;
 import xyz.srnyx.annoyingapi.data.StringData;
 import xyz.srnyx.annoyingapi.scheduler.TaskWrapper;
 
+import xyz.srnyx.uniphantoms.audit.AuditLog;
+import xyz.srnyx.uniphantoms.audit.AuditRecord;
 import xyz.srnyx.uniphantoms.config.ConfigVersion;
+import xyz.srnyx.uniphantoms.config.ConfigWatcher;
+import xyz.srnyx.uniphantoms.message.MessageDelivery;
 import xyz.srnyx.uniphantoms.message.MiniMessageSender;
+import xyz.srnyx.uniphantoms.storage.EntityDataStatusStore;
+import xyz.srnyx.uniphantoms.storage.KeyedExecutor;
+import xyz.srnyx.uniphantoms.storage.MappedStatusStore;
+import xyz.srnyx.uniphantoms.storage.OfflineStatusCache;
+import xyz.srnyx.uniphantoms.storage.OnlineStatusCache;
+import xyz.srnyx.uniphantoms.storage.OptOutIndex;
+import xyz.srnyx.uniphantoms.storage.PhantomStatus;
+import xyz.srnyx.uniphantoms.storage.StatusStore;
+import xyz.srnyx.uniphantoms.storage.StorageExecutors;
+import xyz.srnyx.uniphantoms.storage.WorldIdTable;
+import xyz.srnyx.uniphantoms.storage.WarmSnapshot;
+import xyz.srnyx.uniphantoms.storage.WorldOverrides;
+import xyz.srnyx.uniphantoms.storage.WriteAdmission;
+import xyz.srnyx.uniphantoms.sync.ProxyMessagingTransport;
+import xyz.srnyx.uniphantoms.sync.StatusSync;
+import xyz.srnyx.uniphantoms.transfer.StatusTransfer;
+import xyz.srnyx.uniphantoms.utility.DecisionTracer;
 import xyz.srnyx.uniphantoms.utility.ErrorReporter;
+import xyz.srnyx.uniphantoms.utility.StartupTimings;
+import xyz.srnyx.uniphantoms.utility.StatusTrend;
+import xyz.srnyx.uniphantoms.utility.TickProfiler;
+import xyz.srnyx.uniphantoms.zone.ZoneIndex;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 
+/**
+ * Threading rules, since Folia runs listeners on region threads, commands on their sender's thread and storage reads on {@link #storageExecutor}:
+ * <ul>
+ *     <li>{@link #config} is an immutable snapshot (only final fields) replaced as a whole, read it once per decision so every value comes from the same snapshot.
+ *     It's published before {@link #errorReporter}, so a handler may briefly report with the previous reporter under the new config, never a partly built one</li>
+ *     <li>{@link #reload(StartupTimings)} and {@link #disable()} are serialized, they're the only writers of {@link #applied}, the tasks and the shared systems</li>
+ *     <li>Shared systems used from other threads ({@link #errorReporter}, {@link #statusSync}, {@link #auditLog}, {@link #offlineCache}...) are volatile and may be replaced or cleared at any time, read them into a local once</li>
+ *     <li>Status changes save first, then put the saved status in {@link #phantomCache}. Loads only cache with {@code putIfAbsent}, so a slow load never overwrites a newer change</li>
+ *     <li>A player's status changes never interleave: the plugin's own run in order on {@link #playerStorage}, and each change holds its player's {@link #writeLock(UUID)}</li>
+ *     <li>{@link #optOuts} is recomputed from {@link #phantomCache} by {@link #reindex(UUID)} after every cache write</li>
+ * </ul>
+ */
 public class UniPhantoms extends AnnoyingPlugin {
     @NotNull public static final String KEY = "pp_no-phantoms";
+    @NotNull public static final String WORLDS_KEY = "pp_no-phantoms-worlds";
+    /**
+     * Players reset per tick by a sweep while sweeps are degraded
+     */
+    private static final int SWEEP_BATCH = 32;
+    @NotNull private static final String SNAPSHOT_FILE = "warm.dat";
+    /**
+     * Seconds a login waits for {@link #preloadPhantomStatus(UUID)}
+     */
+    private static final long PRELOAD_TIMEOUT = 5;
+    /**
+     * config.yml & every message bundle
+     */
+    @NotNull private static final Predicate<String> WATCHED_FILES = name -> name.equals("config.yml") || MiniMessageSender.isMessagesFile(name);
 
-    public ConfigYml config;
-    @NotNull private final Map<String, TaskWrapper> tasks = new HashMap<>();
-    @NotNull private final Map<UUID, Boolean> phantomCache = new ConcurrentHashMap<>();
+    /**
+     * The current config, replaced as a whole on reload (never modified in place)
+     */
+    public volatile ConfigYml config;
+    /**
+     * The config the running systems were built from, {@code null} when disabled
+     */
+    @Nullable private ConfigYml applied;
+    /**
+     * Statistic tasks by world name, only changed by {@link #reload(StartupTimings)} and {@link #disable()} (serialized, see the threading rules)
+     */
+    @NotNull private final Map<String, TaskWrapper> tasks = new ConcurrentHashMap<>();
+    /**
+     * Read by every listener on every region thread, see {@link OnlineStatusCache}
+     */
+    @NotNull private final OnlineStatusCache phantomCache = new OnlineStatusCache();
+    /**
+     * Online players with phantoms disabled in their current world, kept in sync with {@link #phantomCache} by {@link #reindex(UUID)}
+     */
+    @NotNull private final OptOutIndex optOuts = new OptOutIndex();
+    /**
+     * Second cache tier, for players that aren't online (replaced when its settings change)
+     */
+    @NotNull private volatile OfflineStatusCache offlineCache = new OfflineStatusCache(0, 0);
+    /**
+     * Statuses from the {@link WarmSnapshot}, trusted until they're checked against the storage ({@code null} after that)
+     * <br>Entries are removed when the player's status changes
+     */
+    @Nullable private volatile Map<UUID, PhantomStatus> warmStatuses;
+    /**
+     * Statuses loaded for players about to join, by {@link #preloadPhantomStatus(UUID)}, promoted to {@link #phantomCache} on join
+     * <br>Entries are removed when the player's status changes, and expire if the player never joins
+     */
+    @NotNull private final OfflineStatusCache preloads = new OfflineStatusCache(1024, TimeUnit.MINUTES.toNanos(1));
+    /**
+     * Loads started by {@link #getPhantomStatusNow(Player)}, so a burst of events for an uncached player starts a single one
+     */
+    @NotNull private final Map<UUID, CompletableFuture<PhantomStatus>> nowLoads = new ConcurrentHashMap<>();
+    /**
+     * Statistic task phases from the {@link WarmSnapshot}, used by the first {@link #startTasks(ConfigYml.StatisticTask)}
+     */
+    @Nullable private WarmSnapshot warmTasks;
+    /**
+     * {@link System#nanoTime()} of each world's first sweep, to save the task phases on disable
+     */
+    @NotNull private final Map<String, Long> taskStarts = new ConcurrentHashMap<>();
+    /**
+     * When each running {@code /nophantoms} cooldown ends (milliseconds since epoch), saved so cooldowns survive restarts
+     */
+    @NotNull private final Map<UUID, Long> cooldownEnds = new ConcurrentHashMap<>();
+    /**
+     * Opened by the first {@link #reload()}, changing the backend requires a restart
+     */
+    private StatusStore statusStore;
+    private WorldIdTable worldIds;
+    /**
+     * Runs every storage read that could block, see {@link #getPhantomStatusAsync(OfflinePlayer)}
+     */
+    private ExecutorService storageExecutor;
+    /**
+     * Runs status writes on {@link #storageExecutor} one at a time per player, in the order they were submitted
+     */
+    private KeyedExecutor playerStorage;
+    /**
+     * Held by each status change for its player (striped by UUID), so changes made through the API on other threads can't interleave with queued ones
+     * <br>Locks rather than monitors, so virtual storage threads don't pin their carrier while holding one
+     */
+    @NotNull private final ReentrantLock[] writeLocks = createLocks(64);
+    /**
+     * Limits the status writes made by commands, replaced when its settings change
+     */
+    @Nullable private volatile WriteAdmission admission;
+    @Nullable private TaskWrapper admissionTask;
 
     // Shared systems
-    @Nullable private BukkitAudiences audiences;
-    @Nullable private ErrorReporter errorReporter;
-    @Nullable private MiniMessageSender messageSender;
+    @Nullable private MessageDelivery delivery;
+    @Nullable private volatile ErrorReporter errorReporter;
+    @Nullable private volatile MiniMessageSender messageSender;
+    private long messagesFingerprint;
+    @Nullable private ConfigWatcher configWatcher;
+    @Nullable private StartupTimings startupTimings;
+    @NotNull private final TickProfiler profiler = new TickProfiler();
+    @Nullable private TaskWrapper profilerTask;
+    @NotNull private final DecisionTracer tracer = new DecisionTracer();
+    /**
+     * Phantom-free zones, replaced when the {@code zones} config section changes
+     */
+    @NotNull private volatile ZoneIndex zones = ZoneIndex.EMPTY;
+    /**
+     * Published by reloads, read by the threads saving statuses
+     */
+    @Nullable private volatile StatusSync statusSync;
+    @Nullable private TaskWrapper syncTask;
+    @Nullable private volatile AuditLog auditLog;
+    @NotNull private volatile StatusTrend trend = new StatusTrend();
+    @NotNull private final StatusTransfer transfer = new StatusTransfer(this);
+    @Nullable private TaskWrapper trendTask;
 
     public UniPhantoms() {
         options
@@ -46,7 +202,7 @@ public class UniPhantoms extends AnnoyingPlugin {
                         PluginPlatform.spigot("106381")))
                 .dataOptions(dataOptions -> dataOptions
                         .enabled(true)
-                        .entityDataColumns(KEY))
+                        .entityDataColumns(KEY, WORLDS_KEY))
                 .registrationOptions
                 .automaticRegistration(automaticRegistration -> automaticRegistration.packages(
                         "xyz.srnyx.uniphantoms.commands",
@@ -56,64 +212,255 @@ public class UniPhantoms extends AnnoyingPlugin {
 
     @Override
     public void enable() {
-        // Initialize shared BukkitAudiences (single instance for the plugin lifecycle)
-        audiences = BukkitAudiences.create(this);
+        final StartupTimings timings = new StartupTimings();
 
-        // Initialize error reporter first
-        errorReporter = new ErrorReporter(getLogger(), getDataFolder(), true);
+        // Native Adventure on Paper, BukkitAudiences (created on first message) on Spigot
+        delivery = new MessageDelivery(this);
 
-        // Initialize message sender with shared audiences
-        messageSender = new MiniMessageSender(this, audiences);
+        // Initialize error reporter first (reload() only replaces it if the config disables saving to files)
+        final ErrorReporter reporter = new ErrorReporter(getLogger(), getDataFolder(), true);
+        errorReporter = reporter;
 
         // Check and migrate config if needed
+        timings.begin("config-migration");
         final ConfigVersion configVersion = new ConfigVersion(this);
         if (configVersion.needsMigration(getConfig())) {
             if (!configVersion.migrate(getConfig())) {
-                errorReporter.warn("Config Migration", "Failed to migrate config, using default values");
+                reporter.warn("Config Migration", "Failed to migrate config, using default values");
             }
             reloadConfig(); // Reload after migration
         }
 
-        reload();
+        // Read the warm-start snapshot (task phases are used by the first reload, statuses once the storage is open)
+        timings.begin("snapshot");
+        final WarmSnapshot snapshot = loadSnapshot(reporter);
+        if (snapshot != null) {
+            warmTasks = snapshot;
+            cooldownEnds.putAll(snapshot.cooldowns);
+        }
+
+        reload(timings);
+        warmTasks = null;
+        if (snapshot != null && !snapshot.statuses.isEmpty() && snapshot.def == config.def && snapshot.backend == config.storage.backend && !statusStore.isInMemory()) {
+            final Map<UUID, PhantomStatus> warm = new ConcurrentHashMap<>(snapshot.statuses);
+            warmStatuses = warm;
+            storageExecutor.execute(() -> verifyWarmStatuses(warm));
+        }
+
+        // Load the opt-out trend & sample it every minute
+        timings.begin("trend");
+        final File trendFile = new File(getDataFolder(), "trend.dat");
+        try {
+            trend = StatusTrend.load(trendFile);
+        } catch (final IOException e) {
+            reporter.report("Loading opt-out trend", e, "File: " + trendFile);
+        }
+        trendTask = scheduler.runGlobalTaskTimer(this::sampleTrend, 1200, 1200);
+        timings.finish();
+        startupTimings = timings;
+        getLogger().info("Enabled in " + timings);
     }
 
     @Override
-    public void disable() {
+    public synchronized void disable() {
+        // Save warm-start state, before anything is cleared
+        saveSnapshot();
+
         // Cancel all tasks
-        tasks.values().forEach(TaskWrapper::cancel);
-        tasks.clear();
+        cancelTasks();
         phantomCache.clear();
+        optOuts.clear();
+        offlineCache.clear();
+        preloads.clear();
+        warmStatuses = null; // Also stops the check
+        cooldownEnds.clear();
+        if (profilerTask != null) {
+            profilerTask.cancel();
+            profilerTask = null;
+        }
+
+        // Save the opt-out trend
+        if (trendTask != null) {
+            trendTask.cancel();
+            trendTask = null;
+            final File trendFile = new File(getDataFolder(), "trend.dat");
+            try {
+                trend.save(trendFile);
+            } catch (final IOException e) {
+                final ErrorReporter reporter = errorReporter;
+                if (reporter != null) reporter.report("Saving opt-out trend", e, "File: " + trendFile);
+            }
+        }
+
+        // Stop cross-server sync
+        stopSync();
+
+        // Stop watching files
+        if (configWatcher != null) {
+            configWatcher.close();
+            configWatcher = null;
+        }
+        applied = null;
+        zones = ZoneIndex.EMPTY;
 
-        // Close shared BukkitAudiences to prevent listener leaks
-        if (audiences != null) {
-            audiences.close();
-            audiences = null;
+        // Start the queued status writes, stop a running export/import, then wait for running storage reads and flush pending status writes
+        if (admissionTask != null) {
+            admissionTask.cancel();
+            admissionTask = null;
+        }
+        final WriteAdmission currentAdmission = admission;
+        admission = null;
+        if (currentAdmission != null) currentAdmission.flush();
+        transfer.close();
+        if (storageExecutor != null) {
+            storageExecutor.shutdown();
+            try {
+                if (!storageExecutor.awaitTermination(5, TimeUnit.SECONDS)) getLogger().warning("Timed out while waiting for storage reads");
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            storageExecutor = null;
+            playerStorage = null;
+        }
+        closeAuditLog();
+        if (statusStore != null) {
+            statusStore.close();
+            statusStore = null;
+        }
+
+        // Close BukkitAudiences (if it was created) to prevent listener leaks
+        if (delivery != null) {
+            delivery.close();
+            delivery = null;
         }
     }
 
     @Override
     public void reload() {
-        config = new ConfigYml(this);
+        reload(null);
+    }
+
+    /**
+     * Reload, recording the phases if the plugin is starting up
+     *
+     * @param timings the startup timings, or {@code null} if not starting up
+     */
+    private synchronized void reload(@Nullable StartupTimings timings) {
+        final long start = profiler.start();
+        if (timings != null) timings.begin("config");
+        final ConfigYml previous = applied;
+        final ConfigYml next = new ConfigYml(this);
+        config = next; // Publish the whole snapshot at once
+        applied = next;
 
         // Update error reporter settings
-        errorReporter = new ErrorReporter(getLogger(), getDataFolder(), config.errorReporting.saveToFile);
+        final ErrorReporter currentReporter = errorReporter;
+        if (currentReporter == null || currentReporter.isSaveToFile() != next.errorReporting.saveToFile) {
+            errorReporter = new ErrorReporter(getLogger(), getDataFolder(), next.errorReporting.saveToFile);
+        }
+
+        // Storage executor first, message bundles are read on it too
+        if (storageExecutor == null) {
+            storageExecutor = StorageExecutors.create();
+            playerStorage = new KeyedExecutor(storageExecutor);
+        }
+
+        // Recreate message sender if a message bundle changed (loads in the background, locales only once needed)
+        if (timings != null) timings.begin("messages");
+        if (delivery != null && (messageSender == null || messagesFingerprint() != messagesFingerprint)) {
+            messageSender = new MiniMessageSender(this, delivery, storageExecutor);
+            messagesFingerprint = messagesFingerprint(); // Taken after, the sender creates messages.yml if missing
+        }
+
+        // Open storage
+        if (timings != null) timings.begin("storage");
+        if (statusStore == null) {
+            worldIds = new WorldIdTable(getLogger(), getDataFolder());
+            statusStore = openStatusStore(next.storage.backend);
+        }
+
+        // (Re)create write admission, starting what the previous one had queued
+        if (previous == null || !previous.writeLimit.equals(next.writeLimit)) {
+            final WriteAdmission previousAdmission = admission;
+            admission = new WriteAdmission(next.writeLimit.rate, next.writeLimit.burst, next.writeLimit.queueSize, storageExecutor);
+            if (previousAdmission != null) previousAdmission.flush();
+            if (admissionTask == null) admissionTask = scheduler.runGlobalTaskTimer(() -> {
+                final WriteAdmission current = admission;
+                if (current != null) current.drain();
+            }, 1, 1);
+        }
+
+        // (Re)open audit log
+        if (previous == null || !previous.audit.equals(next.audit)) {
+            closeAuditLog();
+            if (next.audit.enabled) auditLog = new AuditLog(getLogger(), this::getErrorReporter, new File(getDataFolder(), "audit"), next.audit.retentionDays, next.audit.historySize);
+        }
+
+        // Resize offline cache
+        if (previous == null || !previous.offlineCache.equals(next.offlineCache)) offlineCache = new OfflineStatusCache(next.offlineCache.size, next.offlineCache.ttl);
+
+        // (Re)start cross-server sync
+        if (timings != null) timings.begin("sync");
+        if (previous == null || !previous.sync.equals(next.sync)) {
+            stopSync();
+            if (next.sync.enabled) {
+                final StatusSync sync = new StatusSync(new ProxyMessagingTransport(this, next.sync.subchannel), this::applyRemoteStatus);
+                statusSync = sync;
+                syncTask = scheduler.runGlobalTaskTimer(sync::flush, 1, 1);
+            }
+        }
+
+        // (Re)start statistic tasks
+        if (timings != null) timings.begin("tasks");
+        if (previous == null || !previous.statisticTask.equals(next.statisticTask) || !previous.worldsBlacklist.equals(next.worldsBlacklist)) {
+            startTasks(next.statisticTask);
+        }
+
+        // Restart timings (closes a tick every tick)
+        if (previous == null || !previous.timings.equals(next.timings)) {
+            if (profilerTask != null) profilerTask.cancel();
+            profilerTask = null;
+            profiler.configure(next.timings.enabled, next.timings.getBudgets(), next.timings.degrade, next.timings.recoveryTicks, next.timings.recoveryTickTime);
+            if (next.timings.enabled) profilerTask = scheduler.runGlobalTaskTimer(() -> profiler.tick(errorReporter), 1, 1);
+        }
 
-        // Recreate message sender to reload messages.yml
-        if (audiences != null) {
-            messageSender = new MiniMessageSender(this, audiences);
+        // Reconfigure tracing (clears recorded events)
+        if (previous == null || !previous.trace.equals(next.trace)) tracer.configure(next.trace);
+
+        // Rebuild phantom-free zones (drops the cached chunks)
+        if (previous == null || !previous.zones.equals(next.zones)) zones = next.zones.byWorld.isEmpty() ? ZoneIndex.EMPTY : new ZoneIndex(next.zones.byWorld);
+
+        // Watch config.yml & messages.yml
+        if (timings != null) timings.begin("watcher");
+        if (next.autoReload && configWatcher == null) {
+            try {
+                configWatcher = new ConfigWatcher(getDataFolder(), WATCHED_FILES, () -> scheduler.runGlobalTask(() -> {
+                    final ErrorReporter reporter = errorReporter;
+                    if (reporter != null) reporter.info("Config", "Detected file changes, reloading...");
+                    reload();
+                }));
+            } catch (final IOException e) {
+                final ErrorReporter reporter = errorReporter;
+                if (reporter != null) reporter.report("Watching config files", e);
+            }
+        } else if (!next.autoReload && configWatcher != null) {
+            configWatcher.close();
+            configWatcher = null;
         }
 
-        // Start tasks
-        final Long delay = config.statisticTask.delay;
-        final long period = config.statisticTask.period;
+        profiler.stop(TickProfiler.Subsystem.RELOAD, start);
+    }
+
+    private void startTasks(@NotNull ConfigYml.StatisticTask settings) {
+        // Cancel previous tasks (including worlds that are no longer whitelisted)
+        cancelTasks();
+
+        final Long delay = settings.delay;
+        final long period = settings.period;
         for (final World world : Bukkit.getWorlds()) {
             final String name = world.getName();
             if (!isWhitelistedWorld(world)) continue;
 
-            // Cancel previous task
-            final TaskWrapper previousTask = tasks.get(name);
-            if (previousTask != null) previousTask.cancel();
-
             // Get time & isNight
             final long time = world.getTime();
             final boolean isNight = time >= 12000;
@@ -121,58 +468,668 @@ public class UniPhantoms extends AnnoyingPlugin {
             // Run immediately if nighttime
             if (isNight) resetAllStatistics(world);
 
-            // Get delay
+            // Get delay (a fixed delay resumes where it was before the restart)
             Long worldDelay = delay;
-            if (worldDelay == null) worldDelay = isNight ? 36000 - time : 12000 - time;
+            if (worldDelay == null) {
+                worldDelay = isNight ? 36000 - time : 12000 - time;
+            } else if (warmTasks != null && warmTasks.period == period) {
+                final Long phase = warmTasks.phases.get(name);
+                if (phase != null) worldDelay = Math.max(1, phase);
+            }
+            taskStarts.put(name, System.nanoTime() + worldDelay * 50_000_000L);
 
             // Start periodic task
-            tasks.put(name, scheduler.runGlobalTaskTimer(() -> resetAllStatistics(world), worldDelay, period));
+            final TaskWrapper previousTask = tasks.put(name, scheduler.runGlobalTaskTimer(() -> resetAllStatistics(world), worldDelay, period));
+            if (previousTask != null) previousTask.cancel();
         }
     }
 
+    /**
+     * Cancel and remove every statistic task, each entry is removed as it's cancelled so a concurrent {@link #startTasks(ConfigYml.StatisticTask)} can't leave one running
+     */
+    private void cancelTasks() {
+        tasks.values().removeIf(task -> {
+            task.cancel();
+            return true;
+        });
+        taskStarts.clear();
+    }
+
     /**
      * Check if phantoms are enabled for a player (StringData version - for legacy support)
      */
     public boolean hasPhantomsEnabled(@NotNull StringData data) {
-        return data.getOptional(KEY)
-                .map(value -> !value.equals("true"))
-                .orElse(config.def);
+        final Boolean stored = EntityDataStatusStore.read(data);
+        return stored != null ? stored : config.def;
     }
 
     /**
-     * Check if phantoms are enabled for a player (with cache for online players)
+     * Get the phantom status of a player, including per-world statuses (with cache for online players)
      */
-    public boolean hasPhantomsEnabled(@NotNull OfflinePlayer player) {
-        final Boolean cached = phantomCache.get(player.getUniqueId());
+    @NotNull
+    public PhantomStatus getPhantomStatus(@NotNull OfflinePlayer player) {
+        final PhantomStatus cached = getCachedPhantomStatus(player);
+        return cached != null ? cached : loadPhantomStatus(player);
+    }
+
+    /**
+     * Get an online player's status without ever blocking, for event handlers, placeholders and tasks on server threads
+     * <br>If it isn't cached (e.g. another server just changed it), it starts loading and the warm-start status applies until it's loaded.
+     * Without one the player is protected ({@link PhantomStatus#DISABLED}) meanwhile, as the config default could target a player who opted out.
+     *
+     * @param player the player
+     * @return the status, {@link PhantomStatus#DISABLED} while it's loading
+     */
+    @NotNull
+    public PhantomStatus getPhantomStatusNow(@NotNull Player player) {
+        final PhantomStatus cached = getCachedPhantomStatus(player);
         if (cached != null) return cached;
-        final boolean result = hasPhantomsEnabled(new StringData(this, player));
-        if (player.isOnline()) phantomCache.put(player.getUniqueId(), result);
-        return result;
+        final UUID uuid = player.getUniqueId();
+        CompletableFuture<PhantomStatus> load = nowLoads.get(uuid);
+        if (load == null) {
+            load = getPhantomStatusAsync(player);
+            final CompletableFuture<PhantomStatus> started = load;
+            if (!started.isDone() && nowLoads.putIfAbsent(uuid, started) == null) started.whenComplete((status, throwable) -> nowLoads.remove(uuid, started));
+        }
+        return load.isDone() && !load.isCompletedExceptionally() ? load.join() : PhantomStatus.DISABLED;
+    }
+
+    /**
+     * Load a joining player's status before they join, so joining never waits on the storage
+     * <br>Called from the async pre-login thread, which it blocks. Runs after the player's queued status writes, and a later write drops the preloaded status.
+     *
+     * @param uuid the player
+     */
+    public void preloadPhantomStatus(@NotNull UUID uuid) {
+        final KeyedExecutor executor = playerStorage;
+        final StatusStore store = statusStore;
+        if (executor == null || store == null || store.isInMemory() || phantomCache.get(uuid) != null) return;
+        try {
+            executor.supply(uuid, () -> {
+                final OfflinePlayer player = Bukkit.getOfflinePlayer(uuid);
+                preloads.put(uuid, store.load(player), store.loadWorlds(player));
+                return null;
+            }).get(PRELOAD_TIMEOUT, TimeUnit.SECONDS);
+        } catch (final ExecutionException | RejectedExecutionException e) {
+            // Loaded on join instead
+            final ErrorReporter reporter = errorReporter;
+            if (reporter != null) reporter.report("Preloading phantom status", e.getCause() != null ? e.getCause() : e, "Player: " + uuid);
+        } catch (final TimeoutException e) {
+            // Loaded on join instead, the preload still caches it if it finishes first
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Get the phantom status of a player without blocking the calling thread
+     * <br>Completes immediately if the player is cached or the storage is in memory, otherwise on a storage thread
+     *
+     * @param player the player
+     * @return the status
+     */
+    @NotNull
+    public CompletableFuture<PhantomStatus> getPhantomStatusAsync(@NotNull OfflinePlayer player) {
+        final PhantomStatus cached = getCachedPhantomStatus(player);
+        if (cached != null) return CompletableFuture.completedFuture(cached);
+        if (statusStore.isInMemory()) return CompletableFuture.completedFuture(loadPhantomStatus(player));
+        return CompletableFuture.supplyAsync(() -> loadPhantomStatus(player), storageExecutor);
+    }
+
+    /**
+     * Get a player's status from the online cache, or from the offline cache (moving it to the online cache if the player is online)
+     *
+     * @return the status, or {@code null} if it isn't cached
+     */
+    @Nullable
+    private PhantomStatus getCachedPhantomStatus(@NotNull OfflinePlayer player) {
+        final UUID uuid = player.getUniqueId();
+        final PhantomStatus cached = phantomCache.get(uuid);
+        if (cached != null) return cached;
+
+        final OfflineStatusCache offline = offlineCache;
+        if (player.isOnline()) {
+            // Promote, the preloaded status is the newest
+            final OfflineStatusCache.Entry preloaded = preloads.remove(uuid);
+            final OfflineStatusCache.Entry entry = offline.remove(uuid);
+            final OfflineStatusCache.Entry found = preloaded != null ? preloaded : entry;
+            final PhantomStatus promoted = found != null ? resolve(found.stored, found.worlds) : getWarmStatus(uuid);
+            if (promoted == null) return null;
+            final PhantomStatus status = phantomCache.putIfAbsent(uuid, promoted);
+            reindex(uuid);
+            return status;
+        }
+        final OfflineStatusCache.Entry entry = offline.get(uuid);
+        return entry != null ? resolve(entry.stored, entry.worlds) : getWarmStatus(uuid);
+    }
+
+    @Nullable
+    private PhantomStatus getWarmStatus(@NotNull UUID uuid) {
+        final Map<UUID, PhantomStatus> warm = warmStatuses;
+        return warm != null ? warm.get(uuid) : null;
+    }
+
+    private void forgetWarmStatus(@NotNull UUID uuid) {
+        final Map<UUID, PhantomStatus> warm = warmStatuses;
+        if (warm != null) warm.remove(uuid);
+    }
+
+    /**
+     * Check the statuses trusted from the {@link WarmSnapshot} against the storage, reloading the ones that differ (runs on a storage thread)
+     *
+     * @param warm the trusted statuses
+     */
+    private void verifyWarmStatuses(@NotNull Map<UUID, PhantomStatus> warm) {
+        final long start = System.nanoTime();
+        int checked = 0;
+        int corrected = 0;
+        final ErrorReporter reporter = errorReporter;
+        try {
+            for (final UUID uuid : new ArrayList<>(warm.keySet())) {
+                if (warmStatuses != warm) return; // Disabled
+                final PhantomStatus trusted = warm.get(uuid);
+                if (trusted == null) continue; // Changed since
+                final OfflinePlayer player = Bukkit.getOfflinePlayer(uuid);
+                final PhantomStatus actual = resolve(statusStore.load(player), statusStore.loadWorlds(player));
+                checked++;
+                if (actual.equals(trusted)) continue;
+
+                // Stale, drop it everywhere and reload it from the storage if needed
+                corrected++;
+                warm.remove(uuid, trusted);
+                if (phantomCache.get(uuid) != null) {
+                    phantomCache.remove(uuid);
+                    reindex(uuid);
+                    final Player online = Bukkit.getPlayer(uuid);
+                    if (online != null) getPhantomStatusAsync(online); // Until it's loaded, event handlers treat the player as protected
+                }
+            }
+        } catch (final RuntimeException e) {
+            // Stop trusting the rest, it goes through the storage like without a snapshot
+            if (reporter != null) reporter.report("Checking warm-start statuses", e);
+        } finally {
+            if (warmStatuses == warm) warmStatuses = null;
+        }
+
+        if (reporter != null) reporter.info("Snapshot", "Checked " + checked + " warm-start statuses against the storage in " + TickProfiler.formatMillis(System.nanoTime() - start) + ", " + corrected + " corrected");
+    }
+
+    /**
+     * Read and delete the warm-start snapshot
+     *
+     * @return the snapshot, or {@code null} if there's none or it's invalid
+     */
+    @Nullable
+    private WarmSnapshot loadSnapshot(@NotNull ErrorReporter reporter) {
+        final File file = new File(getDataFolder(), SNAPSHOT_FILE);
+        try {
+            return WarmSnapshot.load(file);
+        } catch (final IOException e) {
+            reporter.report("Loading warm-start snapshot", e, "File: " + file);
+            return null;
+        } finally {
+            // Only valid for the restart it was written for
+            if (file.exists() && !file.delete()) reporter.warn("Snapshot", "Failed to delete " + file + ", it may be read again after a crash");
+        }
+    }
+
+    /**
+     * Write the cached statuses, the statistic task phases and the running cooldowns to the warm-start snapshot
+     */
+    private void saveSnapshot() {
+        final ConfigYml current = applied;
+        if (current == null || statusStore == null) return; // Not enabled
+        final Map<UUID, PhantomStatus> statuses = new HashMap<>();
+        if (!statusStore.isInMemory()) {
+            final Map<UUID, PhantomStatus> warm = warmStatuses;
+            if (warm != null) statuses.putAll(warm);
+            offlineCache.forEach((uuid, entry) -> statuses.put(uuid, resolve(entry.stored, entry.worlds)));
+            phantomCache.forEach(statuses::put);
+        }
+
+        final long period = current.statisticTask.period;
+        final long now = System.nanoTime();
+        final Map<String, Long> phases = new HashMap<>();
+        for (final Map.Entry<String, Long> entry : taskStarts.entrySet()) {
+            final long elapsed = (now - entry.getValue()) / 50_000_000L; // Ticks, at 20 TPS
+            phases.put(entry.getKey(), elapsed < 0 ? -elapsed : period - elapsed % period);
+        }
+
+        final long millis = System.currentTimeMillis();
+        final Map<UUID, Long> cooldowns = new HashMap<>();
+        for (final Map.Entry<UUID, Long> entry : cooldownEnds.entrySet()) if (entry.getValue() > millis) cooldowns.put(entry.getKey(), entry.getValue());
+
+        final File file = new File(getDataFolder(), SNAPSHOT_FILE);
+        try {
+            new WarmSnapshot(current.def, current.storage.backend, period, statuses, phases, cooldowns).save(file);
+        } catch (final IOException e) {
+            final ErrorReporter reporter = errorReporter;
+            if (reporter != null) reporter.report("Saving warm-start snapshot", e, "File: " + file);
+        }
+    }
+
+    /**
+     * Get when a player's {@code /nophantoms} cooldown ends, including cooldowns started before a restart
+     *
+     * @param uuid the player
+     * @return the end in milliseconds since epoch, {@code 0} if none
+     */
+    public long getCooldownEnd(@NotNull UUID uuid) {
+        final Long end = cooldownEnds.get(uuid);
+        return end != null ? end : 0;
+    }
+
+    /**
+     * Record a started {@code /nophantoms} cooldown, so it's saved in the warm-start snapshot
+     *
+     * @param uuid the player
+     * @param end when the cooldown ends, in milliseconds since epoch
+     */
+    public void setCooldownEnd(@NotNull UUID uuid, long end) {
+        cooldownEnds.put(uuid, end);
+        if (cooldownEnds.size() > 1024) {
+            final long now = System.currentTimeMillis();
+            cooldownEnds.values().removeIf(value -> value <= now);
+        }
+    }
+
+    /**
+     * Load a player's status from storage (may block) and cache it in the tier matching whether they're online
+     */
+    @NotNull
+    private PhantomStatus loadPhantomStatus(@NotNull OfflinePlayer player) {
+        final OfflineStatusCache offline = offlineCache;
+        final long removals = offline.getRemovals();
+        final Boolean stored = statusStore.load(player);
+        final WorldOverrides worlds = statusStore.loadWorlds(player);
+        if (player.isOnline()) {
+            // A status change cached while this was loading is newer than what was read, keep it
+            final UUID uuid = player.getUniqueId();
+            final PhantomStatus status = phantomCache.putIfAbsent(uuid, resolve(stored, worlds));
+            if (!player.isOnline()) phantomCache.remove(uuid); // Quit while this was loading
+            reindex(uuid);
+            return status;
+        }
+        offline.putIfUnchanged(player.getUniqueId(), stored, worlds, removals); // Cache the raw result, so the config default is applied when read
+        return resolve(stored, worlds);
+    }
+
+    @NotNull
+    private PhantomStatus resolve(@Nullable Boolean stored, @NotNull WorldOverrides worlds) {
+        return PhantomStatus.of(stored != null ? stored : config.def, worlds);
+    }
+
+    /**
+     * Get the phantom statuses of several players without blocking the calling thread
+     *
+     * @param players the players
+     * @return the statuses by player UUID, completed once every status is loaded
+     */
+    @NotNull
+    public CompletableFuture<Map<UUID, PhantomStatus>> getPhantomStatusesAsync(@NotNull Collection<? extends OfflinePlayer> players) {
+        final Map<UUID, PhantomStatus> result = new ConcurrentHashMap<>();
+        final List<CompletableFuture<?>> loading = new ArrayList<>();
+        for (final OfflinePlayer player : players) {
+            final CompletableFuture<PhantomStatus> future = getPhantomStatusAsync(player);
+            final PhantomStatus loaded = future.getNow(null);
+            if (loaded != null) {
+                result.put(player.getUniqueId(), loaded);
+            } else {
+                loading.add(future.thenAccept(status -> result.put(player.getUniqueId(), status)));
+            }
+        }
+        if (loading.isEmpty()) return CompletableFuture.completedFuture(result);
+        return CompletableFuture.allOf(loading.toArray(new CompletableFuture<?>[0])).thenApply(ignored -> result);
+    }
+
+    /**
+     * Async version of {@link #hasPhantomsEnabled(OfflinePlayer)}
+     */
+    @NotNull
+    public CompletableFuture<Boolean> hasPhantomsEnabledAsync(@NotNull OfflinePlayer player) {
+        return getPhantomStatusAsync(player).thenApply(PhantomStatus::isEnabled);
+    }
+
+    /**
+     * Async version of {@link #hasPhantomsEnabled(OfflinePlayer, World)}
+     */
+    @NotNull
+    public CompletableFuture<Boolean> hasPhantomsEnabledAsync(@NotNull OfflinePlayer player, @NotNull World world) {
+        final int worldId = worldIds.getId(world);
+        return getPhantomStatusAsync(player).thenApply(status -> status.isEnabled(worldId));
+    }
+
+    /**
+     * Run a task that may block on the storage executor, e.g. a read for a command. Status writes go through {@link #submitWrite(UUID, Supplier)} instead
+     *
+     * @param task the task
+     * @return the task's result
+     */
+    @NotNull
+    public <T> CompletableFuture<T> supplyStorage(@NotNull Supplier<T> task) {
+        return CompletableFuture.supplyAsync(task, storageExecutor);
+    }
+
+    /**
+     * Run a status write on the storage executor once {@link WriteAdmission} lets it through, after the writes already submitted for the same player
+     * <br>A write may read the player's stored statuses and save them back, no other write of that player runs in between
+     *
+     * @param uuid the player the write changes
+     * @param task the write
+     * @return the admitted or queued write, or {@code null} if it was rejected because too many writes are waiting
+     */
+    @Nullable
+    public <T> WriteAdmission.Ticket<T> submitWrite(@NotNull UUID uuid, @NotNull Supplier<T> task) {
+        final WriteAdmission current = admission;
+        return current != null ? current.submit(task, playerStorage.forKey(uuid)) : new WriteAdmission.Ticket<>(playerStorage.supply(uuid, task), false);
+    }
+
+    @Nullable
+    public WriteAdmission getAdmission() {
+        return admission;
+    }
+
+    /**
+     * Non-blocking version of {@link #hasPhantomsEnabled(OfflinePlayer)} for online players, see {@link #getPhantomStatusNow(Player)}
+     */
+    public boolean hasPhantomsEnabledNow(@NotNull Player player) {
+        return getPhantomStatusNow(player).isEnabled();
+    }
+
+    /**
+     * Non-blocking version of {@link #hasPhantomsEnabled(OfflinePlayer, World)} for online players, see {@link #getPhantomStatusNow(Player)}
+     */
+    public boolean hasPhantomsEnabledNow(@NotNull Player player, @NotNull World world) {
+        return getPhantomStatusNow(player).isEnabled(worldIds.getId(world));
+    }
+
+    /**
+     * Check if phantoms are enabled for a player, ignoring per-world statuses
+     * <br>Blocks on storage if the player isn't cached, prefer {@link #hasPhantomsEnabledAsync(OfflinePlayer)} or {@link #hasPhantomsEnabledNow(Player)} on server threads
+     */
+    public boolean hasPhantomsEnabled(@NotNull OfflinePlayer player) {
+        return getPhantomStatus(player).isEnabled();
+    }
+
+    /**
+     * Check if phantoms are enabled for a player in a world
+     */
+    public boolean hasPhantomsEnabled(@NotNull OfflinePlayer player, @NotNull World world) {
+        return getPhantomStatus(player).isEnabled(worldIds.getId(world));
+    }
+
+    /**
+     * Get the status a player set for a world, read on the storage executor
+     *
+     * @return the status, completed with {@code null} if the world uses the player's global status
+     */
+    @NotNull
+    public CompletableFuture<Boolean> getWorldStatusAsync(@NotNull OfflinePlayer player, @NotNull World world) {
+        final int worldId = worldIds.getId(world);
+        return supplyStorage(() -> statusStore.loadWorlds(player).get(worldId));
     }
 
     /**
-     * Set phantom status for a player (updates cache)
+     * Set phantom status for a player in every world, clearing per-world statuses (updates cache)
      */
     public void setPhantomsEnabled(@NotNull OfflinePlayer player, boolean enabled) {
-        new StringData(this, player).set(KEY, enabled ? null : "true");
-        phantomCache.put(player.getUniqueId(), enabled);
+        setPhantomsEnabled(player, enabled, AuditRecord.NO_ACTOR, AuditRecord.Source.API);
+    }
+
+    /**
+     * Set phantom status for a player in every world, clearing per-world statuses (updates cache)
+     *
+     * @param actor the player who made the change, {@link AuditRecord#NO_ACTOR} if none
+     * @param source what made the change
+     */
+    public void setPhantomsEnabled(@NotNull OfflinePlayer player, boolean enabled, @NotNull UUID actor, @NotNull AuditRecord.Source source) {
+        final ReentrantLock lock = writeLock(player.getUniqueId());
+        lock.lock();
+        try {
+            final AuditLog audit = auditLog;
+            final AuditRecord record = audit != null ? globalRecord(player, actor, enabled, source) : null;
+            statusStore.save(player, enabled);
+            statusStore.saveWorlds(player, WorldOverrides.EMPTY); // Queued like save, cheaper than reading them to check first
+            if (record != null) audit.append(record); // Once the store accepted it
+            cacheOrInvalidate(player, PhantomStatus.of(enabled));
+        } finally {
+            lock.unlock();
+        }
+        final StatusSync sync = statusSync;
+        if (sync != null) sync.publish(player.getUniqueId(), enabled);
+
+        final ErrorReporter reporter = errorReporter;
+        if (config.debugMode && reporter != null) {
+            reporter.info("Data", "Updated phantoms for " + player.getName() + ": " + enabled);
+        }
+    }
+
+    /**
+     * Set phantom status for a player in one world (updates cache)
+     *
+     * @param enabled the new status, or {@code null} to use the player's global status
+     */
+    public void setPhantomsEnabled(@NotNull OfflinePlayer player, @NotNull World world, @Nullable Boolean enabled) {
+        setPhantomsEnabled(player, world, enabled, AuditRecord.NO_ACTOR, AuditRecord.Source.API);
+    }
 
-        if (config.debugMode && errorReporter != null) {
-            errorReporter.info("Data", "Updated phantoms for " + player.getName() + ": " + enabled);
+    /**
+     * Set phantom status for a player in one world (updates cache)
+     *
+     * @param enabled the new status, or {@code null} to use the player's global status
+     * @param actor the player who made the change, {@link AuditRecord#NO_ACTOR} if none
+     * @param source what made the change
+     */
+    public void setPhantomsEnabled(@NotNull OfflinePlayer player, @NotNull World world, @Nullable Boolean enabled, @NotNull UUID actor, @NotNull AuditRecord.Source source) {
+        final int worldId = worldIds.getId(world);
+        final ReentrantLock lock = writeLock(player.getUniqueId());
+        lock.lock();
+        try {
+            final WorldOverrides previous = statusStore.loadWorlds(player);
+            final WorldOverrides overrides = previous.with(worldId, enabled);
+            statusStore.saveWorlds(player, overrides);
+            final AuditLog audit = auditLog;
+            if (audit != null) audit.append(new AuditRecord(System.currentTimeMillis(), actor, player.getUniqueId(), previous.get(worldId), enabled, source, worldId));
+            final Boolean global = getKnownGlobalStatus(player);
+            if (global != null) {
+                cacheOrInvalidate(player, PhantomStatus.of(global, overrides));
+            } else {
+                invalidate(player.getUniqueId()); // Loaded again when needed, never under the lock
+            }
+        } finally {
+            lock.unlock();
         }
+        final StatusSync sync = statusSync;
+        if (sync != null) statusStore.afterWrites(() -> sync.publish(player.getUniqueId(), null)); // Per-world statuses aren't sent, other servers reload them once they're written
+
+        final ErrorReporter reporter = errorReporter;
+        if (config.debugMode && reporter != null) {
+            reporter.info("Data", "Updated phantoms for " + player.getName() + " in " + world.getName() + ": " + enabled);
+        }
+    }
+
+    /**
+     * Replace everything stored for a player, e.g. when importing (updates cache)
+     *
+     * @param stored the global status, {@code null} to clear it (the config default applies)
+     * @param worlds the per-world statuses
+     * @param actor the player who made the change, {@link AuditRecord#NO_ACTOR} if none
+     * @param source what made the change
+     */
+    public void replacePhantomStatus(@NotNull OfflinePlayer player, @Nullable Boolean stored, @NotNull WorldOverrides worlds, @NotNull UUID actor, @NotNull AuditRecord.Source source) {
+        final ReentrantLock lock = writeLock(player.getUniqueId());
+        lock.lock();
+        try {
+            final AuditLog audit = auditLog;
+            final AuditRecord record = audit != null ? globalRecord(player, actor, stored, source) : null;
+            statusStore.save(player, stored == null || stored); // Enabling clears the stored value
+            statusStore.saveWorlds(player, worlds); // Queued like save, cheaper than reading them to compare first
+            if (record != null) audit.append(record); // Once the store accepted it
+            cacheOrInvalidate(player, resolve(stored, worlds));
+        } finally {
+            lock.unlock();
+        }
+        final StatusSync sync = statusSync;
+        if (sync != null) statusStore.afterWrites(() -> sync.publish(player.getUniqueId(), null)); // Other servers reload it once it's written
+    }
+
+    /**
+     * Create the {@link AuditRecord} of a change to a player's global status, before making it
+     * <br>The old status is taken from the cache when there (for an online player that's the resolved status, so a config default shows as the value it applied),
+     * or read from the storage when that doesn't wait on it (in memory, or already on a storage thread). Otherwise it's recorded as unknown, a change never waits on the storage.
+     */
+    @NotNull
+    private AuditRecord globalRecord(@NotNull OfflinePlayer player, @NotNull UUID actor, @Nullable Boolean newState, @NotNull AuditRecord.Source source) {
+        final UUID uuid = player.getUniqueId();
+        final long now = System.currentTimeMillis();
+        final PhantomStatus cached = phantomCache.get(uuid);
+        if (cached != null) return new AuditRecord(now, actor, uuid, cached.isEnabled(), newState, source, AuditRecord.GLOBAL);
+        OfflineStatusCache.Entry entry = preloads.get(uuid);
+        if (entry == null) entry = offlineCache.get(uuid);
+        if (entry != null) return new AuditRecord(now, actor, uuid, entry.stored, newState, source, AuditRecord.GLOBAL);
+        if (statusStore.isInMemory() || StorageExecutors.isStorageThread()) return new AuditRecord(now, actor, uuid, statusStore.load(player), newState, source, AuditRecord.GLOBAL);
+        return new AuditRecord(now, actor, uuid, false, null, newState, source, AuditRecord.GLOBAL);
+    }
+
+    /**
+     * Get a player's resolved global status when it's known without waiting on the storage, like {@link #globalRecord(OfflinePlayer, UUID, Boolean, AuditRecord.Source)}
+     *
+     * @return the status from the caches, the warm-start snapshot or a store that doesn't block, {@code null} if none has it
+     */
+    @Nullable
+    private Boolean getKnownGlobalStatus(@NotNull OfflinePlayer player) {
+        final UUID uuid = player.getUniqueId();
+        final PhantomStatus cached = phantomCache.get(uuid);
+        if (cached != null) return cached.isEnabled();
+        OfflineStatusCache.Entry entry = preloads.get(uuid);
+        if (entry == null) entry = offlineCache.get(uuid);
+        if (entry != null) return entry.stored != null ? entry.stored : config.def;
+        final PhantomStatus warm = getWarmStatus(uuid);
+        if (warm != null) return warm.isEnabled();
+        if (statusStore.isInMemory() || StorageExecutors.isStorageThread()) {
+            final Boolean stored = statusStore.load(player);
+            return stored != null ? stored : config.def;
+        }
+        return null;
+    }
+
+    @NotNull
+    private ReentrantLock writeLock(@NotNull UUID uuid) {
+        return writeLocks[(uuid.hashCode() & Integer.MAX_VALUE) % writeLocks.length];
+    }
+
+    @NotNull
+    private static ReentrantLock[] createLocks(int count) {
+        final ReentrantLock[] locks = new ReentrantLock[count];
+        for (int i = 0; i < count; i++) locks[i] = new ReentrantLock();
+        return locks;
+    }
+
+    /**
+     * Cache a new status for an online player, or drop the cached one of an offline player
+     */
+    private void cacheOrInvalidate(@NotNull OfflinePlayer player, @NotNull PhantomStatus status) {
+        if (player.isOnline()) {
+            phantomCache.put(player.getUniqueId(), status);
+            reindex(player.getUniqueId());
+        } else {
+            offlineCache.remove(player.getUniqueId());
+            preloads.remove(player.getUniqueId());
+        }
+        forgetWarmStatus(player.getUniqueId());
+    }
+
+    /**
+     * Drop every cached status of a player, online or not
+     */
+    private void invalidate(@NotNull UUID uuid) {
+        phantomCache.remove(uuid);
+        reindex(uuid);
+        offlineCache.remove(uuid);
+        preloads.remove(uuid);
+        forgetWarmStatus(uuid);
     }
 
-    public void cachePhantomStatus(@NotNull UUID uuid, boolean enabled) {
-        phantomCache.put(uuid, enabled);
+    public void cachePhantomStatus(@NotNull UUID uuid, @NotNull PhantomStatus status) {
+        phantomCache.put(uuid, status);
+        reindex(uuid);
     }
 
     public void uncachePhantomStatus(@NotNull UUID uuid) {
         phantomCache.remove(uuid);
+        reindex(uuid);
+    }
+
+    /**
+     * Update a player's {@link OptOutIndex} entry after they changed world
+     *
+     * @param player the player
+     */
+    public void updateOptOutIndex(@NotNull Player player) {
+        reindex(player.getUniqueId());
+    }
+
+    /**
+     * Recompute a player's {@link OptOutIndex} entry from their cached status and current world
+     * <br>Reads both under the index's lock, so the last call always indexes the latest status
+     */
+    private void reindex(@NotNull UUID uuid) {
+        synchronized (optOuts) {
+            final PhantomStatus status = phantomCache.get(uuid);
+            final Player player = status != null ? Bukkit.getPlayer(uuid) : null;
+            if (player == null) {
+                optOuts.remove(uuid);
+                return;
+            }
+            final int worldId = worldIds.getId(player.getWorld());
+            optOuts.set(uuid, worldId, !status.isEnabled(worldId));
+        }
+    }
+
+    /**
+     * Apply a status change made on another server
+     *
+     * @param uuid the player
+     * @param enabled the new status, or {@code null} to reload it from storage on next access
+     */
+    private void applyRemoteStatus(@NotNull UUID uuid, @Nullable Boolean enabled) {
+        offlineCache.remove(uuid);
+        preloads.remove(uuid);
+        forgetWarmStatus(uuid);
+        if (enabled == null) {
+            phantomCache.remove(uuid);
+            reindex(uuid);
+            final Player player = Bukkit.getPlayer(uuid);
+            if (player != null) getPhantomStatusAsync(player); // Reload right away, the sweeps only see indexed players
+            return;
+        }
+        phantomCache.replace(uuid, PhantomStatus.of(enabled)); // Only players cached (online) here need the update, a global change clears per-world statuses
+        reindex(uuid);
+    }
+
+    private void closeAuditLog() {
+        final AuditLog audit = auditLog;
+        if (audit == null) return;
+        auditLog = null;
+        audit.close();
+    }
+
+    private void stopSync() {
+        if (syncTask != null) {
+            syncTask.cancel();
+            syncTask = null;
+        }
+        final StatusSync sync = statusSync;
+        if (sync != null) {
+            statusSync = null; // Unpublish first, so nothing is published to a closed sync
+            sync.flush();
+            sync.close();
+        }
     }
 
     @Nullable
-    public BukkitAudiences getAudiences() {
-        return audiences;
+    public MessageDelivery getDelivery() {
+        return delivery;
     }
 
     @Nullable
@@ -185,12 +1142,196 @@ public class UniPhantoms extends AnnoyingPlugin {
         return messageSender;
     }
 
+    @Nullable
+    public AuditLog getAuditLog() {
+        return auditLog;
+    }
+
+    @NotNull
+    public OfflineStatusCache getOfflineCache() {
+        return offlineCache;
+    }
+
+    @NotNull
+    public StatusStore getStatusStore() {
+        return statusStore;
+    }
+
+    @NotNull
+    public StatusTransfer getTransfer() {
+        return transfer;
+    }
+
+    @NotNull
+    public StatusTrend getTrend() {
+        return trend;
+    }
+
+    @NotNull
+    public TickProfiler getProfiler() {
+        return profiler;
+    }
+
+    @NotNull
+    public DecisionTracer getTracer() {
+        return tracer;
+    }
+
+    @NotNull
+    public ZoneIndex getZones() {
+        return zones;
+    }
+
+    /**
+     * Check if a location is in a phantom-free zone, regardless of {@code worlds-blacklist}
+     */
+    public boolean isInZone(@NotNull Location location) {
+        return zones.isInZone(location);
+    }
+
+    /**
+     * Record a decision if it passes the tracer's filters and sampling, with the world verdict and the cached status at this point
+     * <br>Callers should check {@link DecisionTracer#isEnabled()} first, so nothing is evaluated while tracing is off
+     *
+     * @param type what was decided
+     * @param player the player the decision was about
+     * @param world the world the decision was about, or {@code null} if it applies to every world
+     * @param outcome the decision
+     */
+    public void trace(@NotNull DecisionTracer.Type type, @NotNull OfflinePlayer player, @Nullable World world, @NotNull DecisionTracer.Outcome outcome) {
+        final UUID uuid = player.getUniqueId();
+        final String name = player.getName();
+        final String worldName = world != null ? world.getName() : null;
+        if (!tracer.accepts(uuid, name, worldName)) return;
+        final PhantomStatus cached = phantomCache.get(uuid);
+        tracer.record(new DecisionTracer.Event(
+                System.currentTimeMillis(), type, uuid, name, worldName,
+                world != null ? isWhitelistedWorld(world) : null,
+                cached == null ? null : world != null ? cached.isEnabled(worldIds.getId(world)) : cached.isEnabled(),
+                outcome));
+    }
+
+    @NotNull
+    public WorldIdTable getWorldIds() {
+        return worldIds;
+    }
+
+    @Nullable
+    public StartupTimings getStartupTimings() {
+        return startupTimings;
+    }
+
+    @NotNull
+    private StatusStore openStatusStore(@NotNull StatusStore.Backend backend) {
+        if (backend == StatusStore.Backend.MAPPED) {
+            try {
+                return new MappedStatusStore(this, worldIds, new File(getDataFolder(), "status.dat"));
+            } catch (final IOException e) {
+                final ErrorReporter reporter = errorReporter;
+                if (reporter != null) reporter.report("Opening status log", e, "Falling back to the annoying storage backend");
+            }
+        }
+        return new EntityDataStatusStore(this, worldIds);
+    }
+
+    /**
+     * Cheap change detection for a file
+     */
+    private static long fingerprint(@NotNull File file) {
+        return file.lastModified() * 31 + file.length();
+    }
+
+    /**
+     * {@link #fingerprint(File)} of every message bundle, so adding/removing one counts as a change too
+     */
+    private long messagesFingerprint() {
+        final File[] files = getDataFolder().listFiles((dir, name) -> MiniMessageSender.isMessagesFile(name));
+        if (files == null) return 0;
+        long result = files.length;
+        for (final File file : files) result += fingerprint(file) * 31 + file.getName().hashCode();
+        return result;
+    }
+
+    private void sampleTrend() {
+        int enabled = 0;
+        int disabled = 0;
+        for (final Player player : Bukkit.getOnlinePlayers()) {
+            if (hasPhantomsEnabledNow(player)) {
+                enabled++;
+            } else {
+                disabled++;
+            }
+        }
+        trend.sample(enabled, disabled);
+    }
+
     private void resetAllStatistics(@NotNull World world) {
-        for (final Player player : world.getPlayers()) if (!hasPhantomsEnabled(player)) resetStatistic(player);
+        final Collection<UUID> optedOut = optOuts.get(worldIds.getId(world));
+        if (optedOut.isEmpty()) return; // Nobody to reset
+
+        // Spread over later ticks while sweeps are over budget
+        if (optedOut.size() > SWEEP_BATCH && profiler.isDegraded(TickProfiler.Subsystem.SWEEP)) {
+            sweepBatch(world, new ArrayList<>(optedOut), 0);
+            return;
+        }
+
+        final long start = profiler.start();
+        for (final UUID uuid : optedOut) sweep(world, uuid);
+        profiler.stop(TickProfiler.Subsystem.SWEEP, start);
+    }
+
+    /**
+     * Reset the statistics of one batch of players, then schedule the next batch for the next tick
+     *
+     * @param world the world being swept
+     * @param players the players to reset
+     * @param from the index of the batch's first player
+     */
+    private void sweepBatch(@NotNull World world, @NotNull List<UUID> players, int from) {
+        final long start = profiler.start();
+        final int end = Math.min(from + SWEEP_BATCH, players.size());
+        for (int i = from; i < end; i++) sweep(world, players.get(i));
+        profiler.stop(TickProfiler.Subsystem.SWEEP, start);
+        if (end < players.size() && isEnabled()) scheduler.runGlobalTaskLater(() -> sweepBatch(world, players, end), 1);
+    }
+
+    private void sweep(@NotNull World world, @NotNull UUID uuid) {
+        final Player player = Bukkit.getPlayer(uuid);
+        if (player == null) return;
+        final boolean inWorld = player.getWorld().equals(world);
+        if (inWorld) resetStatistic(player);
+        if (tracer.isEnabled()) trace(DecisionTracer.Type.SWEEP, player, world, inWorld ? DecisionTracer.Outcome.RESET : DecisionTracer.Outcome.SKIPPED);
+    }
+
+    /**
+     * Remove or retarget the phantoms targeting a player, depending on {@link ConfigYml.OptOutCleanup}
+     * <br>Only the entities within the configured radius are queried, and each phantom is handled on its own entity scheduler (region thread on Folia)
+     *
+     * @param player the player who opted out
+     */
+    public void clearPhantoms(@NotNull Player player) {
+        final ConfigYml.OptOutCleanup cleanup = config.optOutCleanup;
+        if (cleanup.mode == ConfigYml.OptOutCleanup.Mode.NONE) return;
+        final double radius = cleanup.radius;
+        scheduler.runEntityTask(player, () -> {
+            for (final Entity entity : player.getNearbyEntities(radius, radius, radius)) {
+                if (entity.getType() != EntityType.PHANTOM || ((Mob) entity).getTarget() != player) continue;
+                scheduler.runEntityTask(entity, () -> {
+                    final Mob phantom = (Mob) entity;
+                    if (!phantom.isValid() || phantom.getTarget() != player) return; // Changed target in the meantime
+                    if (cleanup.mode == ConfigYml.OptOutCleanup.Mode.REMOVE) {
+                        phantom.remove();
+                    } else {
+                        phantom.setTarget(null);
+                    }
+                });
+            }
+        });
     }
 
     public boolean isWhitelistedWorld(@NotNull World world) {
-        return config.worldsBlacklist.list == null || config.worldsBlacklist.list.contains(world.getName()) == config.worldsBlacklist.treatAsWhitelist;
+        final ConfigYml.WorldsBlacklist blacklist = config.worldsBlacklist; // Single read, the config may be swapped concurrently
+        return blacklist.list == null || blacklist.list.contains(world.getName()) == blacklist.treatAsWhitelist;
     }
 
     public static void resetStatistic(@NotNull Player player) {
@@ -0,0 +1,283 @@
+package xyz.srnyx.uniphantoms.audit;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import xyz.srnyx.uniphantoms.utility.ErrorReporter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+
+/**
+ * Append-only binary log of every phantom status change, written by a background thread
+ * <br>Callers only enqueue the record. The log is split into one segment per day ({@code audit/<epoch day>.bin}), segments older than the retention are deleted.
+ * <p>Each segment starts with {@code magic (int), version (int)}, followed by {@link AuditRecord#SIZE}-byte records. A record torn by a crash is ignored.
+ */
+public class AuditLog implements Runnable {
+    private static final int MAGIC = 0x55504155; // "UPAU"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final long DAY_MILLIS = TimeUnit.DAYS.toMillis(1);
+    /**
+     * Records waiting to be written, the oldest are dropped past this (only if the disk can't keep up)
+     */
+    private static final int MAX_QUEUED = 65536;
+    @NotNull private static final AuditRecord STOP = new AuditRecord(0, AuditRecord.NO_ACTOR, AuditRecord.NO_ACTOR, null, null, AuditRecord.Source.API, AuditRecord.GLOBAL);
+
+    @NotNull private final Logger logger;
+    @NotNull private final Supplier<ErrorReporter> reporter;
+    @NotNull private final File folder;
+    private final int retentionDays;
+    private final int historySize;
+    @NotNull private final BlockingQueue<AuditRecord> queue = new LinkedBlockingQueue<>(MAX_QUEUED);
+    /**
+     * The latest {@link #historySize} records of each target, oldest first (each deque is guarded by itself)
+     */
+    @NotNull private final Map<UUID, Deque<AuditRecord>> index = new ConcurrentHashMap<>();
+    @NotNull private final Thread thread;
+    private volatile boolean indexed;
+
+    // Only used by the writer thread
+    @Nullable private FileChannel channel;
+    private long segmentDay = -1;
+
+    /**
+     * Start the writer thread, which first indexes the retained segments
+     *
+     * @param logger the logger
+     * @param reporter the current error reporter
+     * @param folder the folder containing the segments
+     * @param retentionDays how many days of segments to keep
+     * @param historySize how many records to index per target
+     */
+    public AuditLog(@NotNull Logger logger, @NotNull Supplier<ErrorReporter> reporter, @NotNull File folder, int retentionDays, int historySize) {
+        this.logger = logger;
+        this.reporter = reporter;
+        this.folder = folder;
+        this.retentionDays = retentionDays;
+        this.historySize = historySize;
+        thread = new Thread(this, "UniPhantoms-AuditLog");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Queue a record, never blocks
+     *
+     * @param record the record
+     */
+    public void append(@NotNull AuditRecord record) {
+        while (!queue.offer(record)) queue.poll(); // Full, drop the oldest
+        add(index, record);
+    }
+
+    /**
+     * Get the latest records of a target
+     *
+     * @param target the target
+     * @return the records, newest first
+     */
+    @NotNull
+    public List<AuditRecord> getHistory(@NotNull UUID target) {
+        final Deque<AuditRecord> records = index.get(target);
+        if (records == null) return Collections.emptyList();
+        final List<AuditRecord> result;
+        synchronized (records) {
+            result = new ArrayList<>(records);
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    /**
+     * Whether the retained segments finished loading into the index, {@link #getHistory(UUID)} may be incomplete until then
+     */
+    public boolean isIndexed() {
+        return indexed;
+    }
+
+    /**
+     * Write the queued records and stop
+     */
+    public void close() {
+        while (!queue.offer(STOP)) queue.poll();
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (thread.isAlive()) logger.warning("Timed out while writing the audit log, " + queue.size() + " records were lost");
+    }
+
+    @Override
+    public void run() {
+        if (!folder.exists() && !folder.mkdirs()) {
+            report("Creating audit log folder", new IOException("Could not create " + folder));
+            return;
+        }
+        loadIndex();
+
+        final List<AuditRecord> batch = new ArrayList<>();
+        ByteBuffer buffer = ByteBuffer.allocate(AuditRecord.SIZE * 64);
+        boolean running = true;
+        while (running) {
+            try {
+                batch.add(queue.take());
+            } catch (final InterruptedException e) {
+                break;
+            }
+            queue.drainTo(batch);
+
+            // Encode
+            if (buffer.capacity() < batch.size() * AuditRecord.SIZE) buffer = ByteBuffer.allocate(batch.size() * AuditRecord.SIZE);
+            buffer.clear();
+            for (final AuditRecord record : batch) {
+                if (record == STOP) {
+                    running = false;
+                    continue;
+                }
+                record.write(buffer);
+            }
+            batch.clear();
+            buffer.flip();
+            if (!buffer.hasRemaining()) continue;
+
+            // Write
+            try {
+                final FileChannel segment = segment(System.currentTimeMillis() / DAY_MILLIS);
+                while (buffer.hasRemaining()) segment.write(buffer);
+            } catch (final IOException e) {
+                report("Writing audit log", e);
+            }
+        }
+
+        if (channel != null) try {
+            channel.close();
+        } catch (final IOException e) {
+            report("Closing audit log", e);
+        }
+    }
+
+    /**
+     * Get the segment of a day, rotating if it's a new day
+     */
+    @NotNull
+    private FileChannel segment(long day) throws IOException {
+        if (channel != null && day == segmentDay) return channel;
+        if (channel != null) channel.close();
+        channel = null;
+
+        final File file = new File(folder, day + ".bin");
+        final FileChannel opened = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        if (opened.size() == 0) {
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION);
+            header.flip();
+            while (header.hasRemaining()) opened.write(header);
+        } else if ((opened.size() - HEADER_SIZE) % AuditRecord.SIZE != 0) {
+            opened.truncate(opened.size() - (opened.size() - HEADER_SIZE) % AuditRecord.SIZE); // Drop a torn record
+        }
+        channel = opened;
+        segmentDay = day;
+        deleteExpired(day);
+        return opened;
+    }
+
+    private void deleteExpired(long today) {
+        for (final File file : listSegments()) {
+            final long day = segmentDay(file);
+            if (day >= 0 && day <= today - retentionDays && !file.delete()) logger.warning("Could not delete old audit log segment " + file.getName());
+        }
+    }
+
+    /**
+     * Read the retained segments, oldest first, into the index (records appended meanwhile stay the newest)
+     */
+    private void loadIndex() {
+        final long oldest = System.currentTimeMillis() / DAY_MILLIS - retentionDays;
+        final Map<UUID, Deque<AuditRecord>> loaded = new ConcurrentHashMap<>();
+        for (final File file : listSegments()) {
+            if (segmentDay(file) <= oldest) continue;
+            try {
+                final ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+                if (bytes.remaining() < HEADER_SIZE || bytes.getInt() != MAGIC || bytes.getInt() != VERSION) continue;
+                while (bytes.remaining() >= AuditRecord.SIZE) {
+                    final AuditRecord record = AuditRecord.read(bytes);
+                    if (record != null) add(loaded, record);
+                }
+            } catch (final IOException e) {
+                report("Reading audit log segment " + file.getName(), e);
+            }
+        }
+
+        // Merge, keeping records appended while loading after the loaded ones
+        for (final Map.Entry<UUID, Deque<AuditRecord>> entry : loaded.entrySet()) {
+            final Deque<AuditRecord> records = index.computeIfAbsent(entry.getKey(), uuid -> new ArrayDeque<>());
+            synchronized (records) {
+                final Deque<AuditRecord> merged = entry.getValue();
+                merged.addAll(records);
+                while (merged.size() > historySize) merged.pollFirst();
+                records.clear();
+                records.addAll(merged);
+            }
+        }
+        indexed = true;
+    }
+
+    private void add(@NotNull Map<UUID, Deque<AuditRecord>> target, @NotNull AuditRecord record) {
+        if (historySize <= 0) return;
+        final Deque<AuditRecord> records = target.computeIfAbsent(record.target, uuid -> new ArrayDeque<>());
+        synchronized (records) {
+            records.addLast(record);
+            if (records.size() > historySize) records.pollFirst();
+        }
+    }
+
+    /**
+     * @return the segments, oldest first
+     */
+    @NotNull
+    private List<File> listSegments() {
+        final File[] files = folder.listFiles((dir, name) -> name.endsWith(".bin"));
+        if (files == null) return Collections.emptyList();
+        final List<File> list = new ArrayList<>(Arrays.asList(files));
+        list.sort((a, b) -> Long.compare(segmentDay(a), segmentDay(b)));
+        return list;
+    }
+
+    private static long segmentDay(@NotNull File file) {
+        final String name = file.getName();
+        try {
+            return Long.parseLong(name.substring(0, name.length() - 4));
+        } catch (final NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private void report(@NotNull String context, @NotNull Exception exception) {
+        final ErrorReporter errorReporter = reporter.get();
+        if (errorReporter != null) {
+            errorReporter.report(context, exception, "Folder: " + folder);
+        } else {
+            logger.severe(context + ": " + ErrorReporter.format(exception));
+        }
+    }
+}
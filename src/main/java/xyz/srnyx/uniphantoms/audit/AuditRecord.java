@@ -0,0 +1,141 @@
+package xyz.srnyx.uniphantoms.audit;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+
+/**
+ * One phantom status change
+ * <p>Binary layout ({@value #SIZE} bytes): {@code timestamp (long), actor msb, actor lsb, target msb, target lsb (longs), old state, new state, source (bytes), unused (byte), world ID (int)}
+ * <br>States are {@code 0} (none), {@code 1} (enabled), {@code 2} (disabled), or for the old state only {@value #STATE_UNKNOWN} (not known)
+ */
+public class AuditRecord {
+    public static final int SIZE = 8 + 8 * 4 + 4 + 4;
+    /**
+     * Actor of changes made by the console or without a player (e.g., another plugin through the API)
+     */
+    @NotNull public static final UUID NO_ACTOR = new UUID(0, 0);
+    /**
+     * World ID of changes to the global status
+     */
+    public static final int GLOBAL = -1;
+    private static final byte STATE_UNKNOWN = 3;
+
+    public final long timestamp;
+    @NotNull public final UUID actor;
+    @NotNull public final UUID target;
+    /**
+     * The status before the change, {@code null} if none was set (the config default applied, or for a world, the global status)
+     */
+    @Nullable public final Boolean oldState;
+    /**
+     * Whether {@link #oldState} is known, it isn't when the player wasn't cached and reading the storage would have blocked the change
+     */
+    public final boolean oldKnown;
+    /**
+     * The status after the change, {@code null} if it was cleared
+     */
+    @Nullable public final Boolean newState;
+    @NotNull public final Source source;
+    /**
+     * {@link xyz.srnyx.uniphantoms.storage.WorldIdTable} ID of the world, or {@link #GLOBAL}
+     */
+    public final int worldId;
+
+    public AuditRecord(long timestamp, @NotNull UUID actor, @NotNull UUID target, @Nullable Boolean oldState, @Nullable Boolean newState, @NotNull Source source, int worldId) {
+        this(timestamp, actor, target, true, oldState, newState, source, worldId);
+    }
+
+    /**
+     * @param oldKnown see {@link #oldKnown}, {@code oldState} is ignored if {@code false}
+     */
+    public AuditRecord(long timestamp, @NotNull UUID actor, @NotNull UUID target, boolean oldKnown, @Nullable Boolean oldState, @Nullable Boolean newState, @NotNull Source source, int worldId) {
+        this.timestamp = timestamp;
+        this.actor = actor;
+        this.target = target;
+        this.oldKnown = oldKnown;
+        this.oldState = oldKnown ? oldState : null;
+        this.newState = newState;
+        this.source = source;
+        this.worldId = worldId;
+    }
+
+    void write(@NotNull ByteBuffer buffer) {
+        buffer.putLong(timestamp)
+                .putLong(actor.getMostSignificantBits()).putLong(actor.getLeastSignificantBits())
+                .putLong(target.getMostSignificantBits()).putLong(target.getLeastSignificantBits())
+                .put(oldKnown ? encode(oldState) : STATE_UNKNOWN).put(encode(newState)).put(source.code).put((byte) 0)
+                .putInt(worldId);
+    }
+
+    /**
+     * Read a record written by {@link #write(ByteBuffer)}
+     *
+     * @return the record, or {@code null} if it's invalid (e.g., written by a newer version)
+     */
+    @Nullable
+    static AuditRecord read(@NotNull ByteBuffer buffer) {
+        final long timestamp = buffer.getLong();
+        final UUID actor = new UUID(buffer.getLong(), buffer.getLong());
+        final UUID target = new UUID(buffer.getLong(), buffer.getLong());
+        final byte oldState = buffer.get();
+        final byte newState = buffer.get();
+        final byte source = buffer.get();
+        buffer.get();
+        final int worldId = buffer.getInt();
+        final Source decoded = Source.of(source);
+        if (decoded == null || oldState < 0 || oldState > STATE_UNKNOWN || newState < 0 || newState > 2) return null;
+        return new AuditRecord(timestamp, actor, target, oldState != STATE_UNKNOWN, decode(oldState), decode(newState), decoded, worldId);
+    }
+
+    private static byte encode(@Nullable Boolean state) {
+        return state == null ? 0 : state ? (byte) 1 : (byte) 2;
+    }
+
+    @Nullable
+    private static Boolean decode(byte state) {
+        return state == 0 ? null : state == 1;
+    }
+
+    /**
+     * What made the change, stored by {@link #code} (never change or reuse a code)
+     */
+    public enum Source {
+        /**
+         * {@code /nophantoms}
+         */
+        COMMAND(0),
+        /**
+         * Another plugin, through {@link xyz.srnyx.uniphantoms.UniPhantoms#setPhantomsEnabled(org.bukkit.OfflinePlayer, boolean)}
+         */
+        API(1),
+        // 2 was reserved for statuses expiring on their own, which were never recorded
+        /**
+         * {@code /nophantoms import}
+         */
+        IMPORT(3);
+
+        @NotNull private static final Source[] VALUES = values();
+
+        public final byte code;
+
+        Source(int code) {
+            this.code = (byte) code;
+        }
+
+        /**
+         * Get the source stored with a code
+         *
+         * @param code the {@link #code}
+         * @return the source, or {@code null} if the code is unknown (e.g., written by a newer version)
+         */
+        @Nullable
+        public static Source of(byte code) {
+            for (final Source source : VALUES) if (source.code == code) return source;
+            return null;
+        }
+    }
+}
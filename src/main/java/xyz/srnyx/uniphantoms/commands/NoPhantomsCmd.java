@@ -3,6 +3,7 @@ package xyz.srnyx.uniphantoms.commands;
 import org.bukkit.Bukkit;
 import org.bukkit.OfflinePlayer;
 import org.bukkit.Statistic;
+import org.bukkit.World;
 import org.bukkit.command.CommandSender;
 import org.bukkit.command.ConsoleCommandSender;
 import org.bukkit.entity.Player;
@@ -15,21 +16,46 @@ import xyz.srnyx.annoyingapi.command.AnnoyingCommand;
 import xyz.srnyx.annoyingapi.command.AnnoyingSender;
 import xyz.srnyx.annoyingapi.command.selector.Selector;
 import xyz.srnyx.annoyingapi.command.selector.SelectorOptional;
-import xyz.srnyx.annoyingapi.cooldown.AnnoyingCooldown;
 
+import xyz.srnyx.uniphantoms.ConfigYml;
 import xyz.srnyx.uniphantoms.UniPhantoms;
+import xyz.srnyx.uniphantoms.audit.AuditLog;
+import xyz.srnyx.uniphantoms.audit.AuditRecord;
 import xyz.srnyx.uniphantoms.message.MiniMessageSender;
+import xyz.srnyx.uniphantoms.storage.OfflineStatusCache;
+import xyz.srnyx.uniphantoms.storage.WriteAdmission;
+import xyz.srnyx.uniphantoms.transfer.StatusTransfer;
+import xyz.srnyx.uniphantoms.utility.DecisionTracer;
+import xyz.srnyx.uniphantoms.utility.ErrorReporter;
+import xyz.srnyx.uniphantoms.utility.StartupTimings;
+import xyz.srnyx.uniphantoms.utility.StatusTrend;
+import xyz.srnyx.uniphantoms.utility.TickProfiler;
 import xyz.srnyx.uniphantoms.utility.TimeFormatter;
 import xyz.srnyx.uniphantoms.utility.TimeFormatter.TimeFormat;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 
 public class NoPhantomsCmd extends AnnoyingCommand {
+    @NotNull private static final String WORLD_FLAG = "-w:";
+    /**
+     * Maximum records shown by {@code /nophantoms history}
+     */
+    private static final int HISTORY_LINES = 10;
+    /**
+     * Events shown by {@code /nophantoms trace} without a count
+     */
+    private static final int TRACE_LINES = 10;
+
     @NotNull private final UniPhantoms plugin;
     @NotNull private final PermissionNode permissions;
 
@@ -39,6 +65,10 @@ public class NoPhantomsCmd extends AnnoyingCommand {
         this.permissions = PermissionNode.create("pp.nophantoms")
                 .registerArgument("reload", "pp.reload")
                 .registerArgument("get", "pp.nophantoms.get")
+                .registerArgument("stats", "pp.nophantoms.stats")
+                .registerArgument("history", "pp.nophantoms.history")
+                .registerArgument("trace", "pp.nophantoms.trace")
+                .registerArguments("pp.nophantoms.transfer", "export", "import")
                 .registerArguments("pp.nophantoms.toggle", "toggle", "enable", "disable");
     }
 
@@ -71,6 +101,15 @@ public class NoPhantomsCmd extends AnnoyingCommand {
     }
 
     public void onCommand(@NotNull AnnoyingSender sender) {
+        final long start = plugin.getProfiler().start();
+        try {
+            execute(sender);
+        } finally {
+            plugin.getProfiler().stop(TickProfiler.Subsystem.COMMAND, start);
+        }
+    }
+
+    private void execute(@NotNull AnnoyingSender sender) {
         final CommandSender cmdSender = sender.cmdSender;
         final int length = sender.args.length;
 
@@ -85,13 +124,126 @@ public class NoPhantomsCmd extends AnnoyingCommand {
             return;
         }
 
-        // Check for silent mode (-s flag)
-        boolean silent = false;
+        // stats <startup|timings|cache|trend|writes>
+        if (sender.argEquals(0, "stats")) {
+            if (!permissions.hasPermission(cmdSender, "stats")) {
+                sendMessage(cmdSender, "error.no-permission");
+                return;
+            }
+            if (length == 2 && sender.argEquals(1, "startup")) {
+                sendStartupStats(cmdSender);
+                return;
+            }
+            if (length == 2 && sender.argEquals(1, "timings")) {
+                sendTimingStats(cmdSender);
+                return;
+            }
+            if (length == 2 && sender.argEquals(1, "cache")) {
+                sendCacheStats(cmdSender);
+                return;
+            }
+            if (length == 2 && sender.argEquals(1, "trend")) {
+                sendTrendStats(cmdSender);
+                return;
+            }
+            if (length == 2 && sender.argEquals(1, "writes")) {
+                sendWriteStats(cmdSender);
+                return;
+            }
+            sendMessage(cmdSender, "error.invalid-arguments");
+            return;
+        }
+
+        // history <player>
+        if (sender.argEquals(0, "history")) {
+            if (!permissions.hasPermission(cmdSender, "history")) {
+                sendMessage(cmdSender, "error.no-permission");
+                return;
+            }
+            if (length != 2) {
+                sendMessage(cmdSender, "error.invalid-arguments");
+                return;
+            }
+            sendHistory(cmdSender, sender.args[1]);
+            return;
+        }
+
+        // trace [<count>|on|off|clear]
+        if (sender.argEquals(0, "trace")) {
+            if (!permissions.hasPermission(cmdSender, "trace")) {
+                sendMessage(cmdSender, "error.no-permission");
+                return;
+            }
+            if (length > 2) {
+                sendMessage(cmdSender, "error.invalid-arguments");
+                return;
+            }
+            final DecisionTracer tracer = plugin.getTracer();
+            if (length == 2 && sender.argEquals(1, "on", "off")) {
+                tracer.setEnabled(sender.argEquals(1, "on"));
+                sendMessage(cmdSender, tracer.isEnabled() ? "trace.enabled" : "trace.disabled");
+                return;
+            }
+            if (length == 2 && sender.argEquals(1, "clear")) {
+                tracer.clear();
+                sendMessage(cmdSender, "trace.cleared");
+                return;
+            }
+            int count = TRACE_LINES;
+            if (length == 2) {
+                try {
+                    count = Integer.parseInt(sender.args[1]);
+                } catch (final NumberFormatException e) {
+                    count = -1;
+                }
+                if (count <= 0) {
+                    sendMessage(cmdSender, "error.invalid-arguments");
+                    return;
+                }
+            }
+            sendTrace(cmdSender, count);
+            return;
+        }
+
+        // <export|import> <file>
+        if (sender.argEquals(0, "export", "import")) {
+            if (!permissions.hasPermission(cmdSender, sender.args[0])) {
+                sendMessage(cmdSender, "error.no-permission");
+                return;
+            }
+            if (length != 2) {
+                sendMessage(cmdSender, "error.invalid-arguments");
+                return;
+            }
+            startTransfer(cmdSender, sender.argEquals(0, "export"), sender.args[1]);
+            return;
+        }
+
+        // Check for trailing flags (-s for silent mode, -w:<world> for a single world)
+        boolean silentFlag = false;
+        World worldFlag = null;
         int effectiveLength = length;
-        if (length > 0 && sender.argEquals(length - 1, "-s")) {
-            silent = true;
-            effectiveLength = length - 1;
+        while (effectiveLength > 0) {
+            final String flag = sender.args[effectiveLength - 1];
+            if (flag.equalsIgnoreCase("-s")) {
+                silentFlag = true;
+            } else if (flag.regionMatches(true, 0, WORLD_FLAG, 0, WORLD_FLAG.length())) {
+                final String worldName = flag.substring(WORLD_FLAG.length());
+                worldFlag = Bukkit.getWorld(worldName);
+                if (worldFlag == null) {
+                    final MiniMessageSender.Builder builder = messageBuilder("error.world-not-found");
+                    if (builder != null) builder.replace("world", worldName).send(cmdSender);
+                    return;
+                }
+            } else {
+                break;
+            }
+            effectiveLength--;
         }
+        final boolean silent = silentFlag;
+        final World world = worldFlag;
+        final String suffix = world != null ? "-world" : "";
+        final String worldName = world != null ? world.getName() : "";
 
         if (effectiveLength == 1) {
             // get
@@ -101,8 +253,11 @@ public class NoPhantomsCmd extends AnnoyingCommand {
                     return;
                 }
                 if (cmdSender instanceof Player) {
-                    final boolean phantomsEnabled = plugin.hasPhantomsEnabled(sender.getPlayer());
-                    sendMessage(cmdSender, phantomsEnabled ? "get.self-enabled" : "get.self-disabled");
+                    final Player player = sender.getPlayer();
+                    reply(cmdSender, world != null ? plugin.hasPhantomsEnabledAsync(player, world) : plugin.hasPhantomsEnabledAsync(player), phantomsEnabled -> {
+                        final MiniMessageSender.Builder builder = messageBuilder((phantomsEnabled ? "get.self-enabled" : "get.self-disabled") + suffix);
+                        if (builder != null) builder.replace("world", worldName).send(cmdSender);
+                    });
                 }
                 return;
             }
@@ -122,15 +277,16 @@ public class NoPhantomsCmd extends AnnoyingCommand {
                 final Player player = sender.getPlayer();
 
                 // Check if on cooldown
+                long cooldown = -1;
                 if (!cmdSender.hasPermission("pp.nophantoms.bypass")) {
-                    final AnnoyingCooldown cooldown = plugin.cooldownManager.getCooldownElseNew("NoPhantomsCmd", player.getUniqueId().toString());
-                    final long duration = getPermissionValue(player, "pp.nophantoms.cooldown.")
+                    cooldown = getPermissionValue(player, "pp.nophantoms.cooldown.")
                             .map(value -> value.longValue() * 1000)
                             .orElse(plugin.config.commandCooldown);
-                    if (cooldown.isOnCooldownStart(duration)) {
+                    final long remaining = plugin.getCooldownEnd(player.getUniqueId()) - System.currentTimeMillis(); // Also covers cooldowns started before a restart
+                    if (remaining > 0) {
                         final MiniMessageSender.Builder builder = messageBuilder("nophantoms.cooldown");
                         if (builder != null) {
-                            builder.replace("cooldown", TimeFormatter.format(cooldown.getRemaining(), TimeFormat.SHORT))
+                            builder.replace("cooldown", TimeFormatter.format(remaining, TimeFormat.SHORT))
                                     .send(cmdSender);
                         }
                         return;
@@ -138,10 +294,18 @@ public class NoPhantomsCmd extends AnnoyingCommand {
                 }
 
                 final Boolean enablePhantoms = determinePhantomAction(sender);
-                final boolean newStatus = editKey(player, enablePhantoms);
-                if (!silent) {
-                    sendMessage(cmdSender, newStatus ? "nophantoms.self-enabled" : "nophantoms.self-disabled");
+                final WriteAdmission.Ticket<Boolean> edit = editKey(player, world, enablePhantoms, player.getUniqueId());
+                if (edit == null) {
+                    sendWriteLimited(cmdSender, 1, 0);
+                    return;
                 }
+                if (cooldown >= 0) plugin.setCooldownEnd(player.getUniqueId(), System.currentTimeMillis() + cooldown); // Only once the change is let through
+                sendWriteLimited(cmdSender, 0, edit.deferred ? 1 : 0);
+                reply(cmdSender, edit.result, newStatus -> {
+                    if (silent) return;
+                    final MiniMessageSender.Builder builder = messageBuilder((newStatus ? "nophantoms.self-enabled" : "nophantoms.self-disabled") + suffix);
+                    if (builder != null) builder.replace("world", worldName).send(cmdSender);
+                });
                 return;
             }
 
@@ -203,11 +367,12 @@ public class NoPhantomsCmd extends AnnoyingCommand {
                     sendMessage(cmdSender, "error.player-not-found");
                     continue;
                 }
-                final boolean phantomsEnabled = plugin.hasPhantomsEnabled(target);
-                final MiniMessageSender.Builder builder = messageBuilder(phantomsEnabled ? "get.other-enabled" : "get.other-disabled");
-                if (builder != null) {
-                    builder.replace("target", targetName).send(cmdSender);
-                }
+                reply(cmdSender, world != null ? plugin.hasPhantomsEnabledAsync(target, world) : plugin.hasPhantomsEnabledAsync(target), phantomsEnabled -> {
+                    final MiniMessageSender.Builder builder = messageBuilder((phantomsEnabled ? "get.other-enabled" : "get.other-disabled") + suffix);
+                    if (builder != null) {
+                        builder.replace("target", targetName).replace("world", worldName).send(cmdSender);
+                    }
+                });
             }
             return;
         }
@@ -220,6 +385,8 @@ public class NoPhantomsCmd extends AnnoyingCommand {
                 return;
             }
             final Boolean enablePhantoms = determinePhantomAction(sender);
+            int rejected = 0;
+            int deferred = 0;
             for (final OfflinePlayer target : targets) {
                 final String targetName = target.getName();
                 if (targetName == null) {
@@ -227,21 +394,28 @@ public class NoPhantomsCmd extends AnnoyingCommand {
                     continue;
                 }
 
-                final boolean newStatus = editKey(target, enablePhantoms);
-                if (!silent) {
-                    final MiniMessageSender.Builder togglerBuilder = messageBuilder(newStatus ? "nophantoms.toggler-enabled" : "nophantoms.toggler-disabled");
+                final WriteAdmission.Ticket<Boolean> edit = editKey(target, world, enablePhantoms, cmdSender instanceof Player ? ((Player) cmdSender).getUniqueId() : AuditRecord.NO_ACTOR);
+                if (edit == null) {
+                    rejected++;
+                    continue;
+                }
+                if (edit.deferred) deferred++;
+                reply(cmdSender, edit.result, newStatus -> {
+                    if (silent) return;
+                    final MiniMessageSender.Builder togglerBuilder = messageBuilder((newStatus ? "nophantoms.toggler-enabled" : "nophantoms.toggler-disabled") + suffix);
                     if (togglerBuilder != null) {
-                        togglerBuilder.replace("target", targetName).send(cmdSender);
+                        togglerBuilder.replace("target", targetName).replace("world", worldName).send(cmdSender);
                     }
                     final Player targetOnline = target.getPlayer();
                     if (targetOnline != null) {
-                        final MiniMessageSender.Builder otherBuilder = messageBuilder(newStatus ? "nophantoms.other-enabled" : "nophantoms.other-disabled");
+                        final MiniMessageSender.Builder otherBuilder = messageBuilder((newStatus ? "nophantoms.other-enabled" : "nophantoms.other-disabled") + suffix);
                         if (otherBuilder != null) {
-                            otherBuilder.replace("toggler", cmdSender.getName()).send(targetOnline);
+                            otherBuilder.replace("toggler", cmdSender.getName()).replace("world", worldName).send(targetOnline);
                         }
                     }
-                }
+                });
             }
+            sendWriteLimited(cmdSender, rejected, deferred);
             return;
         }
 
@@ -257,34 +431,298 @@ public class NoPhantomsCmd extends AnnoyingCommand {
             final List<String> list = new ArrayList<>();
             if (permissions.hasPermission(cmdSender, "reload")) list.add("reload");
             if (permissions.hasPermission(cmdSender, "get")) list.add("get");
+            if (permissions.hasPermission(cmdSender, "stats")) list.add("stats");
+            if (permissions.hasPermission(cmdSender, "history")) list.add("history");
+            if (permissions.hasPermission(cmdSender, "trace")) list.add("trace");
+            if (permissions.hasPermission(cmdSender, "export")) list.add("export");
+            if (permissions.hasPermission(cmdSender, "import")) list.add("import");
             if (permissions.hasPermission(cmdSender, "toggle")) list.add("toggle");
             if (permissions.hasPermission(cmdSender, "enable")) list.add("enable");
             if (permissions.hasPermission(cmdSender, "disable")) list.add("disable");
             return list;
         }
 
-        // <get|toggle|enable|disable> [<player>|-s]
-        if (length == 2 && !sender.argEquals(0, "reload")) {
+        // stats <startup|timings|cache|trend|writes>
+        if (length == 2 && sender.argEquals(0, "stats")) {
+            final List<String> list = new ArrayList<>();
+            if (permissions.hasPermission(cmdSender, "stats")) {
+                list.add("startup");
+                list.add("timings");
+                list.add("cache");
+                list.add("trend");
+                list.add("writes");
+            }
+            return list;
+        }
+
+        // history <player>
+        if (length == 2 && sender.argEquals(0, "history")) {
+            return permissions.hasPermission(cmdSender, "history") ? getOnlinePlayerNames() : null;
+        }
+
+        // trace [<count>|on|off|clear]
+        if (length == 2 && sender.argEquals(0, "trace")) {
+            final List<String> list = new ArrayList<>();
+            if (permissions.hasPermission(cmdSender, "trace")) {
+                list.add("on");
+                list.add("off");
+                list.add("clear");
+                list.add(String.valueOf(TRACE_LINES));
+            }
+            return list;
+        }
+
+        // <export|import> <file>
+        if (length == 2 && sender.argEquals(0, "export", "import")) {
+            final List<String> list = new ArrayList<>();
+            if (permissions.hasPermission(cmdSender, sender.args[0])) {
+                list.add("statuses.ndjson");
+                list.add("statuses.bin");
+            }
+            return list;
+        }
+
+        // <get|toggle|enable|disable> [<player>|-s|-w:<world>]
+        if (length == 2 && !sender.argEquals(0, "reload", "history")) {
             final List<String> list = new ArrayList<>();
             if (sender.argEquals(0, "toggle", "enable", "disable") && cmdSender.hasPermission("pp.nophantoms")) {
                 list.add("-s");
             }
+            if (cmdSender.hasPermission("pp.nophantoms")) list.addAll(getWorldFlags());
             if (cmdSender.hasPermission("pp.nophantoms.others")) {
                 list.addAll(Selector.addKeys(getOnlinePlayerNames(), OfflinePlayer.class));
             }
             return list;
         }
 
-        // <get|toggle|enable|disable> <player> -s
-        if (length == 3 && sender.argEquals(0, "get", "toggle", "enable", "disable") && cmdSender.hasPermission("pp.nophantoms.others")) {
+        // <get|toggle|enable|disable> <player> [-s|-w:<world>]
+        if (length >= 3 && sender.argEquals(0, "get", "toggle", "enable", "disable") && cmdSender.hasPermission("pp.nophantoms")) {
             final List<String> list = new ArrayList<>();
-            list.add("-s");
+            if (!sender.argEquals(0, "get")) list.add("-s");
+            list.addAll(getWorldFlags());
             return list;
         }
 
         return null;
     }
 
+    private void sendStartupStats(@NotNull CommandSender cmdSender) {
+        final StartupTimings timings = plugin.getStartupTimings();
+        if (timings == null) {
+            sendMessage(cmdSender, "stats.startup-unavailable");
+            return;
+        }
+        final MiniMessageSender.Builder header = messageBuilder("stats.startup-header");
+        if (header != null) header.replace("time", TickProfiler.formatMillis(timings.getTotal())).send(cmdSender);
+        for (final StartupTimings.Phase phase : timings.getPhases()) {
+            final MiniMessageSender.Builder builder = messageBuilder("stats.startup-phase");
+            if (builder != null) {
+                builder.replace("phase", phase.name)
+                        .replace("time", TickProfiler.formatMillis(phase.nanos))
+                        .send(cmdSender);
+            }
+        }
+    }
+
+    private void sendTimingStats(@NotNull CommandSender cmdSender) {
+        final TickProfiler profiler = plugin.getProfiler();
+        if (!profiler.isEnabled()) {
+            sendMessage(cmdSender, "stats.timings-disabled");
+            return;
+        }
+        final MiniMessageSender.Builder header = messageBuilder("stats.timings-header");
+        if (header != null) header.replace("tick-time", TickProfiler.formatMillis(profiler.getTickTime())).send(cmdSender);
+        final MiniMessageSender ms = plugin.getMessageSender();
+        for (final TickProfiler.Subsystem subsystem : TickProfiler.Subsystem.VALUES) {
+            final TickProfiler.Stats stats = profiler.getStats(subsystem);
+            final MiniMessageSender.Builder builder = messageBuilder("stats.timings-entry");
+            if (builder != null) {
+                builder.replace("subsystem", subsystem.key)
+                        .replace("last", TickProfiler.formatMillis(stats.last))
+                        .replace("average", TickProfiler.formatMillis(stats.average))
+                        .replace("peak", TickProfiler.formatMillis(stats.peak))
+                        .replace("budget", stats.budget > 0 ? TickProfiler.formatMillis(stats.budget) : "-")
+                        .replace("over", stats.overBudget)
+                        .replace("mode", ms != null ? ms.getRaw(cmdSender, stats.degraded ? "stats.timings-degraded" : "stats.timings-normal") : "")
+                        .send(cmdSender);
+            }
+        }
+    }
+
+    private void sendHistory(@NotNull CommandSender cmdSender, @NotNull String targetName) {
+        final AuditLog audit = plugin.getAuditLog();
+        if (audit == null) {
+            sendMessage(cmdSender, "history.disabled");
+            return;
+        }
+        // Looking a name up may block on the profile cache or Mojang
+        reply(cmdSender, plugin.supplyStorage(() -> Bukkit.getOfflinePlayer(targetName)), target -> {
+            final List<AuditRecord> records = audit.getHistory(target.getUniqueId());
+            if (records.isEmpty()) {
+                final MiniMessageSender.Builder builder = messageBuilder(audit.isIndexed() ? "history.empty" : "history.loading");
+                if (builder != null) builder.replace("target", targetName).send(cmdSender);
+                return;
+            }
+
+            final MiniMessageSender ms = plugin.getMessageSender();
+            if (ms == null) return;
+            ms.builder("history.header")
+                    .replace("target", targetName)
+                    .replace("count", Math.min(records.size(), HISTORY_LINES))
+                    .send(cmdSender);
+            final long now = System.currentTimeMillis();
+            for (int i = 0; i < records.size() && i < HISTORY_LINES; i++) {
+                final AuditRecord record = records.get(i);
+                final String actorName = record.actor.equals(AuditRecord.NO_ACTOR) ? null : Bukkit.getOfflinePlayer(record.actor).getName();
+                final String world = record.worldId == AuditRecord.GLOBAL ? null : plugin.getWorldIds().getName(record.worldId);
+                ms.builder("history.entry")
+                        .replace("ago", TimeFormatter.format(now - record.timestamp, TimeFormat.SHORT))
+                        .replace("actor", actorName != null ? actorName : ms.getRaw(cmdSender, "history.no-actor"))
+                        .replace("old", record.oldKnown ? stateName(ms, cmdSender, record.oldState) : ms.getRaw(cmdSender, "history.state-unknown"))
+                        .replace("new", stateName(ms, cmdSender, record.newState))
+                        .replace("source", record.source.name().toLowerCase(Locale.ROOT))
+                        .replace("world", world != null ? world : ms.getRaw(cmdSender, "history.all-worlds"))
+                        .send(cmdSender);
+            }
+        });
+    }
+
+    @NotNull
+    private static String stateName(@NotNull MiniMessageSender ms, @NotNull CommandSender cmdSender, @Nullable Boolean state) {
+        return ms.getRaw(cmdSender, state == null ? "history.state-default" : state ? "history.state-enabled" : "history.state-disabled");
+    }
+
+    private void sendTrace(@NotNull CommandSender cmdSender, int count) {
+        final MiniMessageSender ms = plugin.getMessageSender();
+        if (ms == null) return;
+        final DecisionTracer tracer = plugin.getTracer();
+        final List<DecisionTracer.Event> events = tracer.getLatest(count);
+        if (events.isEmpty()) {
+            sendMessage(cmdSender, tracer.isEnabled() ? "trace.empty" : "trace.off");
+            return;
+        }
+
+        ms.builder("trace.header")
+                .replace("count", events.size())
+                .replace("recorded", tracer.getRecorded())
+                .replace("capacity", tracer.getCapacity())
+                .send(cmdSender);
+        final long now = System.currentTimeMillis();
+        for (final DecisionTracer.Event event : events) {
+            ms.builder("trace.entry")
+                    .replace("ago", TimeFormatter.format(now - event.timestamp, TimeFormat.SHORT))
+                    .replace("type", event.type.name().toLowerCase(Locale.ROOT))
+                    .replace("target", event.playerName != null ? event.playerName : event.player.toString())
+                    .replace("world", event.world != null ? event.world : ms.getRaw(cmdSender, "history.all-worlds"))
+                    .replace("verdict", ms.getRaw(cmdSender, event.whitelisted == null ? "trace.verdict-none" : event.whitelisted ? "trace.verdict-active" : "trace.verdict-ignored"))
+                    .replace("cached", event.cached == null ? ms.getRaw(cmdSender, "trace.not-cached") : stateName(ms, cmdSender, event.cached))
+                    .replace("outcome", event.outcome.name().toLowerCase(Locale.ROOT))
+                    .send(cmdSender);
+        }
+    }
+
+    private void sendCacheStats(@NotNull CommandSender cmdSender) {
+        final OfflineStatusCache cache = plugin.getOfflineCache();
+        final long hits = cache.getHits();
+        final long lookups = hits + cache.getMisses();
+        final MiniMessageSender.Builder builder = messageBuilder("stats.cache");
+        if (builder != null) {
+            builder.replace("size", cache.size())
+                    .replace("max", cache.getMaxSize())
+                    .replace("hits", hits)
+                    .replace("misses", cache.getMisses())
+                    .replace("ratio", lookups == 0 ? "-" : (hits * 100 / lookups) + "%")
+                    .send(cmdSender);
+        }
+    }
+
+    private void sendWriteStats(@NotNull CommandSender cmdSender) {
+        final WriteAdmission admission = plugin.getAdmission();
+        final MiniMessageSender.Builder builder = messageBuilder("stats.writes");
+        if (admission == null || builder == null) return;
+        final int rate = plugin.config.writeLimit.rate;
+        builder.replace("queued", admission.getQueued())
+                .replace("max", admission.getQueueSize())
+                .replace("admitted", admission.getAdmitted())
+                .replace("deferred", admission.getDeferred())
+                .replace("rejected", admission.getRejected())
+                .replace("rate", rate > 0 ? String.valueOf(rate) : "-")
+                .send(cmdSender);
+    }
+
+    private void sendTrendStats(@NotNull CommandSender cmdSender) {
+        final StatusTrend trend = plugin.getTrend();
+        final MiniMessageSender.Builder header = messageBuilder("stats.trend-header");
+        if (header != null) header.replace("samples", trend.getMinuteSamples()).send(cmdSender);
+        for (final StatusTrend.Window window : StatusTrend.Window.VALUES) {
+            final int disabled = trend.getDisabledPercentage(window);
+            final MiniMessageSender.Builder builder = messageBuilder("stats.trend-entry");
+            if (builder != null) {
+                builder.replace("window", window.key)
+                        .replace("enabled", disabled == -1 ? "-" : (100 - disabled) + "%")
+                        .replace("disabled", disabled == -1 ? "-" : disabled + "%")
+                        .send(cmdSender);
+            }
+        }
+    }
+
+    private void startTransfer(@NotNull CommandSender cmdSender, boolean export, @NotNull String fileName) {
+        final StatusTransfer transfer = plugin.getTransfer();
+        final File file = transfer.resolve(fileName);
+        if (file == null || (!export && !file.exists())) {
+            final MiniMessageSender.Builder builder = messageBuilder(file == null ? "transfer.invalid-file" : "transfer.not-found");
+            if (builder != null) builder.replace("file", fileName).send(cmdSender);
+            return;
+        }
+        final MiniMessageSender ms = plugin.getMessageSender();
+        final String action = ms != null ? ms.getRaw(cmdSender, export ? "transfer.action-export" : "transfer.action-import") : "";
+
+        // Reports come from the transfer threads
+        final StatusTransfer.Listener listener = new StatusTransfer.Listener() {
+            @Override
+            public void progress(@NotNull StatusTransfer.Progress progress) {
+                runFor(cmdSender, () -> {
+                    final MiniMessageSender.Builder builder = messageBuilder("transfer.progress");
+                    if (builder != null) {
+                        builder.replace("action", action)
+                                .replace("file", fileName)
+                                .replace("processed", progress.getProcessed())
+                                .replace("rate", progress.getRate())
+                                .send(cmdSender);
+                    }
+                });
+            }
+
+            @Override
+            public void done(@NotNull StatusTransfer.Progress progress, @Nullable Exception error) {
+                if (error != null) {
+                    final ErrorReporter reporter = plugin.getErrorReporter();
+                    if (reporter != null) reporter.report(export ? "Exporting statuses" : "Importing statuses", error, "File: " + fileName);
+                }
+                runFor(cmdSender, () -> {
+                    final MiniMessageSender.Builder builder = messageBuilder(error == null ? "transfer.done" : "transfer.failed");
+                    if (builder != null) {
+                        builder.replace("action", action)
+                                .replace("file", fileName)
+                                .replace("processed", progress.getProcessed())
+                                .replace("failed", progress.getFailed())
+                                .replace("rate", progress.getRate())
+                                .replace("time", TimeFormatter.format(progress.getElapsedMillis(), TimeFormat.SHORT))
+                                .replace("error", error != null ? String.valueOf(error.getMessage()) : "")
+                                .send(cmdSender);
+                    }
+                    if (export && error == null && progress.isPartial()) sendMessage(cmdSender, "transfer.partial");
+                });
+            }
+        };
+
+        final ConfigYml.Transfer settings = plugin.config.transfer;
+        final UUID actor = cmdSender instanceof Player ? ((Player) cmdSender).getUniqueId() : AuditRecord.NO_ACTOR;
+        final boolean started = export ? transfer.startExport(file, listener) : transfer.startImport(file, settings.importThreads, settings.importRate, actor, listener);
+        final MiniMessageSender.Builder builder = messageBuilder(started ? "transfer.started" : "transfer.busy");
+        if (builder != null) builder.replace("action", action).replace("file", fileName).send(cmdSender);
+    }
+
     @NotNull
     private Optional<Double> getPermissionValue(@NotNull Player player, @NotNull String prefix) {
         for (final PermissionAttachmentInfo info : player.getEffectivePermissions()) {
@@ -299,6 +737,13 @@ public class NoPhantomsCmd extends AnnoyingCommand {
         return Optional.empty();
     }
 
+    @NotNull
+    private List<String> getWorldFlags() {
+        return Bukkit.getWorlds().stream()
+                .map(world -> WORLD_FLAG + world.getName())
+                .collect(Collectors.toList());
+    }
+
     @NotNull
     private List<String> getOnlinePlayerNames() {
         return Bukkit.getOnlinePlayers().stream()
@@ -306,20 +751,99 @@ public class NoPhantomsCmd extends AnnoyingCommand {
                 .collect(Collectors.toList());
     }
 
-    private boolean editKey(@NotNull OfflinePlayer offline, @Nullable Boolean enablePhantoms) {
-        if (enablePhantoms == null) enablePhantoms = !plugin.hasPhantomsEnabled(offline);
+    /**
+     * Run an action with a storage result, on the sender's thread
+     * <br>Runs right away if the result is already available (e.g. the player is cached)
+     */
+    private <T> void reply(@NotNull CommandSender cmdSender, @NotNull CompletableFuture<T> future, @NotNull Consumer<T> action) {
+        if (future.isDone() && !future.isCompletedExceptionally()) {
+            action.accept(future.join());
+            return;
+        }
+        future.whenComplete((result, throwable) -> {
+            final Runnable task = () -> {
+                if (throwable == null) {
+                    action.accept(result);
+                    return;
+                }
+                final ErrorReporter reporter = plugin.getErrorReporter();
+                if (reporter != null) reporter.report("Running command storage task", throwable.getCause() != null ? throwable.getCause() : throwable, "Sender: " + cmdSender.getName());
+                sendMessage(cmdSender, "error.storage-failed");
+            };
+            runFor(cmdSender, task);
+        });
+    }
 
-        plugin.setPhantomsEnabled(offline, enablePhantoms);
+    /**
+     * Run a task on the thread owning a sender (the player's entity scheduler, or the global one)
+     */
+    private void runFor(@NotNull CommandSender cmdSender, @NotNull Runnable task) {
+        if (cmdSender instanceof Player) {
+            plugin.scheduler.runEntityTask((Player) cmdSender, task);
+        } else {
+            plugin.scheduler.runGlobalTask(task);
+        }
+    }
 
-        final Player online = offline.getPlayer();
-        if (online != null && plugin.isWhitelistedWorld(online.getWorld())) {
-            if (enablePhantoms) {
-                online.setStatistic(Statistic.TIME_SINCE_REST, 72000);
-            } else {
-                UniPhantoms.resetStatistic(online);
-            }
+    /**
+     * Tell a sender some of their changes were rejected or deferred by {@link WriteAdmission}, once per command
+     *
+     * @param rejected how many changes were rejected
+     * @param deferred how many changes are waiting for their turn
+     */
+    private void sendWriteLimited(@NotNull CommandSender cmdSender, int rejected, int deferred) {
+        if (rejected > 0) {
+            final MiniMessageSender.Builder builder = messageBuilder("error.write-limit");
+            if (builder != null) builder.replace("count", rejected).send(cmdSender);
+        }
+        if (deferred > 0) {
+            final MiniMessageSender.Builder builder = messageBuilder("nophantoms.deferred");
+            if (builder != null) builder.replace("count", deferred).send(cmdSender);
         }
+    }
 
-        return enablePhantoms;
+    /**
+     * Change a player's status on the storage executor (once {@link WriteAdmission} lets it through), then update their statistic on their own thread
+     *
+     * @return the change, resulting in the new status, or {@code null} if it was rejected
+     */
+    @Nullable
+    private WriteAdmission.Ticket<Boolean> editKey(@NotNull OfflinePlayer offline, @Nullable World world, @Nullable Boolean enablePhantoms, @NotNull UUID actor) {
+        final WriteAdmission.Ticket<Boolean> stored = plugin.submitWrite(offline.getUniqueId(), () -> {
+            final boolean newStatus;
+            if (world != null) {
+                newStatus = enablePhantoms != null ? enablePhantoms : !plugin.hasPhantomsEnabled(offline, world);
+                plugin.setPhantomsEnabled(offline, world, newStatus, actor, AuditRecord.Source.COMMAND);
+            } else {
+                newStatus = enablePhantoms != null ? enablePhantoms : !plugin.hasPhantomsEnabled(offline);
+                plugin.setPhantomsEnabled(offline, newStatus, actor, AuditRecord.Source.COMMAND);
+            }
+            return newStatus;
+        });
+        if (stored == null) return null;
+        return new WriteAdmission.Ticket<>(stored.result.thenApply(newStatus -> {
+            final DecisionTracer tracer = plugin.getTracer();
+            final DecisionTracer.Outcome outcome = newStatus ? DecisionTracer.Outcome.ENABLED : DecisionTracer.Outcome.DISABLED;
+            final Player online = offline.getPlayer();
+            if (online == null) {
+                if (tracer.isEnabled()) plugin.trace(DecisionTracer.Type.TOGGLE, offline, world, outcome);
+                return newStatus;
+            }
+            plugin.scheduler.runEntityTask(online, () -> {
+                final World current = online.getWorld();
+                if ((world != null && !world.equals(current)) || !plugin.isWhitelistedWorld(current)) {
+                    if (tracer.isEnabled()) plugin.trace(DecisionTracer.Type.TOGGLE, online, current, DecisionTracer.Outcome.SKIPPED);
+                    return;
+                }
+                if (newStatus) {
+                    online.setStatistic(Statistic.TIME_SINCE_REST, 72000);
+                } else {
+                    UniPhantoms.resetStatistic(online);
+                    plugin.clearPhantoms(online);
+                }
+                if (tracer.isEnabled()) plugin.trace(DecisionTracer.Type.TOGGLE, online, current, outcome);
+            });
+            return newStatus;
+        }), stored.deferred);
     }
 }
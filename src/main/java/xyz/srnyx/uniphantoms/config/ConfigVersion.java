@@ -30,10 +30,6 @@ public class ConfigVersion {
         this.logger = plugin.getLogger();
         this.configFile = new File(plugin.getDataFolder(), "config.yml");
         this.backupDir = new File(plugin.getDataFolder(), "backups");
-
-        if (!backupDir.exists()) {
-            backupDir.mkdirs();
-        }
     }
 
     /**
@@ -161,6 +157,11 @@ public class ConfigVersion {
             return true; // Nothing to backup
         }
 
+        if (!backupDir.exists() && !backupDir.mkdirs()) {
+            logger.severe("Failed to create backup directory: " + backupDir.getPath());
+            return false;
+        }
+
         final SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd_HH-mm-ss");
         final String backupName = "config_" + sdf.format(new Date()) + ".yml";
         final File backupFile = new File(backupDir, backupName);
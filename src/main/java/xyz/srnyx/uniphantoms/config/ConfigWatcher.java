@@ -0,0 +1,94 @@
+package xyz.srnyx.uniphantoms.config;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+
+/**
+ * Watches the plugin's data folder and calls a callback when one of the watched files changes
+ * <br>Editors often write a file several times in a row, so the callback only runs once the files stopped changing for {@link #DEBOUNCE_MILLIS}
+ */
+public class ConfigWatcher implements Runnable {
+    private static final long DEBOUNCE_MILLIS = 500;
+
+    @NotNull private final WatchService watchService;
+    @NotNull private final Predicate<String> fileFilter;
+    @NotNull private final Runnable callback;
+    @NotNull private final Thread thread;
+
+    /**
+     * Start watching
+     *
+     * @param folder the folder containing the files
+     * @param fileFilter whether to watch a file, by name (e.g., "config.yml")
+     * @param callback called from the watcher thread after the files changed
+     *
+     * @throws IOException if the folder can't be watched
+     */
+    public ConfigWatcher(@NotNull File folder, @NotNull Predicate<String> fileFilter, @NotNull Runnable callback) throws IOException {
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.fileFilter = fileFilter;
+        this.callback = callback;
+        folder.toPath().register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+        thread = new Thread(this, "UniPhantoms-ConfigWatcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                // Wait for a change to a watched file
+                if (!poll(watchService.take())) continue;
+
+                // Wait until changes stop
+                WatchKey key;
+                while ((key = watchService.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS)) != null) poll(key);
+
+                callback.run();
+            }
+        } catch (final InterruptedException | ClosedWatchServiceException ignored) {
+            // Closed
+        }
+    }
+
+    /**
+     * Stop watching
+     */
+    public void close() {
+        try {
+            watchService.close();
+        } catch (final IOException ignored) {
+            // Closing anyway
+        }
+        thread.interrupt();
+    }
+
+    /**
+     * Consume a key's events
+     *
+     * @return whether one of the events was about a watched file
+     */
+    private boolean poll(@NotNull WatchKey key) {
+        boolean relevant = false;
+        for (final WatchEvent<?> event : key.pollEvents()) {
+            final Object context = event.context();
+            if (context instanceof Path && fileFilter.test(((Path) context).getFileName().toString())) relevant = true;
+        }
+        key.reset();
+        return relevant;
+    }
+}
@@ -1,27 +1,71 @@
 package xyz.srnyx.uniphantoms.listeners;
 
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.GameMode;
+import org.bukkit.Location;
+import org.bukkit.World;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.EntityType;
 import org.bukkit.entity.LivingEntity;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.entity.CreatureSpawnEvent;
 import org.bukkit.event.entity.EntityDamageByEntityEvent;
+import org.bukkit.event.entity.EntityDeathEvent;
+import org.bukkit.event.entity.EntityRemoveEvent;
 import org.bukkit.event.entity.EntityTargetLivingEntityEvent;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerLocaleChangeEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.world.ChunkUnloadEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import xyz.srnyx.annoyingapi.AnnoyingListener;
 
+import xyz.srnyx.uniphantoms.ConfigYml;
 import xyz.srnyx.uniphantoms.UniPhantoms;
+import xyz.srnyx.uniphantoms.message.MiniMessageSender;
+import xyz.srnyx.uniphantoms.storage.PhantomStatus;
+import xyz.srnyx.uniphantoms.utility.DecisionTracer;
+import xyz.srnyx.uniphantoms.utility.TickProfiler;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 
 public class MobListener extends AnnoyingListener {
+    /**
+     * How long a phantom keeps the player it was redirected to before searching again
+     */
+    private static final long REDIRECT_TTL = TimeUnit.SECONDS.toNanos(10);
+
     @NotNull private final UniPhantoms plugin;
+    @NotNull private final DecisionTracer tracer;
+    /**
+     * Phantoms that were redirected away from an opted-out player and found no other target, to the {@link System#nanoTime()} their cool-off ends
+     * <br>Entries are removed when the phantom is removed, and expired ones are purged as the map grows
+     */
+    @NotNull private final Map<UUID, Long> coolingOff = new ConcurrentHashMap<>();
+    /**
+     * Phantoms that were redirected to another player, so they go back to them instead of searching again while they're still eligible
+     * <br>Entries are removed when the phantom is removed, and expired ones are purged as the map grows
+     */
+    @NotNull private final Map<UUID, Redirect> redirected = new ConcurrentHashMap<>();
+    private volatile int nextPurge = 64;
 
     public MobListener(@NotNull UniPhantoms plugin) {
         this.plugin = plugin;
+        this.tracer = plugin.getTracer();
     }
 
     @Override @NotNull
@@ -32,34 +76,282 @@ public class MobListener extends AnnoyingListener {
     @EventHandler(ignoreCancelled = true)
     public void onEntityTargetLivingEntity(@NotNull EntityTargetLivingEntityEvent event) {
         if (event.getEntity().getType() != EntityType.PHANTOM) return;
-        final LivingEntity target = event.getTarget();
-        if (target instanceof Player && plugin.isWhitelistedWorld(target.getWorld()) && !plugin.hasPhantomsEnabled((Player) target)) event.setCancelled(true);
+        final long start = plugin.getProfiler().start();
+        try {
+            final Entity phantom = event.getEntity();
+            final UUID uuid = phantom.getUniqueId();
+            final long now = System.nanoTime();
+
+            // Cooling off phantoms don't target anyone
+            if (!coolingOff.isEmpty()) {
+                final Long coolOffEnd = coolingOff.get(uuid);
+                if (coolOffEnd != null) {
+                    if (now - coolOffEnd < 0) {
+                        event.setCancelled(true);
+                        if (tracer.isEnabled() && event.getTarget() instanceof Player) {
+                            final Player target = (Player) event.getTarget();
+                            plugin.trace(DecisionTracer.Type.TARGET, target, target.getWorld(), DecisionTracer.Outcome.COOLING_OFF);
+                        }
+                        return;
+                    }
+                    coolingOff.remove(uuid, coolOffEnd);
+                }
+            }
+
+            final LivingEntity target = event.getTarget();
+            if (!(target instanceof Player)) return;
+            final Player player = (Player) target;
+            final World world = target.getWorld();
+            // Players in a phantom-free zone are protected like opted-out ones, even in blacklisted worlds
+            if (!plugin.isInZone(player.getLocation()) && (!plugin.isWhitelistedWorld(world) || plugin.hasPhantomsEnabledNow(player, world))) {
+                if (tracer.isEnabled()) plugin.trace(DecisionTracer.Type.TARGET, player, world, DecisionTracer.Outcome.ALLOWED);
+                return;
+            }
+            event.setCancelled(true);
+
+            final ConfigYml.Targeting targeting = plugin.config.targeting;
+            if (targeting.mode == ConfigYml.Targeting.Mode.CANCEL) {
+                if (tracer.isEnabled()) plugin.trace(DecisionTracer.Type.TARGET, player, world, DecisionTracer.Outcome.CANCELLED);
+                return;
+            }
+
+            // Redirect to the player it was redirected to before, or the nearest eligible one (skipped while the listener is over budget, the search is its most expensive part)
+            if (targeting.mode == ConfigYml.Targeting.Mode.RETARGET && !plugin.getProfiler().isDegraded(TickProfiler.Subsystem.LISTENER)) {
+                Player newTarget = getRedirect(phantom, world, targeting.radius, now);
+                if (newTarget == null) {
+                    newTarget = findTarget(phantom, world, targeting.radius);
+                    if (newTarget != null) {
+                        redirected.put(uuid, new Redirect(newTarget.getUniqueId(), now + REDIRECT_TTL));
+                        if (redirected.size() >= nextPurge) purge(now);
+                    }
+                }
+                if (newTarget != null) {
+                    event.setTarget(newTarget);
+                    event.setCancelled(false);
+                    if (tracer.isEnabled()) plugin.trace(DecisionTracer.Type.TARGET, player, world, DecisionTracer.Outcome.RETARGETED);
+                    return;
+                }
+            }
+
+            // Cool off
+            if (targeting.coolOff > 0) {
+                coolingOff.put(uuid, now + targeting.coolOff);
+                if (coolingOff.size() >= nextPurge) purge(now);
+            }
+            if (tracer.isEnabled()) plugin.trace(DecisionTracer.Type.TARGET, player, world, targeting.coolOff > 0 ? DecisionTracer.Outcome.COOLED_OFF : DecisionTracer.Outcome.CANCELLED);
+        } finally {
+            plugin.getProfiler().stop(TickProfiler.Subsystem.LISTENER, start);
+        }
+    }
+
+    @EventHandler
+    public void onEntityRemove(@NotNull EntityRemoveEvent event) {
+        if (event.getEntityType() == EntityType.PHANTOM) forget(event.getEntity().getUniqueId());
+    }
+
+    @EventHandler
+    public void onEntityDeath(@NotNull EntityDeathEvent event) {
+        if (event.getEntityType() == EntityType.PHANTOM) forget(event.getEntity().getUniqueId());
+    }
+
+    private void forget(@NotNull UUID phantom) {
+        coolingOff.remove(phantom);
+        redirected.remove(phantom);
     }
 
     @EventHandler(ignoreCancelled = true)
     public void onEntityDamageByEntity(@NotNull EntityDamageByEntityEvent event) {
-        final Entity damager = event.getDamager();
-        if (!plugin.isWhitelistedWorld(damager.getWorld())) return;
-        final Entity target = event.getEntity();
-        // Player attacking Phantom
-        if (damager instanceof Player && target.getType() == EntityType.PHANTOM && !plugin.hasPhantomsEnabled((Player) damager)) {
-            event.setCancelled(true);
-            return;
+        final long start = plugin.getProfiler().start();
+        try {
+            final Entity damager = event.getDamager();
+            final World world = damager.getWorld();
+            final Entity target = event.getEntity();
+            // Phantom attacking Player in a phantom-free zone
+            if (damager.getType() == EntityType.PHANTOM && target instanceof Player && plugin.isInZone(target.getLocation())) {
+                event.setCancelled(true);
+                if (tracer.isEnabled()) plugin.trace(DecisionTracer.Type.PHANTOM_ATTACK, (Player) target, world, DecisionTracer.Outcome.CANCELLED);
+                return;
+            }
+            if (!plugin.isWhitelistedWorld(world)) return;
+            // Player attacking Phantom
+            if (damager instanceof Player && target.getType() == EntityType.PHANTOM) {
+                final boolean cancel = !plugin.hasPhantomsEnabledNow((Player) damager, world);
+                if (cancel) event.setCancelled(true);
+                if (tracer.isEnabled()) plugin.trace(DecisionTracer.Type.ATTACK_PHANTOM, (Player) damager, world, cancel ? DecisionTracer.Outcome.CANCELLED : DecisionTracer.Outcome.ALLOWED);
+                return;
+            }
+            // Phantom attacking Player
+            if (damager.getType() == EntityType.PHANTOM && target instanceof Player) {
+                final boolean cancel = !plugin.hasPhantomsEnabledNow((Player) target, world);
+                if (cancel) event.setCancelled(true);
+                if (tracer.isEnabled()) plugin.trace(DecisionTracer.Type.PHANTOM_ATTACK, (Player) target, world, cancel ? DecisionTracer.Outcome.CANCELLED : DecisionTracer.Outcome.ALLOWED);
+            }
+        } finally {
+            plugin.getProfiler().stop(TickProfiler.Subsystem.LISTENER, start);
         }
-        // Phantom attacking Player
-        if (damager.getType() == EntityType.PHANTOM && target instanceof Player && !plugin.hasPhantomsEnabled((Player) target)) event.setCancelled(true);
+    }
+
+    /**
+     * Phantoms don't spawn naturally in phantom-free zones (spawn eggs, spawners & commands still work)
+     */
+    @EventHandler(ignoreCancelled = true)
+    public void onCreatureSpawn(@NotNull CreatureSpawnEvent event) {
+        if (event.getEntityType() != EntityType.PHANTOM || event.getSpawnReason() != CreatureSpawnEvent.SpawnReason.NATURAL) return;
+        final long start = plugin.getProfiler().start();
+        if (plugin.isInZone(event.getLocation())) event.setCancelled(true);
+        plugin.getProfiler().stop(TickProfiler.Subsystem.LISTENER, start);
+    }
+
+    @EventHandler
+    public void onChunkUnload(@NotNull ChunkUnloadEvent event) {
+        final Chunk chunk = event.getChunk();
+        plugin.getZones().forgetChunk(chunk.getWorld().getName(), chunk.getX(), chunk.getZ());
+    }
+
+    @EventHandler
+    public void onWorldUnload(@NotNull WorldUnloadEvent event) {
+        plugin.getZones().forgetWorld(event.getWorld().getName());
+    }
+
+    /**
+     * Load the status while the login waits anyway, so joining finds it cached
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onAsyncPlayerPreLogin(@NotNull AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() == AsyncPlayerPreLoginEvent.Result.ALLOWED) plugin.preloadPhantomStatus(event.getUniqueId());
     }
 
     @EventHandler
     public void onPlayerJoin(@NotNull PlayerJoinEvent event) {
+        final long start = plugin.getProfiler().start();
+        final Player player = event.getPlayer();
+        final CompletableFuture<PhantomStatus> status = plugin.getPhantomStatusAsync(player); // Caches it, without overwriting a status changed in the meantime
+        preloadMessages(player.getLocale());
+        if (status.isDone() && !status.isCompletedExceptionally()) {
+            resetIfOptedOut(player, status.join());
+        } else {
+            // Not preloaded (e.g. the preload timed out), reset once loaded instead of waiting
+            status.thenAccept(loaded -> plugin.scheduler.runEntityTask(player, () -> {
+                if (player.isOnline()) resetIfOptedOut(player, loaded);
+            }));
+        }
+        plugin.getProfiler().stop(TickProfiler.Subsystem.LISTENER, start);
+    }
+
+    private void resetIfOptedOut(@NotNull Player player, @NotNull PhantomStatus status) {
+        final World world = player.getWorld();
+        if (plugin.isWhitelistedWorld(world) && !status.isEnabled(plugin.getWorldIds().getId(world))) UniPhantoms.resetStatistic(player);
+    }
+
+    @EventHandler
+    public void onPlayerLocaleChange(@NotNull PlayerLocaleChangeEvent event) {
+        preloadMessages(event.getLocale());
+    }
+
+    private void preloadMessages(@Nullable String locale) {
+        final MiniMessageSender ms = plugin.getMessageSender();
+        if (ms != null) ms.preload(locale);
+    }
+
+    @EventHandler
+    public void onPlayerChangedWorld(@NotNull PlayerChangedWorldEvent event) {
+        final long start = plugin.getProfiler().start();
         final Player player = event.getPlayer();
-        final boolean enabled = plugin.hasPhantomsEnabled(player);
-        plugin.cachePhantomStatus(player.getUniqueId(), enabled);
-        if (plugin.isWhitelistedWorld(player.getWorld()) && !enabled) UniPhantoms.resetStatistic(player);
+        final World world = player.getWorld();
+        plugin.updateOptOutIndex(player);
+        if (plugin.isWhitelistedWorld(world) && !plugin.hasPhantomsEnabledNow(player, world)) UniPhantoms.resetStatistic(player);
+        plugin.getProfiler().stop(TickProfiler.Subsystem.LISTENER, start);
     }
 
     @EventHandler
     public void onPlayerQuit(@NotNull PlayerQuitEvent event) {
-        plugin.uncachePhantomStatus(event.getPlayer().getUniqueId());
+        final long start = plugin.getProfiler().start();
+        final UUID uuid = event.getPlayer().getUniqueId();
+        plugin.uncachePhantomStatus(uuid);
+        // A load that finished while the event ran may have cached the player again
+        plugin.scheduler.runGlobalTaskLater(() -> {
+            if (Bukkit.getPlayer(uuid) == null) plugin.uncachePhantomStatus(uuid);
+        }, 1);
+        final MiniMessageSender ms = plugin.getMessageSender();
+        if (ms != null) ms.forget(uuid);
+        plugin.getProfiler().stop(TickProfiler.Subsystem.LISTENER, start);
+    }
+
+    /**
+     * Get the player a phantom was last redirected to, if it can still target them
+     *
+     * @return the player, or {@code null} if there's none or they're no longer eligible (the redirect is then dropped)
+     */
+    @Nullable
+    private Player getRedirect(@NotNull Entity phantom, @NotNull World world, double radius, long now) {
+        if (redirected.isEmpty()) return null;
+        final UUID uuid = phantom.getUniqueId();
+        final Redirect redirect = redirected.get(uuid);
+        if (redirect == null) return null;
+        if (now - redirect.expires < 0) {
+            final Player player = Bukkit.getPlayer(redirect.target);
+            if (player != null && player.getWorld().equals(world)) {
+                final Location location = phantom.getLocation();
+                final Location playerLocation = player.getLocation();
+                if (Math.abs(location.getX() - playerLocation.getX()) <= radius && Math.abs(location.getY() - playerLocation.getY()) <= radius && Math.abs(location.getZ() - playerLocation.getZ()) <= radius
+                        && isEligible(player, world, playerLocation)) return player;
+            }
+        }
+        redirected.remove(uuid, redirect);
+        return null;
+    }
+
+    /**
+     * Find the nearest player a phantom could target instead
+     *
+     * @return the player, or {@code null} if there's none within the radius
+     */
+    @Nullable
+    private Player findTarget(@NotNull Entity phantom, @NotNull World world, double radius) {
+        final Location location = phantom.getLocation();
+        Player nearest = null;
+        double nearestDistance = Double.MAX_VALUE;
+        for (final Entity entity : phantom.getNearbyEntities(radius, radius, radius)) {
+            if (!(entity instanceof Player)) continue;
+            final Player player = (Player) entity;
+            final Location playerLocation = player.getLocation();
+            if (!isEligible(player, world, playerLocation)) continue;
+            final double distance = location.distanceSquared(playerLocation);
+            if (distance < nearestDistance) {
+                nearest = player;
+                nearestDistance = distance;
+            }
+        }
+        return nearest;
+    }
+
+    /**
+     * Whether a phantom may be redirected to a player
+     */
+    private boolean isEligible(@NotNull Player player, @NotNull World world, @NotNull Location location) {
+        final GameMode gameMode = player.getGameMode();
+        return !player.isDead() && gameMode != GameMode.CREATIVE && gameMode != GameMode.SPECTATOR && plugin.hasPhantomsEnabledNow(player, world) && !plugin.isInZone(location);
+    }
+
+    /**
+     * Remove expired cool-offs and redirects (of phantoms that were never removed, e.g. still flying around)
+     */
+    private void purge(long now) {
+        coolingOff.values().removeIf(end -> now - end >= 0);
+        redirected.values().removeIf(redirect -> now - redirect.expires >= 0);
+        nextPurge = Math.max(64, Math.max(coolingOff.size(), redirected.size()) * 2);
+    }
+
+    private static class Redirect {
+        @NotNull private final UUID target;
+        /**
+         * The {@link System#nanoTime()} after which the phantom searches again
+         */
+        private final long expires;
+
+        private Redirect(@NotNull UUID target, long expires) {
+            this.target = target;
+            this.expires = expires;
+        }
     }
 }
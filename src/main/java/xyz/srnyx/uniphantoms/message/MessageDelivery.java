@@ -0,0 +1,84 @@
+package xyz.srnyx.uniphantoms.message;
+
+import net.kyori.adventure.audience.Audience;
+import net.kyori.adventure.platform.bukkit.BukkitAudiences;
+import net.kyori.adventure.text.Component;
+
+import org.bukkit.command.CommandSender;
+import org.bukkit.plugin.Plugin;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+
+/**
+ * Delivers components to command senders
+ * <br>On servers implementing Adventure natively (Paper and its forks), senders are audiences themselves and get the components as they are.
+ * Otherwise (Spigot), a {@link BukkitAudiences} is created on first use. It's kept in {@link Platform}, so the adventure-platform classes are never loaded on Paper.
+ */
+public class MessageDelivery {
+    /**
+     * Whether {@link CommandSender} implements {@link Audience}
+     */
+    private static final boolean NATIVE = Audience.class.isAssignableFrom(CommandSender.class);
+
+    @NotNull private final Plugin plugin;
+    @Nullable private volatile Platform platform;
+    private boolean closed;
+
+    public MessageDelivery(@NotNull Plugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Whether components are sent natively, without {@link BukkitAudiences}
+     */
+    public static boolean isNative() {
+        return NATIVE;
+    }
+
+    public void send(@NotNull CommandSender sender, @NotNull Component message) {
+        if (NATIVE) {
+            ((Audience) sender).sendMessage(message);
+            return;
+        }
+        final Platform current = platform();
+        if (current != null) current.audiences.sender(sender).sendMessage(message);
+    }
+
+    /**
+     * Close the {@link BukkitAudiences} (if it was created) to prevent listener leaks
+     */
+    public synchronized void close() {
+        closed = true;
+        final Platform current = platform;
+        if (current == null) return;
+        platform = null;
+        current.audiences.close();
+    }
+
+    /**
+     * @return the platform, {@code null} if closed
+     */
+    @Nullable
+    private Platform platform() {
+        Platform current = platform;
+        if (current != null) return current;
+        synchronized (this) {
+            if (closed) return null;
+            if (platform == null) platform = new Platform(BukkitAudiences.create(plugin));
+            return platform;
+        }
+    }
+
+    /**
+     * Only loaded on servers without native Adventure support
+     */
+    private static class Platform {
+        @NotNull private final BukkitAudiences audiences;
+
+        private Platform(@NotNull BukkitAudiences audiences) {
+            this.audiences = audiences;
+        }
+    }
+}
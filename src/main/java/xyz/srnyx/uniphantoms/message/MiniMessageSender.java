@@ -1,8 +1,7 @@
 package xyz.srnyx.uniphantoms.message;
 
-import net.kyori.adventure.platform.bukkit.BukkitAudiences;
-import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.minimessage.MiniMessage;
+import org.bukkit.Bukkit;
 import org.bukkit.command.CommandSender;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.file.FileConfiguration;
@@ -10,6 +9,7 @@ import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.entity.Player;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import xyz.srnyx.annoyingapi.AnnoyingPlugin;
 
@@ -17,20 +17,58 @@ import java.io.File;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 
 /**
  * Custom message sender with MiniMessage support for AnnoyingAPI
  * Handles both Legacy (&) and MiniMessage (<>) formats
+ * <br>Messages are picked from {@code messages_<locale>.yml} by the recipient's client locale, see {@link #bundle(String)}
  */
 public class MiniMessageSender {
+    @NotNull private static final String BASE_NAME = "messages";
+    /**
+     * Normalized locales that can have a bundle of their own ({@code en}, {@code en_us}, {@code fil_ph}), anything else uses {@link #base}
+     * <br>Clients choose their locale, so it's never used as a file name or cached unless it matches
+     */
+    @NotNull private static final Pattern LOCALE = Pattern.compile("[a-z]{2,3}(_[a-z0-9]{2,4})?");
+    /**
+     * Most locales to cache in {@link #bundles}, the game has about 130. Locales past it use their language's bundle (or {@link #base}) without looking for a file.
+     */
+    private static final int MAX_BUNDLES = 256;
+
     @NotNull private final AnnoyingPlugin plugin;
-    @NotNull private final BukkitAudiences audiences;
+    @NotNull private final MessageDelivery delivery;
+    /**
+     * Where the bundle files are read
+     */
+    @NotNull private final Executor executor;
     @NotNull private final MiniMessage miniMessage;
-    @NotNull private final FileConfiguration messages;
-    @NotNull private final Map<String, String> globalPlaceholders;
+    /**
+     * {@code messages.yml}, also the bundle of recipients without a locale (e.g., the console)
+     */
+    @NotNull private final CompletableFuture<Bundle> base;
+    /**
+     * Bundles by normalized locale ({@code en_us}) and language ({@code en}), only loaded once someone with that locale needs a message
+     */
+    @NotNull private final Map<String, Bundle> bundles = new ConcurrentHashMap<>();
+    /**
+     * Set with {@link #base} if PlaceholderAPI is enabled, {@code null} otherwise
+     */
+    @Nullable private volatile PlaceholderCache placeholderCache;
 
     private static final Map<String, String> LEGACY_COLOR_MAP;
     static {
@@ -60,89 +98,170 @@ public class MiniMessageSender {
         LEGACY_COLOR_MAP = map;
     }
 
-    public MiniMessageSender(@NotNull AnnoyingPlugin plugin, @NotNull BukkitAudiences audiences) {
+    /**
+     * @param plugin the plugin
+     * @param delivery how messages are sent
+     * @param executor where to read the bundle files, e.g. the plugin's storage executor
+     */
+    public MiniMessageSender(@NotNull AnnoyingPlugin plugin, @NotNull MessageDelivery delivery, @NotNull Executor executor) {
         this.plugin = plugin;
-        this.audiences = audiences;
+        this.delivery = delivery;
+        this.executor = executor;
         this.miniMessage = MiniMessage.miniMessage();
+        // Load messages.yml off-thread, the first message sent waits for it if it isn't done yet
+        this.base = CompletableFuture.supplyAsync(this::loadBase, executor);
+    }
+
+    /**
+     * Whether a file is one of the message bundles ({@code messages.yml} or {@code messages_<locale>.yml})
+     *
+     * @param name the file's name
+     */
+    public static boolean isMessagesFile(@NotNull String name) {
+        return name.equals(BASE_NAME + ".yml") || (name.startsWith(BASE_NAME + "_") && name.endsWith(".yml"));
+    }
+
+    @NotNull
+    private Bundle loadBase() {
         // Load messages.yml from plugin data folder
-        final File messagesFile = new File(plugin.getDataFolder(), "messages.yml");
+        final File messagesFile = new File(plugin.getDataFolder(), BASE_NAME + ".yml");
         if (!messagesFile.exists()) {
-            plugin.saveResource("messages.yml", false);
+            plugin.saveResource(BASE_NAME + ".yml", false);
         }
+        final FileConfiguration file = YamlConfiguration.loadConfiguration(messagesFile);
 
-        this.messages = YamlConfiguration.loadConfiguration(messagesFile);
-
-        // Load defaults from JAR if available
-        final InputStream defaultStream = plugin.getResource("messages.yml");
-        if (defaultStream != null) {
-            final FileConfiguration defaultConfig = YamlConfiguration.loadConfiguration(
-                new InputStreamReader(defaultStream, StandardCharsets.UTF_8)
-            );
-            messages.setDefaults(defaultConfig);
+        // PlaceholderAPI values are cached per recipient
+        if (Bukkit.getPluginManager().isPluginEnabled("PlaceholderAPI")) {
+            final double ttl = Math.max(0, file.getDouble("plugin.placeholder-api-cache", 5));
+            placeholderCache = new PlaceholderCache((long) (ttl * 1_000_000_000L)); // seconds -> nanoseconds
         }
 
-        // Cache global placeholders at construction time
-        this.globalPlaceholders = new HashMap<>();
-        final ConfigurationSection section = messages.getConfigurationSection("plugin.global-placeholders");
-        if (section != null) {
-            for (final String key : section.getKeys(false)) {
-                final String value = section.getString(key);
-                if (value != null) {
-                    globalPlaceholders.put("%" + key + "%", value);
-                }
-            }
+        // The defaults from the JAR are only read if a message is missing from the file
+        final Bundle defaults = new Bundle(() -> loadDefaults(plugin), null);
+        return new Bundle(() -> file, defaults);
+    }
+
+    /**
+     * Load the bundle of a locale in the background, so the first message sent to it doesn't have to
+     *
+     * @param locale the client locale (e.g., {@code en_us})
+     */
+    public void preload(@Nullable String locale) {
+        final String key = key(locale);
+        if (key == null || bundles.containsKey(key)) return;
+        try {
+            executor.execute(() -> bundle(key));
+        } catch (final RejectedExecutionException e) {
+            // Shutting down, loaded by the first message instead
         }
     }
 
+    /**
+     * Get the bundle of a locale, loading it the first time
+     * <br>Fallback chain: {@code messages_<language>_<country>.yml} → {@code messages_<language>.yml} → {@code messages.yml} → the JAR's {@code messages.yml}.
+     * Locales without a file of their own share their fallback's bundle, invalid locales use {@link #base}.
+     */
+    @NotNull
+    private Bundle bundle(@Nullable String locale) {
+        final String key = key(locale);
+        if (key == null) return base.join();
+        final Bundle cached = bundles.get(key);
+        if (cached != null) return cached;
+
+        final int separator = key.indexOf('_');
+        final Bundle fallback = separator > 0 ? bundle(key.substring(0, separator)) : base.join();
+        if (bundles.size() >= MAX_BUNDLES) return fallback;
+        final Bundle loaded = openBundle(key, fallback);
+        final Bundle existing = bundles.putIfAbsent(key, loaded);
+        return existing != null ? existing : loaded;
+    }
+
+    @NotNull
+    private Bundle bundle(@NotNull CommandSender recipient) {
+        return recipient instanceof Player ? bundle(((Player) recipient).getLocale()) : base.join();
+    }
+
+    /**
+     * Open {@code messages_<locale>.yml}, saving the JAR's copy first if there is one
+     *
+     * @return the bundle, or the fallback if the locale has no file
+     */
+    @NotNull
+    private Bundle openBundle(@NotNull String locale, @NotNull Bundle fallback) {
+        final String name = BASE_NAME + "_" + locale + ".yml";
+        final File file = new File(plugin.getDataFolder(), name);
+        if (!file.exists() && plugin.getResource(name) != null) plugin.saveResource(name, false);
+        if (!file.exists()) return fallback;
+        final FileConfiguration config = YamlConfiguration.loadConfiguration(file);
+        return new Bundle(() -> config, fallback);
+    }
+
+    /**
+     * Normalize a client locale ({@code en-US} → {@code en_us})
+     *
+     * @return the locale, or {@code null} if it can't have a bundle of its own (see {@link #LOCALE})
+     */
+    @Nullable
+    static String key(@Nullable String locale) {
+        if (locale == null || locale.isEmpty() || locale.length() > 8) return null;
+        final String key = locale.toLowerCase(Locale.ROOT).replace('-', '_');
+        return LOCALE.matcher(key).matches() ? key : null;
+    }
+
     public void send(@NotNull CommandSender sender, @NotNull String key, @NotNull Map<String, String> replacements) {
-        final String message = getMessage(key, replacements);
+        final String message = bundle(sender).template(key).render(replacements, sender instanceof Player ? (Player) sender : null, placeholderCache);
         if (message.isEmpty()) return;
 
-        audiences.sender(sender).sendMessage(parseMessage(message));
+        delivery.send(sender, miniMessage.deserialize(message));
     }
 
     public void send(@NotNull Player player, @NotNull String key, @NotNull Map<String, String> replacements) {
-        final String message = getMessage(key, replacements);
+        final String message = bundle(player.getLocale()).template(key).render(replacements, player, placeholderCache);
         if (message.isEmpty()) return;
 
-        audiences.player(player).sendMessage(parseMessage(message));
+        delivery.send(player, miniMessage.deserialize(message));
     }
 
     public void send(@NotNull CommandSender sender, @NotNull String key) {
-        send(sender, key, new HashMap<>());
+        send(sender, key, Collections.emptyMap());
     }
 
-    @NotNull
-    private String getMessage(@NotNull String key, @NotNull Map<String, String> replacements) {
-        String message = messages.getString(key);
-        if (message == null) return "";
-
-        message = replaceGlobalPlaceholders(message);
-
-        for (final Map.Entry<String, String> entry : replacements.entrySet()) {
-            final String placeholder = entry.getKey().startsWith("%") ? entry.getKey() : "%" + entry.getKey() + "%";
-            message = message.replace(placeholder, entry.getValue());
-        }
-
-        return message;
+    /**
+     * Forget the PlaceholderAPI values cached for a player
+     *
+     * @param uuid the player
+     */
+    public void forget(@NotNull UUID uuid) {
+        final PlaceholderCache cache = placeholderCache;
+        if (cache != null) cache.remove(uuid);
     }
 
+    /**
+     * Get a message without sending it (e.g., to use it as another message's placeholder)
+     *
+     * @param key the message's key
+     * @return the message with the global placeholders replaced, empty if it doesn't exist
+     */
     @NotNull
-    private String replaceGlobalPlaceholders(@NotNull String message) {
-        String result = message;
-        for (final Map.Entry<String, String> entry : globalPlaceholders.entrySet()) {
-            result = result.replace(entry.getKey(), entry.getValue());
-        }
-        return result;
+    public String getRaw(@NotNull String key) {
+        return base.join().template(key).raw;
     }
 
+    /**
+     * Get a message in a recipient's locale without sending it
+     *
+     * @param recipient the recipient whose locale to use
+     * @param key the message's key
+     * @return the message with the global placeholders replaced, empty if it doesn't exist
+     */
     @NotNull
-    private Component parseMessage(@NotNull String message) {
-        return miniMessage.deserialize(convertLegacyToMiniMessage(message));
+    public String getRaw(@NotNull CommandSender recipient, @NotNull String key) {
+        return bundle(recipient).template(key).raw;
     }
 
     @NotNull
-    private String convertLegacyToMiniMessage(@NotNull String message) {
+    private static String convertLegacyToMiniMessage(@NotNull String message) {
+        if (message.indexOf('&') == -1) return message;
         String result = message;
         // Convert hex colors first: &#RRGGBB → <color:#RRGGBB>
         result = result.replaceAll("&#([0-9a-fA-F]{6})", "<color:#$1>");
@@ -153,6 +272,174 @@ public class MiniMessageSender {
         return result;
     }
 
+    @NotNull
+    private static FileConfiguration loadDefaults(@NotNull AnnoyingPlugin plugin) {
+        final InputStream defaultStream = plugin.getResource(BASE_NAME + ".yml");
+        if (defaultStream == null) return new YamlConfiguration();
+        return YamlConfiguration.loadConfiguration(new InputStreamReader(defaultStream, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * One loaded message file and its compiled templates, shared by every recipient with the same locale
+     * <br>Messages missing from the file come from the parent bundle
+     */
+    private static class Bundle {
+        @NotNull private final Supplier<FileConfiguration> loader;
+        @Nullable private final Bundle parent;
+        @Nullable private volatile FileConfiguration file;
+        @Nullable private volatile Map<String, String> globalPlaceholders;
+        /**
+         * Compiled on first use, including missing messages (as {@link Template#EMPTY})
+         */
+        @NotNull private final Map<String, Template> templates = new ConcurrentHashMap<>();
+
+        private Bundle(@NotNull Supplier<FileConfiguration> loader, @Nullable Bundle parent) {
+            this.loader = loader;
+            this.parent = parent;
+        }
+
+        @NotNull
+        private Template template(@NotNull String key) {
+            return templates.computeIfAbsent(key, this::compile);
+        }
+
+        @NotNull
+        private Template compile(@NotNull String key) {
+            final String message = get(key);
+            if (message == null) return Template.EMPTY;
+            String raw = message;
+            for (final Map.Entry<String, String> entry : globalPlaceholders().entrySet()) {
+                raw = raw.replace(entry.getKey(), entry.getValue());
+            }
+            return Template.compile(raw);
+        }
+
+        @Nullable
+        private String get(@NotNull String key) {
+            final String message = file().getString(key);
+            if (message != null || parent == null) return message;
+            return parent.get(key);
+        }
+
+        /**
+         * The global placeholders of the closest bundle that has {@code plugin.global-placeholders}
+         */
+        @NotNull
+        private Map<String, String> globalPlaceholders() {
+            Map<String, String> placeholders = globalPlaceholders;
+            if (placeholders != null) return placeholders;
+
+            final ConfigurationSection section = file().getConfigurationSection("plugin.global-placeholders");
+            if (section == null) {
+                placeholders = parent == null ? Collections.emptyMap() : parent.globalPlaceholders();
+            } else {
+                placeholders = new HashMap<>();
+                for (final String key : section.getKeys(false)) {
+                    final String value = section.getString(key);
+                    if (value != null) {
+                        placeholders.put("%" + key + "%", value);
+                    }
+                }
+            }
+            globalPlaceholders = placeholders;
+            return placeholders;
+        }
+
+        @NotNull
+        private FileConfiguration file() {
+            FileConfiguration loaded = file;
+            if (loaded == null) {
+                loaded = loader.get();
+                file = loaded;
+            }
+            return loaded;
+        }
+    }
+
+    /**
+     * A message split around its {@code %placeholder%}s once, so sending it only has to concatenate
+     * <br>The literal parts are already converted from legacy to MiniMessage, replacement values are converted as they're inserted
+     * <p>Placeholders in PlaceholderAPI's {@code %identifier_params%} form are marked when compiling. If no replacement is given for them, they're resolved through the {@link PlaceholderCache}.
+     */
+    private static class Template {
+        @NotNull private static final Template EMPTY = new Template("", new String[]{""}, new String[0], new boolean[0]);
+        @NotNull private static final Pattern PLACEHOLDER = Pattern.compile("%([A-Za-z0-9_.-]+)%");
+
+        /**
+         * The message with the global placeholders replaced, not converted
+         */
+        @NotNull private final String raw;
+        /**
+         * One more than {@link #placeholders}, {@code literals[i]} comes before {@code placeholders[i]}
+         */
+        @NotNull private final String[] literals;
+        /**
+         * Names, without the {@code %}
+         */
+        @NotNull private final String[] placeholders;
+        /**
+         * Whether each placeholder could be a PlaceholderAPI one
+         */
+        @NotNull private final boolean[] external;
+        /**
+         * Whether any of {@link #external} is set, if not PlaceholderAPI is never called
+         */
+        private final boolean hasExternal;
+
+        private Template(@NotNull String raw, @NotNull String[] literals, @NotNull String[] placeholders, @NotNull boolean[] external) {
+            this.raw = raw;
+            this.literals = literals;
+            this.placeholders = placeholders;
+            this.external = external;
+            boolean any = false;
+            for (final boolean value : external) any |= value;
+            this.hasExternal = any;
+        }
+
+        @NotNull
+        private static Template compile(@NotNull String raw) {
+            if (raw.isEmpty()) return EMPTY;
+            final List<String> literals = new ArrayList<>();
+            final List<String> placeholders = new ArrayList<>();
+            final Matcher matcher = PLACEHOLDER.matcher(raw);
+            int last = 0;
+            while (matcher.find()) {
+                literals.add(convertLegacyToMiniMessage(raw.substring(last, matcher.start())));
+                placeholders.add(matcher.group(1));
+                last = matcher.end();
+            }
+            literals.add(convertLegacyToMiniMessage(raw.substring(last)));
+            final boolean[] external = new boolean[placeholders.size()];
+            for (int i = 0; i < external.length; i++) external[i] = placeholders.get(i).indexOf('_') > 0;
+            return new Template(raw, literals.toArray(new String[0]), placeholders.toArray(new String[0]), external);
+        }
+
+        /**
+         * @param replacements values by placeholder name, with or without the {@code %}
+         * @param recipient the player receiving the message, used for PlaceholderAPI
+         * @param cache the PlaceholderAPI values, {@code null} if PlaceholderAPI isn't enabled
+         * @return the MiniMessage string, empty if the message doesn't exist
+         */
+        @NotNull
+        private String render(@NotNull Map<String, String> replacements, @Nullable Player recipient, @Nullable PlaceholderCache cache) {
+            if (placeholders.length == 0) return literals[0];
+            final StringBuilder builder = new StringBuilder(raw.length() + 16 * placeholders.length);
+            for (int i = 0; i < placeholders.length; i++) {
+                builder.append(literals[i]);
+                final String name = placeholders[i];
+                String value = replacements.get(name);
+                if (value == null) value = replacements.get("%" + name + "%");
+                if (value == null && hasExternal && cache != null && external[i]) value = cache.get(recipient, name);
+                if (value == null) {
+                    builder.append('%').append(name).append('%'); // Not replaced, kept as is
+                } else {
+                    builder.append(convertLegacyToMiniMessage(value));
+                }
+            }
+            return builder.append(literals[placeholders.length]).toString();
+        }
+    }
+
     public static class Builder {
         @NotNull private final MiniMessageSender sender;
         @NotNull private final String key;
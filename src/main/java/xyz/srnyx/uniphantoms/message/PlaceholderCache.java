@@ -0,0 +1,76 @@
+package xyz.srnyx.uniphantoms.message;
+
+import me.clip.placeholderapi.PlaceholderAPI;
+
+import org.bukkit.OfflinePlayer;
+import org.bukkit.entity.Player;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * PlaceholderAPI values used in messages, resolved per recipient and kept for a short TTL
+ * <br>Only the single placeholder is passed to PlaceholderAPI, never the whole message
+ */
+public class PlaceholderCache {
+    /**
+     * Key of recipients that aren't players (e.g., the console)
+     */
+    @NotNull private static final UUID NO_PLAYER = new UUID(0, 0);
+
+    /**
+     * Nanoseconds
+     */
+    private final long ttl;
+    @NotNull private final Map<UUID, Map<String, Value>> values = new ConcurrentHashMap<>();
+
+    /**
+     * @param ttl how long values stay valid, in nanoseconds
+     */
+    public PlaceholderCache(long ttl) {
+        this.ttl = ttl;
+    }
+
+    /**
+     * Get the value of a placeholder for a recipient, resolving it if it isn't cached or expired
+     *
+     * @param player the recipient, or {@code null} if it isn't a player
+     * @param token the placeholder, without the {@code %} (e.g., {@code vault_prefix})
+     * @return the value, the placeholder itself if PlaceholderAPI doesn't know it
+     */
+    @NotNull
+    public String get(@Nullable Player player, @NotNull String token) {
+        final Map<String, Value> playerValues = values.computeIfAbsent(player == null ? NO_PLAYER : player.getUniqueId(), uuid -> new ConcurrentHashMap<>());
+        final long now = System.nanoTime();
+        final Value cached = playerValues.get(token);
+        if (cached != null && now - cached.resolved < ttl) return cached.value;
+
+        final String value = PlaceholderAPI.setPlaceholders((OfflinePlayer) player, "%" + token + "%");
+        playerValues.put(token, new Value(value, now));
+        return value;
+    }
+
+    /**
+     * Forget a player's values, e.g. because they left
+     *
+     * @param uuid the player
+     */
+    public void remove(@NotNull UUID uuid) {
+        values.remove(uuid);
+    }
+
+    private static class Value {
+        @NotNull private final String value;
+        private final long resolved;
+
+        private Value(@NotNull String value, long resolved) {
+            this.value = value;
+            this.resolved = resolved;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package xyz.srnyx.uniphantoms.storage;
+
+import org.bukkit.OfflinePlayer;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import xyz.srnyx.annoyingapi.data.StringData;
+
+import xyz.srnyx.uniphantoms.UniPhantoms;
+import xyz.srnyx.uniphantoms.utility.ErrorReporter;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * {@link StatusStore} backed by AnnoyingAPI's entity data ({@link UniPhantoms#KEY} and {@link UniPhantoms#WORLDS_KEY} columns)
+ * <br>Writes are queued on a single background thread, reads see queued writes immediately
+ * <p>Per-world statuses are stored by world name (so they survive {@code worlds.yml} being deleted), e.g. {@code world_nether-/resource+}
+ * <br>A {@code /} or {@code \} in a world name is escaped with a {@code \}, names without them are stored as they were before escaping
+ */
+public class EntityDataStatusStore implements StatusStore {
+    @NotNull private final UniPhantoms plugin;
+    @NotNull private final WorldIdTable worldIds;
+    @NotNull private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "UniPhantoms-DataWriter");
+        thread.setDaemon(true);
+        return thread;
+    });
+    /**
+     * Writes that were queued but not applied yet
+     */
+    @NotNull private final Map<UUID, Boolean> pending = new ConcurrentHashMap<>();
+    @NotNull private final Map<UUID, WorldOverrides> pendingWorlds = new ConcurrentHashMap<>();
+
+    public EntityDataStatusStore(@NotNull UniPhantoms plugin, @NotNull WorldIdTable worldIds) {
+        this.plugin = plugin;
+        this.worldIds = worldIds;
+    }
+
+    @Override @Nullable
+    public Boolean load(@NotNull OfflinePlayer player) {
+        final Boolean queued = pending.get(player.getUniqueId());
+        if (queued != null) return queued ? null : false; // enabling clears the stored value
+        return read(new StringData(plugin, player));
+    }
+
+    @Override
+    public void save(@NotNull OfflinePlayer player, boolean enabled) {
+        final UUID uuid = player.getUniqueId();
+        pending.put(uuid, enabled);
+        writer.execute(() -> {
+            final Boolean value = pending.get(uuid);
+            if (value == null) return; // Already written by a later task
+            try {
+                new StringData(plugin, player).set(UniPhantoms.KEY, value ? null : "true");
+            } catch (final RuntimeException e) {
+                final ErrorReporter reporter = plugin.getErrorReporter();
+                if (reporter != null) reporter.report("Saving phantom status", e, "Player: " + uuid);
+            }
+            pending.remove(uuid, value);
+        });
+    }
+
+    @Override @NotNull
+    public WorldOverrides loadWorlds(@NotNull OfflinePlayer player) {
+        final WorldOverrides queued = pendingWorlds.get(player.getUniqueId());
+        if (queued != null) return queued;
+        return readWorlds(new StringData(plugin, player), worldIds);
+    }
+
+    @Override
+    public void saveWorlds(@NotNull OfflinePlayer player, @NotNull WorldOverrides overrides) {
+        final UUID uuid = player.getUniqueId();
+        pendingWorlds.put(uuid, overrides);
+        writer.execute(() -> {
+            final WorldOverrides value = pendingWorlds.get(uuid);
+            if (value == null) return; // Already written by a later task
+            try {
+                new StringData(plugin, player).set(UniPhantoms.WORLDS_KEY, value.isEmpty() ? null : writeWorlds(value, worldIds));
+            } catch (final RuntimeException e) {
+                final ErrorReporter reporter = plugin.getErrorReporter();
+                if (reporter != null) reporter.report("Saving per-world phantom statuses", e, "Player: " + uuid);
+            }
+            pendingWorlds.remove(uuid, value);
+        });
+    }
+
+    /**
+     * Queued behind the writes, which run in order on a single thread
+     */
+    @Override
+    public void afterWrites(@NotNull Runnable task) {
+        try {
+            writer.execute(task);
+        } catch (final RejectedExecutionException e) {
+            task.run(); // Closed, every write was applied (or lost)
+        }
+    }
+
+    @Override
+    public void close() {
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(10, TimeUnit.SECONDS)) plugin.getLogger().warning("Timed out while saving phantom statuses, " + (pending.size() + pendingWorlds.size()) + " writes were lost");
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Read the status stored in an entity's data
+     *
+     * @param data the entity's data
+     * @return the stored status, see {@link StatusStore#load(OfflinePlayer)}
+     */
+    @Nullable
+    public static Boolean read(@NotNull StringData data) {
+        return data.getOptional(UniPhantoms.KEY)
+                .map(value -> !value.equals("true"))
+                .orElse(null);
+    }
+
+    /**
+     * Read the per-world statuses stored in an entity's data
+     *
+     * @param data the entity's data
+     * @param worldIds the table to resolve world names with
+     * @return the stored statuses
+     */
+    @NotNull
+    public static WorldOverrides readWorlds(@NotNull StringData data, @NotNull WorldIdTable worldIds) {
+        return parseWorlds(data.getOptional(UniPhantoms.WORLDS_KEY).orElse(null), worldIds);
+    }
+
+    /**
+     * Parse per-world statuses written by {@link #writeWorlds(WorldOverrides, WorldIdTable)}
+     *
+     * @param value the stored value
+     * @param worldIds the table to resolve world names with
+     * @return the statuses, skipping invalid entries
+     */
+    @NotNull
+    static WorldOverrides parseWorlds(@Nullable String value, @NotNull WorldIdTable worldIds) {
+        if (value == null || value.isEmpty()) return WorldOverrides.EMPTY;
+        WorldOverrides overrides = WorldOverrides.EMPTY;
+        final StringBuilder entry = new StringBuilder();
+        boolean escaped = false; // Whether the last character was escaped, so it can't be the state
+        for (int i = 0; i <= value.length(); i++) {
+            final char c = i < value.length() ? value.charAt(i) : '/';
+            if (c == '\\' && i + 1 < value.length()) {
+                entry.append(value.charAt(++i));
+                escaped = true;
+                continue;
+            }
+            if (c != '/') {
+                entry.append(c);
+                escaped = false;
+                continue;
+            }
+            final char state = entry.length() >= 2 && !escaped ? entry.charAt(entry.length() - 1) : 0;
+            if (state == '+' || state == '-') overrides = overrides.with(worldIds.getId(entry.substring(0, entry.length() - 1)), state == '+');
+            entry.setLength(0);
+            escaped = false;
+        }
+        return overrides;
+    }
+
+    @NotNull
+    static String writeWorlds(@NotNull WorldOverrides overrides, @NotNull WorldIdTable worldIds) {
+        final StringBuilder builder = new StringBuilder();
+        overrides.forEach((worldId, enabled) -> {
+            final String name = worldIds.getName(worldId);
+            if (name == null) return;
+            if (builder.length() > 0) builder.append('/');
+            for (int i = 0; i < name.length(); i++) {
+                final char c = name.charAt(i);
+                if (c == '/' || c == '\\') builder.append('\\');
+                builder.append(c);
+            }
+            builder.append(enabled ? '+' : '-');
+        });
+        return builder.toString();
+    }
+}
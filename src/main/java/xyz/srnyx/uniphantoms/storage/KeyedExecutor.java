@@ -0,0 +1,112 @@
+package xyz.srnyx.uniphantoms.storage;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+
+/**
+ * Runs tasks on another executor one at a time per player, in the order they were submitted
+ * <br>Lets a status write read the storage and write it back without another write of the same player running in between, while writes of different players still run in parallel.
+ * A player's queued tasks run on the thread that ran the first one, so they still complete after the underlying executor is shut down.
+ */
+public class KeyedExecutor {
+    @NotNull private final Executor executor;
+    /**
+     * The tasks waiting behind the running one, by player. A player is only in there while one of their tasks runs.
+     */
+    @NotNull private final Map<UUID, ArrayDeque<Runnable>> queues = new HashMap<>();
+
+    /**
+     * @param executor where the tasks run
+     */
+    public KeyedExecutor(@NotNull Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Run a task after the tasks already submitted for the same player
+     *
+     * @param key the player
+     * @param task the task
+     * @return the task's result
+     */
+    @NotNull
+    public <T> CompletableFuture<T> supply(@NotNull UUID key, @NotNull Supplier<T> task) {
+        return CompletableFuture.supplyAsync(task, forKey(key));
+    }
+
+    /**
+     * Get an executor running its tasks after the tasks already submitted for a player
+     *
+     * @param key the player
+     * @return the executor
+     */
+    @NotNull
+    public Executor forKey(@NotNull UUID key) {
+        return task -> execute(key, task);
+    }
+
+    /**
+     * Run a task after the tasks already submitted for the same player
+     *
+     * @param key the player
+     * @param task the task
+     * @throws RejectedExecutionException if the underlying executor rejected it
+     */
+    public void execute(@NotNull UUID key, @NotNull Runnable task) {
+        synchronized (queues) {
+            final ArrayDeque<Runnable> queue = queues.get(key);
+            if (queue != null) {
+                queue.add(task);
+                return;
+            }
+            queues.put(key, new ArrayDeque<>());
+        }
+        try {
+            executor.execute(() -> run(key, task));
+        } catch (final RejectedExecutionException e) {
+            synchronized (queues) {
+                queues.remove(key);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Get the number of players with a running task
+     */
+    public int getActive() {
+        synchronized (queues) {
+            return queues.size();
+        }
+    }
+
+    /**
+     * Run a task, then the player's queued ones until there are none left
+     */
+    private void run(@NotNull UUID key, @NotNull Runnable first) {
+        Runnable task = first;
+        while (task != null) {
+            try {
+                task.run();
+            } catch (final RuntimeException e) {
+                // Don't leave the player's queue stuck
+                final Thread thread = Thread.currentThread();
+                thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+            }
+            synchronized (queues) {
+                final ArrayDeque<Runnable> queue = queues.get(key);
+                task = queue.poll();
+                if (task == null) queues.remove(key);
+            }
+        }
+    }
+}
@@ -0,0 +1,567 @@
+package xyz.srnyx.uniphantoms.storage;
+
+import org.bukkit.OfflinePlayer;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import xyz.srnyx.uniphantoms.UniPhantoms;
+import xyz.srnyx.uniphantoms.utility.ErrorReporter;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+
+/**
+ * {@link StatusStore} backed by a memory-mapped, append-only log of {@code (UUID, state)} records
+ * <br>The whole log is read with one sequential scan when the store is opened, and is compacted in the background once it holds too many dead records
+ * <p>Layout: a {@value #HEADER_SIZE}-byte header ({@code magic, version, flags, unused}) followed by {@value #RECORD_SIZE}-byte records ({@code kind, msb, lsb}).
+ * Per-world records are {@value #WORLD_RECORD_SIZE} bytes, with {@code world ID (unsigned short), state (byte)} appended.
+ * A record's kind is written last, so a record torn by a crash reads as the end of the log.
+ */
+public class MappedStatusStore implements StatusStore {
+    private static final int MAGIC = 0x55505354; // "UPST"
+    /**
+     * Version 2 added the per-world records, version 1 logs are upgraded in place
+     */
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 16;
+    private static final int RECORD_SIZE = 17;
+    private static final int WORLD_RECORD_SIZE = RECORD_SIZE + 2 + 1;
+    private static final int FLAG_MIGRATED = 1;
+    private static final int INITIAL_CAPACITY = HEADER_SIZE + RECORD_SIZE * 4096;
+    /**
+     * How many dead records to tolerate before compacting, on top of the live ones
+     */
+    private static final int COMPACTION_SLACK = 4096;
+    /**
+     * Releases a mapping right away, {@code null} if this JVM doesn't allow it (then it's released when garbage collected)
+     */
+    @Nullable private static final Unmapper UNMAPPER = Unmapper.find();
+
+    private static final byte KIND_DISABLED = 1;
+    private static final byte KIND_CLEARED = 2;
+    private static final byte KIND_WORLD = 3;
+    private static final byte KIND_WORLDS_CLEARED = 4;
+
+    private static final byte WORLD_STATE_CLEARED = 0;
+    private static final byte WORLD_STATE_ENABLED = 1;
+    private static final byte WORLD_STATE_DISABLED = 2;
+
+    @NotNull private final Logger logger;
+    @NotNull private final Supplier<ErrorReporter> reporter;
+    @NotNull private final StatusStore legacy;
+    @NotNull private final Path path;
+    @NotNull private final Set<UUID> disabled = ConcurrentHashMap.newKeySet();
+    @NotNull private final Map<UUID, WorldOverrides> worlds = new ConcurrentHashMap<>();
+    @NotNull private final ExecutorService background = Executors.newSingleThreadExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "UniPhantoms-StatusLog");
+        thread.setDaemon(true);
+        return thread;
+    });
+    @NotNull private final Object lock = new Object();
+    private volatile boolean closed;
+
+    // Guarded by lock
+    @NotNull private FileChannel channel;
+    @NotNull private MappedByteBuffer buffer;
+    private int position;
+    private int records;
+    /**
+     * Total number of per-world statuses in {@link #worlds}
+     */
+    private int worldStatuses;
+    /**
+     * Current {@link #COMPACTION_SLACK}, doubled each time compacting fails so a failing compaction isn't retried on every write
+     */
+    private int compactionSlack = COMPACTION_SLACK;
+    /**
+     * Records appended while a compaction is writing the new file, {@code null} when not compacting
+     */
+    @Nullable private List<Record> compactionPending;
+    /**
+     * Players written since the migration started, {@code null} when not migrating
+     */
+    @Nullable private Set<UUID> migrationTouched;
+    @Nullable private Set<UUID> migrationTouchedWorlds;
+
+    /**
+     * Open (or create) the log, and start migrating {@link UniPhantoms#KEY} values if it was never done
+     *
+     * @param plugin the plugin
+     * @param worldIds the table to resolve world names with when migrating
+     * @param file the log file
+     *
+     * @throws IOException if the file could not be opened or is not a status log
+     */
+    public MappedStatusStore(@NotNull UniPhantoms plugin, @NotNull WorldIdTable worldIds, @NotNull File file) throws IOException {
+        this(plugin.getLogger(), plugin::getErrorReporter, new EntityDataStatusStore(plugin, worldIds), file);
+    }
+
+    /**
+     * Open (or create) the log, and start migrating from another store if it was never done
+     *
+     * @param logger the logger, used when there's no error reporter
+     * @param reporter the current error reporter, may supply {@code null}
+     * @param legacy the store to migrate from (only read), closed once migrated
+     * @param file the log file
+     *
+     * @throws IOException if the file could not be opened or is not a status log
+     */
+    MappedStatusStore(@NotNull Logger logger, @NotNull Supplier<ErrorReporter> reporter, @NotNull StatusStore legacy, @NotNull File file) throws IOException {
+        this.logger = logger;
+        this.reporter = reporter;
+        this.legacy = legacy;
+        this.path = file.toPath();
+        final boolean exists = Files.exists(path);
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(INITIAL_CAPACITY, channel.size()));
+
+        if (!exists || buffer.getInt(0) == 0) {
+            writeHeader(buffer, 0);
+        } else if (buffer.getInt(0) != MAGIC || buffer.getInt(4) < 1 || buffer.getInt(4) > VERSION) {
+            channel.close();
+            unmap(buffer);
+            background.shutdown();
+            legacy.close();
+            throw new IOException("Not a status log (or an unsupported version): " + file);
+        }
+        buffer.putInt(4, VERSION);
+        scan();
+
+        if ((buffer.getInt(8) & FLAG_MIGRATED) == 0) {
+            migrationTouched = new HashSet<>();
+            migrationTouchedWorlds = new HashSet<>();
+            background.execute(this::migrate);
+        } else {
+            legacy.close();
+        }
+    }
+
+    @Override @Nullable
+    public Boolean load(@NotNull OfflinePlayer player) {
+        return disabled.contains(player.getUniqueId()) ? Boolean.FALSE : null;
+    }
+
+    @Override
+    public void save(@NotNull OfflinePlayer player, boolean enabled) {
+        final UUID uuid = player.getUniqueId();
+        synchronized (lock) {
+            if (migrationTouched != null) migrationTouched.add(uuid);
+            final boolean changed = enabled ? disabled.remove(uuid) : disabled.add(uuid);
+            if (changed) append(new Record(enabled ? KIND_CLEARED : KIND_DISABLED, uuid));
+        }
+    }
+
+    @Override @NotNull
+    public WorldOverrides loadWorlds(@NotNull OfflinePlayer player) {
+        final WorldOverrides overrides = worlds.get(player.getUniqueId());
+        return overrides != null ? overrides : WorldOverrides.EMPTY;
+    }
+
+    @Override
+    public void saveWorlds(@NotNull OfflinePlayer player, @NotNull WorldOverrides overrides) {
+        final UUID uuid = player.getUniqueId();
+        synchronized (lock) {
+            if (migrationTouchedWorlds != null) migrationTouchedWorlds.add(uuid);
+            final WorldOverrides previous = loadWorlds(player);
+            if (previous.equals(overrides)) return;
+            putWorlds(uuid, overrides);
+
+            // Only append the worlds that changed
+            if (overrides.isEmpty()) {
+                append(Record.worldsCleared(uuid));
+                return;
+            }
+            overrides.forEach((worldId, enabled) -> {
+                if (!Boolean.valueOf(enabled).equals(previous.get(worldId))) append(Record.world(uuid, worldId, enabled ? WORLD_STATE_ENABLED : WORLD_STATE_DISABLED));
+            });
+            previous.forEach((worldId, enabled) -> {
+                if (overrides.get(worldId) == null) append(Record.world(uuid, worldId, WORLD_STATE_CLEARED));
+            });
+        }
+    }
+
+    @Override
+    public boolean isInMemory() {
+        return true;
+    }
+
+    @Override
+    public boolean isListable() {
+        return true;
+    }
+
+    /**
+     * Visits the in-memory state, players changed meanwhile may be seen before or after the change
+     */
+    @Override
+    public void forEachStored(@NotNull StoredVisitor visitor) {
+        for (final UUID uuid : disabled) {
+            final WorldOverrides overrides = worlds.get(uuid);
+            if (!visitor.visit(uuid, false, overrides != null ? overrides : WorldOverrides.EMPTY)) return;
+        }
+        for (final Map.Entry<UUID, WorldOverrides> entry : worlds.entrySet()) {
+            if (!disabled.contains(entry.getKey()) && !visitor.visit(entry.getKey(), null, entry.getValue())) return;
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        background.shutdown();
+        try {
+            if (!background.awaitTermination(10, TimeUnit.SECONDS)) logger.warning("Timed out while waiting for the status log's background work");
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (lock) {
+            if (!channel.isOpen()) return; // Lost after a failed compaction, already reported
+            try {
+                buffer.force();
+                channel.close();
+            } catch (final IOException e) {
+                report("Closing status log", e);
+            }
+            unmap(buffer);
+        }
+    }
+
+    /**
+     * Sequentially read every record into {@link #disabled} and {@link #worlds}
+     */
+    private void scan() {
+        final int capacity = buffer.capacity();
+        int offset = HEADER_SIZE;
+        int count = 0;
+        while (offset + RECORD_SIZE <= capacity) {
+            final byte kind = buffer.get(offset);
+            final int size = kind == KIND_WORLD ? WORLD_RECORD_SIZE : RECORD_SIZE;
+            if (kind < KIND_DISABLED || kind > KIND_WORLDS_CLEARED || offset + size > capacity) break;
+            final UUID uuid = new UUID(buffer.getLong(offset + 1), buffer.getLong(offset + 9));
+            switch (kind) {
+                case KIND_DISABLED:
+                    disabled.add(uuid);
+                    break;
+                case KIND_CLEARED:
+                    disabled.remove(uuid);
+                    break;
+                case KIND_WORLD:
+                    final WorldOverrides previous = worlds.get(uuid);
+                    final byte state = buffer.get(offset + RECORD_SIZE + 2);
+                    putWorlds(uuid, (previous != null ? previous : WorldOverrides.EMPTY).with(buffer.getShort(offset + RECORD_SIZE) & 0xFFFF, state == WORLD_STATE_CLEARED ? null : state == WORLD_STATE_ENABLED));
+                    break;
+                default:
+                    putWorlds(uuid, WorldOverrides.EMPTY);
+                    break;
+            }
+            offset += size;
+            count++;
+        }
+        position = offset;
+        records = count;
+    }
+
+    /**
+     * Append a record to the log, growing the mapping if needed
+     * <br>Must be called while holding {@link #lock}
+     */
+    private void append(@NotNull Record record) {
+        if (!channel.isOpen()) return; // Lost after a failed compaction, already reported
+        if (position + record.size() > buffer.capacity()) try {
+            final MappedByteBuffer grown = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) buffer.capacity() * 2);
+            unmap(buffer);
+            buffer = grown;
+        } catch (final IOException e) {
+            report("Growing status log", e);
+            return;
+        }
+        record.write(buffer, position);
+        position += record.size();
+        records++;
+        if (compactionPending != null) {
+            compactionPending.add(record);
+        } else if (!closed && records > (disabled.size() + worldStatuses) * 2 + compactionSlack) {
+            compactionPending = new ArrayList<>();
+            background.execute(this::compact);
+        }
+    }
+
+    /**
+     * Rewrite the log with only the live records, then swap it in
+     * <br>Every mapping of both files is released before the swap, Windows can't replace a mapped file.
+     * If it fails, the old log is kept and {@link #compactionSlack} is doubled.
+     */
+    private void compact() {
+        final List<Record> snapshot = new ArrayList<>();
+        final int snapshotFlags;
+        synchronized (lock) {
+            if (!channel.isOpen()) return;
+            snapshotFlags = buffer.getInt(8);
+            for (final UUID uuid : disabled) snapshot.add(new Record(KIND_DISABLED, uuid));
+            for (final Map.Entry<UUID, WorldOverrides> entry : worlds.entrySet()) {
+                final UUID uuid = entry.getKey();
+                entry.getValue().forEach((worldId, enabled) -> snapshot.add(Record.world(uuid, worldId, enabled ? WORLD_STATE_ENABLED : WORLD_STATE_DISABLED)));
+            }
+        }
+
+        final Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            int size = HEADER_SIZE;
+            for (final Record record : snapshot) size += record.size();
+            final int capacity = Math.max(INITIAL_CAPACITY, size * 2 + RECORD_SIZE * COMPACTION_SLACK);
+            try (final FileChannel tempChannel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                final MappedByteBuffer tempBuffer = tempChannel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+                writeHeader(tempBuffer, snapshotFlags);
+                int offset = HEADER_SIZE;
+                for (final Record record : snapshot) {
+                    record.write(tempBuffer, offset);
+                    offset += record.size();
+                }
+                tempBuffer.force();
+                unmap(tempBuffer);
+            }
+
+            synchronized (lock) {
+                final List<Record> pending = compactionPending;
+                final int flags = buffer.getInt(8); // May have changed since the temporary header was written
+                compactionPending = null;
+                buffer.force();
+                channel.close();
+                unmap(buffer);
+                boolean moved = false;
+                try {
+                    Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    moved = true;
+                } finally {
+                    reopen(); // The new log, or the old one again if it couldn't be replaced
+                    if (moved) {
+                        buffer.putInt(8, flags);
+                        position = size;
+                        records = snapshot.size();
+                        if (pending != null) for (final Record record : pending) append(record);
+                    }
+                }
+            }
+        } catch (final IOException e) {
+            synchronized (lock) {
+                compactionPending = null;
+                compactionSlack = compactionSlack > Integer.MAX_VALUE / 2 ? Integer.MAX_VALUE : compactionSlack * 2;
+            }
+            try {
+                Files.deleteIfExists(temp);
+            } catch (final IOException deleteError) {
+                e.addSuppressed(deleteError);
+            }
+            report("Compacting status log", e);
+        }
+    }
+
+    /**
+     * One-shot import of every player's statuses from {@link #legacy}
+     * <br>Players written while this runs keep their newer status
+     */
+    private void migrate() {
+        final ErrorReporter errorReporter = reporter.get();
+        if (errorReporter != null) errorReporter.info("Storage", "Migrating phantom statuses to " + path.getFileName() + "...");
+        final int[] migrated = {0};
+        try {
+            legacy.forEachStored(new StoredVisitor() {
+                @Override
+                public boolean visit(@NotNull UUID uuid, @Nullable Boolean status, @NotNull WorldOverrides overrides) {
+                    if (closed) return false; // Shutting down, retry next time
+                    if ((status == null || status) && overrides.isEmpty()) return true;
+                    synchronized (lock) {
+                        if (status != null && !status && (migrationTouched == null || !migrationTouched.contains(uuid)) && disabled.add(uuid)) append(new Record(KIND_DISABLED, uuid));
+                        if (!overrides.isEmpty() && (migrationTouchedWorlds == null || !migrationTouchedWorlds.contains(uuid))) {
+                            putWorlds(uuid, overrides);
+                            overrides.forEach((worldId, enabled) -> append(Record.world(uuid, worldId, enabled ? WORLD_STATE_ENABLED : WORLD_STATE_DISABLED)));
+                        }
+                    }
+                    migrated[0]++;
+                    return true;
+                }
+
+                /**
+                 * Skip the player, keeping their stored statuses where they are
+                 */
+                @Override
+                public boolean failed(@NotNull UUID uuid, @NotNull RuntimeException error) {
+                    report("Migrating phantom status of " + uuid, error);
+                    return !closed;
+                }
+            });
+        } catch (final RuntimeException e) {
+            report("Migrating phantom statuses", e); // Retried next time
+            return;
+        } finally {
+            legacy.close();
+        }
+        if (closed) return;
+
+        synchronized (lock) {
+            migrationTouched = null;
+            migrationTouchedWorlds = null;
+            if (channel.isOpen()) buffer.putInt(8, buffer.getInt(8) | FLAG_MIGRATED);
+        }
+        if (errorReporter != null) errorReporter.info("Storage", "Migrated the phantom statuses of " + migrated[0] + " players");
+    }
+
+    /**
+     * Replace a player's per-world statuses in memory, keeping {@link #worldStatuses} up to date
+     * <br>Must be called while holding {@link #lock} (or from the constructor)
+     */
+    private void putWorlds(@NotNull UUID uuid, @NotNull WorldOverrides overrides) {
+        final WorldOverrides previous = overrides.isEmpty() ? worlds.remove(uuid) : worlds.put(uuid, overrides);
+        worldStatuses += overrides.size() - (previous != null ? previous.size() : 0);
+    }
+
+    private void report(@NotNull String context, @NotNull Exception exception) {
+        final ErrorReporter errorReporter = reporter.get();
+        if (errorReporter != null) {
+            errorReporter.report(context, exception, "File: " + path);
+        } else {
+            logger.severe(context + ": " + ErrorReporter.format(exception));
+        }
+    }
+
+    /**
+     * Open and map {@link #path} again after it was released
+     * <br>Must be called while holding {@link #lock}. If it fails, {@link #channel} stays closed and nothing more is written.
+     */
+    private void reopen() throws IOException {
+        final FileChannel reopened = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            buffer = reopened.map(FileChannel.MapMode.READ_WRITE, 0, reopened.size());
+        } catch (final IOException e) {
+            reopened.close();
+            throw e;
+        }
+        channel = reopened;
+    }
+
+    /**
+     * Release a mapping now instead of when it's garbage collected, Windows can't replace or delete a mapped file
+     * <br>The buffer must never be used afterwards
+     */
+    private static void unmap(@NotNull MappedByteBuffer mapped) {
+        if (UNMAPPER != null) UNMAPPER.unmap(mapped);
+    }
+
+    private static void writeHeader(@NotNull ByteBuffer target, int flags) {
+        target.putInt(0, MAGIC);
+        target.putInt(4, VERSION);
+        target.putInt(8, flags);
+        target.putInt(12, 0);
+    }
+
+    private static class Record {
+        private final byte kind;
+        @NotNull private final UUID uuid;
+        private final int worldId;
+        private final byte worldState;
+
+        private Record(byte kind, @NotNull UUID uuid) {
+            this(kind, uuid, 0, WORLD_STATE_CLEARED);
+        }
+
+        private Record(byte kind, @NotNull UUID uuid, int worldId, byte worldState) {
+            this.kind = kind;
+            this.uuid = uuid;
+            this.worldId = worldId;
+            this.worldState = worldState;
+        }
+
+        @NotNull
+        private static Record world(@NotNull UUID uuid, int worldId, byte state) {
+            return new Record(KIND_WORLD, uuid, worldId, state);
+        }
+
+        @NotNull
+        private static Record worldsCleared(@NotNull UUID uuid) {
+            return new Record(KIND_WORLDS_CLEARED, uuid);
+        }
+
+        private int size() {
+            return kind == KIND_WORLD ? WORLD_RECORD_SIZE : RECORD_SIZE;
+        }
+
+        private void write(@NotNull ByteBuffer target, int offset) {
+            target.putLong(offset + 1, uuid.getMostSignificantBits());
+            target.putLong(offset + 9, uuid.getLeastSignificantBits());
+            if (kind == KIND_WORLD) {
+                target.putShort(offset + RECORD_SIZE, (short) worldId);
+                target.put(offset + RECORD_SIZE + 2, worldState);
+            }
+            target.put(offset, kind); // Written last, see class javadoc
+        }
+    }
+
+    /**
+     * Calls the JVM's internal cleaner of a direct buffer, the only way to release a mapping before it's garbage collected
+     */
+    private static class Unmapper {
+        @NotNull private final Object target;
+        @NotNull private final Method method;
+        private final boolean java8;
+
+        private Unmapper(@NotNull Object target, @NotNull Method method, boolean java8) {
+            this.target = target;
+            this.method = method;
+            this.java8 = java8;
+        }
+
+        @Nullable
+        private static Unmapper find() {
+            try {
+                // Java 9+: Unsafe#invokeCleaner(ByteBuffer)
+                final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                final Field field = unsafeClass.getDeclaredField("theUnsafe");
+                field.setAccessible(true);
+                return new Unmapper(field.get(null), unsafeClass.getMethod("invokeCleaner", ByteBuffer.class), false);
+            } catch (final ReflectiveOperationException | RuntimeException e) {
+                try {
+                    // Java 8: DirectBuffer#cleaner()#clean()
+                    final Method cleaner = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+                    return new Unmapper(cleaner, Class.forName("sun.misc.Cleaner").getMethod("clean"), true);
+                } catch (final ReflectiveOperationException | RuntimeException java8) {
+                    return null;
+                }
+            }
+        }
+
+        private void unmap(@NotNull MappedByteBuffer mapped) {
+            try {
+                if (java8) {
+                    final Object cleaner = ((Method) target).invoke(mapped);
+                    if (cleaner != null) method.invoke(cleaner);
+                } else {
+                    method.invoke(target, mapped);
+                }
+            } catch (final ReflectiveOperationException | RuntimeException e) {
+                // Released when garbage collected instead
+            }
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package xyz.srnyx.uniphantoms.storage;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+
+
+/**
+ * Size-bounded cache of what {@link StatusStore} returned for offline players, evicting the least recently used entries
+ * <br>Entries expire after a TTL, so changes made to the storage by something else (e.g. another server without sync) are eventually seen.
+ * "Nothing stored" is cached too, since it's the most common result.
+ */
+public class OfflineStatusCache {
+    private final int maxSize;
+    /**
+     * Nanoseconds
+     */
+    private final long ttl;
+    @NotNull private final LinkedHashMap<UUID, Entry> entries;
+    /**
+     * Incremented by every removal, lets a load that started before one tell its result may be stale
+     */
+    private long removals;
+    private long hits;
+    private long misses;
+
+    /**
+     * @param maxSize the maximum number of entries, {@code 0} disables the cache
+     * @param ttl how long entries stay valid, in nanoseconds
+     */
+    public OfflineStatusCache(int maxSize, long ttl) {
+        this.maxSize = maxSize;
+        this.ttl = ttl;
+        this.entries = new LinkedHashMap<UUID, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, Entry> eldest) {
+                return size() > OfflineStatusCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * Get the cached storage result of a player
+     *
+     * @param uuid the player
+     * @return the entry, or {@code null} if it isn't cached or expired
+     */
+    @Nullable
+    public synchronized Entry get(@NotNull UUID uuid) {
+        final Entry entry = entries.get(uuid);
+        if (entry != null && System.nanoTime() - entry.loaded < ttl) {
+            hits++;
+            return entry;
+        }
+        if (entry != null) entries.remove(uuid);
+        misses++;
+        return null;
+    }
+
+    /**
+     * Cache a storage result
+     *
+     * @param uuid the player
+     * @param stored the stored global status, {@code null} if nothing is stored
+     * @param worlds the stored per-world statuses
+     */
+    public synchronized void put(@NotNull UUID uuid, @Nullable Boolean stored, @NotNull WorldOverrides worlds) {
+        if (maxSize > 0) entries.put(uuid, new Entry(stored, worlds, System.nanoTime()));
+    }
+
+    /**
+     * Cache a storage result only if nothing was removed since the load started
+     * <br>A status change removes the entry after saving, so a load that read the storage before the save must not cache its (stale) result after the removal
+     *
+     * @param uuid the player
+     * @param stored the stored global status, {@code null} if nothing is stored
+     * @param worlds the stored per-world statuses
+     * @param removals the value of {@link #getRemovals()} taken before reading the storage
+     * @return whether the result was cached
+     */
+    public synchronized boolean putIfUnchanged(@NotNull UUID uuid, @Nullable Boolean stored, @NotNull WorldOverrides worlds, long removals) {
+        if (this.removals != removals) return false;
+        put(uuid, stored, worlds);
+        return true;
+    }
+
+    /**
+     * Get the number of removals so far, see {@link #putIfUnchanged(UUID, Boolean, WorldOverrides, long)}
+     */
+    public synchronized long getRemovals() {
+        return removals;
+    }
+
+    /**
+     * Remove a player's entry, e.g. because their status changed or they joined
+     *
+     * @param uuid the player
+     * @return the removed entry, {@code null} if none (or it expired)
+     */
+    @Nullable
+    public synchronized Entry remove(@NotNull UUID uuid) {
+        removals++;
+        final Entry entry = entries.remove(uuid);
+        return entry != null && System.nanoTime() - entry.loaded < ttl ? entry : null;
+    }
+
+    public synchronized void clear() {
+        removals++;
+        entries.clear();
+    }
+
+    /**
+     * Visit every entry that hasn't expired
+     *
+     * @param consumer called with each player and entry, while holding the cache's lock
+     */
+    public synchronized void forEach(@NotNull BiConsumer<UUID, Entry> consumer) {
+        final long now = System.nanoTime();
+        for (final Map.Entry<UUID, Entry> entry : entries.entrySet()) {
+            if (now - entry.getValue().loaded < ttl) consumer.accept(entry.getKey(), entry.getValue());
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public static class Entry {
+        /**
+         * The stored global status, {@code null} if nothing is stored (the config default applies)
+         */
+        @Nullable public final Boolean stored;
+        @NotNull public final WorldOverrides worlds;
+        private final long loaded;
+
+        private Entry(@Nullable Boolean stored, @NotNull WorldOverrides worlds, long loaded) {
+            this.stored = stored;
+            this.worlds = worlds;
+            this.loaded = loaded;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package xyz.srnyx.uniphantoms.storage;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.UUID;
+import java.util.function.BiConsumer;
+
+
+/**
+ * Cache of online players' statuses, built for many concurrent readers (region threads on Folia) and few writers (joins, quits, toggles)
+ * <br>Reads go through an immutable open-addressing table published through a volatile field: they never lock and never allocate.
+ * Writes rebuild the table under a lock, which is cheap since it only holds online players.
+ */
+public class OnlineStatusCache {
+    @NotNull private static final Table EMPTY = new Table(0);
+
+    @NotNull private volatile Table table = EMPTY;
+    @NotNull private final Object writeLock = new Object();
+
+    /**
+     * Get a player's cached status
+     *
+     * @param uuid the player
+     * @return the status, or {@code null} if not cached
+     */
+    @Nullable
+    public PhantomStatus get(@NotNull UUID uuid) {
+        return table.get(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+    }
+
+    /**
+     * Cache a player's status
+     *
+     * @param uuid the player
+     * @param status the status
+     */
+    public void put(@NotNull UUID uuid, @NotNull PhantomStatus status) {
+        synchronized (writeLock) {
+            table = table.with(uuid, status);
+        }
+    }
+
+    /**
+     * Update a player's status only if they're cached
+     *
+     * @param uuid the player
+     * @param status the new status
+     */
+    public void replace(@NotNull UUID uuid, @NotNull PhantomStatus status) {
+        synchronized (writeLock) {
+            if (table.get(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits()) != null) table = table.with(uuid, status);
+        }
+    }
+
+    /**
+     * Cache a player's status only if they aren't cached yet
+     *
+     * @param uuid the player
+     * @param status the status
+     * @return the status now cached (the existing one if there was one)
+     */
+    @NotNull
+    public PhantomStatus putIfAbsent(@NotNull UUID uuid, @NotNull PhantomStatus status) {
+        synchronized (writeLock) {
+            final PhantomStatus existing = table.get(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+            if (existing != null) return existing;
+            table = table.with(uuid, status);
+            return status;
+        }
+    }
+
+    /**
+     * Remove a player's status
+     *
+     * @param uuid the player
+     */
+    public void remove(@NotNull UUID uuid) {
+        synchronized (writeLock) {
+            if (table.get(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits()) != null) table = table.with(uuid, null);
+        }
+    }
+
+    public void clear() {
+        synchronized (writeLock) {
+            table = EMPTY;
+        }
+    }
+
+    public int size() {
+        return table.size;
+    }
+
+    /**
+     * Visit every cached status, as of the latest write
+     *
+     * @param consumer called with each player and status
+     */
+    public void forEach(@NotNull BiConsumer<UUID, PhantomStatus> consumer) {
+        final Table current = table;
+        for (int slot = 0; slot < current.values.length; slot++) {
+            final PhantomStatus value = current.values[slot];
+            if (value != null) consumer.accept(new UUID(current.msbs[slot], current.lsbs[slot]), value);
+        }
+    }
+
+    /**
+     * Immutable once published. Linear probing, the capacity is always a power of 2 at least twice the size.
+     */
+    private static class Table {
+        @NotNull private final long[] msbs;
+        @NotNull private final long[] lsbs;
+        @NotNull private final PhantomStatus[] values;
+        private final int mask;
+        private int size;
+
+        private Table(int size) {
+            int capacity = 4;
+            while (capacity < size * 2) capacity <<= 1;
+            this.msbs = new long[capacity];
+            this.lsbs = new long[capacity];
+            this.values = new PhantomStatus[capacity];
+            this.mask = capacity - 1;
+        }
+
+        @Nullable
+        private PhantomStatus get(long msb, long lsb) {
+            for (int slot = slot(msb, lsb);; slot = (slot + 1) & mask) {
+                final PhantomStatus value = values[slot];
+                if (value == null) return null;
+                if (msbs[slot] == msb && lsbs[slot] == lsb) return value;
+            }
+        }
+
+        /**
+         * Copy this table with one entry changed
+         *
+         * @param value the new value, or {@code null} to remove the entry
+         */
+        @NotNull
+        private Table with(@NotNull UUID uuid, @Nullable PhantomStatus value) {
+            final long msb = uuid.getMostSignificantBits();
+            final long lsb = uuid.getLeastSignificantBits();
+            final Table copy = new Table(size + 1);
+            for (int slot = 0; slot < values.length; slot++) {
+                if (values[slot] != null && (msbs[slot] != msb || lsbs[slot] != lsb)) copy.insert(msbs[slot], lsbs[slot], values[slot]);
+            }
+            if (value != null) copy.insert(msb, lsb, value);
+            return copy;
+        }
+
+        private void insert(long msb, long lsb, @NotNull PhantomStatus value) {
+            int slot = slot(msb, lsb);
+            while (values[slot] != null) slot = (slot + 1) & mask;
+            msbs[slot] = msb;
+            lsbs[slot] = lsb;
+            values[slot] = value;
+            size++;
+        }
+
+        private int slot(long msb, long lsb) {
+            final long hash = (msb ^ lsb) * 0x9E3779B97F4A7C15L;
+            return (int) (hash ^ (hash >>> 32)) & mask;
+        }
+    }
+}
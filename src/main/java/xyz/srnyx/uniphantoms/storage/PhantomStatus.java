@@ -0,0 +1,96 @@
+package xyz.srnyx.uniphantoms.storage;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+
+/**
+ * A player's resolved phantom status: the global status, and the worlds where it's reversed
+ * <br>Checking a world is a single bit test. Immutable, so it can be read from any thread without locking.
+ */
+public final class PhantomStatus {
+    @NotNull public static final PhantomStatus ENABLED = new PhantomStatus(true, new long[0]);
+    @NotNull public static final PhantomStatus DISABLED = new PhantomStatus(false, new long[0]);
+
+    private final boolean enabled;
+    /**
+     * Bitset of the {@link WorldIdTable} IDs of the worlds where the status is {@code !enabled}
+     */
+    @NotNull private final long[] reversed;
+
+    private PhantomStatus(boolean enabled, @NotNull long[] reversed) {
+        this.enabled = enabled;
+        this.reversed = reversed;
+    }
+
+    /**
+     * Get the status without per-world overrides
+     *
+     * @param enabled the global status
+     * @return the status
+     */
+    @NotNull
+    public static PhantomStatus of(boolean enabled) {
+        return enabled ? ENABLED : DISABLED;
+    }
+
+    /**
+     * Resolve a status from its stored parts
+     *
+     * @param enabled the global status
+     * @param overrides the per-world statuses
+     * @return the status
+     */
+    @NotNull
+    public static PhantomStatus of(boolean enabled, @NotNull WorldOverrides overrides) {
+        if (overrides.isEmpty()) return of(enabled);
+        return new PhantomStatus(enabled, overrides.differingFrom(enabled));
+    }
+
+    /**
+     * Whether phantoms are enabled, ignoring per-world statuses
+     *
+     * @return the global status
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Whether phantoms are enabled in a world
+     *
+     * @param worldId the world's {@link WorldIdTable} ID
+     * @return the status in the world
+     */
+    public boolean isEnabled(int worldId) {
+        return enabled ^ WorldOverrides.test(reversed, worldId);
+    }
+
+    /**
+     * Rebuild a status saved with {@link #getReversed()}, see {@link WarmSnapshot}
+     */
+    @NotNull
+    static PhantomStatus of(boolean enabled, @NotNull long[] reversed) {
+        final long[] trimmed = WorldOverrides.trim(reversed);
+        return trimmed.length == 0 ? of(enabled) : new PhantomStatus(enabled, trimmed);
+    }
+
+    @NotNull
+    long[] getReversed() {
+        return reversed;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof PhantomStatus)) return false;
+        final PhantomStatus other = (PhantomStatus) o;
+        return enabled == other.enabled && Arrays.equals(WorldOverrides.trim(reversed), WorldOverrides.trim(other.reversed));
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Boolean.hashCode(enabled) + Arrays.hashCode(WorldOverrides.trim(reversed));
+    }
+}
@@ -0,0 +1,145 @@
+package xyz.srnyx.uniphantoms.storage;
+
+import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.UUID;
+
+
+/**
+ * Where players' phantom statuses are persisted
+ * <br>Implementations must be safe to call from any thread
+ */
+public interface StatusStore {
+    /**
+     * Load the stored status of a player
+     *
+     * @param player the player
+     * @return {@code true} if phantoms are enabled, {@code false} if they are disabled, or {@code null} if nothing is stored (the config default applies)
+     */
+    @Nullable
+    Boolean load(@NotNull OfflinePlayer player);
+
+    /**
+     * Store the status of a player
+     * <br>This must not block on I/O, implementations that need it should queue the write
+     *
+     * @param player the player
+     * @param enabled whether phantoms are enabled
+     */
+    void save(@NotNull OfflinePlayer player, boolean enabled);
+
+    /**
+     * Load the stored per-world statuses of a player
+     *
+     * @param player the player
+     * @return the statuses, {@link WorldOverrides#EMPTY} if nothing is stored
+     */
+    @NotNull
+    WorldOverrides loadWorlds(@NotNull OfflinePlayer player);
+
+    /**
+     * Store the per-world statuses of a player, replacing the previous ones
+     * <br>Like {@link #save(OfflinePlayer, boolean)}, this must not block on I/O
+     *
+     * @param player the player
+     * @param overrides the statuses, {@link WorldOverrides#EMPTY} to clear them
+     */
+    void saveWorlds(@NotNull OfflinePlayer player, @NotNull WorldOverrides overrides);
+
+    /**
+     * Whether {@link #load(OfflinePlayer)} and {@link #loadWorlds(OfflinePlayer)} only read memory, in which case they don't need to run on the storage executor
+     *
+     * @return {@code true} if loading never blocks
+     */
+    default boolean isInMemory() {
+        return false;
+    }
+
+    /**
+     * Visit every player with something stored, one at a time (nothing is collected first)
+     * <br>May block on I/O for a long time, never call it from a server thread
+     * <p>The default implementation can't list the storage itself: it reads every player in {@link Bukkit#getOfflinePlayers()}, so players this server doesn't know
+     * (e.g. whose {@code playerdata} was deleted, or who only joined other servers sharing the storage) are skipped, see {@link #isListable()}.
+     * A player whose statuses can't be read is passed to {@link StoredVisitor#failed(UUID, RuntimeException)}.
+     *
+     * @param visitor the visitor
+     */
+    default void forEachStored(@NotNull StoredVisitor visitor) {
+        for (final OfflinePlayer player : Bukkit.getOfflinePlayers()) {
+            final Boolean stored;
+            final WorldOverrides worlds;
+            try {
+                stored = load(player);
+                worlds = loadWorlds(player);
+            } catch (final RuntimeException e) {
+                if (!visitor.failed(player.getUniqueId(), e)) return;
+                continue;
+            }
+            if ((stored != null || !worlds.isEmpty()) && !visitor.visit(player.getUniqueId(), stored, worlds)) return;
+        }
+    }
+
+    /**
+     * Whether {@link #forEachStored(StoredVisitor)} reads the storage itself, so it visits every stored player rather than only the ones this server knows
+     *
+     * @return {@code true} if every stored player is visited
+     */
+    default boolean isListable() {
+        return false;
+    }
+
+    /**
+     * Run a task once every write saved so far is in the storage, e.g. to tell other servers to reload them
+     * <br>The default runs it right away, for stores writing synchronously
+     *
+     * @param task the task, may run on any thread
+     */
+    default void afterWrites(@NotNull Runnable task) {
+        task.run();
+    }
+
+    /**
+     * Flush pending writes and release resources
+     */
+    void close();
+
+    @FunctionalInterface
+    interface StoredVisitor {
+        /**
+         * @param uuid the player
+         * @param stored see {@link #load(OfflinePlayer)}
+         * @param worlds see {@link #loadWorlds(OfflinePlayer)}
+         * @return {@code false} to stop visiting
+         */
+        boolean visit(@NotNull UUID uuid, @Nullable Boolean stored, @NotNull WorldOverrides worlds);
+
+        /**
+         * Called instead of {@link #visit(UUID, Boolean, WorldOverrides)} when a player's statuses couldn't be read, stops by rethrowing unless overridden
+         *
+         * @param uuid the player
+         * @param error why they couldn't be read
+         * @return {@code false} to stop visiting
+         */
+        default boolean failed(@NotNull UUID uuid, @NotNull RuntimeException error) {
+            throw error;
+        }
+    }
+
+    /**
+     * The available {@link StatusStore} implementations
+     */
+    enum Backend {
+        /**
+         * {@link EntityDataStatusStore}
+         */
+        ANNOYING,
+        /**
+         * {@link MappedStatusStore}
+         */
+        MAPPED
+    }
+}
@@ -0,0 +1,66 @@
+package xyz.srnyx.uniphantoms.storage;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Creates the executor that storage reads run on, so the server threads never wait on the database
+ */
+public class StorageExecutors {
+    @NotNull private static final String THREAD_NAME = "UniPhantoms-Storage-";
+
+    /**
+     * Create a storage executor: one virtual thread per task on Java 21+, otherwise a small pool of daemon threads
+     * <br>Reads mostly wait on I/O, so virtual threads let many of them run at once without tying up platform threads
+     *
+     * @return the executor, to be shut down by the caller
+     */
+    @NotNull
+    public static ExecutorService create() {
+        final ExecutorService virtual = createVirtual();
+        if (virtual != null) return virtual;
+
+        final AtomicInteger counter = new AtomicInteger();
+        final int threads = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            final Thread thread = new Thread(runnable, THREAD_NAME + counter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Whether the current thread belongs to a storage executor
+     *
+     * @return {@code true} if blocking on the storage is fine here
+     */
+    public static boolean isStorageThread() {
+        return Thread.currentThread().getName().startsWith(THREAD_NAME);
+    }
+
+    /**
+     * {@code Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(THREAD_NAME, 0).factory())}, through reflection since the plugin is compiled for older Java versions
+     *
+     * @return the executor, or {@code null} if virtual threads aren't available
+     */
+    @Nullable
+    private static ExecutorService createVirtual() {
+        try {
+            final Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            final Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builderClass.getMethod("name", String.class, long.class).invoke(builder, THREAD_NAME, 0L);
+            final ThreadFactory factory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            final Method newExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) newExecutor.invoke(null, factory);
+        } catch (final ReflectiveOperationException | LinkageError | ClassCastException e) {
+            return null;
+        }
+    }
+}
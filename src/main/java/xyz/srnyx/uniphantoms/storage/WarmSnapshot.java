@@ -0,0 +1,178 @@
+package xyz.srnyx.uniphantoms.storage;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+
+/**
+ * State written on disable and read back on enable, so the plugin is ready without going through the storage first
+ * <br>Holds the statuses that were cached, the phase of each world's statistic task and the command cooldowns still running.
+ * It's only a hint: the statuses are trusted right away, then checked against the storage in the background.
+ */
+public class WarmSnapshot {
+    private static final int MAGIC = 0x55505753; // "UPWS"
+    private static final int VERSION = 1;
+    /**
+     * Smallest size of each entry, in bytes
+     */
+    private static final int STATUS_SIZE = 16 + 1 + 2;
+    private static final int PHASE_SIZE = 2 + 8;
+    private static final int COOLDOWN_SIZE = 16 + 8;
+
+    /**
+     * {@code default} from {@code config.yml} when the statuses were resolved
+     */
+    public final boolean def;
+    @NotNull public final StatusStore.Backend backend;
+    /**
+     * The statistic task period the phases are based on
+     */
+    public final long period;
+    @NotNull public final Map<UUID, PhantomStatus> statuses;
+    /**
+     * Ticks until the next statistic sweep, by world name
+     */
+    @NotNull public final Map<String, Long> phases;
+    /**
+     * When each running command cooldown ends, in milliseconds since epoch
+     */
+    @NotNull public final Map<UUID, Long> cooldowns;
+
+    public WarmSnapshot(boolean def, @NotNull StatusStore.Backend backend, long period, @NotNull Map<UUID, PhantomStatus> statuses, @NotNull Map<String, Long> phases, @NotNull Map<UUID, Long> cooldowns) {
+        this.def = def;
+        this.backend = backend;
+        this.period = period;
+        this.statuses = statuses;
+        this.phases = phases;
+        this.cooldowns = cooldowns;
+    }
+
+    /**
+     * Write the snapshot, replacing the file atomically
+     *
+     * @param file the file
+     *
+     * @throws IOException if the file could not be written
+     */
+    public void save(@NotNull File file) throws IOException {
+        final File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try (final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp.toPath())))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeBoolean(def);
+            output.writeByte(backend.ordinal());
+            output.writeLong(period);
+
+            output.writeInt(statuses.size());
+            for (final Map.Entry<UUID, PhantomStatus> entry : statuses.entrySet()) {
+                writeUuid(output, entry.getKey());
+                final PhantomStatus status = entry.getValue();
+                final long[] reversed = status.getReversed();
+                output.writeBoolean(status.isEnabled());
+                output.writeShort(reversed.length);
+                for (final long word : reversed) output.writeLong(word);
+            }
+
+            output.writeInt(phases.size());
+            for (final Map.Entry<String, Long> entry : phases.entrySet()) {
+                final byte[] name = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                output.writeShort(name.length);
+                output.write(name);
+                output.writeLong(entry.getValue());
+            }
+
+            output.writeInt(cooldowns.size());
+            for (final Map.Entry<UUID, Long> entry : cooldowns.entrySet()) {
+                writeUuid(output, entry.getKey());
+                output.writeLong(entry.getValue());
+            }
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Read a snapshot written by {@link #save(File)}
+     * <br>The file is read into the heap rather than mapped, so it can be deleted right after
+     *
+     * @param file the file
+     * @return the snapshot, or {@code null} if the file doesn't exist
+     *
+     * @throws IOException if the file could not be read or is invalid
+     */
+    @Nullable
+    public static WarmSnapshot load(@NotNull File file) throws IOException {
+        if (!file.exists()) return null;
+        final ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) throw new IOException("Not a snapshot file (or an unsupported version): " + file);
+            final boolean def = buffer.get() != 0;
+            final int backend = buffer.get();
+            if (backend < 0 || backend >= StatusStore.Backend.values().length) throw new IOException("Unknown storage backend in snapshot: " + backend);
+            final long period = buffer.getLong();
+
+            final int statusCount = count(buffer, STATUS_SIZE, file);
+            final Map<UUID, PhantomStatus> statuses = new HashMap<>(Math.max(16, statusCount * 4 / 3 + 1));
+            for (int i = 0; i < statusCount; i++) {
+                final UUID uuid = new UUID(buffer.getLong(), buffer.getLong());
+                final boolean enabled = buffer.get() != 0;
+                final long[] reversed = new long[count(buffer.getShort() & 0xFFFF, buffer, Long.BYTES, file)];
+                for (int word = 0; word < reversed.length; word++) reversed[word] = buffer.getLong();
+                statuses.put(uuid, PhantomStatus.of(enabled, reversed));
+            }
+
+            final int phaseCount = count(buffer, PHASE_SIZE, file);
+            final Map<String, Long> phases = new HashMap<>(Math.max(16, phaseCount * 4 / 3 + 1));
+            for (int i = 0; i < phaseCount; i++) {
+                final byte[] name = new byte[count(buffer.getShort() & 0xFFFF, buffer, 1, file)];
+                buffer.get(name);
+                phases.put(new String(name, StandardCharsets.UTF_8), buffer.getLong());
+            }
+
+            final int cooldownCount = count(buffer, COOLDOWN_SIZE, file);
+            final Map<UUID, Long> cooldowns = new HashMap<>(Math.max(16, cooldownCount * 4 / 3 + 1));
+            for (int i = 0; i < cooldownCount; i++) cooldowns.put(new UUID(buffer.getLong(), buffer.getLong()), buffer.getLong());
+
+            return new WarmSnapshot(def, StatusStore.Backend.values()[backend], period, statuses, Collections.unmodifiableMap(phases), Collections.unmodifiableMap(cooldowns));
+        } catch (final BufferUnderflowException e) {
+            throw new IOException("Truncated snapshot file: " + file, e);
+        }
+    }
+
+    /**
+     * Read a stored count, checking it against the bytes left before anything is sized from it
+     *
+     * @param buffer the buffer, positioned at the count
+     * @param size the smallest size of each counted entry, in bytes
+     * @param file the file, for the error message
+     * @return the count
+     *
+     * @throws IOException if the count is negative or more entries than the rest of the file could hold
+     */
+    private static int count(@NotNull ByteBuffer buffer, int size, @NotNull File file) throws IOException {
+        return count(buffer.getInt(), buffer, size, file);
+    }
+
+    private static int count(int count, @NotNull ByteBuffer buffer, int size, @NotNull File file) throws IOException {
+        if (count < 0 || (long) count * size > buffer.remaining()) throw new IOException("Invalid count in snapshot file (" + count + " entries, " + buffer.remaining() + " bytes left): " + file);
+        return count;
+    }
+
+    private static void writeUuid(@NotNull DataOutputStream output, @NotNull UUID uuid) throws IOException {
+        output.writeLong(uuid.getMostSignificantBits());
+        output.writeLong(uuid.getLeastSignificantBits());
+    }
+}
@@ -0,0 +1,112 @@
+package xyz.srnyx.uniphantoms.storage;
+
+import org.bukkit.World;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+
+/**
+ * Assigns a stable, small ID to every world the first time it's seen, so per-world statuses can be stored as bitsets
+ * <br>IDs are saved in {@code worlds.yml} (a list of names, the ID is the index) and never reused
+ */
+public class WorldIdTable {
+    /**
+     * IDs are stored as unsigned shorts by {@link MappedStatusStore}
+     */
+    private static final int MAX_ID = 0xFFFF;
+
+    @NotNull private final Logger logger;
+    @NotNull private final File file;
+    @NotNull private final Map<String, Integer> idsByName = new ConcurrentHashMap<>();
+    /**
+     * Avoids hashing the world's name on hot paths
+     */
+    @NotNull private final Map<UUID, Integer> idsByWorld = new ConcurrentHashMap<>();
+    @NotNull private volatile String[] namesById = new String[0];
+
+    public WorldIdTable(@NotNull Logger logger, @NotNull File dataFolder) {
+        this.logger = logger;
+        this.file = new File(dataFolder, "worlds.yml");
+        if (!file.exists()) return;
+
+        // A world's ID is its index in the list
+        final List<String> names = YamlConfiguration.loadConfiguration(file).getStringList("worlds");
+        final int count = Math.min(names.size(), MAX_ID + 1);
+        for (int id = 0; id < count; id++) idsByName.putIfAbsent(names.get(id), id);
+        namesById = names.subList(0, count).toArray(new String[0]);
+    }
+
+    /**
+     * Get the ID of a world, assigning one if it's the first time it's seen
+     *
+     * @param world the world
+     * @return the ID
+     */
+    public int getId(@NotNull World world) {
+        final Integer id = idsByWorld.get(world.getUID());
+        if (id != null) return id;
+        final int assigned = getId(world.getName());
+        idsByWorld.put(world.getUID(), assigned);
+        return assigned;
+    }
+
+    /**
+     * Get the ID of a world by name, assigning one if it's the first time it's seen
+     *
+     * @param name the world's name
+     * @return the ID
+     *
+     * @throws IllegalStateException if all IDs are used
+     */
+    public int getId(@NotNull String name) {
+        final Integer id = idsByName.get(name);
+        if (id != null) return id;
+        synchronized (this) {
+            final Integer existing = idsByName.get(name);
+            if (existing != null) return existing;
+
+            final String[] names = namesById;
+            if (names.length > MAX_ID) throw new IllegalStateException("Too many worlds, can't assign an ID to " + name);
+            final String[] newNames = new String[names.length + 1];
+            System.arraycopy(names, 0, newNames, 0, names.length);
+            newNames[names.length] = name;
+            namesById = newNames;
+            idsByName.put(name, names.length);
+            save();
+            return names.length;
+        }
+    }
+
+    /**
+     * Get the name of the world an ID was assigned to
+     *
+     * @param id the ID
+     * @return the world's name, or {@code null} if the ID was never assigned
+     */
+    @Nullable
+    public String getName(int id) {
+        final String[] names = namesById;
+        return id >= 0 && id < names.length ? names[id] : null;
+    }
+
+    private void save() {
+        final YamlConfiguration yaml = new YamlConfiguration();
+        yaml.set("worlds", Arrays.asList(namesById));
+        try {
+            yaml.save(file);
+        } catch (final IOException e) {
+            logger.severe("Failed to save world IDs: " + e.getMessage());
+        }
+    }
+}
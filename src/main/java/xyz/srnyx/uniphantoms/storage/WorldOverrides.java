@@ -0,0 +1,139 @@
+package xyz.srnyx.uniphantoms.storage;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+
+
+/**
+ * A player's per-world phantom statuses, as two bitsets indexed by {@link WorldIdTable} IDs
+ * <br>Immutable, {@link #with(int, Boolean)} returns a modified copy
+ */
+public final class WorldOverrides {
+    @NotNull public static final WorldOverrides EMPTY = new WorldOverrides(new long[0], new long[0]);
+
+    @NotNull private final long[] enabled;
+    @NotNull private final long[] disabled;
+
+    private WorldOverrides(@NotNull long[] enabled, @NotNull long[] disabled) {
+        this.enabled = enabled;
+        this.disabled = disabled;
+    }
+
+    /**
+     * Get the status set for a world
+     *
+     * @param worldId the world's ID
+     * @return the status, or {@code null} if the world uses the player's global status
+     */
+    @Nullable
+    public Boolean get(int worldId) {
+        if (test(enabled, worldId)) return true;
+        if (test(disabled, worldId)) return false;
+        return null;
+    }
+
+    /**
+     * Get a copy with the status of a world changed
+     *
+     * @param worldId the world's ID
+     * @param value the new status, or {@code null} to use the player's global status
+     * @return the new overrides
+     */
+    @NotNull
+    public WorldOverrides with(int worldId, @Nullable Boolean value) {
+        final int length = Math.max(Math.max(enabled.length, disabled.length), (worldId >>> 6) + 1);
+        final long[] newEnabled = Arrays.copyOf(enabled, length);
+        final long[] newDisabled = Arrays.copyOf(disabled, length);
+        final long bit = 1L << worldId;
+        newEnabled[worldId >>> 6] &= ~bit;
+        newDisabled[worldId >>> 6] &= ~bit;
+        if (value != null) (value ? newEnabled : newDisabled)[worldId >>> 6] |= bit;
+        final WorldOverrides result = new WorldOverrides(newEnabled, newDisabled);
+        return result.isEmpty() ? EMPTY : result;
+    }
+
+    public boolean isEmpty() {
+        for (final long word : enabled) if (word != 0) return false;
+        for (final long word : disabled) if (word != 0) return false;
+        return true;
+    }
+
+    /**
+     * Count the worlds with a status set
+     *
+     * @return the number of worlds
+     */
+    public int size() {
+        int size = 0;
+        for (final long word : enabled) size += Long.bitCount(word);
+        for (final long word : disabled) size += Long.bitCount(word);
+        return size;
+    }
+
+    /**
+     * Call a visitor for every world with a status set, in ID order
+     *
+     * @param visitor the visitor
+     */
+    public void forEach(@NotNull Visitor visitor) {
+        final int length = Math.max(enabled.length, disabled.length);
+        for (int word = 0; word < length; word++) {
+            long bits = (word < enabled.length ? enabled[word] : 0) | (word < disabled.length ? disabled[word] : 0);
+            while (bits != 0) {
+                final int worldId = (word << 6) + Long.numberOfTrailingZeros(bits);
+                visitor.accept(worldId, test(enabled, worldId));
+                bits &= bits - 1;
+            }
+        }
+    }
+
+    /**
+     * The worlds where the status differs from a global status
+     *
+     * @param global the global status
+     * @return a bitset of world IDs
+     */
+    @NotNull
+    long[] differingFrom(boolean global) {
+        final long[] bits = global ? disabled : enabled;
+        return bits.clone();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof WorldOverrides)) return false;
+        final WorldOverrides other = (WorldOverrides) o;
+        return Arrays.equals(trim(enabled), trim(other.enabled)) && Arrays.equals(trim(disabled), trim(other.disabled));
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(trim(enabled)) + Arrays.hashCode(trim(disabled));
+    }
+
+    /**
+     * Test a bit of a bitset
+     *
+     * @param bits the bitset
+     * @param index the bit
+     * @return whether the bit is set (bits past the end are unset)
+     */
+    static boolean test(@NotNull long[] bits, int index) {
+        final int word = index >>> 6;
+        return word < bits.length && (bits[word] & (1L << index)) != 0;
+    }
+
+    @NotNull
+    static long[] trim(@NotNull long[] bits) {
+        int length = bits.length;
+        while (length > 0 && bits[length - 1] == 0) length--;
+        return length == bits.length ? bits : Arrays.copyOf(bits, length);
+    }
+
+    public interface Visitor {
+        void accept(int worldId, boolean enabled);
+    }
+}
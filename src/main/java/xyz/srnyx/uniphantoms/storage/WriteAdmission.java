@@ -0,0 +1,184 @@
+package xyz.srnyx.uniphantoms.storage;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+
+/**
+ * Global limit on status writes, so bursts of changes (selectors, scripted consoles) can't flood the storage
+ * <br>Writes take a token from a bucket refilled at a fixed rate. Without a token they wait in a bounded queue, drained every tick by {@link #drain()}, and are rejected once it's full.
+ */
+public class WriteAdmission {
+    /**
+     * Tokens per nanosecond, {@code 0} for no limit
+     */
+    private final double rate;
+    private final double burst;
+    private final int queueSize;
+    @NotNull private final Executor executor;
+    @NotNull private final ArrayDeque<Pending<?>> queue = new ArrayDeque<>();
+    private double tokens;
+    private long refilled = System.nanoTime();
+    private long admitted;
+    private long deferred;
+    private long rejected;
+
+    /**
+     * @param rate writes per second, {@code 0} for no limit
+     * @param burst writes allowed at once after being idle
+     * @param queueSize maximum writes waiting for a token
+     * @param executor where admitted writes run by default
+     */
+    public WriteAdmission(int rate, int burst, int queueSize, @NotNull Executor executor) {
+        this.rate = rate / 1_000_000_000.0;
+        this.burst = Math.max(1, burst);
+        this.queueSize = queueSize;
+        this.executor = executor;
+        this.tokens = this.burst;
+    }
+
+    /**
+     * Submit a write
+     *
+     * @param task the write
+     * @return the admitted or queued write, or {@code null} if it was rejected
+     */
+    @Nullable
+    public <T> Ticket<T> submit(@NotNull Supplier<T> task) {
+        return submit(task, executor);
+    }
+
+    /**
+     * Submit a write to run on a specific executor once admitted, e.g. one keeping a player's writes in order
+     * <br>Writes are admitted in the order they were submitted
+     *
+     * @param task the write
+     * @param target where the write runs
+     * @return the admitted or queued write, or {@code null} if it was rejected
+     */
+    @Nullable
+    public synchronized <T> Ticket<T> submit(@NotNull Supplier<T> task, @NotNull Executor target) {
+        refill();
+        if (queue.isEmpty() && (rate == 0 || tokens >= 1)) {
+            if (rate != 0) tokens--;
+            admitted++;
+            return new Ticket<>(CompletableFuture.supplyAsync(task, target), false);
+        }
+        if (queue.size() >= queueSize) {
+            rejected++;
+            return null;
+        }
+        final Pending<T> pending = new Pending<>(task, target);
+        queue.add(pending);
+        deferred++;
+        return new Ticket<>(pending.result, true);
+    }
+
+    /**
+     * Start the queued writes that have a token, called every tick
+     */
+    public void drain() {
+        final List<Pending<?>> ready = new ArrayList<>();
+        synchronized (this) {
+            if (queue.isEmpty()) return;
+            refill();
+            while (!queue.isEmpty() && (rate == 0 || tokens >= 1)) {
+                if (rate != 0) tokens--;
+                admitted++;
+                ready.add(queue.poll());
+            }
+        }
+        for (final Pending<?> pending : ready) pending.start();
+    }
+
+    /**
+     * Start every queued write regardless of the limit, e.g. before the storage is closed or when the settings change
+     */
+    public void flush() {
+        final List<Pending<?>> ready;
+        synchronized (this) {
+            ready = new ArrayList<>(queue);
+            admitted += queue.size();
+            queue.clear();
+        }
+        for (final Pending<?> pending : ready) pending.start();
+    }
+
+    private void refill() {
+        final long now = System.nanoTime();
+        if (rate != 0) tokens = Math.min(burst, tokens + (now - refilled) * rate);
+        refilled = now;
+    }
+
+    public synchronized int getQueued() {
+        return queue.size();
+    }
+
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    public synchronized long getAdmitted() {
+        return admitted;
+    }
+
+    public synchronized long getDeferred() {
+        return deferred;
+    }
+
+    public synchronized long getRejected() {
+        return rejected;
+    }
+
+    /**
+     * A write that was let through or queued
+     */
+    public static class Ticket<T> {
+        /**
+         * The write's result, completed once it ran
+         */
+        @NotNull public final CompletableFuture<T> result;
+        /**
+         * Whether the write waits in the queue for a token
+         */
+        public final boolean deferred;
+
+        public Ticket(@NotNull CompletableFuture<T> result, boolean deferred) {
+            this.result = result;
+            this.deferred = deferred;
+        }
+    }
+
+    private static class Pending<T> {
+        @NotNull private final Supplier<T> task;
+        @NotNull private final Executor executor;
+        @NotNull private final CompletableFuture<T> result = new CompletableFuture<>();
+
+        private Pending(@NotNull Supplier<T> task, @NotNull Executor executor) {
+            this.task = task;
+            this.executor = executor;
+        }
+
+        private void start() {
+            try {
+                CompletableFuture.supplyAsync(task, executor).whenComplete((value, throwable) -> {
+                    if (throwable != null) {
+                        result.completeExceptionally(throwable);
+                    } else {
+                        result.complete(value);
+                    }
+                });
+            } catch (final RejectedExecutionException e) {
+                result.completeExceptionally(e);
+            }
+        }
+    }
+}
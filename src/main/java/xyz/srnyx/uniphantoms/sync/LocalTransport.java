@@ -0,0 +1,55 @@
+package xyz.srnyx.uniphantoms.sync;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+
+/**
+ * In-process {@link SyncTransport}, every transport of the same {@link Hub} receives the packets sent by the others
+ * <br>Used to run several {@link StatusSync}s without a proxy (tests, single-JVM setups)
+ */
+public class LocalTransport implements SyncTransport {
+    @NotNull private final Hub hub;
+    @Nullable private volatile Consumer<byte[]> receiver;
+
+    public LocalTransport(@NotNull Hub hub) {
+        this.hub = hub;
+    }
+
+    @Override
+    public void open(@NotNull Consumer<byte[]> receiver) {
+        this.receiver = receiver;
+        hub.transports.add(this);
+    }
+
+    @Override
+    public boolean send(@NotNull byte[] payload) {
+        for (final LocalTransport transport : hub.transports) {
+            final Consumer<byte[]> other = transport.receiver;
+            if (transport != this && other != null) other.accept(payload.clone());
+        }
+        return true;
+    }
+
+    @Override
+    public int maxPayloadSize() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public void close() {
+        hub.transports.remove(this);
+        receiver = null;
+    }
+
+    /**
+     * A group of connected {@link LocalTransport}s
+     */
+    public static class Hub {
+        @NotNull private final List<LocalTransport> transports = new CopyOnWriteArrayList<>();
+    }
+}
@@ -0,0 +1,94 @@
+package xyz.srnyx.uniphantoms.sync;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.messaging.Messenger;
+import org.bukkit.plugin.messaging.PluginMessageListener;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.function.Consumer;
+
+
+/**
+ * {@link SyncTransport} using the proxy's {@code Forward} plugin message (BungeeCord, Velocity with {@code bungee-plugin-message-channel})
+ * <br>Plugin messages travel through a player's connection, so nothing can be sent while the server is empty
+ */
+public class ProxyMessagingTransport implements SyncTransport, PluginMessageListener {
+    @NotNull private static final String CHANNEL = "BungeeCord";
+    /**
+     * Vanilla clientbound custom payload limit, minus the {@code Forward} header
+     */
+    private static final int MAX_PAYLOAD = Short.MAX_VALUE - 512;
+
+    @NotNull private final Plugin plugin;
+    @NotNull private final String subchannel;
+    @Nullable private Consumer<byte[]> receiver;
+
+    public ProxyMessagingTransport(@NotNull Plugin plugin, @NotNull String subchannel) {
+        this.plugin = plugin;
+        this.subchannel = subchannel;
+    }
+
+    @Override
+    public void open(@NotNull Consumer<byte[]> receiver) {
+        this.receiver = receiver;
+        final Messenger messenger = plugin.getServer().getMessenger();
+        messenger.registerOutgoingPluginChannel(plugin, CHANNEL);
+        messenger.registerIncomingPluginChannel(plugin, CHANNEL, this);
+    }
+
+    @Override
+    public boolean send(@NotNull byte[] payload) {
+        final Iterator<? extends Player> players = Bukkit.getOnlinePlayers().iterator();
+        if (!players.hasNext()) return false;
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(payload.length + 32);
+        try (final DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF("Forward");
+            out.writeUTF("ALL");
+            out.writeUTF(subchannel);
+            out.writeShort(payload.length);
+            out.write(payload);
+        } catch (final IOException e) {
+            throw new IllegalStateException(e); // ByteArrayOutputStream doesn't throw
+        }
+        players.next().sendPluginMessage(plugin, CHANNEL, bytes.toByteArray());
+        return true;
+    }
+
+    @Override
+    public int maxPayloadSize() {
+        return MAX_PAYLOAD;
+    }
+
+    @Override
+    public void close() {
+        final Messenger messenger = plugin.getServer().getMessenger();
+        messenger.unregisterIncomingPluginChannel(plugin, CHANNEL, this);
+        messenger.unregisterOutgoingPluginChannel(plugin, CHANNEL);
+        receiver = null;
+    }
+
+    @Override
+    public void onPluginMessageReceived(@NotNull String channel, @NotNull Player player, @NotNull byte[] message) {
+        final Consumer<byte[]> current = receiver;
+        if (current == null || !channel.equals(CHANNEL)) return;
+        try (final DataInputStream in = new DataInputStream(new ByteArrayInputStream(message))) {
+            if (!in.readUTF().equals(subchannel)) return;
+            final byte[] payload = new byte[in.readUnsignedShort()];
+            in.readFully(payload);
+            current.accept(payload);
+        } catch (final IOException ignored) {
+            // Not a Forward message (other BungeeCord responses share the channel)
+        }
+    }
+}
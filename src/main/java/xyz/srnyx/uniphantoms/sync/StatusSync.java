@@ -0,0 +1,142 @@
+package xyz.srnyx.uniphantoms.sync;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+
+/**
+ * Propagates phantom status changes to the other servers sharing the same storage
+ * <br>Changes are combined until {@link #flush()} (called once per tick), so a mass toggle results in one packet per {@link SyncTransport#maxPayloadSize()}
+ * <p>Packet layout: {@code version (byte), origin (long), count (int)}, then {@code count} entries of {@code msb (long), lsb (long), state (byte)}
+ */
+public class StatusSync {
+    private static final byte VERSION = 1;
+    private static final int HEADER_SIZE = 1 + 8 + 4;
+    private static final int ENTRY_SIZE = 8 + 8 + 1;
+    /**
+     * Changes kept while they can't be sent (for example, no players online), older ones are dropped past this
+     */
+    private static final int MAX_PENDING = 65536;
+
+    private static final byte STATE_INVALIDATE = 0;
+    private static final byte STATE_ENABLED = 1;
+    private static final byte STATE_DISABLED = 2;
+
+    @NotNull private final SyncTransport transport;
+    @NotNull private final Receiver receiver;
+    /**
+     * Identifies this server's packets, in case the transport echoes them back
+     */
+    private final long origin = ThreadLocalRandom.current().nextLong();
+    @NotNull private Map<UUID, Byte> pending = new LinkedHashMap<>();
+
+    public StatusSync(@NotNull SyncTransport transport, @NotNull Receiver receiver) {
+        this.transport = transport;
+        this.receiver = receiver;
+        transport.open(this::receive);
+    }
+
+    /**
+     * Queue a status change for the next {@link #flush()}
+     *
+     * @param uuid the player
+     * @param enabled the new status, or {@code null} to make other servers reload it from storage
+     */
+    public synchronized void publish(@NotNull UUID uuid, @Nullable Boolean enabled) {
+        pending.remove(uuid); // Re-insert so the newest changes are kept if the oldest are dropped
+        pending.put(uuid, enabled == null ? STATE_INVALIDATE : enabled ? STATE_ENABLED : STATE_DISABLED);
+        if (pending.size() > MAX_PENDING) pending.remove(pending.keySet().iterator().next());
+    }
+
+    /**
+     * Send every queued change
+     */
+    public void flush() {
+        final Map<UUID, Byte> batch;
+        synchronized (this) {
+            if (pending.isEmpty()) return;
+            batch = pending;
+            pending = new LinkedHashMap<>();
+        }
+
+        final int perPacket = Math.max(1, (Math.min(transport.maxPayloadSize(), Integer.MAX_VALUE - HEADER_SIZE) - HEADER_SIZE) / ENTRY_SIZE);
+        ByteBuffer packet = null;
+        int count = 0;
+        for (final Map.Entry<UUID, Byte> entry : batch.entrySet()) {
+            if (packet == null) {
+                packet = ByteBuffer.allocate(HEADER_SIZE + ENTRY_SIZE * Math.min(perPacket, batch.size() - count));
+                packet.put(VERSION).putLong(origin).putInt(0);
+            }
+            final UUID uuid = entry.getKey();
+            packet.putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits()).put(entry.getValue());
+            count++;
+            if (!packet.hasRemaining()) {
+                if (!send(packet, batch, count)) return;
+                packet = null;
+            }
+        }
+    }
+
+    /**
+     * Stop propagating changes, queued changes are lost
+     */
+    public void close() {
+        transport.close();
+    }
+
+    /**
+     * @return {@code false} if the transport refused the packet, in which case the unsent part of the batch was queued again
+     */
+    private boolean send(@NotNull ByteBuffer packet, @NotNull Map<UUID, Byte> batch, int sent) {
+        final int entries = (packet.capacity() - HEADER_SIZE) / ENTRY_SIZE;
+        packet.putInt(1 + 8, entries);
+        if (transport.send(packet.array())) return true;
+
+        // Requeue this packet's entries and everything after them, without overriding newer changes
+        synchronized (this) {
+            final Map<UUID, Byte> requeued = new LinkedHashMap<>();
+            int index = 0;
+            for (final Map.Entry<UUID, Byte> entry : batch.entrySet()) {
+                if (index++ >= sent - entries) requeued.put(entry.getKey(), entry.getValue());
+            }
+            for (final Map.Entry<UUID, Byte> entry : pending.entrySet()) {
+                requeued.remove(entry.getKey());
+                requeued.put(entry.getKey(), entry.getValue());
+            }
+            pending = requeued;
+            while (pending.size() > MAX_PENDING) pending.remove(pending.keySet().iterator().next());
+        }
+        return false;
+    }
+
+    private void receive(@NotNull byte[] payload) {
+        final ByteBuffer packet = ByteBuffer.wrap(payload);
+        if (payload.length < HEADER_SIZE || packet.get() != VERSION || packet.getLong() == origin) return;
+        final int count = packet.getInt();
+        if (packet.remaining() < count * ENTRY_SIZE) return;
+        for (int i = 0; i < count; i++) {
+            final UUID uuid = new UUID(packet.getLong(), packet.getLong());
+            final byte state = packet.get();
+            receiver.receive(uuid, state == STATE_INVALIDATE ? null : state == STATE_ENABLED);
+        }
+    }
+
+    /**
+     * Applies changes made on other servers
+     */
+    public interface Receiver {
+        /**
+         * Called for every change received
+         *
+         * @param uuid the player
+         * @param enabled the new status, or {@code null} if it must be reloaded from storage
+         */
+        void receive(@NotNull UUID uuid, @Nullable Boolean enabled);
+    }
+}
@@ -0,0 +1,39 @@
+package xyz.srnyx.uniphantoms.sync;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.function.Consumer;
+
+
+/**
+ * Carries {@link StatusSync} packets between servers
+ */
+public interface SyncTransport {
+    /**
+     * Start delivering packets from other servers
+     *
+     * @param receiver called with the payload of every packet received
+     */
+    void open(@NotNull Consumer<byte[]> receiver);
+
+    /**
+     * Send a packet to every other server
+     *
+     * @param payload the packet
+     *
+     * @return {@code false} if the packet could not be sent right now and should be retried later
+     */
+    boolean send(@NotNull byte[] payload);
+
+    /**
+     * The largest payload {@link #send(byte[])} accepts
+     *
+     * @return the size in bytes
+     */
+    int maxPayloadSize();
+
+    /**
+     * Stop sending and receiving packets
+     */
+    void close();
+}
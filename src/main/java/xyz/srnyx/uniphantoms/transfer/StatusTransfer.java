@@ -0,0 +1,535 @@
+package xyz.srnyx.uniphantoms.transfer;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.bukkit.Bukkit;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import xyz.srnyx.uniphantoms.UniPhantoms;
+import xyz.srnyx.uniphantoms.audit.AuditRecord;
+import xyz.srnyx.uniphantoms.storage.StatusStore;
+import xyz.srnyx.uniphantoms.storage.WorldIdTable;
+import xyz.srnyx.uniphantoms.storage.WorldOverrides;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
+
+
+/**
+ * Streams every stored status to or from a file in {@code plugins/UniPhantoms/transfers/}, entirely on background threads
+ * <br>Only one transfer runs at a time. Per-world statuses are written by world name, so files can move between servers.
+ * <p>The format is picked by extension:
+ * <ul>
+ *     <li>{@code .ndjson}/{@code .jsonl}: one {@code {"uuid": "...", "stored": false, "worlds": {"world_nether": true}}} object per line ({@code stored} and {@code worlds} are omitted if unset)
+ *     <li>{@code .bin}: {@code magic, version (ints)}, then per player {@code msb, lsb (longs), stored (byte: 0 unset, 1 enabled, 2 disabled), world count (unsigned short)}, and per world {@code name (modified UTF-8), state (byte: 1 enabled, 2 disabled)}
+ * </ul>
+ */
+public class StatusTransfer {
+    private static final int MAGIC = 0x55505846; // "UPXF"
+    private static final int VERSION = 1;
+    /**
+     * File names accepted from commands, keeps them inside the transfers folder
+     */
+    @NotNull private static final Pattern FILE_NAME = Pattern.compile("[A-Za-z0-9_.-]+\\.(ndjson|jsonl|bin)");
+    private static final long PROGRESS_INTERVAL = TimeUnit.SECONDS.toNanos(2);
+    /**
+     * Records parsed ahead of the import workers, split between their queues
+     */
+    private static final int QUEUE_SIZE = 1024;
+    @NotNull private static final Entry STOP = new Entry(new UUID(0, 0), null, WorldOverrides.EMPTY);
+
+    @NotNull private final UniPhantoms plugin;
+    @NotNull private final AtomicBoolean running = new AtomicBoolean();
+    @Nullable private volatile Thread thread;
+    private volatile boolean closed;
+
+    public StatusTransfer(@NotNull UniPhantoms plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Resolve a file name given in a command
+     *
+     * @param name the file's name (e.g., {@code backup.ndjson})
+     * @return the file, or {@code null} if the name isn't allowed
+     */
+    @Nullable
+    public File resolve(@NotNull String name) {
+        return FILE_NAME.matcher(name).matches() ? new File(new File(plugin.getDataFolder(), "transfers"), name) : null;
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    /**
+     * Stop the running transfer (if any) and wait for it, an unfinished export leaves no file
+     */
+    public void close() {
+        closed = true;
+        final Thread current = thread;
+        if (current == null) return;
+        try {
+            current.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Start writing every stored status to a file, which is only replaced once complete
+     *
+     * @param file the file, see {@link #resolve(String)}
+     * @param listener notified from the transfer thread
+     * @return {@code false} if another transfer is running
+     */
+    public boolean startExport(@NotNull File file, @NotNull Listener listener) {
+        if (closed || !running.compareAndSet(false, true)) return false;
+        thread = start("UniPhantoms-Export", () -> {
+            final Progress progress = new Progress();
+            try {
+                export(file, progress, listener);
+                listener.done(progress.snapshot(), null);
+            } catch (final IOException | RuntimeException e) {
+                listener.done(progress.snapshot(), e);
+            } finally {
+                running.set(false);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Start replacing the stored statuses of every player in a file
+     * <br>One thread reads the file, throttled to {@code rate} players per second, and {@code threads} workers apply them.
+     * A player always goes to the same worker, so their entries are applied in file order and never by two workers at once.
+     *
+     * @param file the file, see {@link #resolve(String)}
+     * @param threads how many workers apply the statuses
+     * @param rate the maximum players per second, {@code 0} for no limit
+     * @param actor the player who started the import, {@link AuditRecord#NO_ACTOR} if none
+     * @param listener notified from the transfer threads
+     * @return {@code false} if another transfer is running
+     */
+    public boolean startImport(@NotNull File file, int threads, int rate, @NotNull UUID actor, @NotNull Listener listener) {
+        if (closed || !running.compareAndSet(false, true)) return false;
+        thread = start("UniPhantoms-Import", () -> {
+            final Progress progress = new Progress();
+            final List<BlockingQueue<Entry>> queues = new ArrayList<>();
+            final AtomicReference<Exception> workerError = new AtomicReference<>();
+            final List<Thread> workers = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                final BlockingQueue<Entry> queue = new ArrayBlockingQueue<>(Math.max(1, QUEUE_SIZE / threads));
+                queues.add(queue);
+                workers.add(start("UniPhantoms-Import-" + (i + 1), () -> apply(queue, actor, progress, workerError)));
+            }
+            Exception error = null;
+            try {
+                read(file, queues, rate, progress, listener);
+            } catch (final IOException | RuntimeException e) {
+                error = e;
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                error = e;
+            } finally {
+                for (final BlockingQueue<Entry> queue : queues) putUninterruptibly(queue, STOP);
+                for (final Thread worker : workers) joinUninterruptibly(worker);
+                running.set(false);
+            }
+            listener.done(progress.snapshot(), error != null ? error : workerError.get());
+        });
+        return true;
+    }
+
+    private void export(@NotNull File file, @NotNull Progress progress, @NotNull Listener listener) throws IOException {
+        final StatusStore store = plugin.getStatusStore();
+        final WorldIdTable worldIds = plugin.getWorldIds();
+        final Format format = Format.of(file.getName());
+        final File folder = file.getParentFile();
+        if (!folder.exists() && !folder.mkdirs()) throw new IOException("Could not create " + folder);
+
+        final File temp = new File(folder, file.getName() + ".tmp");
+        progress.partial = !store.isListable();
+        try {
+            try (final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp.toPath())))) {
+                final Writer writer = format == Format.NDJSON ? new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8)) : null;
+                if (writer == null) {
+                    output.writeInt(MAGIC);
+                    output.writeInt(VERSION);
+                }
+                final IOException[] failure = new IOException[1];
+                store.forEachStored(new StatusStore.StoredVisitor() {
+                    @Override
+                    public boolean visit(@NotNull UUID uuid, @Nullable Boolean stored, @NotNull WorldOverrides worlds) {
+                        if (closed) return false;
+                        try {
+                            if (writer != null) {
+                                writer.write(toJson(uuid, stored, worlds, worldIds));
+                                writer.write('\n');
+                            } else {
+                                writeBinary(output, uuid, stored, worlds, worldIds);
+                            }
+                        } catch (final IOException e) {
+                            failure[0] = e;
+                            return false;
+                        }
+                        progress.processed.incrementAndGet();
+                        progress.report(listener);
+                        return true;
+                    }
+
+                    /**
+                     * Skip the player, they're counted as failed
+                     */
+                    @Override
+                    public boolean failed(@NotNull UUID uuid, @NotNull RuntimeException error) {
+                        progress.failed.incrementAndGet();
+                        return !closed;
+                    }
+                });
+                if (failure[0] != null) throw failure[0];
+                if (writer != null) writer.flush();
+            }
+            if (closed) throw new IOException("Cancelled, the server is stopping");
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (final IOException | RuntimeException e) {
+            // Don't leave a partial file behind
+            try {
+                Files.deleteIfExists(temp.toPath());
+            } catch (final IOException deleteError) {
+                e.addSuppressed(deleteError);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Parse the file into the workers' queues, pacing to the rate
+     */
+    private void read(@NotNull File file, @NotNull List<BlockingQueue<Entry>> queues, int rate, @NotNull Progress progress, @NotNull Listener listener) throws IOException, InterruptedException {
+        if (!file.exists()) throw new IOException("File not found: " + file.getName());
+        final WorldIdTable worldIds = plugin.getWorldIds();
+        final Pacer pacer = new Pacer(rate);
+        if (Format.of(file.getName()) == Format.NDJSON) {
+            try (final BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (closed) throw new IOException("Cancelled, the server is stopping");
+                    if (line.trim().isEmpty()) continue;
+                    final Entry entry;
+                    try {
+                        entry = fromJson(line, worldIds);
+                    } catch (final RuntimeException e) {
+                        progress.failed.incrementAndGet(); // Malformed line, skipped
+                        continue;
+                    }
+                    pacer.await();
+                    queueFor(queues, entry.uuid).put(entry);
+                    progress.report(listener);
+                }
+            }
+            return;
+        }
+
+        try (final DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION) throw new IOException("Not an export file (or an unsupported version): " + file.getName());
+            while (true) {
+                if (closed) throw new IOException("Cancelled, the server is stopping");
+                final Entry entry;
+                try {
+                    entry = readBinary(input, worldIds);
+                } catch (final EOFException e) {
+                    return;
+                }
+                pacer.await();
+                queueFor(queues, entry.uuid).put(entry);
+                progress.report(listener);
+            }
+        }
+    }
+
+    /**
+     * Get the queue of the worker applying a player's entries
+     */
+    @NotNull
+    private static BlockingQueue<Entry> queueFor(@NotNull List<BlockingQueue<Entry>> queues, @NotNull UUID uuid) {
+        return queues.get((uuid.hashCode() & Integer.MAX_VALUE) % queues.size());
+    }
+
+    /**
+     * Worker loop, applies entries until {@link #STOP}
+     */
+    private void apply(@NotNull BlockingQueue<Entry> queue, @NotNull UUID actor, @NotNull Progress progress, @NotNull AtomicReference<Exception> error) {
+        while (true) {
+            final Entry entry;
+            try {
+                entry = queue.take();
+            } catch (final InterruptedException e) {
+                return;
+            }
+            if (entry == STOP) return;
+            try {
+                plugin.replacePhantomStatus(Bukkit.getOfflinePlayer(entry.uuid), entry.stored, entry.worlds, actor, AuditRecord.Source.IMPORT);
+                progress.processed.incrementAndGet();
+            } catch (final RuntimeException e) {
+                progress.failed.incrementAndGet();
+                error.compareAndSet(null, e);
+            }
+        }
+    }
+
+    @NotNull
+    private static String toJson(@NotNull UUID uuid, @Nullable Boolean stored, @NotNull WorldOverrides worlds, @NotNull WorldIdTable worldIds) {
+        final JsonObject object = new JsonObject();
+        object.addProperty("uuid", uuid.toString());
+        if (stored != null) object.addProperty("stored", stored);
+        if (!worlds.isEmpty()) {
+            final JsonObject worldsObject = new JsonObject();
+            worlds.forEach((worldId, enabled) -> {
+                final String name = worldIds.getName(worldId);
+                if (name != null) worldsObject.addProperty(name, enabled);
+            });
+            object.add("worlds", worldsObject);
+        }
+        return object.toString();
+    }
+
+    @NotNull
+    private static Entry fromJson(@NotNull String line, @NotNull WorldIdTable worldIds) {
+        final JsonObject object = JsonParser.parseString(line).getAsJsonObject();
+        final UUID uuid = UUID.fromString(object.get("uuid").getAsString());
+        final JsonElement storedElement = object.get("stored");
+        final Boolean stored = storedElement == null || storedElement.isJsonNull() ? null : storedElement.getAsBoolean();
+        WorldOverrides worlds = WorldOverrides.EMPTY;
+        final JsonElement worldsElement = object.get("worlds");
+        if (worldsElement != null && worldsElement.isJsonObject()) {
+            for (final Map.Entry<String, JsonElement> world : worldsElement.getAsJsonObject().entrySet()) {
+                worlds = worlds.with(worldIds.getId(world.getKey()), world.getValue().getAsBoolean());
+            }
+        }
+        return new Entry(uuid, stored, worlds);
+    }
+
+    private static void writeBinary(@NotNull DataOutputStream output, @NotNull UUID uuid, @Nullable Boolean stored, @NotNull WorldOverrides worlds, @NotNull WorldIdTable worldIds) throws IOException {
+        output.writeLong(uuid.getMostSignificantBits());
+        output.writeLong(uuid.getLeastSignificantBits());
+        output.writeByte(stored == null ? 0 : stored ? 1 : 2);
+        final List<String> names = new ArrayList<>();
+        final List<Boolean> states = new ArrayList<>();
+        worlds.forEach((worldId, enabled) -> {
+            final String name = worldIds.getName(worldId);
+            if (name == null) return;
+            names.add(name);
+            states.add(enabled);
+        });
+        output.writeShort(names.size());
+        for (int i = 0; i < names.size(); i++) {
+            output.writeUTF(names.get(i));
+            output.writeByte(states.get(i) ? 1 : 2);
+        }
+    }
+
+    /**
+     * @throws EOFException if the file ended cleanly before this entry
+     */
+    @NotNull
+    private static Entry readBinary(@NotNull DataInputStream input, @NotNull WorldIdTable worldIds) throws IOException {
+        final long msb = input.readLong();
+        final long lsb;
+        try {
+            lsb = input.readLong();
+        } catch (final EOFException e) {
+            throw new IOException("Truncated export file", e);
+        }
+        final byte stored = input.readByte();
+        final int count = input.readUnsignedShort();
+        WorldOverrides worlds = WorldOverrides.EMPTY;
+        for (int i = 0; i < count; i++) {
+            final String name = input.readUTF();
+            worlds = worlds.with(worldIds.getId(name), input.readByte() == 1);
+        }
+        return new Entry(new UUID(msb, lsb), stored == 0 ? null : stored == 1, worlds);
+    }
+
+    @NotNull
+    private static Thread start(@NotNull String name, @NotNull Runnable task) {
+        final Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    private static void putUninterruptibly(@NotNull BlockingQueue<Entry> queue, @NotNull Entry entry) {
+        while (true) {
+            try {
+                queue.put(entry);
+                return;
+            } catch (final InterruptedException ignored) {
+                // Workers must still stop
+            }
+        }
+    }
+
+    private static void joinUninterruptibly(@NotNull Thread thread) {
+        while (thread.isAlive()) {
+            try {
+                thread.join();
+            } catch (final InterruptedException ignored) {
+                // Wait for the worker anyway
+            }
+        }
+    }
+
+    private enum Format {
+        NDJSON,
+        BINARY;
+
+        @NotNull
+        private static Format of(@NotNull String fileName) {
+            return fileName.toLowerCase(Locale.ROOT).endsWith(".bin") ? BINARY : NDJSON;
+        }
+    }
+
+    public interface Listener {
+        /**
+         * Called every few seconds while the transfer runs
+         */
+        void progress(@NotNull Progress progress);
+
+        /**
+         * Called once the transfer ended
+         *
+         * @param error why it failed, {@code null} if it completed
+         */
+        void done(@NotNull Progress progress, @Nullable Exception error);
+    }
+
+    /**
+     * Counters of a running transfer, or a snapshot of them
+     */
+    public static class Progress {
+        @NotNull private final AtomicLong processed = new AtomicLong();
+        @NotNull private final AtomicLong failed = new AtomicLong();
+        @NotNull private final AtomicLong nextReport = new AtomicLong();
+        /**
+         * Whether the export could only visit the players this server knows, see {@link StatusStore#isListable()}
+         */
+        private volatile boolean partial;
+        private final long started;
+        /**
+         * {@code -1} while running
+         */
+        private final long ended;
+
+        private Progress() {
+            this.started = System.nanoTime();
+            this.ended = -1;
+            this.nextReport.set(started + PROGRESS_INTERVAL);
+        }
+
+        private Progress(@NotNull Progress running) {
+            this.processed.set(running.processed.get());
+            this.failed.set(running.failed.get());
+            this.partial = running.partial;
+            this.started = running.started;
+            this.ended = System.nanoTime();
+        }
+
+        public long getProcessed() {
+            return processed.get();
+        }
+
+        public long getFailed() {
+            return failed.get();
+        }
+
+        /**
+         * Whether the export skipped the stored players this server doesn't know, see {@link StatusStore#isListable()}
+         */
+        public boolean isPartial() {
+            return partial;
+        }
+
+        public long getElapsedMillis() {
+            return TimeUnit.NANOSECONDS.toMillis((ended == -1 ? System.nanoTime() : ended) - started);
+        }
+
+        /**
+         * @return players per second
+         */
+        public long getRate() {
+            final long elapsed = getElapsedMillis();
+            return elapsed == 0 ? 0 : getProcessed() * 1000 / elapsed;
+        }
+
+        @NotNull
+        private Progress snapshot() {
+            return new Progress(this);
+        }
+
+        private void report(@NotNull Listener listener) {
+            final long now = System.nanoTime();
+            final long next = nextReport.get();
+            if (now - next >= 0 && nextReport.compareAndSet(next, now + PROGRESS_INTERVAL)) listener.progress(snapshot());
+        }
+    }
+
+    /**
+     * Sleeps just enough to stay under a rate
+     */
+    private static class Pacer {
+        private final long interval;
+        private long next = System.nanoTime();
+
+        private Pacer(int rate) {
+            this.interval = rate <= 0 ? 0 : TimeUnit.SECONDS.toNanos(1) / rate;
+        }
+
+        private void await() throws InterruptedException {
+            if (interval == 0) return;
+            final long wait = next - System.nanoTime();
+            if (wait > 0) TimeUnit.NANOSECONDS.sleep(wait);
+            next = Math.max(next, System.nanoTime() - TimeUnit.SECONDS.toNanos(1)) + interval; // Allows catching up at most a second
+        }
+    }
+
+    private static class Entry {
+        @NotNull private final UUID uuid;
+        @Nullable private final Boolean stored;
+        @NotNull private final WorldOverrides worlds;
+
+        private Entry(@NotNull UUID uuid, @Nullable Boolean stored, @NotNull WorldOverrides worlds) {
+            this.uuid = uuid;
+            this.stored = stored;
+            this.worlds = worlds;
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package xyz.srnyx.uniphantoms.utility;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import xyz.srnyx.uniphantoms.ConfigYml;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+
+/**
+ * Sampled, structured trace of protection decisions (targeting, attacks, statistic sweeps, toggles)
+ * <br>Callers check {@link #isEnabled()} (a single volatile read) before building anything, so tracing costs nothing while it's off.
+ * Events go to a fixed-size ring that keeps the latest ones, dumped with {@code /nophantoms trace}.
+ */
+public class DecisionTracer {
+    private volatile boolean enabled;
+    private volatile double sampleRate = 1;
+    @NotNull private volatile Set<String> players = Collections.emptySet();
+    @NotNull private volatile Set<String> worlds = Collections.emptySet();
+    @NotNull private volatile Ring ring = new Ring(1);
+
+    /**
+     * Apply new settings, clearing the recorded events
+     *
+     * @param settings the settings
+     */
+    public synchronized void configure(@NotNull ConfigYml.Trace settings) {
+        sampleRate = settings.sampleRate;
+        players = settings.players;
+        worlds = settings.worlds;
+        ring = new Ring(settings.bufferSize);
+        enabled = settings.enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Turn tracing on or off until the next change of the {@code trace} config section
+     *
+     * @param enabled whether to record events
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Check the filters and roll the sampling rate for an event that's about to be recorded
+     *
+     * @param uuid the player
+     * @param name the player's name, if known
+     * @param world the world's name, or {@code null} if the decision isn't about a single world
+     * @return whether the event should be recorded
+     */
+    public boolean accepts(@NotNull UUID uuid, @Nullable String name, @Nullable String world) {
+        if (!enabled) return false;
+        final Set<String> playerFilter = players;
+        if (!playerFilter.isEmpty() && !playerFilter.contains(uuid.toString()) && (name == null || !playerFilter.contains(name.toLowerCase(Locale.ROOT)))) return false;
+        final Set<String> worldFilter = worlds;
+        if (!worldFilter.isEmpty() && (world == null || !worldFilter.contains(world))) return false;
+        final double rate = sampleRate;
+        return rate >= 1 || ThreadLocalRandom.current().nextDouble() < rate;
+    }
+
+    /**
+     * Record an event, overwriting the oldest one if the ring is full
+     *
+     * @param event the event, should have passed {@link #accepts(UUID, String, String)}
+     */
+    public void record(@NotNull Event event) {
+        ring.add(event);
+    }
+
+    /**
+     * Get the latest events
+     *
+     * @param count the maximum number of events
+     * @return the events, newest first
+     */
+    @NotNull
+    public List<Event> getLatest(int count) {
+        return ring.latest(count);
+    }
+
+    /**
+     * Get how many events were recorded since the last clear, including overwritten ones
+     */
+    public long getRecorded() {
+        return ring.next.get();
+    }
+
+    public int getCapacity() {
+        return ring.slots.length();
+    }
+
+    public synchronized void clear() {
+        ring = new Ring(ring.slots.length());
+    }
+
+    public enum Type {
+        /**
+         * A phantom chose a player as its target
+         */
+        TARGET,
+        /**
+         * A player attacked a phantom
+         */
+        ATTACK_PHANTOM,
+        /**
+         * A phantom attacked a player
+         */
+        PHANTOM_ATTACK,
+        /**
+         * The statistic task visited a player
+         */
+        SWEEP,
+        /**
+         * A command changed a player's status
+         */
+        TOGGLE
+    }
+
+    public enum Outcome {
+        ALLOWED,
+        CANCELLED,
+        RETARGETED,
+        /**
+         * Cancelled, and the phantom started cooling off
+         */
+        COOLED_OFF,
+        /**
+         * Cancelled because the phantom is still cooling off
+         */
+        COOLING_OFF,
+        /**
+         * {@code TIME_SINCE_REST} reset
+         */
+        RESET,
+        /**
+         * Nothing done, e.g. because the player is in another world
+         */
+        SKIPPED,
+        ENABLED,
+        DISABLED
+    }
+
+    /**
+     * A recorded decision and its inputs
+     */
+    public static class Event {
+        /**
+         * Milliseconds since epoch
+         */
+        public final long timestamp;
+        @NotNull public final Type type;
+        @NotNull public final UUID player;
+        @Nullable public final String playerName;
+        /**
+         * {@code null} if the decision isn't about a single world
+         */
+        @Nullable public final String world;
+        /**
+         * Whether the plugin is active in {@link #world}, {@code null} if there's no world
+         */
+        @Nullable public final Boolean whitelisted;
+        /**
+         * The player's status in {@link #world} (or globally) in the online cache when the decision was made, {@code null} if they weren't cached
+         */
+        @Nullable public final Boolean cached;
+        @NotNull public final Outcome outcome;
+
+        public Event(long timestamp, @NotNull Type type, @NotNull UUID player, @Nullable String playerName, @Nullable String world, @Nullable Boolean whitelisted, @Nullable Boolean cached, @NotNull Outcome outcome) {
+            this.timestamp = timestamp;
+            this.type = type;
+            this.player = player;
+            this.playerName = playerName;
+            this.world = world;
+            this.whitelisted = whitelisted;
+            this.cached = cached;
+            this.outcome = outcome;
+        }
+    }
+
+    /**
+     * Lock-free ring, writers claim a slot with a counter and the newest event wins it
+     */
+    private static class Ring {
+        @NotNull private final AtomicReferenceArray<Event> slots;
+        @NotNull private final AtomicLong next = new AtomicLong();
+
+        private Ring(int size) {
+            slots = new AtomicReferenceArray<>(size);
+        }
+
+        private void add(@NotNull Event event) {
+            slots.set((int) (next.getAndIncrement() % slots.length()), event);
+        }
+
+        @NotNull
+        private List<Event> latest(int count) {
+            final long end = next.get();
+            final int size = (int) Math.min(Math.min(count, slots.length()), end);
+            final List<Event> events = new ArrayList<>(Math.max(0, size));
+            for (long i = end - 1; i >= end - size; i--) {
+                final Event event = slots.get((int) (i % slots.length()));
+                if (event != null) events.add(event);
+            }
+            return events;
+        }
+    }
+}
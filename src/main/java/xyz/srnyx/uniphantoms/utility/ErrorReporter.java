@@ -32,10 +32,15 @@ public class ErrorReporter {
         this.logger = logger;
         this.errorDir = new File(dataFolder, "errors");
         this.saveToFile = saveToFile;
+    }
 
-        if (saveToFile && !errorDir.exists()) {
-            errorDir.mkdirs();
-        }
+    /**
+     * Whether errors are saved to files
+     *
+     * @return true if errors are saved to files
+     */
+    public boolean isSaveToFile() {
+        return saveToFile;
     }
 
     /**
@@ -102,8 +107,14 @@ public class ErrorReporter {
 
     /**
      * Save error details to a file
+     * <br>The errors directory is only created when the first error is saved
      */
     private void saveErrorToFile(@NotNull String context, @NotNull Throwable throwable, @Nullable String additionalInfo, @NotNull String stackTrace) {
+        if (!errorDir.exists() && !errorDir.mkdirs()) {
+            logger.severe("Failed to create error directory: " + errorDir.getPath());
+            return;
+        }
+
         final LocalDateTime now = LocalDateTime.now();
         final String filename = "error_" + now.format(FILE_FORMATTER) + "_" + errorCounter.getAndIncrement() + ".txt";
         final File errorFile = new File(errorDir, filename);
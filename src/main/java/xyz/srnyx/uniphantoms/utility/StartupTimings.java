@@ -0,0 +1,89 @@
+package xyz.srnyx.uniphantoms.utility;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * Measures the phases of the plugin's startup
+ * <br>Phases are sequential: {@link #begin(String)} ends the current phase before starting the next one
+ */
+public class StartupTimings {
+    @NotNull private final List<Phase> phases = new ArrayList<>();
+    private final long start = System.nanoTime();
+    @Nullable private String current;
+    private long currentStart;
+    private long end;
+
+    /**
+     * End the current phase (if any) and start a new one
+     *
+     * @param name the name of the new phase
+     */
+    public void begin(@NotNull String name) {
+        final long now = System.nanoTime();
+        if (current != null) phases.add(new Phase(current, now - currentStart));
+        current = name;
+        currentStart = now;
+    }
+
+    /**
+     * End the current phase and the startup
+     */
+    public void finish() {
+        final long now = System.nanoTime();
+        if (current != null) phases.add(new Phase(current, now - currentStart));
+        current = null;
+        end = now;
+    }
+
+    /**
+     * Get the measured phases, in order
+     *
+     * @return the phases
+     */
+    @NotNull
+    public List<Phase> getPhases() {
+        return Collections.unmodifiableList(phases);
+    }
+
+    /**
+     * Get the total time, from creation to {@link #finish()}
+     *
+     * @return the nanoseconds
+     */
+    public long getTotal() {
+        return end - start;
+    }
+
+    /**
+     * Format the phases on one line
+     *
+     * @return formatted string (e.g., "12.345ms (config: 1.000ms, storage: 10.000ms, ...)")
+     */
+    @NotNull
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder(TickProfiler.formatMillis(getTotal())).append(" (");
+        for (int i = 0; i < phases.size(); i++) {
+            final Phase phase = phases.get(i);
+            if (i > 0) builder.append(", ");
+            builder.append(phase.name).append(": ").append(TickProfiler.formatMillis(phase.nanos));
+        }
+        return builder.append(')').toString();
+    }
+
+    public static class Phase {
+        @NotNull public final String name;
+        public final long nanos;
+
+        public Phase(@NotNull String name, long nanos) {
+            this.name = name;
+            this.nanos = nanos;
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package xyz.srnyx.uniphantoms.utility;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+
+/**
+ * Time series of how many online players had phantoms enabled/disabled, sampled once per minute
+ * <br>Samples roll up into hours and days, kept in fixed-size rings with running sums, so every {@link Window} average is O(1) to read
+ */
+public class StatusTrend {
+    private static final int MAGIC = 0x55505452; // "UPTR"
+    private static final int VERSION = 1;
+    private static final int MINUTES_PER_HOUR = 60;
+    private static final int HOURS_PER_DAY = 24;
+    private static final int DAYS = 30;
+
+    @NotNull private final Ring minutes = new Ring(MINUTES_PER_HOUR);
+    @NotNull private final Ring hours = new Ring(HOURS_PER_DAY);
+    @NotNull private final Ring days = new Ring(DAYS);
+    // Partial hour/day, rolled up once complete
+    @NotNull private final Bucket hour = new Bucket();
+    @NotNull private final Bucket day = new Bucket();
+
+    /**
+     * Record a sample, expected once per minute
+     *
+     * @param enabled online players with phantoms enabled
+     * @param disabled online players with phantoms disabled
+     */
+    public synchronized void sample(int enabled, int disabled) {
+        minutes.add(enabled, disabled);
+        hour.add(enabled, disabled);
+        if (hour.count < MINUTES_PER_HOUR) return;
+
+        // Hour complete
+        hours.add(hour.enabled, hour.disabled);
+        day.add(hour.enabled, hour.disabled);
+        hour.reset();
+        if (day.count < HOURS_PER_DAY) return;
+
+        // Day complete
+        days.add(day.enabled, day.disabled);
+        day.reset();
+    }
+
+    /**
+     * Get the average percentage of online players with phantoms disabled over a window
+     *
+     * @param window the window
+     * @return the percentage (0-100), or {@code -1} if there were no players during the window
+     */
+    public synchronized int getDisabledPercentage(@NotNull Window window) {
+        long enabled;
+        long disabled;
+        switch (window) {
+            case HOUR:
+                enabled = minutes.sumEnabled;
+                disabled = minutes.sumDisabled;
+                break;
+            case DAY:
+                enabled = hours.sumEnabled + hour.enabled;
+                disabled = hours.sumDisabled + hour.disabled;
+                break;
+            default:
+                enabled = days.sumEnabled + day.enabled + hour.enabled;
+                disabled = days.sumDisabled + day.disabled + hour.disabled;
+                break;
+        }
+        final long total = enabled + disabled;
+        return total == 0 ? -1 : (int) (disabled * 100 / total);
+    }
+
+    /**
+     * Get the average percentage of online players with phantoms enabled over a window
+     *
+     * @param window the window
+     * @return the percentage (0-100), or {@code -1} if there were no players during the window
+     */
+    public int getEnabledPercentage(@NotNull Window window) {
+        final int disabled = getDisabledPercentage(window);
+        return disabled == -1 ? -1 : 100 - disabled;
+    }
+
+    /**
+     * Get how many samples were recorded in the last hour
+     */
+    public synchronized int getMinuteSamples() {
+        return minutes.filled;
+    }
+
+    /**
+     * Save the rings, replacing the file atomically
+     *
+     * @param file the file
+     *
+     * @throws IOException if the file could not be written
+     */
+    public void save(@NotNull File file) throws IOException {
+        final File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try (final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp.toPath())))) {
+            synchronized (this) {
+                output.writeInt(MAGIC);
+                output.writeInt(VERSION);
+                minutes.write(output);
+                hours.write(output);
+                days.write(output);
+                hour.write(output);
+                day.write(output);
+            }
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Load rings saved by {@link #save(File)}
+     *
+     * @param file the file
+     * @return the trend, empty if the file doesn't exist
+     *
+     * @throws IOException if the file could not be read or is invalid
+     */
+    @NotNull
+    public static StatusTrend load(@NotNull File file) throws IOException {
+        final StatusTrend trend = new StatusTrend();
+        if (!file.exists()) return trend;
+        try (final DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION) throw new IOException("Not a trend file (or an unsupported version): " + file);
+            trend.minutes.read(input);
+            trend.hours.read(input);
+            trend.days.read(input);
+            trend.hour.read(input, MINUTES_PER_HOUR);
+            trend.day.read(input, HOURS_PER_DAY);
+        }
+        return trend;
+    }
+
+    public enum Window {
+        HOUR("1h"),
+        DAY("1d"),
+        MONTH("30d");
+
+        @NotNull public static final Window[] VALUES = values();
+
+        /**
+         * Used in placeholders and messages
+         */
+        @NotNull public final String key;
+
+        Window(@NotNull String key) {
+            this.key = key;
+        }
+    }
+
+    /**
+     * Sums of a partial period
+     */
+    private static class Bucket {
+        private long enabled;
+        private long disabled;
+        private int count;
+
+        private void add(long enabledValue, long disabledValue) {
+            enabled += enabledValue;
+            disabled += disabledValue;
+            count++;
+        }
+
+        private void reset() {
+            enabled = 0;
+            disabled = 0;
+            count = 0;
+        }
+
+        private void write(@NotNull DataOutputStream output) throws IOException {
+            output.writeLong(enabled);
+            output.writeLong(disabled);
+            output.writeInt(count);
+        }
+
+        /**
+         * @param period the count at which the bucket is rolled up, so a saved one is always below it
+         */
+        private void read(@NotNull DataInputStream input, int period) throws IOException {
+            enabled = input.readLong();
+            disabled = input.readLong();
+            count = input.readInt();
+            if (count < 0 || count >= period) throw new IOException("Invalid partial period count: " + count);
+        }
+    }
+
+    /**
+     * Fixed-size ring of periods, with the sums of the periods it holds
+     */
+    private static class Ring {
+        @NotNull private final long[] enabled;
+        @NotNull private final long[] disabled;
+        private int next;
+        private int filled;
+        private long sumEnabled;
+        private long sumDisabled;
+
+        private Ring(int size) {
+            enabled = new long[size];
+            disabled = new long[size];
+        }
+
+        private void add(long enabledValue, long disabledValue) {
+            sumEnabled += enabledValue - enabled[next];
+            sumDisabled += disabledValue - disabled[next];
+            enabled[next] = enabledValue;
+            disabled[next] = disabledValue;
+            next = (next + 1) % enabled.length;
+            if (filled < enabled.length) filled++;
+        }
+
+        private void write(@NotNull DataOutputStream output) throws IOException {
+            output.writeInt(enabled.length);
+            output.writeInt(next);
+            output.writeInt(filled);
+            for (int i = 0; i < enabled.length; i++) {
+                output.writeLong(enabled[i]);
+                output.writeLong(disabled[i]);
+            }
+        }
+
+        private void read(@NotNull DataInputStream input) throws IOException {
+            if (input.readInt() != enabled.length) throw new IOException("Ring size changed");
+            next = input.readInt();
+            filled = input.readInt();
+            // Until the ring is full, the next slot is always right after the filled ones
+            if (next < 0 || next >= enabled.length || filled < 0 || filled > enabled.length || (filled < enabled.length && next != filled)) {
+                throw new IOException("Invalid ring indices: next " + next + ", filled " + filled + " (size " + enabled.length + ")");
+            }
+            sumEnabled = 0;
+            sumDisabled = 0;
+            for (int i = 0; i < enabled.length; i++) {
+                enabled[i] = input.readLong();
+                disabled[i] = input.readLong();
+                sumEnabled += enabled[i];
+                sumDisabled += disabled[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package xyz.srnyx.uniphantoms.utility;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * Per-tick time accounting for the plugin's subsystems
+ * <br>Handlers call {@link #start()} and {@link #stop(Subsystem, long)} around their work, and a 1-tick timer calls {@link #tick(ErrorReporter)} to close the current tick
+ * <br>With degradation on, a subsystem that goes over its budget is marked {@link #isDegraded(Subsystem) degraded} so it can switch to a cheaper mode,
+ * until it stayed within budget while the server ticked normally for the recovery period
+ */
+public class TickProfiler {
+    /**
+     * How many ticks to wait between two budget warnings for the same subsystem
+     */
+    private static final long WARNING_INTERVAL = 600; // 30 seconds
+
+    @NotNull private final LongAdder[] current = new LongAdder[Subsystem.VALUES.length];
+    @NotNull private final long[] budgets = new long[Subsystem.VALUES.length];
+    @NotNull private final long[] last = new long[Subsystem.VALUES.length];
+    @NotNull private final long[] peak = new long[Subsystem.VALUES.length];
+    @NotNull private final long[] total = new long[Subsystem.VALUES.length];
+    @NotNull private final long[] overBudget = new long[Subsystem.VALUES.length];
+    @NotNull private final long[] lastWarning = new long[Subsystem.VALUES.length];
+    /**
+     * The tick each degraded subsystem last went over budget
+     */
+    @NotNull private final long[] lastOverBudget = new long[Subsystem.VALUES.length];
+    private volatile boolean enabled;
+    private boolean degrade;
+    private long recoveryTicks;
+    private long recoveryTickTime;
+    /**
+     * Bitmask of the degraded subsystems, by ordinal
+     */
+    private volatile int degraded;
+    /**
+     * Smoothed time between two {@link #tick(ErrorReporter)} calls (the server's tick time), in nanoseconds
+     */
+    private long tickTime;
+    private long lastTick;
+    private long ticks;
+
+    public TickProfiler() {
+        for (int i = 0; i < current.length; i++) current[i] = new LongAdder();
+    }
+
+    /**
+     * Apply new settings, clearing all collected statistics and degradations
+     *
+     * @param enabled whether timings should be collected
+     * @param budgets the budget (in nanoseconds per tick) for each subsystem, indexed by {@link Subsystem#ordinal()}, {@code 0} = no budget
+     * @param degrade whether subsystems going over their budget should be degraded
+     * @param recoveryTicks how many ticks a degraded subsystem must stay within its budget to recover
+     * @param recoveryTickTime the maximum server tick time (in nanoseconds) for degraded subsystems to recover
+     */
+    public synchronized void configure(boolean enabled, @NotNull long[] budgets, boolean degrade, long recoveryTicks, long recoveryTickTime) {
+        System.arraycopy(budgets, 0, this.budgets, 0, this.budgets.length);
+        for (int i = 0; i < current.length; i++) {
+            current[i].reset();
+            last[i] = 0;
+            peak[i] = 0;
+            total[i] = 0;
+            overBudget[i] = 0;
+            lastWarning[i] = -WARNING_INTERVAL;
+            lastOverBudget[i] = 0;
+        }
+        ticks = 0;
+        tickTime = 0;
+        lastTick = 0;
+        this.degrade = degrade;
+        this.recoveryTicks = recoveryTicks;
+        this.recoveryTickTime = recoveryTickTime;
+        degraded = 0;
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Whether a subsystem went over its budget recently and should use its cheaper mode
+     *
+     * @param subsystem the subsystem
+     * @return {@code true} if degraded (never if timings or degradation are disabled)
+     */
+    public boolean isDegraded(@NotNull Subsystem subsystem) {
+        return (degraded & (1 << subsystem.ordinal())) != 0;
+    }
+
+    /**
+     * Get the smoothed server tick time, measured between two {@link #tick(ErrorReporter)} calls
+     *
+     * @return the tick time in nanoseconds, {@code 0} if not measured yet
+     */
+    public synchronized long getTickTime() {
+        return tickTime;
+    }
+
+    /**
+     * Start measuring a section
+     *
+     * @return the value to pass to {@link #stop(Subsystem, long)}, {@code 0} if timings are disabled
+     */
+    public long start() {
+        return enabled ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * Stop measuring a section started with {@link #start()}
+     *
+     * @param subsystem the subsystem the section belongs to
+     * @param start the value returned by {@link #start()}
+     */
+    public void stop(@NotNull Subsystem subsystem, long start) {
+        if (start != 0L) current[subsystem.ordinal()].add(System.nanoTime() - start);
+    }
+
+    /**
+     * Close the current tick, checking every subsystem against its budget and degrading/recovering subsystems
+     *
+     * @param reporter where to send budget warnings and degradation changes, or {@code null} to only count them
+     */
+    public synchronized void tick(@Nullable ErrorReporter reporter) {
+        if (!enabled) return;
+        ticks++;
+        final long now = System.nanoTime();
+        if (lastTick != 0) {
+            final long elapsed = now - lastTick;
+            tickTime = tickTime == 0 ? elapsed : tickTime + (elapsed - tickTime) / 20;
+        }
+        lastTick = now;
+
+        for (final Subsystem subsystem : Subsystem.VALUES) {
+            final int i = subsystem.ordinal();
+            final long nanos = current[i].sumThenReset();
+            last[i] = nanos;
+            total[i] += nanos;
+            if (nanos > peak[i]) peak[i] = nanos;
+
+            final long budget = budgets[i];
+            if (budget <= 0) continue;
+            final int bit = 1 << i;
+            if (nanos <= budget) {
+                // Recover once within budget for long enough, and the server isn't lagging anymore
+                if ((degraded & bit) != 0 && ticks - lastOverBudget[i] >= recoveryTicks && tickTime <= recoveryTickTime) {
+                    degraded &= ~bit;
+                    if (reporter != null) reporter.info("Timings", subsystem.key + " recovered, back to normal mode (server tick time: " + formatMillis(tickTime) + ")");
+                }
+                continue;
+            }
+
+            overBudget[i]++;
+            lastOverBudget[i] = ticks;
+            if (degrade && (degraded & bit) == 0) {
+                degraded |= bit;
+                if (reporter != null) reporter.warn("Timings", subsystem.key + " used " + formatMillis(nanos) + " in one tick (budget: " + formatMillis(budget) + "), switching to degraded mode");
+                continue;
+            }
+            if (reporter != null && ticks - lastWarning[i] >= WARNING_INTERVAL) {
+                lastWarning[i] = ticks;
+                reporter.warn("Timings", subsystem.key + " used " + formatMillis(nanos) + " in one tick (budget: " + formatMillis(budget) + ", exceeded " + overBudget[i] + " times)");
+            }
+        }
+    }
+
+    /**
+     * Get a snapshot of the statistics of a subsystem
+     *
+     * @param subsystem the subsystem
+     * @return the statistics since the last {@link #configure(boolean, long[], boolean, long, long)}
+     */
+    @NotNull
+    public synchronized Stats getStats(@NotNull Subsystem subsystem) {
+        final int i = subsystem.ordinal();
+        return new Stats(subsystem, last[i], peak[i], ticks == 0 ? 0 : total[i] / ticks, budgets[i], overBudget[i], isDegraded(subsystem));
+    }
+
+    /**
+     * Format nanoseconds as milliseconds with 3 decimals
+     *
+     * @param nanos the nanoseconds
+     * @return formatted string (e.g., "1.250ms")
+     */
+    @NotNull
+    public static String formatMillis(long nanos) {
+        return String.format(Locale.ROOT, "%.3fms", nanos / 1_000_000.0);
+    }
+
+    /**
+     * The parts of the plugin that are measured
+     */
+    public enum Subsystem {
+        /**
+         * {@code MobListener} event handlers
+         */
+        LISTENER("listener"),
+        /**
+         * Statistic sweeps ({@code resetAllStatistics})
+         */
+        SWEEP("sweep"),
+        /**
+         * PlaceholderAPI requests
+         */
+        PLACEHOLDERS("placeholders"),
+        /**
+         * {@code /nophantoms} executions
+         */
+        COMMAND("command"),
+        /**
+         * Plugin reloads
+         */
+        RELOAD("reload");
+
+        @NotNull public static final Subsystem[] VALUES = values();
+
+        /**
+         * The key used in {@code config.yml} and in messages
+         */
+        @NotNull public final String key;
+
+        Subsystem(@NotNull String key) {
+            this.key = key;
+        }
+    }
+
+    public static class Stats {
+        @NotNull public final Subsystem subsystem;
+        public final long last;
+        public final long peak;
+        public final long average;
+        public final long budget;
+        public final long overBudget;
+        public final boolean degraded;
+
+        public Stats(@NotNull Subsystem subsystem, long last, long peak, long average, long budget, long overBudget, boolean degraded) {
+            this.subsystem = subsystem;
+            this.last = last;
+            this.peak = peak;
+            this.average = average;
+            this.budget = budget;
+            this.overBudget = overBudget;
+            this.degraded = degraded;
+        }
+    }
+}
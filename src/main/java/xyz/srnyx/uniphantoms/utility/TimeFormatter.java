@@ -2,6 +2,7 @@ package xyz.srnyx.uniphantoms.utility;
 
 import org.jetbrains.annotations.NotNull;
 
+import java.io.IOException;
 import java.util.concurrent.TimeUnit;
 
 
@@ -9,6 +10,16 @@ import java.util.concurrent.TimeUnit;
  * Advanced time formatting utility
  */
 public class TimeFormatter {
+    private static final long SECOND = 1000;
+    private static final long MINUTE = 60 * SECOND;
+    private static final long HOUR = 60 * MINUTE;
+    private static final long DAY = 24 * HOUR;
+
+    /**
+     * Entries per {@link TimeFormat} in the formatted string cache (must be a power of 2)
+     */
+    private static final int CACHE_SIZE = 64;
+    @NotNull private static final CachedFormat[][] CACHE = new CachedFormat[TimeFormat.values().length][CACHE_SIZE];
 
     /**
      * Format milliseconds to human-readable string
@@ -23,6 +34,7 @@ public class TimeFormatter {
 
     /**
      * Format milliseconds with specified format
+     * <br>Results are cached per second, so repeatedly formatting a ticking cooldown doesn't build a new string every time
      *
      * @param milliseconds time in milliseconds
      * @param format the format style
@@ -32,41 +44,89 @@ public class TimeFormatter {
     public static String format(long milliseconds, @NotNull TimeFormat format) {
         if (milliseconds < 0) return "0s";
 
-        final long days = TimeUnit.MILLISECONDS.toDays(milliseconds);
-        milliseconds -= TimeUnit.DAYS.toMillis(days);
-
-        final long hours = TimeUnit.MILLISECONDS.toHours(milliseconds);
-        milliseconds -= TimeUnit.HOURS.toMillis(hours);
-
-        final long minutes = TimeUnit.MILLISECONDS.toMinutes(milliseconds);
-        milliseconds -= TimeUnit.MINUTES.toMillis(minutes);
-
-        final long seconds = TimeUnit.MILLISECONDS.toSeconds(milliseconds);
+        final long seconds = milliseconds / 1000;
+        final CachedFormat[] cache = CACHE[format.ordinal()];
+        final int index = (int) (seconds & (CACHE_SIZE - 1));
+        final CachedFormat cached = cache[index];
+        if (cached != null && cached.seconds == seconds) return cached.value;
+
+        final StringBuilder result = new StringBuilder(16);
+        format(milliseconds, format, result);
+        final String value = result.toString();
+        cache[index] = new CachedFormat(seconds, value);
+        return value;
+    }
 
-        final StringBuilder result = new StringBuilder();
-        final String separator = format == TimeFormat.COMPACT ? "" : " ";
+    /**
+     * Format milliseconds into an existing buffer
+     *
+     * @param milliseconds time in milliseconds
+     * @param format the format style
+     * @param out where to append the formatted time
+     */
+    public static void format(long milliseconds, @NotNull TimeFormat format, @NotNull StringBuilder out) {
+        try {
+            format(milliseconds, format, (Appendable) out);
+        } catch (final IOException e) {
+            throw new IllegalStateException(e); // StringBuilder doesn't throw
+        }
+    }
 
-        if (days > 0) appendUnit(result, days, "day", format, separator);
-        if (hours > 0) appendUnit(result, hours, "hour", format, separator);
-        if (minutes > 0) appendUnit(result, minutes, "minute", format, separator);
-        if (seconds > 0 || result.length() == 0) appendUnit(result, seconds, "second", format, separator);
+    /**
+     * Format milliseconds into any {@link Appendable} (writer, buffer...)
+     *
+     * @param milliseconds time in milliseconds
+     * @param format the format style
+     * @param out where to append the formatted time
+     *
+     * @throws IOException if {@code out} throws
+     */
+    public static void format(long milliseconds, @NotNull TimeFormat format, @NotNull Appendable out) throws IOException {
+        if (milliseconds < 0) {
+            out.append("0s");
+            return;
+        }
 
-        return result.toString().trim();
+        final long days = milliseconds / DAY;
+        milliseconds %= DAY;
+        final long hours = milliseconds / HOUR;
+        milliseconds %= HOUR;
+        final long minutes = milliseconds / MINUTE;
+        milliseconds %= MINUTE;
+        final long seconds = milliseconds / SECOND;
+
+        boolean first = true;
+        if (days > 0) first = appendUnit(out, days, "day", format, first);
+        if (hours > 0) first = appendUnit(out, hours, "hour", format, first);
+        if (minutes > 0) first = appendUnit(out, minutes, "minute", format, first);
+        if (seconds > 0 || first) appendUnit(out, seconds, "second", format, first);
     }
 
-    private static void appendUnit(@NotNull StringBuilder sb, long value, @NotNull String unit, @NotNull TimeFormat format, @NotNull String separator) {
-        if (sb.length() > 0) sb.append(separator);
-        sb.append(value);
+    /**
+     * @return {@code false}, the new value of {@code first}
+     */
+    private static boolean appendUnit(@NotNull Appendable out, long value, @NotNull String unit, @NotNull TimeFormat format, boolean first) throws IOException {
+        if (!first && format != TimeFormat.COMPACT) out.append(' ');
+        appendDigits(out, value);
         switch (format) {
             case LONG:
-                sb.append(" ").append(unit);
-                if (value != 1) sb.append("s");
+                out.append(' ').append(unit);
+                if (value != 1) out.append('s');
                 break;
             case SHORT:
             case COMPACT:
-                sb.append(unit.charAt(0));
+                out.append(unit.charAt(0));
                 break;
         }
+        return false;
+    }
+
+    /**
+     * Append a non-negative number without creating a string for it
+     */
+    private static void appendDigits(@NotNull Appendable out, long value) throws IOException {
+        if (value >= 10) appendDigits(out, value / 10);
+        out.append((char) ('0' + value % 10));
     }
 
     /**
@@ -105,44 +165,60 @@ public class TimeFormatter {
      * Supports formats: "1d2h3m4s", "1h30m", "45s", "30" (bare number = seconds), etc.
      *
      * @param timeString the time string to parse
-     * @return milliseconds, or 0 if invalid
+     * @return milliseconds (at most {@link Long#MAX_VALUE}, larger durations are capped), or 0 if invalid
+     *
+     * @throws NumberFormatException if a number doesn't fit in a {@code long}
      */
-    public static long parse(@NotNull String timeString) {
+    public static long parse(@NotNull CharSequence timeString) {
         long total = 0;
-        final StringBuilder num = new StringBuilder();
-
-        for (final char c : timeString.toCharArray()) {
-            if (Character.isDigit(c)) {
-                num.append(c);
-            } else if (num.length() > 0) {
-                final long value = Long.parseLong(num.toString());
-                num.setLength(0);
-
+        long num = 0;
+        boolean hasNum = false;
+
+        final int length = timeString.length();
+        for (int i = 0; i < length; i++) {
+            final char c = timeString.charAt(i);
+            final int digit = Character.digit(c, 10);
+            if (digit >= 0) {
+                if (num > (Long.MAX_VALUE - digit) / 10) throw new NumberFormatException("For input string: \"" + timeString + "\"");
+                num = num * 10 + digit;
+                hasNum = true;
+            } else if (hasNum) {
                 switch (Character.toLowerCase(c)) {
                     case 'd':
-                        total += TimeUnit.DAYS.toMillis(value);
+                        total = addUnits(total, num, DAY);
                         break;
                     case 'h':
-                        total += TimeUnit.HOURS.toMillis(value);
+                        total = addUnits(total, num, HOUR);
                         break;
                     case 'm':
-                        total += TimeUnit.MINUTES.toMillis(value);
+                        total = addUnits(total, num, MINUTE);
                         break;
                     case 's':
-                        total += TimeUnit.SECONDS.toMillis(value);
+                        total = addUnits(total, num, SECOND);
                         break;
                 }
+                num = 0;
+                hasNum = false;
             }
         }
 
         // Handle trailing bare number (treat as seconds)
-        if (num.length() > 0) {
-            total += TimeUnit.SECONDS.toMillis(Long.parseLong(num.toString()));
-        }
+        if (hasNum) total = addUnits(total, num, SECOND);
 
         return total;
     }
 
+    /**
+     * {@code total + num * unit}, capped at {@link Long#MAX_VALUE} instead of overflowing (e.g. {@code 999999999999d})
+     */
+    private static long addUnits(long total, long num, long unit) {
+        try {
+            return Math.addExact(total, Math.multiplyExact(num, unit));
+        } catch (final ArithmeticException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
     /**
      * Time format styles
      */
@@ -162,4 +238,17 @@ public class TimeFormatter {
          */
         COMPACT
     }
+
+    /**
+     * A formatted string, immutable so it can be shared between threads without locking
+     */
+    private static class CachedFormat {
+        private final long seconds;
+        @NotNull private final String value;
+
+        private CachedFormat(long seconds, @NotNull String value) {
+            this.seconds = seconds;
+            this.value = value;
+        }
+    }
 }
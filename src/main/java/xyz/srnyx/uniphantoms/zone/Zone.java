@@ -0,0 +1,135 @@
+package xyz.srnyx.uniphantoms.zone;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+
+/**
+ * A phantom-free zone from {@code config.yml}, either a {@link Cuboid} or a {@link Polygon} between two heights
+ * <br>Immutable. Bounds are in blocks, the maximums are exclusive so the blocks on the edges are inside.
+ */
+public abstract class Zone {
+    @NotNull public final String name;
+    public final double minX;
+    public final double minY;
+    public final double minZ;
+    public final double maxX;
+    public final double maxY;
+    public final double maxZ;
+
+    private Zone(@NotNull String name, double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+        this.name = name;
+        this.minX = minX;
+        this.minY = minY;
+        this.minZ = minZ;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        this.maxZ = maxZ;
+    }
+
+    /**
+     * Check if a position is inside the zone
+     *
+     * @param x the X coordinate
+     * @param y the Y coordinate
+     * @param z the Z coordinate
+     * @return whether the position is inside
+     */
+    public boolean contains(double x, double y, double z) {
+        return x >= minX && x < maxX && y >= minY && y < maxY && z >= minZ && z < maxZ && containsColumn(x, z);
+    }
+
+    /**
+     * Check a position already known to be within the bounds
+     */
+    protected abstract boolean containsColumn(double x, double z);
+
+    /**
+     * Every block from one corner to the other, both included
+     */
+    public static class Cuboid extends Zone {
+        public Cuboid(@NotNull String name, int x1, int y1, int z1, int x2, int y2, int z2) {
+            super(name, Math.min(x1, x2), Math.min(y1, y2), Math.min(z1, z2), Math.max(x1, x2) + 1, Math.max(y1, y2) + 1, Math.max(z1, z2) + 1);
+        }
+
+        @Override
+        protected boolean containsColumn(double x, double z) {
+            return true;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Cuboid)) return false;
+            final Cuboid other = (Cuboid) o;
+            return name.equals(other.name) && minX == other.minX && minY == other.minY && minZ == other.minZ && maxX == other.maxX && maxY == other.maxY && maxZ == other.maxZ;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, minX, minY, minZ, maxX, maxY, maxZ);
+        }
+    }
+
+    /**
+     * The area enclosed by a list of X/Z corners (in order, the last one connects back to the first), from one height to another (both included)
+     */
+    public static class Polygon extends Zone {
+        @NotNull private final double[] xs;
+        @NotNull private final double[] zs;
+
+        /**
+         * @param xs the X coordinate of each corner, at least 3
+         * @param zs the Z coordinate of each corner, same length as {@code xs}
+         */
+        public Polygon(@NotNull String name, @NotNull double[] xs, @NotNull double[] zs, int minY, int maxY) {
+            super(name, min(xs), Math.min(minY, maxY), min(zs), max(xs), Math.max(minY, maxY) + 1, max(zs));
+            if (xs.length < 3 || xs.length != zs.length) throw new IllegalArgumentException("A polygon needs at least 3 corners");
+            this.xs = xs.clone();
+            this.zs = zs.clone();
+        }
+
+        /**
+         * Even-odd ray casting along the X axis
+         */
+        @Override
+        protected boolean containsColumn(double x, double z) {
+            boolean inside = false;
+            for (int i = 0, j = xs.length - 1; i < xs.length; j = i++) {
+                if ((zs[i] > z) != (zs[j] > z) && x < (xs[j] - xs[i]) * (z - zs[i]) / (zs[j] - zs[i]) + xs[i]) inside = !inside;
+            }
+            return inside;
+        }
+
+        public int getCorners() {
+            return xs.length;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Polygon)) return false;
+            final Polygon other = (Polygon) o;
+            return name.equals(other.name) && minY == other.minY && maxY == other.maxY && Arrays.equals(xs, other.xs) && Arrays.equals(zs, other.zs);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * Objects.hash(name, minY, maxY) + Arrays.hashCode(xs)) + Arrays.hashCode(zs);
+        }
+
+        private static double min(@NotNull double[] values) {
+            double min = Double.POSITIVE_INFINITY;
+            for (final double value : values) min = Math.min(min, value);
+            return min;
+        }
+
+        private static double max(@NotNull double[] values) {
+            double max = Double.NEGATIVE_INFINITY;
+            for (final double value : values) max = Math.max(max, value);
+            return max;
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package xyz.srnyx.uniphantoms.zone;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * The phantom-free zones of every world, each world's in an R-tree bulk-loaded once (Sort-Tile-Recursive), so a lookup visits O(log n) nodes
+ * <br>The zones touching each chunk are cached on first lookup, so checking a location outside every zone costs a single map read.
+ * Cached chunks are forgotten when they unload. Immutable apart from the caches, rebuilt when the {@code zones} config section changes.
+ */
+public class ZoneIndex {
+    @NotNull public static final ZoneIndex EMPTY = new ZoneIndex(new HashMap<>());
+    /**
+     * Children per R-tree node
+     */
+    private static final int NODE_SIZE = 8;
+    @NotNull private static final Zone[] NONE = new Zone[0];
+
+    @NotNull private final Map<String, WorldZones> worlds = new HashMap<>();
+    private final int size;
+
+    /**
+     * @param zones the zones by world name
+     */
+    public ZoneIndex(@NotNull Map<String, List<Zone>> zones) {
+        int count = 0;
+        for (final Map.Entry<String, List<Zone>> entry : zones.entrySet()) {
+            if (entry.getValue().isEmpty()) continue;
+            worlds.put(entry.getKey(), new WorldZones(entry.getValue()));
+            count += entry.getValue().size();
+        }
+        size = count;
+    }
+
+    /**
+     * Get the zone a location is in
+     *
+     * @param location the location
+     * @return the first matching zone, or {@code null} if the location isn't in any
+     */
+    @Nullable
+    public Zone getZone(@NotNull Location location) {
+        final World world = location.getWorld();
+        return world == null ? null : getZone(world, location.getX(), location.getY(), location.getZ());
+    }
+
+    /**
+     * Get the zone a position is in
+     *
+     * @param world the world
+     * @param x the X coordinate
+     * @param y the Y coordinate
+     * @param z the Z coordinate
+     * @return the first matching zone, or {@code null} if the position isn't in any
+     */
+    @Nullable
+    public Zone getZone(@NotNull World world, double x, double y, double z) {
+        if (worlds.isEmpty()) return null;
+        final WorldZones zones = worlds.get(world.getName());
+        if (zones == null) return null;
+        for (final Zone zone : zones.inChunk((int) Math.floor(x) >> 4, (int) Math.floor(z) >> 4)) {
+            if (zone.contains(x, y, z)) return zone;
+        }
+        return null;
+    }
+
+    public boolean isInZone(@NotNull Location location) {
+        return getZone(location) != null;
+    }
+
+    /**
+     * Forget the cached zones of a chunk, e.g. because it unloaded
+     *
+     * @param world the world's name
+     * @param chunkX the chunk's X coordinate
+     * @param chunkZ the chunk's Z coordinate
+     */
+    public void forgetChunk(@NotNull String world, int chunkX, int chunkZ) {
+        if (worlds.isEmpty()) return;
+        final WorldZones zones = worlds.get(world);
+        if (zones != null) zones.chunks.remove(chunkKey(chunkX, chunkZ));
+    }
+
+    /**
+     * Forget the cached zones of every chunk of a world, e.g. because it unloaded
+     *
+     * @param world the world's name
+     */
+    public void forgetWorld(@NotNull String world) {
+        final WorldZones zones = worlds.get(world);
+        if (zones != null) zones.chunks.clear();
+    }
+
+    /**
+     * Get the number of zones
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the number of chunks with cached zones
+     */
+    public int getCachedChunks() {
+        int count = 0;
+        for (final WorldZones zones : worlds.values()) count += zones.chunks.size();
+        return count;
+    }
+
+    private static long chunkKey(int chunkX, int chunkZ) {
+        return (long) chunkX << 32 | chunkZ & 0xFFFFFFFFL;
+    }
+
+    private static class WorldZones {
+        @NotNull private final Node root;
+        /**
+         * The zones touching each chunk, {@link #NONE} for most of them
+         */
+        @NotNull private final Map<Long, Zone[]> chunks = new ConcurrentHashMap<>();
+
+        private WorldZones(@NotNull List<Zone> zones) {
+            List<Node> level = new ArrayList<>(zones.size());
+            for (final Zone zone : zones) level.add(new Node(zone));
+            do {
+                level = pack(level);
+            } while (level.size() > 1);
+            root = level.get(0);
+        }
+
+        @NotNull
+        private Zone[] inChunk(int chunkX, int chunkZ) {
+            final Long key = chunkKey(chunkX, chunkZ);
+            Zone[] cached = chunks.get(key);
+            if (cached == null) {
+                final List<Zone> found = new ArrayList<>();
+                final double minX = chunkX << 4;
+                final double minZ = chunkZ << 4;
+                root.query(minX, minZ, minX + 16, minZ + 16, found);
+                cached = found.isEmpty() ? NONE : found.toArray(NONE);
+                chunks.put(key, cached);
+            }
+            return cached;
+        }
+
+        /**
+         * Group nodes into parents of up to {@link #NODE_SIZE}: sort by X, cut into vertical slices, then sort each slice by Z and cut it into groups
+         */
+        @NotNull
+        private static List<Node> pack(@NotNull List<Node> nodes) {
+            final int groups = (nodes.size() + NODE_SIZE - 1) / NODE_SIZE;
+            final int sliceSize = (int) Math.ceil(Math.sqrt(groups)) * NODE_SIZE;
+            nodes.sort(Comparator.comparingDouble(node -> node.minX + node.maxX));
+            final List<Node> parents = new ArrayList<>(groups);
+            for (int slice = 0; slice < nodes.size(); slice += sliceSize) {
+                final List<Node> sliceNodes = nodes.subList(slice, Math.min(nodes.size(), slice + sliceSize));
+                sliceNodes.sort(Comparator.comparingDouble(node -> node.minZ + node.maxZ));
+                for (int group = 0; group < sliceNodes.size(); group += NODE_SIZE) {
+                    parents.add(new Node(sliceNodes.subList(group, Math.min(sliceNodes.size(), group + NODE_SIZE)).toArray(new Node[0])));
+                }
+            }
+            return parents;
+        }
+    }
+
+    /**
+     * R-tree node, either a single zone (leaf) or up to {@link #NODE_SIZE} children, with their X/Z bounds
+     */
+    private static class Node {
+        private final double minX;
+        private final double minZ;
+        private final double maxX;
+        private final double maxZ;
+        @Nullable private final Zone zone;
+        @NotNull private final Node[] children;
+
+        private Node(@NotNull Zone zone) {
+            this.minX = zone.minX;
+            this.minZ = zone.minZ;
+            this.maxX = zone.maxX;
+            this.maxZ = zone.maxZ;
+            this.zone = zone;
+            this.children = new Node[0];
+        }
+
+        private Node(@NotNull Node[] children) {
+            double nodeMinX = Double.POSITIVE_INFINITY;
+            double nodeMinZ = Double.POSITIVE_INFINITY;
+            double nodeMaxX = Double.NEGATIVE_INFINITY;
+            double nodeMaxZ = Double.NEGATIVE_INFINITY;
+            for (final Node child : children) {
+                nodeMinX = Math.min(nodeMinX, child.minX);
+                nodeMinZ = Math.min(nodeMinZ, child.minZ);
+                nodeMaxX = Math.max(nodeMaxX, child.maxX);
+                nodeMaxZ = Math.max(nodeMaxZ, child.maxZ);
+            }
+            this.minX = nodeMinX;
+            this.minZ = nodeMinZ;
+            this.maxX = nodeMaxX;
+            this.maxZ = nodeMaxZ;
+            this.zone = null;
+            this.children = children;
+        }
+
+        /**
+         * Collect the zones whose bounds overlap an area
+         */
+        private void query(double areaMinX, double areaMinZ, double areaMaxX, double areaMaxZ, @NotNull List<Zone> found) {
+            if (minX >= areaMaxX || maxX <= areaMinX || minZ >= areaMaxZ || maxZ <= areaMinZ) return;
+            if (zone != null) {
+                found.add(zone);
+                return;
+            }
+            for (final Node child : children) child.query(areaMinX, areaMinZ, areaMaxX, areaMaxZ, found);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package xyz.srnyx.uniphantoms;
+
+import org.bukkit.Location;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.entity.Phantom;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+
+import org.mockbukkit.mockbukkit.MockBukkit;
+import org.mockbukkit.mockbukkit.ServerMock;
+import org.mockbukkit.mockbukkit.world.WorldMock;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+/**
+ * Base for tests running the whole plugin under MockBukkit, with a fresh server, world and plugin for each test
+ */
+public abstract class MockServerTest {
+    /**
+     * Ticks {@link #tickUntil(BooleanSupplier)} waits for, storage work runs on the storage executor and replies come back on the scheduler
+     */
+    private static final int MAX_TICKS = 200;
+
+    protected ServerMock server;
+    protected WorldMock world;
+    protected UniPhantoms plugin;
+
+    @BeforeEach
+    void setUpServer() {
+        server = MockBukkit.mock();
+        world = server.addSimpleWorld("world"); // Before loading, so the statistic tasks see it
+        plugin = MockBukkit.load(UniPhantoms.class);
+    }
+
+    @AfterEach
+    void tearDownServer() {
+        MockBukkit.unmock();
+    }
+
+    /**
+     * Tick the server until a condition holds
+     *
+     * @param condition the condition
+     */
+    protected void tickUntil(BooleanSupplier condition) {
+        for (int i = 0; i < MAX_TICKS && !condition.getAsBoolean(); i++) {
+            server.getScheduler().performOneTick();
+            try {
+                Thread.sleep(1); // Let the storage executor run
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        assertTrue(condition.getAsBoolean(), "Condition not met within " + MAX_TICKS + " ticks");
+    }
+
+    /**
+     * Tick the server a few times, for checking that something did not happen
+     *
+     * @param ticks the number of ticks
+     */
+    protected void tick(int ticks) {
+        for (int i = 0; i < ticks; i++) {
+            server.getScheduler().performOneTick();
+            try {
+                Thread.sleep(1);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+    }
+
+    /**
+     * Change values in {@code config.yml} and reload the plugin
+     *
+     * @param pathsAndValues path, value, path, value...
+     */
+    protected void setConfig(Object... pathsAndValues) {
+        final File file = new File(plugin.getDataFolder(), "config.yml");
+        final YamlConfiguration config = new YamlConfiguration();
+        try {
+            config.load(file);
+            for (int i = 0; i < pathsAndValues.length; i += 2) config.set((String) pathsAndValues[i], pathsAndValues[i + 1]);
+            config.save(file);
+        } catch (final IOException | InvalidConfigurationException e) {
+            throw new IllegalStateException("Could not update " + file, e);
+        }
+        plugin.reload();
+    }
+
+    protected Phantom spawnPhantom(double x, double y, double z) {
+        return world.spawn(new Location(world, x, y, z), Phantom.class);
+    }
+}
@@ -0,0 +1,122 @@
+package xyz.srnyx.uniphantoms;
+
+import org.bukkit.Location;
+
+import org.junit.jupiter.api.Test;
+
+import org.mockbukkit.mockbukkit.entity.PlayerMock;
+import org.mockbukkit.mockbukkit.world.WorldMock;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class UniPhantomsTest extends MockServerTest {
+    @Test
+    void enableOpensStorage() {
+        assertNotNull(plugin.config);
+        assertNotNull(plugin.getStatusStore());
+        assertNotNull(plugin.getMessageSender());
+    }
+
+    @Test
+    void defaultStatusComesFromConfig() {
+        final PlayerMock player = server.addPlayer();
+        assertEquals(plugin.config.def, plugin.hasPhantomsEnabled(player));
+        assertEquals(plugin.config.def, plugin.hasPhantomsEnabled(player, world));
+    }
+
+    @Test
+    void globalStatusAppliesToEveryWorld() {
+        final PlayerMock player = server.addPlayer();
+        plugin.setPhantomsEnabled(player, false);
+        assertFalse(plugin.hasPhantomsEnabled(player));
+        assertFalse(plugin.hasPhantomsEnabled(player, world));
+        plugin.setPhantomsEnabled(player, true);
+        assertTrue(plugin.hasPhantomsEnabled(player, world));
+    }
+
+    @Test
+    void worldStatusOverridesGlobalStatus() {
+        final PlayerMock player = server.addPlayer();
+        final WorldMock other = server.addSimpleWorld("other");
+        plugin.setPhantomsEnabled(player, false);
+        plugin.setPhantomsEnabled(player, world, true);
+        assertTrue(plugin.hasPhantomsEnabled(player, world));
+        assertFalse(plugin.hasPhantomsEnabled(player, other));
+        assertEquals(Boolean.TRUE, plugin.getWorldStatusAsync(player, world).join());
+
+        plugin.setPhantomsEnabled(player, world, null);
+        assertNull(plugin.getWorldStatusAsync(player, world).join());
+        assertFalse(plugin.hasPhantomsEnabled(player, world));
+    }
+
+    @Test
+    void statusSurvivesRejoin() {
+        final PlayerMock player = server.addPlayer();
+        plugin.setPhantomsEnabled(player, false);
+        player.disconnect();
+        tick(2); // The quit handler uncaches again one tick later
+        assertFalse(plugin.getPhantomStatusAsync(player).join().isEnabled());
+        player.reconnect();
+        assertFalse(plugin.hasPhantomsEnabled(player));
+    }
+
+    @Test
+    void preloadedStatusIsCachedOnJoin() {
+        final PlayerMock player = server.addPlayer();
+        plugin.setPhantomsEnabled(player, false);
+        player.disconnect();
+        tick(2);
+        plugin.preloadPhantomStatus(player.getUniqueId());
+        player.reconnect();
+        assertFalse(plugin.getPhantomStatusNow(player).isEnabled());
+    }
+
+    @Test
+    void uncachedStatusReloadsWithoutBlocking() {
+        final PlayerMock player = server.addPlayer();
+        plugin.setPhantomsEnabled(player, true);
+        plugin.uncachePhantomStatus(player.getUniqueId());
+        plugin.getPhantomStatusNow(player); // Protected until loaded
+        tickUntil(() -> plugin.getPhantomStatusNow(player).isEnabled());
+    }
+
+    @Test
+    void reloadPublishesNewSnapshot() {
+        final ConfigYml before = plugin.config;
+        setConfig("default", false);
+        assertNotSame(before, plugin.config);
+        assertFalse(plugin.config.def);
+        assertFalse(plugin.hasPhantomsEnabled(server.addPlayer()));
+    }
+
+    @Test
+    void blacklistedWorldsAreIgnored() {
+        final WorldMock nether = server.addSimpleWorld("world_nether");
+        assertTrue(plugin.isWhitelistedWorld(world));
+        assertFalse(plugin.isWhitelistedWorld(nether));
+
+        setConfig("worlds-blacklist.treat-as-whitelist", true);
+        assertFalse(plugin.isWhitelistedWorld(world));
+        assertTrue(plugin.isWhitelistedWorld(nether));
+    }
+
+    @Test
+    void zonesAreLoadedOnReload() {
+        assertFalse(plugin.isInZone(new Location(world, 0, 64, 0)));
+        setConfig(
+                "zones.spawn.world", "world",
+                "zones.spawn.from", "-10, 0, -10",
+                "zones.spawn.to", "10, 100, 10");
+        assertEquals(1, plugin.getZones().size());
+        assertTrue(plugin.isInZone(new Location(world, 0, 64, 0)));
+        assertTrue(plugin.isInZone(new Location(world, 10.5, 100.5, -10)));
+        assertFalse(plugin.isInZone(new Location(world, 11, 64, 0)));
+        assertFalse(plugin.isInZone(new Location(world, 0, 101, 0)));
+    }
+}
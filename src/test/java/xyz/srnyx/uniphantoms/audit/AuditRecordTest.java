@@ -0,0 +1,109 @@
+package xyz.srnyx.uniphantoms.audit;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class AuditRecordTest {
+    private static final UUID ACTOR = new UUID(1, 2);
+    private static final UUID TARGET = new UUID(3, 4);
+
+    @Test
+    void roundTrips() {
+        final AuditRecord record = new AuditRecord(123456789L, ACTOR, TARGET, null, false, AuditRecord.Source.IMPORT, 7);
+        final AuditRecord read = roundTrip(record);
+        assertNotNull(read);
+        assertEquals(record.timestamp, read.timestamp);
+        assertEquals(ACTOR, read.actor);
+        assertEquals(TARGET, read.target);
+        assertNull(read.oldState);
+        assertEquals(false, read.newState);
+        assertSame(AuditRecord.Source.IMPORT, read.source);
+        assertEquals(7, read.worldId);
+    }
+
+    @Test
+    void roundTripsEveryStateAndSource() {
+        final Boolean[] states = {null, true, false};
+        for (final AuditRecord.Source source : AuditRecord.Source.values()) for (final Boolean oldState : states) for (final Boolean newState : states) {
+            final AuditRecord read = roundTrip(new AuditRecord(0, AuditRecord.NO_ACTOR, TARGET, oldState, newState, source, AuditRecord.GLOBAL));
+            assertNotNull(read);
+            assertEquals(oldState, read.oldState);
+            assertEquals(newState, read.newState);
+            assertSame(source, read.source);
+            assertEquals(AuditRecord.GLOBAL, read.worldId);
+        }
+    }
+
+    @Test
+    void writesExactlySizeBytes() {
+        final ByteBuffer buffer = ByteBuffer.allocate(AuditRecord.SIZE * 2);
+        new AuditRecord(0, ACTOR, TARGET, true, false, AuditRecord.Source.COMMAND, 0).write(buffer);
+        assertEquals(AuditRecord.SIZE, buffer.position());
+    }
+
+    /**
+     * Codes are what's on disk, changing one would misread existing audit files
+     */
+    @Test
+    void sourceCodesAreStable() {
+        assertEquals(0, AuditRecord.Source.COMMAND.code);
+        assertEquals(1, AuditRecord.Source.API.code);
+        assertEquals(3, AuditRecord.Source.IMPORT.code);
+        assertNull(AuditRecord.Source.of((byte) 2));
+        for (final AuditRecord.Source source : AuditRecord.Source.values()) assertSame(source, AuditRecord.Source.of(source.code));
+    }
+
+    @Test
+    void rejectsUnknownSource() {
+        assertNull(AuditRecord.read(corrupt(AuditRecord.SIZE - 6, (byte) 2)));
+        assertNull(AuditRecord.read(corrupt(AuditRecord.SIZE - 6, (byte) 100)));
+    }
+
+    @Test
+    void rejectsUnknownState() {
+        assertNull(AuditRecord.read(corrupt(AuditRecord.SIZE - 8, (byte) 4)));
+        assertNull(AuditRecord.read(corrupt(AuditRecord.SIZE - 7, (byte) 3))); // Only the old state can be unknown
+        assertNull(AuditRecord.read(corrupt(AuditRecord.SIZE - 7, (byte) -1)));
+    }
+
+    @Test
+    void roundTripsUnknownOldState() {
+        final AuditRecord read = roundTrip(new AuditRecord(0, ACTOR, TARGET, false, true, false, AuditRecord.Source.API, AuditRecord.GLOBAL));
+        assertNotNull(read);
+        assertFalse(read.oldKnown);
+        assertNull(read.oldState);
+        assertEquals(false, read.newState);
+
+        final AuditRecord known = roundTrip(new AuditRecord(0, ACTOR, TARGET, null, true, AuditRecord.Source.API, AuditRecord.GLOBAL));
+        assertNotNull(known);
+        assertTrue(known.oldKnown);
+    }
+
+    private static AuditRecord roundTrip(AuditRecord record) {
+        final ByteBuffer buffer = ByteBuffer.allocate(AuditRecord.SIZE);
+        record.write(buffer);
+        buffer.flip();
+        return AuditRecord.read(buffer);
+    }
+
+    /**
+     * A valid record with one byte replaced
+     */
+    private static ByteBuffer corrupt(int index, byte value) {
+        final ByteBuffer buffer = ByteBuffer.allocate(AuditRecord.SIZE);
+        new AuditRecord(0, ACTOR, TARGET, true, false, AuditRecord.Source.API, 0).write(buffer);
+        buffer.put(index, value);
+        buffer.flip();
+        return buffer;
+    }
+}
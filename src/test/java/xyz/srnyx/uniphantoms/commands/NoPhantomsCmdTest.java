@@ -0,0 +1,111 @@
+package xyz.srnyx.uniphantoms.commands;
+
+import org.junit.jupiter.api.Test;
+
+import org.mockbukkit.mockbukkit.entity.PlayerMock;
+
+import xyz.srnyx.uniphantoms.MockServerTest;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class NoPhantomsCmdTest extends MockServerTest {
+    @Test
+    void disableChangesOwnStatus() {
+        final PlayerMock player = server.addPlayer();
+        player.performCommand("nophantoms disable");
+        tickUntil(() -> !plugin.hasPhantomsEnabled(player));
+        tickUntil(() -> player.nextComponentMessage() != null); // Confirmation
+    }
+
+    @Test
+    void silentFlagSendsNoConfirmation() {
+        final PlayerMock player = server.addPlayer();
+        player.performCommand("nophantoms disable -s");
+        tickUntil(() -> !plugin.hasPhantomsEnabled(player));
+        tick(5);
+        assertNull(player.nextComponentMessage());
+    }
+
+    @Test
+    void toggleIsLimitedByCooldown() {
+        final PlayerMock player = server.addPlayer();
+        final boolean initial = plugin.hasPhantomsEnabled(player);
+        player.performCommand("nophantoms toggle -s");
+        tickUntil(() -> plugin.hasPhantomsEnabled(player) != initial);
+
+        player.performCommand("nophantoms toggle -s");
+        tick(10);
+        assertTrue(plugin.hasPhantomsEnabled(player) != initial);
+        assertNotNull(player.nextComponentMessage()); // Cooldown message
+    }
+
+    @Test
+    void bypassIgnoresCooldown() {
+        final PlayerMock player = server.addPlayer();
+        player.addAttachment(plugin, "pp.nophantoms.bypass", true);
+        player.performCommand("nophantoms disable -s");
+        tickUntil(() -> !plugin.hasPhantomsEnabled(player));
+        player.performCommand("nophantoms enable -s");
+        tickUntil(() -> plugin.hasPhantomsEnabled(player));
+    }
+
+    @Test
+    void worldFlagOnlyChangesThatWorld() {
+        final PlayerMock player = server.addPlayer();
+        plugin.setPhantomsEnabled(player, true);
+        player.performCommand("nophantoms disable -s -w:world");
+        tickUntil(() -> !plugin.hasPhantomsEnabled(player, world));
+        assertTrue(plugin.hasPhantomsEnabled(player));
+    }
+
+    @Test
+    void changingOtherPlayersNeedsPermission() {
+        final PlayerMock player = server.addPlayer();
+        final PlayerMock other = server.addPlayer();
+        plugin.setPhantomsEnabled(other, true);
+
+        player.performCommand("nophantoms disable " + other.getName());
+        tick(10);
+        assertTrue(plugin.hasPhantomsEnabled(other));
+
+        player.setOp(true);
+        player.performCommand("nophantoms disable " + other.getName());
+        tickUntil(() -> !plugin.hasPhantomsEnabled(other));
+    }
+
+    @Test
+    void consoleChangesPlayersByName() {
+        final PlayerMock player = server.addPlayer();
+        plugin.setPhantomsEnabled(player, true);
+        server.dispatchCommand(server.getConsoleSender(), "nophantoms disable " + player.getName());
+        tickUntil(() -> !plugin.hasPhantomsEnabled(player));
+    }
+
+    @Test
+    void consoleMustNameAPlayer() {
+        server.dispatchCommand(server.getConsoleSender(), "nophantoms toggle");
+        tickUntil(() -> server.getConsoleSender().nextComponentMessage() != null);
+    }
+
+    @Test
+    void getRepliesWithStatus() {
+        final PlayerMock player = server.addPlayer();
+        player.performCommand("nophantoms get");
+        tickUntil(() -> player.nextComponentMessage() != null);
+    }
+
+    @Test
+    void statsNeedPermission() {
+        final PlayerMock player = server.addPlayer();
+        player.performCommand("nophantoms stats writes");
+        tickUntil(() -> player.nextComponentMessage() != null); // No permission
+        assertFalse(player.isOp());
+
+        server.dispatchCommand(server.getConsoleSender(), "nophantoms stats writes");
+        tickUntil(() -> server.getConsoleSender().nextComponentMessage() != null);
+    }
+}
@@ -0,0 +1,141 @@
+package xyz.srnyx.uniphantoms.listeners;
+
+import org.bukkit.Location;
+import org.bukkit.entity.Phantom;
+import org.bukkit.event.entity.CreatureSpawnEvent;
+import org.bukkit.event.entity.EntityTargetEvent;
+import org.bukkit.event.entity.EntityTargetLivingEntityEvent;
+
+import org.junit.jupiter.api.Test;
+
+import org.mockbukkit.mockbukkit.entity.PlayerMock;
+
+import xyz.srnyx.uniphantoms.MockServerTest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class MobListenerTest extends MockServerTest {
+    private PlayerMock playerAt(double x, double y, double z) {
+        final PlayerMock player = server.addPlayer();
+        player.teleport(new Location(world, x, y, z));
+        return player;
+    }
+
+    private EntityTargetLivingEntityEvent target(Phantom phantom, PlayerMock player) {
+        final EntityTargetLivingEntityEvent event = new EntityTargetLivingEntityEvent(phantom, player, EntityTargetEvent.TargetReason.CLOSEST_PLAYER);
+        server.getPluginManager().callEvent(event);
+        return event;
+    }
+
+    @Test
+    void phantomsTargetPlayersWithPhantomsEnabled() {
+        final PlayerMock player = playerAt(0, 64, 0);
+        plugin.setPhantomsEnabled(player, true);
+        assertFalse(target(spawnPhantom(0, 80, 0), player).isCancelled());
+    }
+
+    @Test
+    void targetingOptedOutPlayerIsCancelled() {
+        setConfig("phantom-targeting.mode", "cancel");
+        final PlayerMock player = playerAt(0, 64, 0);
+        plugin.setPhantomsEnabled(player, false);
+        assertTrue(target(spawnPhantom(0, 80, 0), player).isCancelled());
+    }
+
+    @Test
+    void phantomsAreRedirectedToNearestEnabledPlayer() {
+        setConfig("phantom-targeting.mode", "retarget");
+        final PlayerMock optedOut = playerAt(0, 64, 0);
+        final PlayerMock near = playerAt(5, 64, 0);
+        final PlayerMock far = playerAt(30, 64, 0);
+        plugin.setPhantomsEnabled(optedOut, false);
+        plugin.setPhantomsEnabled(near, true);
+        plugin.setPhantomsEnabled(far, true);
+
+        final EntityTargetLivingEntityEvent event = target(spawnPhantom(0, 70, 0), optedOut);
+        assertFalse(event.isCancelled());
+        assertSame(near, event.getTarget());
+    }
+
+    @Test
+    void phantomsWithoutOtherTargetCoolOff() {
+        setConfig("phantom-targeting.mode", "retarget", "phantom-targeting.cool-off", 60);
+        final PlayerMock optedOut = playerAt(0, 64, 0);
+        final PlayerMock enabled = playerAt(500, 64, 0); // Out of the retarget radius
+        plugin.setPhantomsEnabled(optedOut, false);
+        plugin.setPhantomsEnabled(enabled, true);
+        final Phantom phantom = spawnPhantom(0, 70, 0);
+
+        assertTrue(target(phantom, optedOut).isCancelled());
+        assertTrue(target(phantom, enabled).isCancelled()); // Cooling off, ignores everyone
+    }
+
+    @Test
+    void phantomsCannotHurtOptedOutPlayers() {
+        final PlayerMock player = playerAt(0, 64, 0);
+        plugin.setPhantomsEnabled(player, false);
+        final double health = player.getHealth();
+        player.damage(2, spawnPhantom(0, 65, 0));
+        assertEquals(health, player.getHealth());
+    }
+
+    @Test
+    void optedOutPlayersCannotHurtPhantoms() {
+        final PlayerMock player = playerAt(0, 64, 0);
+        plugin.setPhantomsEnabled(player, false);
+        final Phantom phantom = spawnPhantom(0, 65, 0);
+        final double health = phantom.getHealth();
+        phantom.damage(2, player);
+        assertEquals(health, phantom.getHealth());
+    }
+
+    @Test
+    void blacklistedWorldsAreNotProtected() {
+        world = server.addSimpleWorld("world_nether");
+        final PlayerMock player = playerAt(0, 64, 0);
+        plugin.setPhantomsEnabled(player, false);
+        final double health = player.getHealth();
+        player.damage(2, spawnPhantom(0, 65, 0));
+        assertTrue(player.getHealth() < health);
+    }
+
+    @Test
+    void zonesProtectPlayersWithPhantomsEnabled() {
+        setConfig(
+                "phantom-targeting.mode", "cancel",
+                "zones.spawn.world", "world",
+                "zones.spawn.from", "-10, 0, -10",
+                "zones.spawn.to", "10, 100, 10");
+        final PlayerMock inside = playerAt(0, 64, 0);
+        final PlayerMock outside = playerAt(50, 64, 0);
+        plugin.setPhantomsEnabled(inside, true);
+        plugin.setPhantomsEnabled(outside, true);
+
+        assertTrue(target(spawnPhantom(0, 80, 0), inside).isCancelled());
+        assertFalse(target(spawnPhantom(50, 80, 0), outside).isCancelled());
+        final double health = inside.getHealth();
+        inside.damage(2, spawnPhantom(0, 65, 0));
+        assertEquals(health, inside.getHealth());
+    }
+
+    @Test
+    void naturalSpawnsInZonesAreCancelled() {
+        setConfig(
+                "zones.spawn.world", "world",
+                "zones.spawn.from", "-10, 0, -10",
+                "zones.spawn.to", "10, 100, 10");
+        final CreatureSpawnEvent inside = new CreatureSpawnEvent(spawnPhantom(0, 80, 0), CreatureSpawnEvent.SpawnReason.NATURAL);
+        final CreatureSpawnEvent outside = new CreatureSpawnEvent(spawnPhantom(50, 80, 0), CreatureSpawnEvent.SpawnReason.NATURAL);
+        final CreatureSpawnEvent egg = new CreatureSpawnEvent(spawnPhantom(0, 80, 0), CreatureSpawnEvent.SpawnReason.SPAWNER_EGG);
+        server.getPluginManager().callEvent(inside);
+        server.getPluginManager().callEvent(outside);
+        server.getPluginManager().callEvent(egg);
+        assertTrue(inside.isCancelled());
+        assertFalse(outside.isCancelled());
+        assertFalse(egg.isCancelled());
+    }
+}
@@ -0,0 +1,35 @@
+package xyz.srnyx.uniphantoms.message;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+
+class MiniMessageSenderTest {
+    @Test
+    void normalizesLocales() {
+        assertEquals("en_us", MiniMessageSender.key("en_US"));
+        assertEquals("en_us", MiniMessageSender.key("en-US"));
+        assertEquals("th", MiniMessageSender.key("TH"));
+        assertEquals("fil_ph", MiniMessageSender.key("fil_ph"));
+        assertEquals("es_419", MiniMessageSender.key("es_419"));
+    }
+
+    /**
+     * Clients choose their locale, anything that isn't one must never reach a file name or the bundle cache
+     */
+    @Test
+    void rejectsWhatIsNotALocale() {
+        assertNull(MiniMessageSender.key(null));
+        assertNull(MiniMessageSender.key(""));
+        assertNull(MiniMessageSender.key("e"));
+        assertNull(MiniMessageSender.key("english"));
+        assertNull(MiniMessageSender.key("en_"));
+        assertNull(MiniMessageSender.key("en_usabc"));
+        assertNull(MiniMessageSender.key("../x"));
+        assertNull(MiniMessageSender.key("en/us"));
+        assertNull(MiniMessageSender.key("en_u s"));
+        assertNull(MiniMessageSender.key("xx_" + "a".repeat(1000)));
+    }
+}
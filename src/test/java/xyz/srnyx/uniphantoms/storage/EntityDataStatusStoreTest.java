@@ -0,0 +1,53 @@
+package xyz.srnyx.uniphantoms.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+
+class EntityDataStatusStoreTest {
+    @TempDir File folder;
+    private WorldIdTable worldIds;
+
+    @BeforeEach
+    void createTable() {
+        worldIds = new WorldIdTable(Logger.getLogger(EntityDataStatusStoreTest.class.getName()), folder);
+    }
+
+    /**
+     * Values written before names were escaped must still read the same
+     */
+    @Test
+    void readsUnescapedValues() {
+        final WorldOverrides overrides = EntityDataStatusStore.parseWorlds("world_nether-/resource+", worldIds);
+        assertEquals(WorldOverrides.EMPTY.with(worldIds.getId("world_nether"), false).with(worldIds.getId("resource"), true), overrides);
+        assertEquals("world_nether-/resource+", EntityDataStatusStore.writeWorlds(overrides, worldIds));
+    }
+
+    @Test
+    void escapesSeparatorsInNames() {
+        final WorldOverrides overrides = WorldOverrides.EMPTY
+                .with(worldIds.getId("maps/spawn"), true)
+                .with(worldIds.getId("C:\\worlds"), false)
+                .with(worldIds.getId("plus+"), false)
+                .with(worldIds.getId("minus-/"), true);
+        final String written = EntityDataStatusStore.writeWorlds(overrides, worldIds);
+        assertEquals("maps\\/spawn+/C:\\\\worlds-/plus+-/minus-\\/+", written);
+        assertEquals(overrides, EntityDataStatusStore.parseWorlds(written, worldIds));
+    }
+
+    @Test
+    void skipsInvalidEntries() {
+        assertSame(WorldOverrides.EMPTY, EntityDataStatusStore.parseWorlds(null, worldIds));
+        assertSame(WorldOverrides.EMPTY, EntityDataStatusStore.parseWorlds("", worldIds));
+        // No state, a lone state, an escaped state and an empty entry
+        final WorldOverrides overrides = EntityDataStatusStore.parseWorlds("world/+/end\\+//nether-", worldIds);
+        assertEquals(WorldOverrides.EMPTY.with(worldIds.getId("nether"), false), overrides);
+    }
+}
@@ -0,0 +1,112 @@
+package xyz.srnyx.uniphantoms.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class KeyedExecutorTest {
+    private static final UUID FIRST = new UUID(1, 1);
+    private static final UUID SECOND = new UUID(2, 2);
+
+    private final ExecutorService pool = Executors.newFixedThreadPool(8);
+    private final KeyedExecutor executor = new KeyedExecutor(pool);
+
+    @AfterEach
+    void shutdown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void tasksOfOnePlayerRunInOrder() {
+        final List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        final List<CompletableFuture<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            final int index = i;
+            futures.add(executor.supply(FIRST, () -> order.add(index)));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+        for (int i = 0; i < 1000; i++) assertEquals(i, order.get(i));
+        assertEquals(0, executor.getActive());
+    }
+
+    @Test
+    void tasksOfOnePlayerNeverOverlap() {
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger overlaps = new AtomicInteger();
+        final List<CompletableFuture<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 200; i++) futures.add(executor.supply(FIRST, () -> {
+            if (running.incrementAndGet() > 1) overlaps.incrementAndGet();
+            Thread.yield();
+            return running.decrementAndGet();
+        }));
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+        assertEquals(0, overlaps.get());
+    }
+
+    @Test
+    void playersRunInParallel() throws InterruptedException {
+        final CountDownLatch release = new CountDownLatch(1);
+        final CompletableFuture<Boolean> blocked = executor.supply(FIRST, () -> {
+            try {
+                return release.await(5, TimeUnit.SECONDS);
+            } catch (final InterruptedException e) {
+                return false;
+            }
+        });
+        // Doesn't wait behind the other player's task
+        assertEquals(2, executor.supply(SECOND, () -> 2).join());
+        assertFalse(blocked.isDone());
+        release.countDown();
+        assertTrue(blocked.join());
+    }
+
+    @Test
+    void failingTaskDoesNotBlockThePlayer() {
+        final CompletableFuture<Object> failed = executor.supply(FIRST, () -> {
+            throw new IllegalStateException("failed");
+        });
+        assertEquals(1, executor.supply(FIRST, () -> 1).join());
+        assertTrue(failed.isCompletedExceptionally());
+    }
+
+    @Test
+    void queuedTasksRunAfterShutdown() throws InterruptedException {
+        final CountDownLatch release = new CountDownLatch(1);
+        executor.supply(FIRST, () -> {
+            try {
+                return release.await(5, TimeUnit.SECONDS);
+            } catch (final InterruptedException e) {
+                return false;
+            }
+        });
+        final CompletableFuture<Integer> queued = executor.supply(FIRST, () -> 1);
+        pool.shutdown();
+        release.countDown();
+        assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(1, queued.getNow(null));
+    }
+
+    @Test
+    void rejectedTaskDoesNotBlockThePlayer() {
+        pool.shutdown();
+        assertThrows(RejectedExecutionException.class, () -> executor.execute(FIRST, () -> {}));
+        assertEquals(0, executor.getActive());
+    }
+}
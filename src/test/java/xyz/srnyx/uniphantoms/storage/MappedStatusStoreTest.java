@@ -0,0 +1,288 @@
+package xyz.srnyx.uniphantoms.storage;
+
+import org.bukkit.OfflinePlayer;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class MappedStatusStoreTest {
+    private static final OfflinePlayer FIRST = player(new UUID(1, 1));
+    private static final OfflinePlayer SECOND = player(new UUID(2, 2));
+    private static final OfflinePlayer THIRD = player(new UUID(3, 3));
+
+    @TempDir File folder;
+    private final Logger logger = Logger.getLogger(MappedStatusStoreTest.class.getName());
+    private final AtomicInteger errors = new AtomicInteger();
+    private final Handler counter = new Handler() {
+        @Override
+        public void publish(LogRecord record) {
+            if (record.getLevel() == Level.SEVERE) errors.incrementAndGet();
+        }
+
+        @Override
+        public void flush() {}
+
+        @Override
+        public void close() {}
+    };
+
+    @BeforeEach
+    void countErrors() {
+        logger.setUseParentHandlers(false);
+        logger.addHandler(counter);
+    }
+
+    @AfterEach
+    void stopCountingErrors() {
+        logger.removeHandler(counter);
+    }
+
+    @Test
+    void statusesSurviveReopening() throws IOException {
+        final WorldOverrides overrides = WorldOverrides.EMPTY.with(0, true).with(300, false);
+        final MappedStatusStore store = open(new Legacy());
+        store.save(FIRST, false);
+        store.saveWorlds(SECOND, overrides);
+        assertEquals(Boolean.FALSE, store.load(FIRST));
+        store.close();
+
+        final MappedStatusStore reopened = open(new Legacy());
+        assertEquals(Boolean.FALSE, reopened.load(FIRST));
+        assertTrue(reopened.loadWorlds(FIRST).isEmpty());
+        assertNull(reopened.load(SECOND));
+        assertEquals(overrides, reopened.loadWorlds(SECOND));
+        assertNull(reopened.load(THIRD));
+        reopened.close();
+        assertEquals(0, errors.get());
+    }
+
+    @Test
+    void clearedStatusesStayCleared() throws IOException {
+        final MappedStatusStore store = open(new Legacy());
+        store.save(FIRST, false);
+        store.save(FIRST, true);
+        store.saveWorlds(FIRST, WorldOverrides.EMPTY.with(1, false).with(2, true));
+        store.saveWorlds(FIRST, WorldOverrides.EMPTY.with(2, true)); // Only world 1 cleared
+        store.close();
+
+        final MappedStatusStore reopened = open(new Legacy());
+        assertNull(reopened.load(FIRST));
+        assertEquals(WorldOverrides.EMPTY.with(2, true), reopened.loadWorlds(FIRST));
+        reopened.saveWorlds(FIRST, WorldOverrides.EMPTY);
+        reopened.close();
+
+        final MappedStatusStore cleared = open(new Legacy());
+        assertTrue(cleared.loadWorlds(FIRST).isEmpty());
+        cleared.close();
+    }
+
+    @Test
+    void listsEveryStoredPlayerOnce() throws IOException {
+        final MappedStatusStore store = open(new Legacy());
+        store.save(FIRST, false);
+        store.save(SECOND, false);
+        store.saveWorlds(SECOND, WorldOverrides.EMPTY.with(4, true));
+        store.saveWorlds(THIRD, WorldOverrides.EMPTY.with(5, false));
+        assertTrue(store.isInMemory());
+        assertTrue(store.isListable());
+
+        final Map<UUID, String> visited = new HashMap<>();
+        store.forEachStored((uuid, stored, worlds) -> {
+            assertNull(visited.put(uuid, stored + " " + worlds.size()), "visited twice");
+            return true;
+        });
+        assertEquals(3, visited.size());
+        assertEquals("false 0", visited.get(FIRST.getUniqueId()));
+        assertEquals("false 1", visited.get(SECOND.getUniqueId()));
+        assertEquals("null 1", visited.get(THIRD.getUniqueId()));
+
+        final int[] stopped = {0};
+        store.forEachStored((uuid, stored, worlds) -> ++stopped[0] < 2);
+        assertEquals(2, stopped[0]);
+        store.close();
+    }
+
+    @Test
+    void migratesOnce() throws IOException {
+        final Legacy legacy = new Legacy();
+        legacy.statuses.put(FIRST.getUniqueId(), false);
+        legacy.statuses.put(SECOND.getUniqueId(), true); // Nothing to migrate
+        legacy.worlds.put(THIRD.getUniqueId(), WorldOverrides.EMPTY.with(9, false));
+        legacy.failing = new UUID(4, 4);
+        final MappedStatusStore store = open(legacy);
+        // Closed once listed, closing the store before that would stop the migration
+        for (int i = 0; i < 5000 && !legacy.closed; i++) sleep();
+        assertTrue(legacy.closed);
+        store.close();
+        assertEquals(1, errors.get()); // The failing player, skipped
+
+        final Legacy again = new Legacy();
+        final MappedStatusStore reopened = open(again);
+        assertEquals(Boolean.FALSE, reopened.load(FIRST));
+        assertNull(reopened.load(SECOND));
+        assertEquals(WorldOverrides.EMPTY.with(9, false), reopened.loadWorlds(THIRD));
+        reopened.close();
+        assertEquals(0, again.listed);
+    }
+
+    /**
+     * Enough toggles to compact the log (in the background, finished by closing), which must keep the live statuses
+     */
+    @Test
+    void compactionKeepsLiveStatuses() throws IOException {
+        final MappedStatusStore store = open(new Legacy());
+        store.save(SECOND, false);
+        store.saveWorlds(SECOND, WorldOverrides.EMPTY.with(7, true));
+        for (int i = 0; i < 10_000; i++) store.save(FIRST, i % 2 == 1);
+        store.close();
+        // Uncompacted, 10,002 records would have grown the log to 4 times its initial size
+        assertTrue(file().length() < 4L * (16 + 17 * 4096), "not compacted, " + file().length() + " bytes");
+        assertFalse(new File(folder, "statuses.bin.tmp").exists());
+
+        final MappedStatusStore reopened = open(new Legacy());
+        assertNull(reopened.load(FIRST));
+        assertEquals(Boolean.FALSE, reopened.load(SECOND));
+        assertEquals(WorldOverrides.EMPTY.with(7, true), reopened.loadWorlds(SECOND));
+        reopened.close();
+        assertEquals(0, errors.get());
+    }
+
+    /**
+     * A compaction that can't write its temporary file keeps the log, and isn't retried on every write
+     */
+    @Test
+    void failedCompactionBacksOff() throws IOException {
+        final File temp = new File(folder, "statuses.bin.tmp");
+        assertTrue(new File(temp, "blocked").mkdirs());
+        final MappedStatusStore store = open(new Legacy());
+        store.save(SECOND, false);
+        for (int i = 0; i < 20_000; i++) store.save(FIRST, i % 2 == 1);
+        store.close();
+        // Attempted after about 4,096, 8,192 and 16,384 dead records
+        assertTrue(errors.get() >= 1 && errors.get() <= 3, errors.get() + " compactions failed");
+
+        final MappedStatusStore reopened = open(new Legacy());
+        assertNull(reopened.load(FIRST));
+        assertEquals(Boolean.FALSE, reopened.load(SECOND));
+        reopened.close();
+    }
+
+    @Test
+    void rejectsOtherFiles() throws IOException {
+        Files.write(file().toPath(), new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16});
+        final Legacy legacy = new Legacy();
+        assertThrows(IOException.class, () -> open(legacy));
+        assertTrue(legacy.closed);
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(1);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @NotNull
+    private File file() {
+        return new File(folder, "statuses.bin");
+    }
+
+    @NotNull
+    private MappedStatusStore open(@NotNull StatusStore legacy) throws IOException {
+        return new MappedStatusStore(logger, () -> null, legacy, file());
+    }
+
+    /**
+     * A player that only has a UUID, which is all the store uses
+     */
+    @NotNull
+    private static OfflinePlayer player(@NotNull UUID uuid) {
+        return (OfflinePlayer) Proxy.newProxyInstance(OfflinePlayer.class.getClassLoader(), new Class<?>[]{OfflinePlayer.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getUniqueId":
+                    return uuid;
+                case "hashCode":
+                    return uuid.hashCode();
+                case "equals":
+                    return proxy == args[0];
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+
+    /**
+     * The store migrated from, only listed
+     */
+    private static class Legacy implements StatusStore {
+        @NotNull private final Map<UUID, Boolean> statuses = new HashMap<>();
+        @NotNull private final Map<UUID, WorldOverrides> worlds = new HashMap<>();
+        @Nullable private UUID failing;
+        private int listed;
+        private volatile boolean closed;
+
+        @Override @Nullable
+        public Boolean load(@NotNull OfflinePlayer player) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void save(@NotNull OfflinePlayer player, boolean enabled) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override @NotNull
+        public WorldOverrides loadWorlds(@NotNull OfflinePlayer player) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void saveWorlds(@NotNull OfflinePlayer player, @NotNull WorldOverrides overrides) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void forEachStored(@NotNull StoredVisitor visitor) {
+            listed++;
+            if (failing != null && !visitor.failed(failing, new IllegalStateException("Unreadable"))) return;
+            for (final Map.Entry<UUID, Boolean> entry : statuses.entrySet()) {
+                final WorldOverrides overrides = worlds.get(entry.getKey());
+                if (!visitor.visit(entry.getKey(), entry.getValue(), overrides != null ? overrides : WorldOverrides.EMPTY)) return;
+            }
+            for (final Map.Entry<UUID, WorldOverrides> entry : worlds.entrySet()) {
+                if (!statuses.containsKey(entry.getKey()) && !visitor.visit(entry.getKey(), null, entry.getValue())) return;
+            }
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
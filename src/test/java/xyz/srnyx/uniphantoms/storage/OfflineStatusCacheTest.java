@@ -0,0 +1,122 @@
+package xyz.srnyx.uniphantoms.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class OfflineStatusCacheTest {
+    private static final UUID FIRST = new UUID(1, 1);
+    private static final UUID SECOND = new UUID(2, 2);
+    private static final UUID THIRD = new UUID(3, 3);
+    private static final long HOUR = TimeUnit.HOURS.toNanos(1);
+
+    @Test
+    void cachesNothingStoredToo() {
+        final OfflineStatusCache cache = new OfflineStatusCache(10, HOUR);
+        final WorldOverrides worlds = WorldOverrides.EMPTY.with(3, false);
+        cache.put(FIRST, false, worlds);
+        cache.put(SECOND, null, WorldOverrides.EMPTY);
+
+        final OfflineStatusCache.Entry first = cache.get(FIRST);
+        assertNotNull(first);
+        assertEquals(false, first.stored);
+        assertEquals(worlds, first.worlds);
+        final OfflineStatusCache.Entry second = cache.get(SECOND);
+        assertNotNull(second);
+        assertNull(second.stored);
+        assertNull(cache.get(THIRD));
+
+        assertEquals(2, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsed() {
+        final OfflineStatusCache cache = new OfflineStatusCache(2, HOUR);
+        cache.put(FIRST, true, WorldOverrides.EMPTY);
+        cache.put(SECOND, true, WorldOverrides.EMPTY);
+        cache.get(FIRST); // SECOND is now the eldest
+        cache.put(THIRD, true, WorldOverrides.EMPTY);
+
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get(FIRST));
+        assertNull(cache.get(SECOND));
+        assertNotNull(cache.get(THIRD));
+    }
+
+    @Test
+    void zeroSizeCachesNothing() {
+        final OfflineStatusCache cache = new OfflineStatusCache(0, HOUR);
+        cache.put(FIRST, true, WorldOverrides.EMPTY);
+        assertNull(cache.get(FIRST));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void entriesExpire() {
+        final OfflineStatusCache cache = new OfflineStatusCache(10, 0);
+        cache.put(FIRST, true, WorldOverrides.EMPTY);
+        assertNull(cache.get(FIRST));
+        assertEquals(0, cache.size()); // Dropped when found expired
+
+        cache.put(SECOND, true, WorldOverrides.EMPTY);
+        assertNull(cache.remove(SECOND));
+        cache.put(THIRD, true, WorldOverrides.EMPTY);
+        final Map<UUID, OfflineStatusCache.Entry> visited = new HashMap<>();
+        cache.forEach(visited::put);
+        assertTrue(visited.isEmpty());
+    }
+
+    @Test
+    void removeReturnsTheEntry() {
+        final OfflineStatusCache cache = new OfflineStatusCache(10, HOUR);
+        cache.put(FIRST, false, WorldOverrides.EMPTY);
+        final OfflineStatusCache.Entry entry = cache.get(FIRST);
+        assertSame(entry, cache.remove(FIRST));
+        assertNull(cache.remove(FIRST));
+        assertNull(cache.get(FIRST));
+    }
+
+    /**
+     * A load that read the storage before a change must not cache its stale result once the change removed the entry
+     */
+    @Test
+    void staleLoadIsNotCached() {
+        final OfflineStatusCache cache = new OfflineStatusCache(10, HOUR);
+        final long before = cache.getRemovals();
+        cache.remove(FIRST); // A change saved meanwhile
+        assertFalse(cache.putIfUnchanged(FIRST, true, WorldOverrides.EMPTY, before));
+        assertNull(cache.get(FIRST));
+
+        assertTrue(cache.putIfUnchanged(FIRST, false, WorldOverrides.EMPTY, cache.getRemovals()));
+        assertNotNull(cache.get(FIRST));
+
+        final long beforeClear = cache.getRemovals();
+        cache.clear();
+        assertFalse(cache.putIfUnchanged(SECOND, true, WorldOverrides.EMPTY, beforeClear));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void forEachVisitsLiveEntries() {
+        final OfflineStatusCache cache = new OfflineStatusCache(10, HOUR);
+        cache.put(FIRST, true, WorldOverrides.EMPTY);
+        cache.put(SECOND, null, WorldOverrides.EMPTY.with(0, true));
+        final Map<UUID, OfflineStatusCache.Entry> visited = new HashMap<>();
+        cache.forEach(visited::put);
+        assertEquals(2, visited.size());
+        assertEquals(true, visited.get(FIRST).stored);
+        assertEquals(true, visited.get(SECOND).worlds.get(0));
+    }
+}
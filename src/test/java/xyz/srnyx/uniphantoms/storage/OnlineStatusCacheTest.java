@@ -0,0 +1,160 @@
+package xyz.srnyx.uniphantoms.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+
+class OnlineStatusCacheTest {
+    private static final UUID FIRST = new UUID(1, 1);
+    private static final UUID SECOND = new UUID(2, 2);
+
+    private final OnlineStatusCache cache = new OnlineStatusCache();
+
+    @Test
+    void putGetRemove() {
+        assertNull(cache.get(FIRST));
+        cache.put(FIRST, PhantomStatus.DISABLED);
+        cache.put(SECOND, PhantomStatus.ENABLED);
+        assertSame(PhantomStatus.DISABLED, cache.get(FIRST));
+        assertSame(PhantomStatus.ENABLED, cache.get(SECOND));
+        assertEquals(2, cache.size());
+
+        cache.put(FIRST, PhantomStatus.ENABLED);
+        assertSame(PhantomStatus.ENABLED, cache.get(FIRST));
+        assertEquals(2, cache.size());
+
+        cache.remove(FIRST);
+        assertNull(cache.get(FIRST));
+        assertSame(PhantomStatus.ENABLED, cache.get(SECOND));
+        assertEquals(1, cache.size());
+
+        cache.clear();
+        assertNull(cache.get(SECOND));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void replaceOnlyUpdatesCachedPlayers() {
+        cache.replace(FIRST, PhantomStatus.DISABLED);
+        assertNull(cache.get(FIRST));
+        cache.put(FIRST, PhantomStatus.ENABLED);
+        cache.replace(FIRST, PhantomStatus.DISABLED);
+        assertSame(PhantomStatus.DISABLED, cache.get(FIRST));
+    }
+
+    @Test
+    void putIfAbsentKeepsExistingStatus() {
+        assertSame(PhantomStatus.ENABLED, cache.putIfAbsent(FIRST, PhantomStatus.ENABLED));
+        assertSame(PhantomStatus.ENABLED, cache.putIfAbsent(FIRST, PhantomStatus.DISABLED));
+        assertSame(PhantomStatus.ENABLED, cache.get(FIRST));
+    }
+
+    @Test
+    void survivesGrowthAndCollidingSlots() {
+        final Map<UUID, PhantomStatus> expected = new HashMap<>();
+        for (int i = 0; i < 2000; i++) {
+            final UUID uuid = new UUID(i, i); // msb ^ lsb is 0 for all of them, so they all hash to the same slot
+            final PhantomStatus status = PhantomStatus.of(i % 3 == 0);
+            cache.put(uuid, status);
+            expected.put(uuid, status);
+        }
+        for (int i = 0; i < 2000; i += 2) {
+            cache.remove(new UUID(i, i));
+            expected.remove(new UUID(i, i));
+        }
+        assertEquals(expected.size(), cache.size());
+        for (final Map.Entry<UUID, PhantomStatus> entry : expected.entrySet()) assertSame(entry.getValue(), cache.get(entry.getKey()));
+        final Map<UUID, PhantomStatus> visited = new HashMap<>();
+        cache.forEach(visited::put);
+        assertEquals(expected, visited);
+    }
+
+    /**
+     * Writers join and quit their own players while readers check players that never leave, which must always be visible with their status
+     */
+    @Test
+    void readersAlwaysSeeStablePlayersDuringWrites() throws InterruptedException {
+        final int stable = 64;
+        for (int i = 0; i < stable; i++) cache.put(new UUID(-1, i), PhantomStatus.of(i % 2 == 0));
+
+        final int writers = 4;
+        final int readers = 4;
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final AtomicInteger missing = new AtomicInteger();
+        final AtomicInteger wrong = new AtomicInteger();
+        final CountDownLatch writersDone = new CountDownLatch(writers);
+        final List<Thread> threads = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            final int writer = w;
+            threads.add(new Thread(() -> {
+                for (int round = 0; round < 2000; round++) {
+                    final UUID uuid = new UUID(writer, round % 50);
+                    if (round % 3 == 2) {
+                        cache.remove(uuid);
+                    } else if (round % 3 == 1) {
+                        cache.replace(uuid, PhantomStatus.DISABLED);
+                    } else {
+                        cache.put(uuid, PhantomStatus.ENABLED);
+                    }
+                }
+                writersDone.countDown();
+            }));
+        }
+        for (int r = 0; r < readers; r++) threads.add(new Thread(() -> {
+            while (running.get()) {
+                for (int i = 0; i < stable; i++) {
+                    final PhantomStatus status = cache.get(new UUID(-1, i));
+                    if (status == null) {
+                        missing.incrementAndGet();
+                    } else if (status.isEnabled() != (i % 2 == 0)) {
+                        wrong.incrementAndGet();
+                    }
+                }
+            }
+        }));
+        for (final Thread thread : threads) thread.start();
+        writersDone.await();
+        running.set(false);
+        for (final Thread thread : threads) thread.join();
+
+        assertEquals(0, missing.get(), "stable players missing from a published table");
+        assertEquals(0, wrong.get(), "stable players with the wrong status");
+        for (int i = 0; i < stable; i++) assertEquals(i % 2 == 0, cache.get(new UUID(-1, i)).isEnabled());
+        // The size matches the players that are visible
+        int expected = stable;
+        for (int w = 0; w < writers; w++) for (int key = 0; key < 50; key++) if (cache.get(new UUID(w, key)) != null) expected++;
+        assertEquals(expected, cache.size());
+    }
+
+    /**
+     * Concurrent puts of distinct players must not lose any (each write rebuilds the table from the latest one)
+     */
+    @Test
+    void concurrentPutsKeepEveryPlayer() throws InterruptedException {
+        final int threads = 8;
+        final int perThread = 250;
+        final List<Thread> started = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final int thread = t;
+            started.add(new Thread(() -> {
+                for (int i = 0; i < perThread; i++) cache.put(new UUID(thread, i), PhantomStatus.DISABLED);
+            }));
+        }
+        for (final Thread thread : started) thread.start();
+        for (final Thread thread : started) thread.join();
+        assertEquals(threads * perThread, cache.size());
+        for (int t = 0; t < threads; t++) for (int i = 0; i < perThread; i++) assertSame(PhantomStatus.DISABLED, cache.get(new UUID(t, i)));
+    }
+}
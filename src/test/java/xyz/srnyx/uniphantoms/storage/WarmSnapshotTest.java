@@ -0,0 +1,122 @@
+package xyz.srnyx.uniphantoms.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class WarmSnapshotTest {
+    private static final UUID FIRST = new UUID(1, 1);
+    private static final UUID SECOND = new UUID(2, 2);
+
+    @TempDir File folder;
+
+    @Test
+    void missingFileLoadsNothing() throws IOException {
+        assertNull(WarmSnapshot.load(new File(folder, "missing.bin")));
+    }
+
+    @Test
+    void roundTrips() throws IOException {
+        final Map<UUID, PhantomStatus> statuses = new HashMap<>();
+        statuses.put(FIRST, PhantomStatus.DISABLED);
+        statuses.put(SECOND, PhantomStatus.of(true, WorldOverrides.EMPTY.with(1, false).with(100, false).with(2, true)));
+        final Map<String, Long> phases = new HashMap<>();
+        phases.put("world", 42L);
+        phases.put("wörld_nether", 0L);
+        final File file = new File(folder, "snapshot.bin");
+        new WarmSnapshot(true, StatusStore.Backend.MAPPED, 6000, statuses, phases, Collections.singletonMap(FIRST, 1_700_000_000_000L)).save(file);
+
+        final WarmSnapshot loaded = WarmSnapshot.load(file);
+        assertNotNull(loaded);
+        assertTrue(loaded.def);
+        assertSame(StatusStore.Backend.MAPPED, loaded.backend);
+        assertEquals(6000, loaded.period);
+        assertEquals(phases, loaded.phases);
+        assertEquals(Collections.singletonMap(FIRST, 1_700_000_000_000L), loaded.cooldowns);
+
+        assertEquals(2, loaded.statuses.size());
+        assertSame(PhantomStatus.DISABLED, loaded.statuses.get(FIRST)); // No overrides, the shared instance
+        final PhantomStatus second = loaded.statuses.get(SECOND);
+        assertTrue(second.isEnabled());
+        assertTrue(second.isEnabled(0));
+        assertFalse(second.isEnabled(1));
+        assertTrue(second.isEnabled(2));
+        assertFalse(second.isEnabled(100));
+        assertTrue(second.isEnabled(101));
+        assertArrayEquals(statuses.get(SECOND).getReversed(), second.getReversed());
+    }
+
+    @Test
+    void emptySnapshotRoundTrips() throws IOException {
+        final File file = new File(folder, "snapshot.bin");
+        new WarmSnapshot(false, StatusStore.Backend.ANNOYING, 1, Collections.emptyMap(), Collections.emptyMap(), Collections.emptyMap()).save(file);
+        final WarmSnapshot loaded = WarmSnapshot.load(file);
+        assertNotNull(loaded);
+        assertFalse(loaded.def);
+        assertSame(StatusStore.Backend.ANNOYING, loaded.backend);
+        assertTrue(loaded.statuses.isEmpty());
+        assertTrue(loaded.phases.isEmpty());
+        assertTrue(loaded.cooldowns.isEmpty());
+    }
+
+    @Test
+    void rejectsOtherFiles() throws IOException {
+        final File file = new File(folder, "snapshot.bin");
+        Files.write(file.toPath(), new byte[]{0, 1, 2, 3, 4, 5, 6, 7, 8, 9});
+        assertThrows(IOException.class, () -> WarmSnapshot.load(file));
+    }
+
+    @Test
+    void rejectsUnknownBackend() throws IOException {
+        final File file = new File(folder, "snapshot.bin");
+        new WarmSnapshot(false, StatusStore.Backend.ANNOYING, 1, Collections.emptyMap(), Collections.emptyMap(), Collections.emptyMap()).save(file);
+        final byte[] bytes = Files.readAllBytes(file.toPath());
+        bytes[9] = 100; // After magic, version and default
+        Files.write(file.toPath(), bytes);
+        assertThrows(IOException.class, () -> WarmSnapshot.load(file));
+    }
+
+    @Test
+    void rejectsTruncatedFiles() throws IOException {
+        final File file = new File(folder, "snapshot.bin");
+        new WarmSnapshot(false, StatusStore.Backend.ANNOYING, 1, Collections.singletonMap(FIRST, PhantomStatus.ENABLED), Collections.emptyMap(), Collections.emptyMap()).save(file);
+        final byte[] bytes = Files.readAllBytes(file.toPath());
+        Files.write(file.toPath(), Arrays.copyOf(bytes, bytes.length - 6));
+        assertThrows(IOException.class, () -> WarmSnapshot.load(file));
+    }
+
+    /**
+     * A count larger than the rest of the file is rejected before the maps are sized from it
+     */
+    @Test
+    void rejectsOversizedCounts() throws IOException {
+        final File file = new File(folder, "snapshot.bin");
+        new WarmSnapshot(false, StatusStore.Backend.ANNOYING, 1, Collections.singletonMap(FIRST, PhantomStatus.ENABLED), Collections.emptyMap(), Collections.emptyMap()).save(file);
+        final byte[] bytes = Files.readAllBytes(file.toPath());
+        for (final int count : new int[]{Integer.MAX_VALUE, -1, 2}) {
+            ByteBuffer.wrap(bytes).putInt(18, count); // After magic, version, default, backend and period
+            Files.write(file.toPath(), bytes);
+            final IOException e = assertThrows(IOException.class, () -> WarmSnapshot.load(file));
+            assertTrue(e.getMessage().startsWith("Invalid count"), e.getMessage());
+        }
+    }
+}
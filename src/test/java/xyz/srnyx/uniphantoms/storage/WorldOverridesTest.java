@@ -0,0 +1,96 @@
+package xyz.srnyx.uniphantoms.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class WorldOverridesTest {
+    @Test
+    void emptyHasNoStatuses() {
+        assertTrue(WorldOverrides.EMPTY.isEmpty());
+        assertEquals(0, WorldOverrides.EMPTY.size());
+        assertNull(WorldOverrides.EMPTY.get(0));
+        assertNull(WorldOverrides.EMPTY.get(1000));
+    }
+
+    @Test
+    void withSetsAndClearsOneWorld() {
+        final WorldOverrides overrides = WorldOverrides.EMPTY.with(2, true).with(70, false);
+        assertEquals(true, overrides.get(2));
+        assertEquals(false, overrides.get(70));
+        assertNull(overrides.get(3));
+        assertEquals(2, overrides.size());
+
+        // Replacing a status keeps a single one
+        final WorldOverrides flipped = overrides.with(2, false);
+        assertEquals(false, flipped.get(2));
+        assertEquals(2, flipped.size());
+
+        assertNull(flipped.with(2, null).get(2));
+        assertEquals(1, flipped.with(2, null).size());
+    }
+
+    @Test
+    void isImmutable() {
+        final WorldOverrides overrides = WorldOverrides.EMPTY.with(5, true);
+        overrides.with(5, false);
+        overrides.with(6, false);
+        assertEquals(true, overrides.get(5));
+        assertNull(overrides.get(6));
+        assertTrue(WorldOverrides.EMPTY.isEmpty());
+    }
+
+    @Test
+    void clearingEverythingGivesEmpty() {
+        assertSame(WorldOverrides.EMPTY, WorldOverrides.EMPTY.with(130, true).with(130, null));
+        assertSame(WorldOverrides.EMPTY, WorldOverrides.EMPTY.with(4, null));
+    }
+
+    /**
+     * Arrays of different lengths with the same bits set are the same overrides
+     */
+    @Test
+    void equalityIgnoresTrailingWords() {
+        final WorldOverrides grown = WorldOverrides.EMPTY.with(1, true).with(200, false).with(200, null);
+        final WorldOverrides small = WorldOverrides.EMPTY.with(1, true);
+        assertEquals(small, grown);
+        assertEquals(small.hashCode(), grown.hashCode());
+        assertFalse(small.equals(WorldOverrides.EMPTY.with(1, false)));
+    }
+
+    @Test
+    void forEachVisitsInIdOrder() {
+        final WorldOverrides overrides = WorldOverrides.EMPTY.with(65, false).with(0, true).with(63, true).with(128, false);
+        final List<String> visited = new ArrayList<>();
+        overrides.forEach((worldId, enabled) -> visited.add(worldId + "=" + enabled));
+        assertEquals(Arrays.asList("0=true", "63=true", "65=false", "128=false"), visited);
+    }
+
+    @Test
+    void differingFromTheGlobalStatus() {
+        final WorldOverrides overrides = WorldOverrides.EMPTY.with(1, true).with(2, false);
+        // Globally enabled: only the disabled world differs
+        assertArrayEquals(new long[]{1L << 2}, WorldOverrides.trim(overrides.differingFrom(true)));
+        assertArrayEquals(new long[]{1L << 1}, WorldOverrides.trim(overrides.differingFrom(false)));
+    }
+
+    @Test
+    void testAndTrim() {
+        final long[] bits = {0, 1L << 3, 0, 0};
+        assertTrue(WorldOverrides.test(bits, 64 + 3));
+        assertFalse(WorldOverrides.test(bits, 3));
+        assertFalse(WorldOverrides.test(bits, 10_000));
+        assertArrayEquals(new long[]{0, 1L << 3}, WorldOverrides.trim(bits));
+        assertArrayEquals(new long[0], WorldOverrides.trim(new long[]{0, 0}));
+    }
+}
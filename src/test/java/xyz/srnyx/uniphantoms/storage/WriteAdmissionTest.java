@@ -0,0 +1,133 @@
+package xyz.srnyx.uniphantoms.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+/**
+ * Writes run on the calling thread, and the rates are low enough that the bucket doesn't refill between two calls
+ */
+class WriteAdmissionTest {
+    @Test
+    void unlimitedAdmitsEverything() {
+        final WriteAdmission admission = new WriteAdmission(0, 1, 0, Runnable::run);
+        for (int i = 0; i < 100; i++) {
+            final WriteAdmission.Ticket<Integer> ticket = admission.submit(() -> 1);
+            assertNotNull(ticket);
+            assertFalse(ticket.deferred);
+            assertEquals(1, ticket.result.getNow(null));
+        }
+        assertEquals(100, admission.getAdmitted());
+        assertEquals(0, admission.getDeferred());
+    }
+
+    @Test
+    void defersPastTheBurstThenRejects() {
+        final WriteAdmission admission = new WriteAdmission(1, 2, 2, Runnable::run);
+        for (int i = 0; i < 2; i++) {
+            final WriteAdmission.Ticket<Integer> ticket = admission.submit(() -> 1);
+            assertNotNull(ticket);
+            assertFalse(ticket.deferred);
+            assertTrue(ticket.result.isDone());
+        }
+        for (int i = 0; i < 2; i++) {
+            final WriteAdmission.Ticket<Integer> ticket = admission.submit(() -> 1);
+            assertNotNull(ticket);
+            assertTrue(ticket.deferred);
+            assertFalse(ticket.result.isDone());
+        }
+        assertNull(admission.submit(() -> 1));
+
+        assertEquals(2, admission.getAdmitted());
+        assertEquals(2, admission.getDeferred());
+        assertEquals(1, admission.getRejected());
+        assertEquals(2, admission.getQueued());
+    }
+
+    @Test
+    void flushStartsQueuedWritesInOrder() {
+        final WriteAdmission admission = new WriteAdmission(1, 1, 10, Runnable::run);
+        final List<Integer> order = new ArrayList<>();
+        admission.submit(() -> order.add(0));
+        final List<WriteAdmission.Ticket<Boolean>> queued = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            final int index = i;
+            queued.add(admission.submit(() -> order.add(index)));
+        }
+        assertEquals(Arrays.asList(0), order);
+
+        admission.flush();
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4, 5), order);
+        for (final WriteAdmission.Ticket<Boolean> ticket : queued) assertTrue(ticket.result.isDone());
+        assertEquals(0, admission.getQueued());
+        assertEquals(6, admission.getAdmitted());
+    }
+
+    @Test
+    void drainOnlyStartsWritesWithAToken() {
+        final WriteAdmission admission = new WriteAdmission(1, 1, 10, Runnable::run);
+        admission.submit(() -> 0);
+        final WriteAdmission.Ticket<Integer> queued = admission.submit(() -> 1);
+        assertNotNull(queued);
+        admission.drain();
+        assertFalse(queued.result.isDone());
+        assertEquals(1, admission.getQueued());
+    }
+
+    /**
+     * A write submitted while others wait must not overtake them, even if a token is available
+     */
+    @Test
+    void queuedWritesAreNotOvertaken() throws InterruptedException {
+        final WriteAdmission admission = new WriteAdmission(20, 1, 10, Runnable::run);
+        final List<String> order = new ArrayList<>();
+        admission.submit(() -> order.add("first"));
+        final WriteAdmission.Ticket<Boolean> second = admission.submit(() -> order.add("second"));
+        assertNotNull(second);
+        assertTrue(second.deferred);
+
+        Thread.sleep(100); // A token is back
+        final WriteAdmission.Ticket<Boolean> third = admission.submit(() -> order.add("third"));
+        assertNotNull(third);
+        assertTrue(third.deferred);
+
+        admission.drain();
+        assertEquals(Arrays.asList("first", "second"), order);
+        admission.flush();
+        assertEquals(Arrays.asList("first", "second", "third"), order);
+    }
+
+    @Test
+    void failedWriteCompletesExceptionally() {
+        final WriteAdmission admission = new WriteAdmission(1, 1, 10, Runnable::run);
+        admission.submit(() -> 0);
+        final WriteAdmission.Ticket<Integer> failing = admission.submit(() -> {
+            throw new IllegalStateException("failed");
+        });
+        assertNotNull(failing);
+        admission.flush();
+        assertTrue(failing.result.isCompletedExceptionally());
+    }
+
+    @Test
+    void rejectedTargetCompletesExceptionally() {
+        final WriteAdmission admission = new WriteAdmission(1, 1, 10, Runnable::run);
+        admission.submit(() -> 0);
+        final WriteAdmission.Ticket<Integer> queued = admission.submit(() -> 1, task -> {
+            throw new RejectedExecutionException("closed");
+        });
+        assertNotNull(queued);
+        admission.flush();
+        assertTrue(queued.result.isCompletedExceptionally());
+    }
+}
@@ -0,0 +1,178 @@
+package xyz.srnyx.uniphantoms.sync;
+
+import org.jetbrains.annotations.NotNull;
+
+import org.junit.jupiter.api.Test;
+
+import xyz.srnyx.uniphantoms.storage.OnlineStatusCache;
+import xyz.srnyx.uniphantoms.storage.PhantomStatus;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class StatusSyncTest {
+    /**
+     * Entries per packet with {@link #SMALL_PAYLOAD}
+     */
+    private static final int PER_PACKET = 2;
+    private static final int SMALL_PAYLOAD = 1 + 8 + 4 + (8 + 8 + 1) * PER_PACKET;
+
+    private final LocalTransport.Hub hub = new LocalTransport.Hub();
+    private final TestTransport senderTransport = new TestTransport(hub);
+    private final StatusSync sender = new StatusSync(senderTransport, (uuid, enabled) -> {});
+    /**
+     * The other server's online players, updated like {@code UniPhantoms#applyRemoteStatus}
+     */
+    private final OnlineStatusCache cache = new OnlineStatusCache();
+    private final TestTransport receiverTransport = new TestTransport(hub);
+    private final StatusSync receiver = new StatusSync(receiverTransport, (uuid, enabled) -> {
+        receiverTransport.received++;
+        if (enabled == null) {
+            cache.remove(uuid);
+        } else {
+            cache.replace(uuid, PhantomStatus.of(enabled));
+        }
+    });
+
+    @Test
+    void batchesOneTickIntoOnePacket() {
+        for (int i = 0; i < 100; i++) online(i);
+        for (int i = 0; i < 100; i++) sender.publish(uuid(i), false);
+        sender.publish(uuid(0), true); // The newest change of a player wins
+        sender.flush();
+
+        assertEquals(1, senderTransport.sent);
+        assertEquals(100, receiverTransport.received);
+        assertTrue(cache.get(uuid(0)).isEnabled());
+        for (int i = 1; i < 100; i++) assertFalse(cache.get(uuid(i)).isEnabled());
+
+        sender.flush(); // Nothing left
+        assertEquals(1, senderTransport.sent);
+    }
+
+    @Test
+    void splitsByMaxPayloadSize() {
+        senderTransport.maxPayload = SMALL_PAYLOAD;
+        for (int i = 0; i < 5; i++) sender.publish(uuid(i), false);
+        sender.flush();
+        assertEquals(3, senderTransport.sent);
+        assertEquals(5, receiverTransport.received);
+    }
+
+    @Test
+    void refusedSendIsRequeued() {
+        online(1);
+        online(2);
+        senderTransport.refuse = 1;
+        sender.publish(uuid(1), false);
+        sender.publish(uuid(2), false);
+        sender.flush();
+        assertEquals(0, senderTransport.sent);
+        assertEquals(0, receiverTransport.received);
+        assertTrue(cache.get(uuid(1)).isEnabled());
+
+        sender.publish(uuid(2), true); // Newer than the requeued change
+        sender.flush();
+        assertEquals(1, senderTransport.sent);
+        assertEquals(2, receiverTransport.received);
+        assertFalse(cache.get(uuid(1)).isEnabled());
+        assertTrue(cache.get(uuid(2)).isEnabled());
+    }
+
+    /**
+     * Only the refused packet and the ones after it are requeued, the packets already sent aren't sent twice
+     */
+    @Test
+    void requeuesFromTheRefusedPacket() {
+        senderTransport.maxPayload = SMALL_PAYLOAD;
+        for (int i = 0; i < 6; i++) sender.publish(uuid(i), false);
+        senderTransport.refuseAfter = 1;
+        sender.flush();
+        assertEquals(1, senderTransport.sent);
+        assertEquals(PER_PACKET, receiverTransport.received);
+
+        sender.flush();
+        assertEquals(3, senderTransport.sent);
+        assertEquals(6, receiverTransport.received);
+    }
+
+    @Test
+    void receivedPacketUpdatesTheCache() {
+        online(1);
+        online(2);
+        sender.publish(uuid(1), false);
+        sender.publish(uuid(2), null); // Reloaded from storage by the other server
+        sender.publish(uuid(3), false); // Not online there
+        sender.flush();
+
+        assertFalse(cache.get(uuid(1)).isEnabled());
+        assertNull(cache.get(uuid(2)));
+        assertNull(cache.get(uuid(3)));
+    }
+
+    @Test
+    void closedServerReceivesNothing() {
+        online(1);
+        receiver.close();
+        sender.publish(uuid(1), false);
+        sender.flush();
+        assertEquals(1, senderTransport.sent);
+        assertEquals(0, receiverTransport.received);
+        assertTrue(cache.get(uuid(1)).isEnabled());
+    }
+
+    private void online(int id) {
+        cache.put(uuid(id), PhantomStatus.ENABLED);
+    }
+
+    @NotNull
+    private static UUID uuid(int id) {
+        return new UUID(id, id);
+    }
+
+    /**
+     * Counts packets and can refuse them, like a proxy transport with no player to send through
+     */
+    private static class TestTransport extends LocalTransport {
+        private int maxPayload = Integer.MAX_VALUE;
+        /**
+         * Sends to refuse before accepting again
+         */
+        private int refuse;
+        /**
+         * Sends to accept before refusing one, {@code -1} to never refuse
+         */
+        private int refuseAfter = -1;
+        private int sent;
+        private int received;
+
+        private TestTransport(@NotNull Hub hub) {
+            super(hub);
+        }
+
+        @Override
+        public boolean send(@NotNull byte[] payload) {
+            if (refuseAfter == 0) {
+                refuseAfter = -1;
+                return false;
+            }
+            if (refuseAfter > 0) refuseAfter--;
+            if (refuse > 0) {
+                refuse--;
+                return false;
+            }
+            sent++;
+            return super.send(payload);
+        }
+
+        @Override
+        public int maxPayloadSize() {
+            return maxPayload;
+        }
+    }
+}
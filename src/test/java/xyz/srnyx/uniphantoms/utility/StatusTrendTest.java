@@ -0,0 +1,126 @@
+package xyz.srnyx.uniphantoms.utility;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+
+class StatusTrendTest {
+    @TempDir File folder;
+
+    @Test
+    void missingFileLoadsEmpty() throws IOException {
+        final StatusTrend trend = StatusTrend.load(new File(folder, "missing.bin"));
+        assertEquals(0, trend.getMinuteSamples());
+        for (final StatusTrend.Window window : StatusTrend.Window.VALUES) assertEquals(-1, trend.getDisabledPercentage(window));
+    }
+
+    @Test
+    void averagesTheSamples() {
+        final StatusTrend trend = new StatusTrend();
+        trend.sample(1, 3);
+        trend.sample(3, 1);
+        trend.sample(0, 4);
+        assertEquals(66, trend.getDisabledPercentage(StatusTrend.Window.HOUR));
+        assertEquals(34, trend.getEnabledPercentage(StatusTrend.Window.HOUR));
+        // The partial hour already counts towards the longer windows
+        assertEquals(66, trend.getDisabledPercentage(StatusTrend.Window.DAY));
+        assertEquals(66, trend.getDisabledPercentage(StatusTrend.Window.MONTH));
+    }
+
+    @Test
+    void hourWindowOnlyKeepsTheLastHour() {
+        final StatusTrend trend = new StatusTrend();
+        for (int i = 0; i < 60; i++) trend.sample(0, 1);
+        for (int i = 0; i < 60; i++) trend.sample(1, 0);
+        assertEquals(60, trend.getMinuteSamples());
+        assertEquals(0, trend.getDisabledPercentage(StatusTrend.Window.HOUR));
+        assertEquals(50, trend.getDisabledPercentage(StatusTrend.Window.DAY));
+    }
+
+    @Test
+    void roundTrips() throws IOException {
+        final StatusTrend trend = new StatusTrend();
+        for (int i = 0; i < 60 * 25 + 17; i++) trend.sample(i % 7, i % 5);
+        final File file = new File(folder, "trend.bin");
+        trend.save(file);
+
+        final StatusTrend loaded = StatusTrend.load(file);
+        assertEquals(trend.getMinuteSamples(), loaded.getMinuteSamples());
+        for (final StatusTrend.Window window : StatusTrend.Window.VALUES) assertEquals(trend.getDisabledPercentage(window), loaded.getDisabledPercentage(window));
+        // Keeps rolling from where it was
+        for (int i = 0; i < 100; i++) {
+            trend.sample(i % 3, 2);
+            loaded.sample(i % 3, 2);
+        }
+        for (final StatusTrend.Window window : StatusTrend.Window.VALUES) assertEquals(trend.getDisabledPercentage(window), loaded.getDisabledPercentage(window));
+    }
+
+    @Test
+    void rejectsOtherFiles() throws IOException {
+        final File file = new File(folder, "trend.bin");
+        Files.write(file.toPath(), new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+        assertThrows(IOException.class, () -> StatusTrend.load(file));
+    }
+
+    @Test
+    void rejectsInvalidRingIndices() throws IOException {
+        assertThrows(IOException.class, () -> StatusTrend.load(write(60, 60, 0)), "next past the end");
+        assertThrows(IOException.class, () -> StatusTrend.load(write(-1, 60, 0)), "negative next");
+        assertThrows(IOException.class, () -> StatusTrend.load(write(0, 61, 0)), "filled past the size");
+        assertThrows(IOException.class, () -> StatusTrend.load(write(0, -1, 0)), "negative filled");
+        assertThrows(IOException.class, () -> StatusTrend.load(write(3, 10, 0)), "next doesn't follow the filled slots");
+    }
+
+    @Test
+    void rejectsInvalidPartialPeriod() throws IOException {
+        assertThrows(IOException.class, () -> StatusTrend.load(write(10, 10, 60)));
+        assertThrows(IOException.class, () -> StatusTrend.load(write(10, 10, -1)));
+    }
+
+    @Test
+    void acceptsValidIndices() throws IOException {
+        assertEquals(10, StatusTrend.load(write(10, 10, 10)).getMinuteSamples());
+        assertEquals(60, StatusTrend.load(write(17, 60, 59)).getMinuteSamples());
+    }
+
+    /**
+     * Write a file in the {@link StatusTrend#save(File)} layout with chosen minute ring indices and partial hour count, everything else empty
+     */
+    private File write(int minutesNext, int minutesFilled, int hourCount) throws IOException {
+        final File file = new File(folder, "trend.bin");
+        try (final DataOutputStream output = new DataOutputStream(Files.newOutputStream(file.toPath()))) {
+            output.writeInt(0x55505452);
+            output.writeInt(1);
+            writeRing(output, 60, minutesNext, minutesFilled);
+            writeRing(output, 24, 0, 0);
+            writeRing(output, 30, 0, 0);
+            writeBucket(output, hourCount);
+            writeBucket(output, 0);
+        }
+        return file;
+    }
+
+    private static void writeRing(DataOutputStream output, int size, int next, int filled) throws IOException {
+        output.writeInt(size);
+        output.writeInt(next);
+        output.writeInt(filled);
+        for (int i = 0; i < size; i++) {
+            output.writeLong(1);
+            output.writeLong(1);
+        }
+    }
+
+    private static void writeBucket(DataOutputStream output, int count) throws IOException {
+        output.writeLong(0);
+        output.writeLong(0);
+        output.writeInt(count);
+    }
+}
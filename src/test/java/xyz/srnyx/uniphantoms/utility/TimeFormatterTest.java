@@ -0,0 +1,91 @@
+package xyz.srnyx.uniphantoms.utility;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+
+class TimeFormatterTest {
+    private static final long DAY = 86_400_000L;
+
+    @Test
+    void formatsEveryStyle() {
+        final long time = DAY + 2 * 3_600_000L + 30 * 60_000L + 45_000L;
+        assertEquals("1 day 2 hours 30 minutes 45 seconds", TimeFormatter.format(time));
+        assertEquals("1d 2h 30m 45s", TimeFormatter.format(time, TimeFormatter.TimeFormat.SHORT));
+        assertEquals("1d2h30m45s", TimeFormatter.format(time, TimeFormatter.TimeFormat.COMPACT));
+    }
+
+    @Test
+    void skipsZeroUnitsAndPluralizes() {
+        assertEquals("1 hour", TimeFormatter.format(3_600_000L));
+        assertEquals("2 minutes 1 second", TimeFormatter.format(121_000L));
+        assertEquals("10d 5s", TimeFormatter.format(10 * DAY + 5_000L, TimeFormatter.TimeFormat.SHORT));
+    }
+
+    @Test
+    void formatsZeroAndNegative() {
+        assertEquals("0 seconds", TimeFormatter.format(999));
+        assertEquals("0s", TimeFormatter.format(0, TimeFormatter.TimeFormat.SHORT));
+        assertEquals("0s", TimeFormatter.format(-1));
+    }
+
+    @Test
+    void formatsLargestValue() {
+        assertEquals("106751991167d 7h 12m 55s", TimeFormatter.format(Long.MAX_VALUE, TimeFormatter.TimeFormat.SHORT));
+    }
+
+    @Test
+    void cachedFormatIsReusedWithinASecond() {
+        final String first = TimeFormatter.format(61_000L, TimeFormatter.TimeFormat.SHORT);
+        assertSame(first, TimeFormatter.format(61_999L, TimeFormatter.TimeFormat.SHORT));
+        assertEquals("1m 2s", TimeFormatter.format(62_000L, TimeFormatter.TimeFormat.SHORT));
+        // Same slot (64 seconds apart), different second
+        assertEquals("2m 5s", TimeFormatter.format(125_000L, TimeFormatter.TimeFormat.SHORT));
+        assertEquals("1m 1s", TimeFormatter.format(61_000L, TimeFormatter.TimeFormat.SHORT));
+    }
+
+    @Test
+    void formatsIntoBuffers() throws IOException {
+        final StringBuilder builder = new StringBuilder("in ");
+        TimeFormatter.format(90_000L, TimeFormatter.TimeFormat.LONG, builder);
+        assertEquals("in 1 minute 30 seconds", builder.toString());
+
+        final StringWriter writer = new StringWriter();
+        TimeFormatter.format(90_000L, TimeFormatter.TimeFormat.COMPACT, writer);
+        assertEquals("1m30s", writer.toString());
+    }
+
+    @Test
+    void parsesUnitsAndBareNumbers() {
+        assertEquals(DAY + 2 * 3_600_000L + 3 * 60_000L + 4_000L, TimeFormatter.parse("1d2h3m4s"));
+        assertEquals(5_400_000L, TimeFormatter.parse("1H30M"));
+        assertEquals(30_000L, TimeFormatter.parse("30"));
+        assertEquals(90_000L, TimeFormatter.parse("1m 30"));
+    }
+
+    @Test
+    void parsesInvalidAsZero() {
+        assertEquals(0, TimeFormatter.parse(""));
+        assertEquals(0, TimeFormatter.parse("abc"));
+        assertEquals(0, TimeFormatter.parse("5x"));
+    }
+
+    @Test
+    void parseCapsInsteadOfOverflowing() {
+        assertEquals(Long.MAX_VALUE, TimeFormatter.parse("999999999999d"));
+        assertEquals(Long.MAX_VALUE, TimeFormatter.parse("106751991167d7h12m56s"));
+        assertEquals(Long.MAX_VALUE, TimeFormatter.parse("9223372036854775807s1s"));
+        assertEquals(Long.MAX_VALUE - 807, TimeFormatter.parse("106751991167d7h12m55s"));
+    }
+
+    @Test
+    void parseRejectsNumbersTooLongForALong() {
+        assertThrows(NumberFormatException.class, () -> TimeFormatter.parse("99999999999999999999s"));
+    }
+}
@@ -0,0 +1,157 @@
+package xyz.srnyx.uniphantoms.zone;
+
+import org.bukkit.World;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class ZoneIndexTest {
+    private static final World WORLD = world("world");
+    private static final World OTHER = world("other");
+
+    @Test
+    void emptyIndexHasNoZones() {
+        assertNull(ZoneIndex.EMPTY.getZone(WORLD, 0, 64, 0));
+        assertEquals(0, ZoneIndex.EMPTY.size());
+    }
+
+    @Test
+    void cuboidIncludesBothCorners() {
+        final Zone spawn = new Zone.Cuboid("spawn", 10, 60, 10, 0, 70, 0);
+        final ZoneIndex index = index(spawn);
+        assertSame(spawn, index.getZone(WORLD, 0, 60, 0));
+        assertSame(spawn, index.getZone(WORLD, 10.99, 70.99, 10.99));
+        assertNull(index.getZone(WORLD, 11, 65, 5));
+        assertNull(index.getZone(WORLD, -0.01, 65, 5));
+        assertNull(index.getZone(WORLD, 5, 71, 5));
+        assertNull(index.getZone(WORLD, 5, 59.99, 5));
+    }
+
+    @Test
+    void polygonFollowsItsCorners() {
+        // An L shape: the square from 0 to 20 without its 10-20/10-20 quarter
+        final Zone shape = new Zone.Polygon("shape", new double[]{0, 20, 20, 10, 10, 0}, new double[]{0, 0, 10, 10, 20, 20}, 0, 100);
+        final ZoneIndex index = index(shape);
+        assertSame(shape, index.getZone(WORLD, 5, 50, 5));
+        assertSame(shape, index.getZone(WORLD, 15, 50, 5));
+        assertSame(shape, index.getZone(WORLD, 5, 50, 15));
+        assertNull(index.getZone(WORLD, 15, 50, 15)); // The missing quarter, within the bounds
+        assertNull(index.getZone(WORLD, 5, 101, 5));
+        assertThrows(IllegalArgumentException.class, () -> new Zone.Polygon("line", new double[]{0, 1}, new double[]{0, 1}, 0, 1));
+    }
+
+    @Test
+    void zonesBelongToTheirWorld() {
+        final Map<String, List<Zone>> zones = new HashMap<>();
+        zones.put("world", Collections.singletonList(new Zone.Cuboid("a", 0, 0, 0, 5, 5, 5)));
+        zones.put("empty", Collections.emptyList());
+        final ZoneIndex index = new ZoneIndex(zones);
+        assertEquals(1, index.size());
+        assertNull(index.getZone(OTHER, 1, 1, 1));
+        assertNull(index.getZone(world("empty"), 1, 1, 1));
+    }
+
+    @Test
+    void negativeCoordinates() {
+        final Zone zone = new Zone.Cuboid("negative", -40, 0, -40, -17, 10, -17);
+        final ZoneIndex index = index(zone);
+        assertSame(zone, index.getZone(WORLD, -40, 5, -40));
+        assertSame(zone, index.getZone(WORLD, -16.5, 5, -16.5));
+        assertNull(index.getZone(WORLD, -16, 5, -16));
+        assertNull(index.getZone(WORLD, -41, 5, -20));
+    }
+
+    /**
+     * The R-tree must find exactly what checking every zone finds
+     */
+    @Test
+    void matchesCheckingEveryZone() {
+        final Random random = new Random(42);
+        final List<Zone> zones = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            final int x = random.nextInt(4000) - 2000;
+            final int z = random.nextInt(4000) - 2000;
+            if (i % 4 == 0) {
+                zones.add(new Zone.Polygon("p" + i, new double[]{x, x + 30, x + 15}, new double[]{z, z, z + 40}, 0, 255));
+            } else {
+                zones.add(new Zone.Cuboid("c" + i, x, 0, z, x + random.nextInt(60), 255, z + random.nextInt(60)));
+            }
+        }
+        final ZoneIndex index = index(zones.toArray(new Zone[0]));
+        assertEquals(500, index.size());
+
+        int inside = 0;
+        for (int i = 0; i < 20000; i++) {
+            final double x = random.nextDouble() * 4200 - 2100;
+            final double z = random.nextDouble() * 4200 - 2100;
+            final Zone found = index.getZone(WORLD, x, 64, z);
+            boolean expected = false;
+            for (final Zone zone : zones) if (zone.contains(x, 64, z)) expected = true;
+            assertEquals(expected, found != null, "at " + x + ", " + z);
+            if (found != null) {
+                assertTrue(found.contains(x, 64, z));
+                inside++;
+            }
+        }
+        assertTrue(inside > 0);
+    }
+
+    @Test
+    void chunksAreCachedUntilForgotten() {
+        final ZoneIndex index = index(new Zone.Cuboid("a", 0, 0, 0, 40, 10, 40));
+        index.getZone(WORLD, 1, 1, 1);
+        index.getZone(WORLD, 20, 1, 1);
+        index.getZone(WORLD, 1000, 1, 1000); // Cached as having no zones too
+        assertEquals(3, index.getCachedChunks());
+
+        index.forgetChunk("world", 1, 0);
+        assertEquals(2, index.getCachedChunks());
+        index.forgetChunk("other", 0, 0);
+        assertEquals(2, index.getCachedChunks());
+
+        index.forgetWorld("world");
+        assertEquals(0, index.getCachedChunks());
+        // Still found after forgetting
+        assertNotNull(index.getZone(WORLD, 1, 1, 1));
+    }
+
+    private static ZoneIndex index(Zone... zones) {
+        final Map<String, List<Zone>> byWorld = new HashMap<>();
+        byWorld.put("world", new ArrayList<>(Arrays.asList(zones)));
+        return new ZoneIndex(byWorld);
+    }
+
+    /**
+     * A world that only has a name, which is all the index uses
+     */
+    private static World world(String name) {
+        return (World) Proxy.newProxyInstance(World.class.getClassLoader(), new Class<?>[]{World.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getName":
+                    return name;
+                case "hashCode":
+                    return name.hashCode();
+                case "equals":
+                    return proxy == args[0];
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+}